@@ -0,0 +1,395 @@
+package czb.framework.bigtext.core;
+
+import czb.framework.bigtext.core.delegate.ReadCancellation;
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.search.RegexMatch;
+import czb.framework.bigtext.core.search.StreamRegexMatcher;
+import czb.framework.bigtext.core.stats.TextStats;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * 大文本文件的异步操作类，每个操作都返回 {@link CompletableFuture} ，调用方不需要等待整个文本读取完成
+ * <p>操作交给 {@link #executor} 执行，可以传入任意的 {@link Executor} ，例如 JDK 21 的
+ * Executors.newVirtualThreadPerTaskExecutor() ，每个操作使用一个虚拟线程。</p>
+ * <p>取消返回的 {@link CompletableFuture} 后，底层的读取循环会在下一个段的边界上停止，见 {@link ReadCancellation} ；
+ * 还没有开始执行的操作不会再执行。</p>
+ * <p>生成新文本文件的操作使用同一个 {@link TempFileGenerator} ，同时执行的两个这样的操作可能写入同一个临时文件，
+ * 需要通过 {@link CompletableFuture#thenCompose} 等方式依次执行，或者使用不同的 {@link CzbBigText} 实例</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class AsyncCzbBigText {
+
+    /**
+     * 实际执行操作的大文本文件操作类
+     */
+    private CzbBigText czbBigText;
+    /**
+     * 执行操作的执行器
+     */
+    private Executor executor;
+
+    /**
+     * 新建一个 {@link AsyncCzbBigText} 实例，使用 {@link ForkJoinPool#commonPool()} 执行操作
+     * <p>与 {@link CompletableFuture#supplyAsync(Supplier)} 一样使用公共线程池；操作会长时间阻塞在文件读写上，
+     * 建议通过 {@link #AsyncCzbBigText(CzbBigText, Executor)} 传入专用的执行器</p>
+     * @param czbBigText 实际执行操作的大文本文件操作类
+     */
+    public AsyncCzbBigText(CzbBigText czbBigText) {
+        this(czbBigText,ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 新建一个 {@link AsyncCzbBigText} 实例
+     * @param czbBigText 实际执行操作的大文本文件操作类
+     * @param executor 执行操作的执行器
+     */
+    public AsyncCzbBigText(CzbBigText czbBigText, Executor executor) {
+        this.czbBigText = czbBigText;
+        this.executor = executor;
+    }
+
+    /**
+     * 在 {@link #executor} 中执行操作
+     * <p>操作执行期间，当前线程绑定的取消标记就是 future 是否已取消，读取循环据此在段的边界上停止</p>
+     * @param action 要执行的操作
+     * @param <T> 操作的结果类型
+     * @return 操作的结果
+     */
+    private <T> CompletableFuture<T> supply(Supplier<T> action){
+        CompletableFuture<T> future=new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                //开始执行前已经取消
+                if(future.isDone()){
+                    return;
+                }
+                try {
+                    future.complete(ReadCancellation.call(future::isCancelled,action));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#length()}
+     */
+    public CompletableFuture<Long> length(){
+        return supply(() -> czbBigText.length());
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#lengthNoCRLF()}
+     */
+    public CompletableFuture<Long> lengthNoCRLF(){
+        return supply(() -> czbBigText.lengthNoCRLF());
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#stats()}
+     */
+    public CompletableFuture<TextStats> stats(){
+        return supply(() -> czbBigText.stats());
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#indexOf(String)}
+     */
+    public CompletableFuture<Long> indexOf(String toFindStr){
+        return supply(() -> czbBigText.indexOf(toFindStr));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#indexOf(String, long)}
+     */
+    public CompletableFuture<Long> indexOf(String toFindStr, long fromIndex){
+        return supply(() -> czbBigText.indexOf(toFindStr,fromIndex));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#contains(String)}
+     */
+    public CompletableFuture<Boolean> contains(String str){
+        return supply(() -> czbBigText.contains(str));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#indexOfAny(String...)}
+     */
+    public CompletableFuture<Long> indexOfAny(String... keywords){
+        return supply(() -> czbBigText.indexOfAny(keywords));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#indexOfAny(long, String...)}
+     */
+    public CompletableFuture<Long> indexOfAny(long fromIndex, String... keywords){
+        return supply(() -> czbBigText.indexOfAny(fromIndex,keywords));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#containsAll(String...)}
+     */
+    public CompletableFuture<Boolean> containsAll(String... keywords){
+        return supply(() -> czbBigText.containsAll(keywords));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#countMatches(String...)}
+     */
+    public CompletableFuture<Map<String,Long>> countMatches(String... keywords){
+        return supply(() -> czbBigText.countMatches(keywords));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#findAll(Pattern)}
+     */
+    public CompletableFuture<List<RegexMatch>> findAll(Pattern pattern){
+        return supply(() -> czbBigText.findAll(pattern));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#replace(String, String)}
+     */
+    public CompletableFuture<File> replace(String oldStr, String newStr){
+        return supply(() -> czbBigText.replace(oldStr,newStr));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#replaceAll(Map)}
+     */
+    public CompletableFuture<File> replaceAll(Map<String,String> replacements){
+        return supply(() -> czbBigText.replaceAll(replacements));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#replaceAll(Pattern, String)}
+     */
+    public CompletableFuture<File> replaceAll(Pattern pattern, String replacement){
+        return supply(() -> czbBigText.replaceAll(pattern,replacement));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#replaceFirst(String, String)}
+     */
+    public CompletableFuture<File> replaceFirst(String oldStr, String newStr){
+        return supply(() -> czbBigText.replaceFirst(oldStr,newStr));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#split(String)}
+     */
+    public CompletableFuture<List<File>> split(String splitStr){
+        return supply(() -> czbBigText.split(splitStr));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#split(String, int)}
+     */
+    public CompletableFuture<List<File>> split(String splitStr, int limit){
+        return supply(() -> czbBigText.split(splitStr,limit));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#split(String, int, Consumer)}
+     */
+    public CompletableFuture<Integer> split(String splitStr, int limit, Consumer<File> partConsumer){
+        return supply(() -> czbBigText.split(splitStr,limit,partConsumer));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#split(Pattern)}
+     */
+    public CompletableFuture<List<File>> split(Pattern pattern){
+        return supply(() -> czbBigText.split(pattern));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#split(Pattern, int)}
+     */
+    public CompletableFuture<List<File>> split(Pattern pattern, int limit){
+        return supply(() -> czbBigText.split(pattern,limit));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#shard(int)}
+     */
+    public CompletableFuture<List<File>> shard(int n){
+        return supply(() -> czbBigText.shard(n));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#shardBySize(long)}
+     */
+    public CompletableFuture<List<File>> shardBySize(long size){
+        return supply(() -> czbBigText.shardBySize(size));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#join(String, File...)}
+     */
+    public CompletableFuture<File> join(String delimiter, File... joinFiles){
+        return supply(() -> czbBigText.join(delimiter,joinFiles));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#join(String, String...)}
+     */
+    public CompletableFuture<File> join(String delimiter, String... joinStrs){
+        return supply(() -> czbBigText.join(delimiter,joinStrs));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#insert(long, String)}
+     */
+    public CompletableFuture<File> insert(long offset, String str){
+        return supply(() -> czbBigText.insert(offset,str));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#insert(long, File)}
+     */
+    public CompletableFuture<File> insert(long offset, File file){
+        return supply(() -> czbBigText.insert(offset,file));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#toLowerCase()}
+     */
+    public CompletableFuture<File> toLowerCase(){
+        return supply(() -> czbBigText.toLowerCase());
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#toLowerCase(Locale)}
+     */
+    public CompletableFuture<File> toLowerCase(Locale locale){
+        return supply(() -> czbBigText.toLowerCase(locale));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#toUpperCase()}
+     */
+    public CompletableFuture<File> toUpperCase(){
+        return supply(() -> czbBigText.toUpperCase());
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#toUpperCase(Locale)}
+     */
+    public CompletableFuture<File> toUpperCase(Locale locale){
+        return supply(() -> czbBigText.toUpperCase(locale));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#trim()}
+     */
+    public CompletableFuture<File> trim(){
+        return supply(() -> czbBigText.trim());
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#trimNoCRLF()}
+     */
+    public CompletableFuture<File> trimNoCRLF(){
+        return supply(() -> czbBigText.trimNoCRLF());
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#substring(int, int)}
+     */
+    public CompletableFuture<File> substring(int begin, int end){
+        return supply(() -> czbBigText.substring(begin,end));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#materialize()}
+     */
+    public CompletableFuture<File> materialize(){
+        return supply(() -> czbBigText.materialize());
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#lineCount()}
+     */
+    public CompletableFuture<Long> lineCount(){
+        return supply(() -> czbBigText.lineCount());
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#lineAt(long)}
+     */
+    public CompletableFuture<String> lineAt(long line){
+        return supply(() -> czbBigText.lineAt(line));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#linesBetween(long, long)}
+     */
+    public CompletableFuture<File> linesBetween(long fromLine, long toLine){
+        return supply(() -> czbBigText.linesBetween(fromLine,toLine));
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#findAll(Pattern, StreamRegexMatcher.MatchListener)}
+     */
+    public CompletableFuture<Void> findAll(Pattern pattern, StreamRegexMatcher.MatchListener listener){
+        return supply(() -> {
+            czbBigText.findAll(pattern,listener);
+            return null;
+        });
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#readFile(ReadSegmentCallback)}
+     */
+    public CompletableFuture<Void> readFile(ReadSegmentCallback callback){
+        return supply(() -> {
+            czbBigText.readFile(callback);
+            return null;
+        });
+    }
+
+    /**
+     * 异步执行 {@link CzbBigText#readFile(long, ReadSegmentCallback)}
+     */
+    public CompletableFuture<Void> readFile(long offset, ReadSegmentCallback callback){
+        return supply(() -> {
+            czbBigText.readFile(offset,callback);
+            return null;
+        });
+    }
+
+    /**
+     * 获取 实际执行操作的大文本文件操作类
+     * @see #czbBigText
+     */
+    public CzbBigText getCzbBigText() {
+        return czbBigText;
+    }
+
+    /**
+     * 获取 执行操作的执行器
+     * @see #executor
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+}
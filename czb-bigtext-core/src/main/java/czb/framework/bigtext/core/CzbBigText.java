@@ -1,12 +1,45 @@
 package czb.framework.bigtext.core;
 
+import czb.framework.bigtext.core.cache.FileVersion;
+import czb.framework.bigtext.core.cache.MetadataCache;
+import czb.framework.bigtext.core.cache.TextMetadata;
 import czb.framework.bigtext.core.command.*;
+import czb.framework.bigtext.core.delegate.ByteLengthDelegate;
+import czb.framework.bigtext.core.delegate.ByteRangeDelegate;
+import czb.framework.bigtext.core.delegate.InPlaceDelegate;
+import czb.framework.bigtext.core.delegate.LineReadDelegate;
+import czb.framework.bigtext.core.delegate.ParallelReadDelegate;
 import czb.framework.bigtext.core.delegate.ReadFileDelegate;
+import czb.framework.bigtext.core.delegate.ReverseReadDelegate;
+import czb.framework.bigtext.core.delegate.ShardDelegate;
+import czb.framework.bigtext.core.delegate.ViewReadFileDelegate;
 import czb.framework.bigtext.core.delegate.callback.ReadFileCallback;
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.exception.BigTextException;
+import czb.framework.bigtext.core.index.CheckpointIndex;
+import czb.framework.bigtext.core.index.LineIndex;
+import czb.framework.bigtext.core.output.ChannelOutputSink;
+import czb.framework.bigtext.core.output.FsyncPolicy;
+import czb.framework.bigtext.core.output.OutputSinkFactory;
+import czb.framework.bigtext.core.search.AhoCorasick;
+import czb.framework.bigtext.core.search.RegexMatch;
+import czb.framework.bigtext.core.search.StreamRegexMatcher;
+import czb.framework.bigtext.core.session.SessionRegistry;
+import czb.framework.bigtext.core.stats.TextStats;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 /**
  * 大文本文件操作类，提供与{@link String}类似的操作文本方法
@@ -49,6 +82,48 @@ public class CzbBigText {
      * 该文本文件的字符数缓存，该字符数不包含回车换行
      */
     private long lengthNoCRLF=-1;
+    /**
+     * 该文本文件的统计结果缓存
+     */
+    private TextStats textStats;
+    /**
+     * 按行读取文本文件的助手，第一次按行读取时创建
+     */
+    private LineReadDelegate lineReadDelegate;
+    /**
+     * 按字节范围并行读取文本文件的助手，为 null 表示不使用并行模式
+     * <p>通过 {@link #setParallelPool(ForkJoinPool)} 开启并行模式</p>
+     */
+    private ParallelReadDelegate parallelReadDelegate;
+    /**
+     * 正则表达式操作中匹配项的最大长度，默认：{@link StreamRegexMatcher#DEFAULT_MAX_MATCH_LENGTH}
+     * <p>流式查找只在这么长的滑动窗口中等待匹配结果，超过该长度的匹配项会被截断</p>
+     */
+    private int maxMatchLength=StreamRegexMatcher.DEFAULT_MAX_MATCH_LENGTH;
+    /**
+     * 写入新文本文件时强制同步的时机，默认：{@link FsyncPolicy#NEVER}
+     */
+    private FsyncPolicy fsyncPolicy=FsyncPolicy.NEVER;
+    /**
+     * 打开新文本文件的输出端的工厂，为 null 表示使用源文本编码的 {@link ChannelOutputSink}
+     */
+    private OutputSinkFactory outputSinkFactory;
+    /**
+     * 正在跟随该文本文件的会话，为 null 表示没有跟随
+     */
+    private TextFollower follower;
+    /**
+     * 在多个实例之间共享字符数、统计结果和检查点的元数据缓存，默认：{@link MetadataCache#getDefault()} ；为 null 表示不共享
+     */
+    private MetadataCache metadataCache=MetadataCache.getDefault();
+    /**
+     * {@link #length} 、{@link #lengthNoCRLF} 和 {@link #textStats} 所属的文件版本，为 null 表示还没有检查过
+     */
+    private FileVersion cachedVersion;
+    /**
+     * 文本文件的规范路径，第一次检查文件版本时解析
+     */
+    private String canonicalPath;
 
     /**
      * 新建一个 {@link CzbBigText} 实例
@@ -96,30 +171,155 @@ public class CzbBigText {
 
     /**
      * 获取该文本文件的文本字符数【包含回车换行】
-     * <p>该方法的返回结果会被 {@link #length} 缓存起来,后面的调用将直接返回 {@link #length}</p>
+     * <p>该方法的返回结果会被 {@link #length} 缓存起来,后面的调用将直接返回 {@link #length}；
+     * 文本文件被修改后缓存自动失效，同一版本的文本文件在其他实例中统计过时直接使用 {@link #metadataCache} 中的结果，见 {@link #validateCaches()}</p>
+     * <p>{@link #stats()} 也会缓存该结果；没有缓存时，编码为 UTF-8 或单字节编码则直接统计字节，不经过字符解码，
+     * 见 {@link #countLength()} ，否则调用 {@link #stats()} 统计</p>
      * @return 该文本文件的文本字符数【包含回车换行】
      */
     public long length(){
+        validateCaches();
         if(length!=-1){
             return length;
         }
-        LengthCommand lengthCommand=new LengthCommand();
-        readFile(lengthCommand);
-        return length=lengthCommand.getLength();
+        if(!countLength()){
+            length=stats().getLength();
+        }
+        publishCaches();
+        return length;
     }
 
     /**
      * 获取该文本文件的文本字符数【不包含回车换行】
-     * <p>该方法的返回结果会被 {@link #lengthNoCRLF} 缓存起来,后面的调用将直接返回 {@link #lengthNoCRLF}</p>
+     * <p>该方法的返回结果会被 {@link #lengthNoCRLF} 缓存起来,后面的调用将直接返回 {@link #lengthNoCRLF}；
+     * 与 {@link #length()} 一样，文本文件被修改后缓存自动失效</p>
+     * <p>{@link #stats()} 也会缓存该结果；没有缓存时，编码为 UTF-8 或单字节编码则直接统计字节，不经过字符解码，
+     * 见 {@link #countLength()} ，否则调用 {@link #stats()} 统计</p>
      * @return 该文本文件的文本字符数【不包含回车换行】
      */
     public long lengthNoCRLF(){
+        validateCaches();
         if(lengthNoCRLF!=-1){
             return lengthNoCRLF;
         }
-        LengthNoCRLFCommand lengthNoCRLFCommand = new LengthNoCRLFCommand();
-        readFile(lengthNoCRLFCommand);
-        return lengthNoCRLF=lengthNoCRLFCommand.getLength();
+        if(!countLength()){
+            lengthNoCRLF=stats().getLengthNoCRLF();
+        }
+        publishCaches();
+        return lengthNoCRLF;
+    }
+
+    /**
+     * 一次读取同时统计该文本文件的多项数据
+     * <p>该方法的返回结果会被 {@link #textStats} 缓存起来,后面的调用将直接返回 {@link #textStats} ，
+     * 同时也会缓存 {@link #length} 和 {@link #lengthNoCRLF}；与 {@link #length()} 一样，文本文件被修改后缓存自动失效</p>
+     * <p>开启并行模式时按字节范围并行统计</p>
+     * @return 文本统计结果
+     * @see TextStats
+     */
+    public TextStats stats(){
+        validateCaches();
+        if(textStats!=null){
+            return textStats;
+        }
+        if(isParallel()){
+            textStats=parallelReadDelegate.stats();
+        }else{
+            TextStatsCommand command=new TextStatsCommand();
+            readFile(command);
+            textStats=command.getTextStats();
+        }
+        length=textStats.getLength();
+        lengthNoCRLF=textStats.getLengthNoCRLF();
+        publishCaches();
+        return textStats;
+    }
+
+    /**
+     * 检查缓存的结果是否属于文本文件当前的版本
+     * <p>文本文件的版本（见 {@link FileVersion}）变化时丢弃 {@link #length} 、{@link #lengthNoCRLF} 和 {@link #textStats} ；
+     * 然后从 {@link #metadataCache} 取出当前版本的元数据，其他实例已经统计过的结果和建立的检查点（记录间隔相同时）可以直接使用。
+     * 视图和跟随期间不检查，跟随期间的结果由 {@link TextFollower} 维护</p>
+     */
+    private synchronized void validateCaches(){
+        if(metadataCache==null || follower!=null || isView()){
+            return;
+        }
+        File textFile=readFileDelegate.getTextFile();
+        if(canonicalPath==null){
+            try {
+                canonicalPath=textFile.getCanonicalPath();
+            } catch (IOException e) {
+                throw new BigTextException(" read text file: "+textFile.getAbsolutePath()+",throw IO exception: ",e);
+            }
+        }
+        FileVersion version=FileVersion.of(canonicalPath,textFile);
+        //文本文件不存在时由后面的读取抛出异常
+        if(version==null || version.equals(cachedVersion)){
+            return;
+        }
+        if(cachedVersion!=null){
+            length=-1;
+            lengthNoCRLF=-1;
+            textStats=null;
+        }
+        cachedVersion=version;
+        TextMetadata metadata=metadataCache.get(version,readFileDelegate.getCharset());
+        if(metadata==null){
+            return;
+        }
+        if(textStats==null && metadata.getTextStats()!=null){
+            textStats=metadata.getTextStats();
+        }
+        if(length==-1){
+            length=metadata.getLength();
+            lengthNoCRLF=metadata.getLengthNoCRLF();
+        }
+        CheckpointIndex checkpointIndex=readFileDelegate.getCheckpointIndex();
+        long[][] checkpoints=metadata.getCheckpoints();
+        if(checkpoints!=null && checkpointIndex!=null && metadata.getCheckpointInterval()==checkpointIndex.getInterval()
+                && !checkpointIndex.isAvailable()){
+            checkpointIndex.restore(checkpoints[0],checkpoints[1],version.getSize(),version.getLastModified());
+        }
+    }
+
+    /**
+     * 把统计出来的结果和已经建立的检查点放入 {@link #metadataCache} ，供同一版本的文本文件的其他实例使用
+     */
+    private synchronized void publishCaches(){
+        if(metadataCache==null || follower!=null || isView() || cachedVersion==null){
+            return;
+        }
+        CheckpointIndex checkpointIndex=readFileDelegate.getCheckpointIndex();
+        boolean indexed= checkpointIndex!=null && checkpointIndex.isAvailable();
+        metadataCache.put(cachedVersion,readFileDelegate.getCharset(),new TextMetadata(length,lengthNoCRLF,textStats,
+                indexed ? checkpointIndex.getInterval() : 0,indexed ? checkpointIndex.getCheckpoints() : null));
+    }
+
+    /**
+     * 直接统计字节，同时得到 {@link #length} 和 {@link #lengthNoCRLF}
+     * <p>开启并行模式时按字节范围并行统计</p>
+     * @return 统计成功返回 true ；编码不支持或文本不是格式正确的 UTF-8 时返回 false ，需要改为解码统计
+     * @see ByteLengthDelegate
+     */
+    private boolean countLength(){
+        if(isView() || !ByteLengthDelegate.isSupported(readFileDelegate.getCharset())){
+            return false;
+        }
+        long[] result;
+        if(isParallel()){
+            result=parallelReadDelegate.countLength();
+        }else{
+            ByteLengthDelegate byteLengthDelegate=new ByteLengthDelegate(readFileDelegate.getTextFile(),readFileDelegate.getCharset());
+            byteLengthDelegate.setSessionRegistry(readFileDelegate.getSessionRegistry());
+            result=byteLengthDelegate.count();
+        }
+        if(result[0]==-1){
+            return false;
+        }
+        length=result[0];
+        lengthNoCRLF=result[1];
+        return true;
     }
 
     /**
@@ -140,11 +340,79 @@ public class CzbBigText {
      * @return target 本文中第一个匹配项的索引
      */
     public long indexOf(String toFindStr,long fromIndex)  {
+        //与 String#indexOf(String, int) 一样，空字符串匹配 fromIndex 所在的位置
+        if(toFindStr.isEmpty()){
+            return Math.min(Math.max(fromIndex,0),length());
+        }
+        if(isParallel()){
+            return parallelReadDelegate.indexOf(toFindStr,fromIndex);
+        }
         IndexOfCommand command=new IndexOfCommand(toFindStr,fromIndex);
-        readFile(fromIndex, toFindStr, command);
+        readFile(fromIndex, command);
         return command.getGlobalPos();
     }
 
+    /**
+     * 从最后一个字符开始向前查找 target 本文中最后一个匹配项的索引
+     * <p>对应 {@link String#lastIndexOf(String)}</p>
+     * @param toFindStr 要查找的字符串
+     * @return target 本文中最后一个匹配项的索引；没有找到时返回 -1
+     * @see #lastIndexOf(String, long)
+     */
+    public long lastIndexOf(String toFindStr){
+        return lastIndexOf(toFindStr,Long.MAX_VALUE);
+    }
+
+    /**
+     * 从 fromIndex 开始向前查找 target 本文中最后一个匹配项的索引
+     * <p>对应 {@link String#lastIndexOf(String, int)}，匹配项的开始索引不超过 fromIndex</p>
+     * <p>编码支持时（见 {@link ReverseReadDelegate#isSupported(String)}）从文件结尾向前按块读取，找到匹配项就停止，
+     * 只读取文件的结尾部分；否则从文件开头读取到 fromIndex 为止。匹配项的索引通过 {@link #length()} 换算，
+     * UTF-8 和单字节编码的字符数只需要按字节统计，不需要解码</p>
+     * @param toFindStr 要查找的字符串
+     * @param fromIndex 开始向前搜索的索引
+     * @return target 本文中最后一个匹配项的索引；没有找到时返回 -1
+     */
+    public long lastIndexOf(String toFindStr, long fromIndex){
+        if(fromIndex<0){
+            return -1;
+        }
+        long length=length();
+        //与 String#lastIndexOf(String, int) 一样，空字符串匹配 fromIndex 所在的位置
+        if(toFindStr.isEmpty()){
+            return Math.min(fromIndex,length);
+        }
+        LastIndexOfCommand command=new LastIndexOfCommand(toFindStr,Math.min(fromIndex,length),length);
+        if(isReversible()){
+            getReverseReadDelegate().readBackward(command);
+        }else{
+            readFile(command);
+        }
+        return command.getGlobalPos();
+    }
+
+    /**
+     * 本文是否以 suffix 结尾
+     * <p>对应 {@link String#endsWith(String)}；编码支持时只从文件结尾向前读取 suffix 的长度</p>
+     * @param suffix 后缀
+     * @return 如果本文以 suffix 结尾，返回 true ;否则返回 false
+     */
+    public boolean endsWith(String suffix){
+        if(suffix.isEmpty()){
+            return true;
+        }
+        if(!isReversible()){
+            long length=length();
+            return length>=suffix.length() && indexOf(suffix,length-suffix.length())==length-suffix.length();
+        }
+        StringBuilder tail=new StringBuilder();
+        getReverseReadDelegate().readBackward((charsAfter, buff, offset, length) -> {
+            tail.insert(0,buff,offset,length);
+            return tail.length()>=suffix.length();
+        });
+        return tail.length()>=suffix.length() && tail.lastIndexOf(suffix)==tail.length()-suffix.length();
+    }
+
     /**
      * 本文是否包含 str
      * @param str 要查找的字符串
@@ -154,6 +422,85 @@ public class CzbBigText {
         return indexOf(str)>-1;
     }
 
+    /**
+     * 查找多个关键字，返回本文中任意一个关键字第一个匹配项的索引
+     * <p>使用 Aho-Corasick 自动机一次读取同时查找所有关键字，见 {@link IndexOfAnyCommand}</p>
+     * @param keywords 要查找的关键字，不能包含空字符串
+     * @return 第一个匹配项的索引；没有找到时返回 -1
+     */
+    public long indexOfAny(String... keywords){
+        return indexOfAny(0,keywords);
+    }
+
+    /**
+     * 从 fromIndex 开始查找多个关键字，返回本文中任意一个关键字第一个匹配项的索引
+     * <p>使用 Aho-Corasick 自动机一次读取同时查找所有关键字，见 {@link IndexOfAnyCommand}</p>
+     * @param fromIndex 开始搜索的索引
+     * @param keywords 要查找的关键字，不能包含空字符串
+     * @return 第一个匹配项的索引；没有找到时返回 -1
+     */
+    public long indexOfAny(long fromIndex, String... keywords){
+        if(keywords.length==0){
+            return -1;
+        }
+        fromIndex=Math.max(fromIndex,0);
+        IndexOfAnyCommand command=new IndexOfAnyCommand(new AhoCorasick(keywords),fromIndex);
+        readFile(fromIndex, command);
+        return command.getGlobalPos();
+    }
+
+    /**
+     * 本文是否包含所有关键字
+     * <p>使用 Aho-Corasick 自动机一次读取同时查找所有关键字，所有关键字都找到后立即终止读取</p>
+     * @param keywords 要查找的关键字，不能包含空字符串
+     * @return 如果本文包含所有关键字，则为 true ;否则为 false
+     */
+    public boolean containsAll(String... keywords){
+        if(keywords.length==0){
+            return true;
+        }
+        ContainsAllCommand command=new ContainsAllCommand(new AhoCorasick(keywords));
+        readFile(command);
+        return command.isContainsAll();
+    }
+
+    /**
+     * 统计每个关键字在本文中的出现次数
+     * <p>使用 Aho-Corasick 自动机一次读取同时统计所有关键字；同一个关键字互相重叠的匹配项只统计从左到右不重叠的部分，
+     * 见 {@link CountMatchesCommand}</p>
+     * @param keywords 要统计的关键字，不能包含空字符串
+     * @return 按关键字顺序排列的 关键字 -&gt; 出现次数，重复的关键字只出现一次
+     */
+    public Map<String,Long> countMatches(String... keywords){
+        CountMatchesCommand command=new CountMatchesCommand(new AhoCorasick(keywords));
+        if(keywords.length>0){
+            readFile(command);
+        }
+        return command.getCounts();
+    }
+
+    /**
+     * 查找本文中正则表达式的所有匹配项
+     * <p>匹配项按从左到右、互不重叠的方式查找，与 {@link java.util.regex.Matcher#find()} 一致；
+     * 使用 {@link StreamRegexMatcher} 在滑动窗口中跨段查找，匹配项的长度不能超过 {@link #maxMatchLength}</p>
+     * @param pattern 要查找的正则表达式
+     * @return 所有匹配项，按在本文中的先后顺序排列
+     */
+    public List<RegexMatch> findAll(Pattern pattern){
+        List<RegexMatch> matches=new ArrayList<>();
+        findAll(pattern,(position, result) -> matches.add(new RegexMatch(position,result)));
+        return matches;
+    }
+
+    /**
+     * 查找本文中正则表达式的所有匹配项，每找到一个匹配项就交给 listener 处理，不会在内存中保存匹配项
+     * @param pattern 要查找的正则表达式
+     * @param listener 匹配结果监听器，返回 false 后终止读取
+     */
+    public void findAll(Pattern pattern, StreamRegexMatcher.MatchListener listener){
+        readFile(new RegexFindCommand(pattern,maxMatchLength,listener));
+    }
+
     /**
      * 将本文的 oldStr 覆盖成 newStr
      * @param oldStr 旧字符串
@@ -163,7 +510,42 @@ public class CzbBigText {
     public File replace(String oldStr, String newStr ){
         File tempFile = tempFileGenerator.getTempFile();
         try {
-            readFile(0,oldStr,new ReplaceCommand(oldStr,newStr,tempFile));
+            readFile(output(new ReplaceCommand(oldStr,newStr,tempFile)));
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+        return tempFile;
+    }
+
+    /**
+     * 一次读取把本文中的多个 oldStr 分别覆盖成对应的 newStr
+     * <p>匹配项按最左最长的方式选择：开始位置最早的优先，开始位置相同时最长的优先；被覆盖的文本不会再参与匹配，
+     * 覆盖后的 newStr 也不会再被覆盖</p>
+     * @param replacements 旧字符串 -&gt; 新字符串，旧字符串不能为空字符串
+     * @return 新文本文件，该文件存放覆盖后的文本内容；文件由 {@link #tempFileGenerator} 生成
+     */
+    public File replaceAll(Map<String,String> replacements){
+        File tempFile = tempFileGenerator.getTempFile();
+        try {
+            readFile(output(new DictionaryReplaceCommand(replacements,tempFile)));
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+        return tempFile;
+    }
+
+    /**
+     * 将本文中正则表达式的所有匹配项覆盖成 replacement
+     * <p>与 {@link String#replaceAll(String, String)} 一致，replacement 中可以使用 $n 、${name} 引用捕获组；
+     * 使用 {@link StreamRegexMatcher} 在滑动窗口中跨段查找，匹配项的长度不能超过 {@link #maxMatchLength}</p>
+     * @param pattern 要查找的正则表达式
+     * @param replacement 替换字符串
+     * @return 新文本文件，该文件存放覆盖后的文本内容；文件由 {@link #tempFileGenerator} 生成
+     */
+    public File replaceAll(Pattern pattern, String replacement){
+        File tempFile = tempFileGenerator.getTempFile();
+        try {
+            readFile(output(new RegexReplaceCommand(pattern,replacement,maxMatchLength,tempFile)));
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         }
@@ -179,7 +561,7 @@ public class CzbBigText {
     public File replaceFirst(String oldStr,String newStr){
         File tempFile = tempFileGenerator.getTempFile();
         try {
-            readFile(0,oldStr,new ReplaceFirstCommand(oldStr,newStr,tempFile));
+            readFile(output(new ReplaceFirstCommand(oldStr,newStr,tempFile)));
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         }
@@ -204,20 +586,113 @@ public class CzbBigText {
      */
     public List<File> split(String splitStr ,int limit){
         SplitCommand command=new SplitCommand(splitStr,limit,tempFileGenerator);
-        readFile(0,splitStr,command);
+        command.setOutputSinkFactory(getOutputSinkFactory());
+        readFile(command);
         return command.getTempFileList();
     }
 
+    /**
+     * 使用 splitStr 作为分隔符 对本文进行切分成多个文本文件，每个新文本文件关闭后立即交给 partConsumer
+     * <p>不会在内存中保存文件列表，适合切分出大量文件的情况；与 {@link #split(String, int)} 一样，不限制最大分割数时
+     * 结尾的空文本文件会被删除，不会交给 partConsumer</p>
+     * @param splitStr 分隔符，按字面匹配
+     * @param limit 最大分割数，当达到分割数后，即使可以分割，也不会再分割；如果为-1表示不限制
+     * @param partConsumer 新文本文件关闭后的处理者，按文件的顺序在读取线程中调用
+     * @return 新文本文件数
+     */
+    public int split(String splitStr, int limit, Consumer<File> partConsumer){
+        return split(splitStr,limit,partConsumer,null);
+    }
+
+    /**
+     * 使用 splitStr 作为分隔符 对本文进行切分成多个文本文件，新文本文件在 writerPool 中后台写入，关闭后立即交给 partConsumer
+     * <p>读取线程只负责查找分隔符和复制文本，写入交给 writerPool ，不同的新文本文件可以同时写入；
+     * 方法返回时所有的新文本文件都已经写入并交给 partConsumer</p>
+     * @param splitStr 分隔符，按字面匹配
+     * @param limit 最大分割数，当达到分割数后，即使可以分割，也不会再分割；如果为-1表示不限制
+     * @param partConsumer 新文本文件关闭后的处理者，可能在写入线程中被并发调用，调用顺序也不一定是文件的顺序
+     * @param writerPool 后台写入新文本文件的线程池，为 null 表示在读取线程中直接写入
+     * @return 新文本文件数
+     * @throws czb.framework.bigtext.core.exception.BigTextException 如果写入新文本文件或者 partConsumer 出现异常，此时会终止读取
+     */
+    public int split(String splitStr, int limit, Consumer<File> partConsumer, ExecutorService writerPool){
+        SplitCommand command=new SplitCommand(splitStr,limit,tempFileGenerator,partConsumer,writerPool);
+        command.setOutputSinkFactory(getOutputSinkFactory());
+        readFile(command);
+        return command.getPartCount();
+    }
+
+    /**
+     * 使用正则表达式作为分隔符 对本文进行切分成多个文本文件
+     * <p>与 {@link String#split(String)} 一致；分隔符的长度不能超过 {@link #maxMatchLength}</p>
+     * @param pattern 分隔符的正则表达式
+     * @return 新文本文件列表，这些文件存放着分割后的每段文本内容；文件由 {@link #tempFileGenerator} 生成
+     */
+    public List<File> split(Pattern pattern){
+        return split(pattern,-1);
+    }
+
+    /**
+     * 使用正则表达式作为分隔符 对本文进行切分成多个文本文件，并限制最大分割数
+     * <p>当达到分割数后，即使可以分割，也不会再分割</p>
+     * @param pattern 分隔符的正则表达式
+     * @param limit 最大分割数，当达到分割数后，即使可以分割，也不会再分割
+     * @return 新文本文件列表，这些文件存放着分割后的每段文本内容；文件由 {@link #tempFileGenerator} 生成
+     */
+    public List<File> split(Pattern pattern ,int limit){
+        SplitCommand command=new SplitCommand(pattern,maxMatchLength,limit,tempFileGenerator);
+        command.setOutputSinkFactory(getOutputSinkFactory());
+        readFile(command);
+        return command.getTempFileList();
+    }
+
+    /**
+     * 按行边界把本文切分成 n 个字节数大致相等的分片文件，供下游并行处理
+     * <p>定位到每个目标字节位置后向后找到下一个换行作为切分点，再用 {@link java.nio.channels.FileChannel#transferTo} 复制，
+     * 不解码任何字符，见 {@link ShardDelegate}；一行比分片还长时，实际的分片数可能少于 n</p>
+     * @param n 分片数，必须大于 0
+     * @return 分片文件列表，按先后顺序排列；文件由 {@link #tempFileGenerator} 生成
+     * @throws IllegalArgumentException 如果文本编码不是 UTF-8 或单字节编码
+     * @throws UnsupportedOperationException 如果该文本是视图，需要先 {@link #materialize()}
+     */
+    public List<File> shard(int n){
+        checkNotView("shard");
+        ShardDelegate shardDelegate=new ShardDelegate(readFileDelegate.getTextFile(),readFileDelegate.getCharset());
+        return shardDelegate.copyRanges(shardDelegate.cutRanges(n),tempFileGenerator);
+    }
+
+    /**
+     * 按行边界把本文切分成每个约 size 字节的分片文件，供下游并行处理
+     * <p>每个分片延伸到 size 字节之后的第一个换行，不解码任何字符，见 {@link ShardDelegate}</p>
+     * @param size 每个分片的目标字节数，必须大于 0
+     * @return 分片文件列表，按先后顺序排列；文件由 {@link #tempFileGenerator} 生成
+     * @throws IllegalArgumentException 如果文本编码不是 UTF-8 或单字节编码
+     * @throws UnsupportedOperationException 如果该文本是视图，需要先 {@link #materialize()}
+     */
+    public List<File> shardBySize(long size){
+        checkNotView("shard");
+        ShardDelegate shardDelegate=new ShardDelegate(readFileDelegate.getTextFile(),readFileDelegate.getCharset());
+        return shardDelegate.copyRanges(shardDelegate.cutRangesBySize(size),tempFileGenerator);
+    }
+
     /**
      * 连接本文内容和 joinFiles 的文本内容，形成一个新的文本文件
+     * <p>joinFiles 按 UTF-8 读取；本文的编码也是 UTF-8 时，所有文件都按字节直接复制，不解码任何文件，
+     * 见 {@link ByteRangeDelegate#join(String, File[], File)}</p>
      * @param delimiter 连接内容所使用的分隔符
      * @param joinFiles 要连接的文本文件
      * @return 新文本文件，该文件存放连接后的文本内容；文件由 {@link #tempFileGenerator} 生成
      */
     public File join(String delimiter,File... joinFiles){
         File tempFile=tempFileGenerator.getTempFile();
+        ByteRangeDelegate byteRangeDelegate=getByteRangeDelegate();
+        if(byteRangeDelegate!=null && joinFiles.length>0
+                && Charset.forName(readFileDelegate.getCharset()).equals(Charset.forName(CHARSET))){
+            byteRangeDelegate.join(delimiter,joinFiles,tempFile);
+            return tempFile;
+        }
         try {
-            readFile(new JoinFileCommand(tempFile,delimiter,joinFiles,MAX_SEGMENT_LENGTH,CHARSET));
+            readFile(output(new JoinFileCommand(tempFile,delimiter,joinFiles,MAX_SEGMENT_LENGTH,CHARSET)));
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         }
@@ -233,7 +708,7 @@ public class CzbBigText {
     public File join(String delimiter,String... joinStrs){
         File tempFile=tempFileGenerator.getTempFile();
         try {
-            readFile(new JoinStrCommand(tempFile,delimiter,joinStrs));
+            readFile(output(new JoinStrCommand(tempFile,delimiter,joinStrs)));
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         }
@@ -242,6 +717,7 @@ public class CzbBigText {
 
     /**
      * 将 str 插入到文本的 offset 索引后面
+     * <p>能按字节范围复制时（见 {@link #getByteRangeDelegate()}），offset 前后的文本直接按字节复制，只编码 str</p>
      * @param offset 该文本的索引位，这里索引是基于字符的索引而不是字节索引
      * @param str 要插入的字符串
      * @return 新文本文件，该文件存放插入后的文本内容；文件由 {@link #tempFileGenerator} 生成
@@ -252,8 +728,12 @@ public class CzbBigText {
             throw new StringIndexOutOfBoundsException("String index out of range: "+offset+", text file length: "+length());
         }
         File tempFile=new File(srcTextFile.getAbsolutePath()+".temp");
+        ByteRangeDelegate byteRangeDelegate=getByteRangeDelegate();
+        if(byteRangeDelegate!=null && offset>=0 && byteRangeDelegate.insert(offset,str,tempFile)){
+            return tempFile;
+        }
         try {
-            readFile(new InsertStrCommand(tempFile,offset,readFileDelegate.getSegmentSize(), str));
+            readFile(output(new InsertStrCommand(tempFile,offset, str)));
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         }
@@ -262,6 +742,7 @@ public class CzbBigText {
 
     /**
      * 将指定文本文件的文本内容 插入该文本的 offset 索引后面
+     * <p>file 按该文本的编码读取；能按字节范围复制时（见 {@link #getByteRangeDelegate()}），所有内容都直接按字节复制</p>
      * @param offset 该文本的索引位，这里索引是基于字符的索引而不是字节索引
      * @param file 要插入的文本文件
      * @return 新文本文件，该文件存放插入后的文本内容；文件由 {@link #tempFileGenerator} 生成
@@ -272,9 +753,13 @@ public class CzbBigText {
             throw new StringIndexOutOfBoundsException("String index out of range: "+offset+", text file length: "+length());
         }
         File tempFile=new File(srcTextFile.getAbsolutePath()+".temp");
+        ByteRangeDelegate byteRangeDelegate=getByteRangeDelegate();
+        if(byteRangeDelegate!=null && offset>=0 && byteRangeDelegate.insert(offset,file,tempFile)){
+            return tempFile;
+        }
         try {
-            readFile(new InsertFileCommand(tempFile,offset,readFileDelegate.getSegmentSize(),
-                    readFileDelegate.getCharset(),file));
+            readFile(output(new InsertFileCommand(tempFile,offset,readFileDelegate.getSegmentSize(),
+                    readFileDelegate.getCharset(),file)));
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         }
@@ -302,7 +787,7 @@ public class CzbBigText {
         }
         File tempFile=tempFileGenerator.getTempFile();
         try {
-            readFile(new ToLowerCaseCommand(tempFile,locale));
+            readFile(output(new ToLowerCaseCommand(tempFile,locale)));
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         }
@@ -330,22 +815,172 @@ public class CzbBigText {
         }
         File tempFile=tempFileGenerator.getTempFile();
         try {
-            readFile(new ToUpperCaseCommand(tempFile,locale));
+            readFile(output(new ToUpperCaseCommand(tempFile,locale)));
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         }
         return tempFile;
     }
 
+    /**
+     * 直接在源文本文件中将 oldStr 覆盖成 newStr
+     * <p>编码为 UTF-8 或单字节编码，且 oldStr 和 newStr 编码后的字节数相同时，只读地扫描一次文件找到匹配项，
+     * 再按位置只覆盖匹配项所在的字节，见 {@link InPlaceDelegate}；否则先调用 {@link #replace(String, String)}
+     * 复制出新文本，再用新文本替换源文本文件</p>
+     * <p>修改后该文本缓存的字符数、统计结果和索引都会失效</p>
+     * @param oldStr 旧字符串，不能为空字符串
+     * @param newStr 新字符串
+     * @return 如果原地覆盖，返回 true;如果改为复制，返回 false
+     * @throws UnsupportedOperationException 如果该文本是视图
+     */
+    public boolean replaceInPlace(String oldStr, String newStr){
+        checkNotView("edit in place");
+        String charset=readFileDelegate.getCharset();
+        if(InPlaceDelegate.isSupported(charset)){
+            InPlaceDelegate inPlaceDelegate=new InPlaceDelegate(readFileDelegate.getTextFile(),charset);
+            byte[] oldBytes=inPlaceDelegate.encode(oldStr);
+            byte[] newBytes=inPlaceDelegate.encode(newStr);
+            if(oldBytes!=null && newBytes!=null && oldBytes.length>0 && oldBytes.length==newBytes.length){
+                if(inPlaceDelegate.replace(oldBytes,newBytes)>0){
+                    invalidateCaches();
+                }
+                return true;
+            }
+        }
+        replaceSource(replace(oldStr,newStr));
+        return false;
+    }
+
+    /**
+     * 直接在源文本文件中将所有字母转换成小写字母
+     * @return 如果原地转换，返回 true;如果改为复制，返回 false
+     * @see #toLowerCaseInPlace(Locale)
+     */
+    public boolean toLowerCaseInPlace(){
+        return toLowerCaseInPlace(Locale.getDefault());
+    }
+
+    /**
+     * 直接在源文本文件中将所有字母转换成小写字母
+     * <p>文本只包含 ASCII 字符时，转换不会改变字节数，只读扫描确认之后逐块覆盖被转换的字节；
+     * 否则先调用 {@link #toLowerCase(Locale)} 复制出新文本，再用新文本替换源文本文件</p>
+     * @param locale 请查阅 {@link String#toLowerCase(Locale)}
+     * @return 如果原地转换，返回 true;如果改为复制，返回 false
+     * @throws UnsupportedOperationException 如果该文本是视图
+     */
+    public boolean toLowerCaseInPlace(Locale locale){
+        return convertCaseInPlace(locale,false);
+    }
+
+    /**
+     * 直接在源文本文件中将所有字母转换成大写字母
+     * @return 如果原地转换，返回 true;如果改为复制，返回 false
+     * @see #toUpperCaseInPlace(Locale)
+     */
+    public boolean toUpperCaseInPlace(){
+        return toUpperCaseInPlace(Locale.getDefault());
+    }
+
+    /**
+     * 直接在源文本文件中将所有字母转换成大写字母
+     * <p>文本只包含 ASCII 字符时，转换不会改变字节数，只读扫描确认之后逐块覆盖被转换的字节；
+     * 否则先调用 {@link #toUpperCase(Locale)} 复制出新文本，再用新文本替换源文本文件</p>
+     * @param locale 请查阅 {@link String#toUpperCase(Locale)}
+     * @return 如果原地转换，返回 true;如果改为复制，返回 false
+     * @throws UnsupportedOperationException 如果该文本是视图
+     */
+    public boolean toUpperCaseInPlace(Locale locale){
+        return convertCaseInPlace(locale,true);
+    }
+
+    /**
+     * 直接在源文本文件中转换大小写
+     * @param locale 请查阅 {@link String#toUpperCase(Locale)}
+     * @param upper 为 true 时转换成大写字母;否则转换成小写字母
+     * @return 如果原地转换，返回 true;如果改为复制，返回 false
+     */
+    private boolean convertCaseInPlace(Locale locale, boolean upper){
+        if (locale == null) {
+            throw new NullPointerException();
+        }
+        checkNotView("edit in place");
+        //土耳其语、阿塞拜疆语和立陶宛语对 ASCII 字母有特殊的大小写规则，转换后的字节数可能改变
+        String language=locale.getLanguage();
+        boolean asciiRules=!"tr".equals(language) && !"az".equals(language) && !"lt".equals(language);
+        String charset=readFileDelegate.getCharset();
+        if(asciiRules && InPlaceDelegate.isSupported(charset)){
+            InPlaceDelegate inPlaceDelegate=new InPlaceDelegate(readFileDelegate.getTextFile(),charset);
+            if(inPlaceDelegate.isAscii()){
+                if(inPlaceDelegate.convertAsciiCase(upper)>0){
+                    invalidateCaches();
+                }
+                return true;
+            }
+        }
+        replaceSource(upper ? toUpperCase(locale) : toLowerCase(locale));
+        return false;
+    }
+
+    /**
+     * 用 tempFile 替换源文本文件
+     * @param tempFile 新文本文件
+     */
+    private void replaceSource(File tempFile){
+        try {
+            Files.move(tempFile.toPath(),readFileDelegate.getTextFile().toPath(),StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new BigTextException(" write in text file: "+readFileDelegate.getTextFile().getAbsolutePath()+" fail",e);
+        }
+        invalidateCaches();
+    }
+
+    /**
+     * 源文本文件被修改后，丢弃缓存的字符数、统计结果和索引
+     * <p>同时淘汰 {@link SessionRegistry} 中该文件的会话：源文本文件被替换后，旧文件的通道不会再使用，
+     * 立即关闭才能释放旧文件占用的磁盘空间</p>
+     */
+    private synchronized void invalidateCaches(){
+        if(follower!=null){
+            follower.requestReset();
+        }
+        if(metadataCache!=null && !isView()){
+            metadataCache.invalidate(readFileDelegate.getTextFile());
+        }
+        cachedVersion=null;
+        length=-1;
+        lengthNoCRLF=-1;
+        textStats=null;
+        CheckpointIndex checkpointIndex=readFileDelegate.getCheckpointIndex();
+        if(checkpointIndex!=null){
+            checkpointIndex.invalidate();
+        }
+        if(lineReadDelegate!=null){
+            lineReadDelegate.getLineIndex().invalidate();
+        }
+        SessionRegistry sessionRegistry=readFileDelegate.getSessionRegistry();
+        if(sessionRegistry!=null && !isView()){
+            sessionRegistry.evict(readFileDelegate.getTextFile());
+        }
+    }
+
     /**
      * 修剪该文件文本内容的开头和结尾，将开头和接口的空格去掉
      * @return 新文本文件，该文件存放修剪后的文本内容；文件由 {@link #tempFileGenerator} 生成
      */
     public File trim(){
-        long length=length();
+        //视图和不支持从文件结尾向前读取的编码，改用流水线修剪
+        if(!isReversible()){
+            return pipeline().trim().writeTo();
+        }
         File tempFile=tempFileGenerator.getTempFile();
+        ByteRangeDelegate byteRangeDelegate=getByteRangeDelegate();
+        if(byteRangeDelegate!=null){
+            byteRangeDelegate.trim(false,tempFile);
+            return tempFile;
+        }
+        long length=length();
         try {
-            readFile(new TrimCommand(srcTextFile,tempFile,length));
+            readFile(output(new TrimCommand(srcTextFile,tempFile,length,readFileDelegate.getCharset())));
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -357,32 +992,414 @@ public class CzbBigText {
      * @return 新文本文件，该文件存放修剪后的文本内容；文件由 {@link #tempFileGenerator} 生成
      */
     public File trimNoCRLF(){
-        long length=length();
+        if(!isReversible()){
+            return pipeline().trimNoCRLF().writeTo();
+        }
         File tempFile=tempFileGenerator.getTempFile();
+        ByteRangeDelegate byteRangeDelegate=getByteRangeDelegate();
+        if(byteRangeDelegate!=null){
+            byteRangeDelegate.trim(true,tempFile);
+            return tempFile;
+        }
+        long length=length();
         try {
-            readFile(new TrimNoCRLFCommand(srcTextFile,tempFile,length));
+            readFile(output(new TrimNoCRLFCommand(srcTextFile,tempFile,length,readFileDelegate.getCharset())));
         } catch (IOException e) {
             e.printStackTrace();
         }
         return tempFile;
     }
 
+    /**
+     * 创建该文本从 begin 到 end 范围内的视图
+     * <p>与 {@link #substring(int, int)} 不同，视图不会写出截取的文本，在视图上读取时才从该文本的 begin 处开始读取，
+     * 见 {@link ViewReadFileDelegate}；需要文件时调用视图的 {@link #materialize()}</p>
+     * @param begin 开始位置
+     * @param end 结束位置（不包含），超过该文本的长度时截取到该文本的结尾
+     * @return 视图
+     * @throws StringIndexOutOfBoundsException 如果 begin 小于 0 或大于 end
+     */
+    public CzbBigText substringView(long begin, long end){
+        return view(new ViewReadFileDelegate(readFileDelegate,begin,end,Collections.emptyList()));
+    }
+
+    /**
+     * 使用 viewDelegate 读取的视图
+     * @param viewDelegate 读取视图的助手
+     * @return 视图，与该文本使用同一个临时文件生成器
+     */
+    CzbBigText view(ViewReadFileDelegate viewDelegate){
+        CzbBigText view=new CzbBigText(srcTextFile,viewDelegate,tempFileGenerator);
+        view.maxMatchLength=maxMatchLength;
+        view.fsyncPolicy=fsyncPolicy;
+        view.outputSinkFactory=outputSinkFactory;
+        return view;
+    }
+
+    /**
+     * 该文本是否为视图
+     * @return 如果是 {@link #substringView(long, long)} 或 {@link TextPipeline#view()} 创建的视图，返回 true;否则返回 false
+     * @see ReadFileDelegate#isView()
+     */
+    public boolean isView(){
+        return readFileDelegate.isView();
+    }
+
+    /**
+     * 把该文本写成文件
+     * @return 不是视图时直接返回源文本文件；否则把视图的文本写入 {@link #tempFileGenerator} 生成的文件并返回该文件
+     */
+    public File materialize(){
+        return isView() ? materialize(tempFileGenerator.getTempFile()) : srcTextFile;
+    }
+
+    /**
+     * 把该文本写入 file
+     * @param file 新文本文件，不能是源文本文件
+     * @return file
+     */
+    public File materialize(File file){
+        try {
+            readFile(output(new CopyCommand(file)));
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+        return file;
+    }
+
+    /**
+     * 该文本是视图时抛出 {@link UnsupportedOperationException}
+     * @param operation 操作名称
+     */
+    private void checkNotView(String operation){
+        if(isView()){
+            throw new UnsupportedOperationException("can not "+operation+" a view, materialize it first");
+        }
+    }
+
+    /**
+     * 创建一个编辑会话，批量记录插入、删除和替换，提交时只读写一次文本文件
+     * <p>与 {@link #insert(long, String)} 每次都复制整个文本文件不同，会话中的编辑只记录在片段表中，
+     * 见 {@link EditSession}</p>
+     * @return 新的编辑会话
+     */
+    public EditSession edit(){
+        return new EditSession(this);
+    }
+
+    /**
+     * 跟随持续追加内容的文本文件（例如日志）
+     * <p>创建时先从文件开头处理一次现有的文本，之后每次 {@link TextFollower#poll()} 或者 {@link TextFollower#start()} 启动的后台线程
+     * 只处理新追加的字节，增量地更新缓存的字符数、统计结果和索引，见 {@link TextFollower}。
+     * 同一时间只能有一个跟随会话，关闭之后才能再次跟随</p>
+     * @return 新的跟随会话
+     * @throws UnsupportedOperationException 如果该文本是视图
+     * @throws IllegalStateException 如果已经在跟随
+     */
+    public synchronized TextFollower follow(){
+        checkNotView("follow");
+        if(follower!=null){
+            throw new IllegalStateException("already following text file: "+srcTextFile.getAbsolutePath());
+        }
+        TextFollower textFollower=new TextFollower(this);
+        follower=textFollower;
+        try {
+            textFollower.poll();
+        } catch (RuntimeException e) {
+            textFollower.close();
+            throw e;
+        }
+        return textFollower;
+    }
+
+    /**
+     * 跟随会话处理完新追加的文本后调用，用跟随会话的结果更新缓存的字符数和统计结果
+     * @param textFollower 跟随会话
+     * @param followedStats 已经处理的文本的统计结果，跟随会话会继续更新，所以缓存的是它的副本
+     */
+    synchronized void followed(TextFollower textFollower, TextStats followedStats){
+        if(follower!=textFollower){
+            return;
+        }
+        textStats=new TextStats().merge(followedStats);
+        length=textStats.getLength();
+        lengthNoCRLF=textStats.getLengthNoCRLF();
+    }
+
+    /**
+     * 跟随会话关闭时调用，最后一次处理之后又追加了内容时，缓存的结果已经过时
+     * @param textFollower 跟随会话
+     * @param position 跟随会话已经处理到的字节位置
+     */
+    synchronized void unfollow(TextFollower textFollower, long position){
+        if(follower!=textFollower){
+            return;
+        }
+        follower=null;
+        //跟随期间的结果不属于任何一个已检查的版本，下一次检查时直接认为属于当前版本
+        cachedVersion=null;
+        if(srcTextFile.length()!=position){
+            invalidateCaches();
+        }
+    }
+
+    /**
+     * 创建一个流水线，把多个转换操作合并成一次读取、一次写入
+     * <p>例如 {@code pipeline().toLowerCase().replace("a","b").trim().writeTo()} 只读取该文件一次，
+     * 中间结果不会写入临时文件</p>
+     * @return 新的流水线
+     */
+    public TextPipeline pipeline(){
+        return new TextPipeline(this);
+    }
+
     /**
      * 截取在该文本从 begin 到 end 范围内的文本内容
+     * <p>能按字节范围复制时（见 {@link #getByteRangeDelegate()}），只解码到 end 为止，截取的文本直接按字节复制</p>
      * @param begin 开始位置
      * @param end 结束位置
      * @return 文本文件，该文件存放该文本从 begin 到 end 范围内的文本内容；文件由 {@link #tempFileGenerator} 生成
      */
     public File substring(int begin,int end){
+        File tempFile=tempFileGenerator.getTempFile();
+        ByteRangeDelegate byteRangeDelegate=getByteRangeDelegate();
+        if(byteRangeDelegate!=null && begin>=0 && end>=begin && byteRangeDelegate.substring(begin,end,tempFile)){
+            return tempFile;
+        }
+        try {
+            readFile(begin,output(new SubStrCommand(tempFile,begin,end)));
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+        return tempFile;
+    }
+
+    /**
+     * 截取最后 nLines 行的文本内容，包含每行结尾的回车换行
+     * <p>行的划分与 {@link java.io.BufferedReader#readLine()} 一致；能按字节范围复制时（见 {@link #getByteRangeDelegate()}），
+     * 从文件结尾向前按字节查找换行，再直接复制这些行，只读取文件的结尾部分；否则借助行索引截取，见 {@link #linesBetween(long, long)}</p>
+     * @param nLines 行数，不能小于 0 ，超过 {@link #lineCount()} 时截取全部文本
+     * @return 文本文件，该文件存放最后 nLines 行的文本内容；文件由 {@link #tempFileGenerator} 生成
+     * @throws IllegalArgumentException 如果 nLines 小于 0
+     */
+    public File tail(long nLines){
+        if(nLines<0){
+            throw new IllegalArgumentException("nLines must not be negative: "+nLines);
+        }
+        ByteRangeDelegate byteRangeDelegate=getByteRangeDelegate();
+        if(byteRangeDelegate!=null){
+            File tempFile=tempFileGenerator.getTempFile();
+            byteRangeDelegate.copyFrom(getReverseReadDelegate().lastLinesStart(nLines),tempFile);
+            return tempFile;
+        }
+        long lineCount=lineCount();
+        return linesBetween(Math.max(0,lineCount-nLines),lineCount);
+    }
+
+    /**
+     * 获取该文本文件的行数
+     * <p>行的划分与 {@link java.io.BufferedReader#readLine()} 一致，第一次调用时会建立行索引</p>
+     * @return 该文本文件的行数
+     * @see LineReadDelegate#lineCount()
+     */
+    public long lineCount(){
+        return getLineReadDelegate().lineCount();
+    }
+
+    /**
+     * 获取第 line 行的文本内容，不包含结尾的回车换行
+     * <p>借助行索引从附近的行开始读取，不需要从文件开头统计换行</p>
+     * @param line 行号，从 0 开始
+     * @return 第 line 行的文本内容
+     * @throws IndexOutOfBoundsException 如果 line 小于 0 或者不小于 {@link #lineCount()}
+     * @see LineReadDelegate#lineAt(long)
+     */
+    public String lineAt(long line){
+        return getLineReadDelegate().lineAt(line);
+    }
+
+    /**
+     * 截取从第 fromLine 行到第 toLine 行（不包含）的文本内容，包含每行结尾的回车换行
+     * @param fromLine 开始行号，从 0 开始
+     * @param toLine 结束行号（不包含）
+     * @return 文本文件，该文件存放截取的文本内容；文件由 {@link #tempFileGenerator} 生成
+     * @throws IndexOutOfBoundsException 如果 fromLine 小于 0 ， toLine 大于 {@link #lineCount()} ，或者 fromLine 大于 toLine
+     */
+    public File linesBetween(long fromLine, long toLine){
         File tempFile=tempFileGenerator.getTempFile();
         try {
-            readFile(new SubStrCommand(tempFile,begin,end,readFileDelegate.getSegmentSize()));
+            getLineReadDelegate().readLines(fromLine,toLine,output(new CopyCommand(tempFile)));
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         }
         return tempFile;
     }
 
+    /**
+     * 获取按行读取文本文件的助手，第一次调用时创建，使用默认记录间隔的 {@link LineIndex}
+     * @return 按行读取文本文件的助手
+     * @throws UnsupportedOperationException 如果该文本是视图，行索引需要按字节定位，需要先 {@link #materialize()}
+     * @see #lineReadDelegate
+     */
+    public synchronized LineReadDelegate getLineReadDelegate() {
+        checkNotView("read by line");
+        if(lineReadDelegate==null){
+            lineReadDelegate=new LineReadDelegate(readFileDelegate,
+                    new LineIndex(readFileDelegate.getTextFile(),readFileDelegate.getCharset(),LineIndex.DEFAULT_INTERVAL));
+        }
+        return lineReadDelegate;
+    }
+
+    /**
+     * 设置并行模式使用的线程池
+     * <p>开启并行模式后，{@link #indexOf(String, long)} 和 {@link #contains(String)} 会把文本文件切分成多个字节范围，
+     * 在 pool 上并行查找；只有 {@link ParallelReadDelegate#isSupported(String)} 支持的编码才会使用并行模式</p>
+     * @param pool 执行并行任务的线程池，为 null 表示关闭并行模式
+     */
+    public void setParallelPool(ForkJoinPool pool){
+        this.parallelReadDelegate= pool==null ? null : new ParallelReadDelegate(readFileDelegate,pool);
+    }
+
+    /**
+     * 获取 按字节范围并行读取文本文件的助手
+     * @return 按字节范围并行读取文本文件的助手；没有开启并行模式时返回 null
+     * @see #parallelReadDelegate
+     */
+    public ParallelReadDelegate getParallelReadDelegate() {
+        return parallelReadDelegate;
+    }
+
+    /**
+     * 获取 正则表达式操作中匹配项的最大长度
+     * @see #maxMatchLength
+     */
+    public int getMaxMatchLength() {
+        return maxMatchLength;
+    }
+
+    /**
+     * 设置 正则表达式操作中匹配项的最大长度
+     * <p>该值越大，能找到的匹配项越长，滑动窗口占用的内存也越多</p>
+     * @param maxMatchLength 匹配项的最大长度，必须大于 0
+     * @see #maxMatchLength
+     */
+    public void setMaxMatchLength(int maxMatchLength) {
+        if(maxMatchLength<=0){
+            throw new IllegalArgumentException("maxMatchLength must be positive: "+maxMatchLength);
+        }
+        this.maxMatchLength = maxMatchLength;
+    }
+
+    /**
+     * 获取 共享元数据的缓存
+     * @see #metadataCache
+     */
+    public MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * 设置 共享元数据的缓存，为 null 时不共享，缓存的结果也不会因为文本文件被修改而失效
+     * @see #metadataCache
+     */
+    public synchronized void setMetadataCache(MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+        cachedVersion=null;
+    }
+
+    /**
+     * 获取 写入新文本文件时强制同步的时机
+     * @see #fsyncPolicy
+     */
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    /**
+     * 设置 写入新文本文件时强制同步的时机
+     * <p>只对默认的 {@link ChannelOutputSink} 有效，通过 {@link #setOutputSinkFactory(OutputSinkFactory)}
+     * 设置了输出端工厂时由该工厂自己决定</p>
+     * @param fsyncPolicy 强制同步的时机，不能为 null
+     * @see #fsyncPolicy
+     */
+    public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        if(fsyncPolicy==null){
+            throw new IllegalArgumentException("fsyncPolicy must not be null");
+        }
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * 获取 打开新文本文件的输出端的工厂
+     * @return 设置的工厂；没有设置时返回使用源文本编码和 {@link #fsyncPolicy} 的 {@link ChannelOutputSink} 工厂
+     * @see #outputSinkFactory
+     */
+    public OutputSinkFactory getOutputSinkFactory() {
+        if(outputSinkFactory!=null){
+            return outputSinkFactory;
+        }
+        return ChannelOutputSink.factory(Charset.forName(readFileDelegate.getCharset()),fsyncPolicy);
+    }
+
+    /**
+     * 设置 打开新文本文件的输出端的工厂，所有生成新文本文件的操作都通过它写入
+     * @param outputSinkFactory 输出端工厂，为 null 表示使用源文本编码的 {@link ChannelOutputSink}
+     * @see #outputSinkFactory
+     */
+    public void setOutputSinkFactory(OutputSinkFactory outputSinkFactory) {
+        this.outputSinkFactory = outputSinkFactory;
+    }
+
+    /**
+     * 是否可以从文件结尾向前读取
+     * @return 如果该文本不是视图，并且编码支持从文件结尾向前读取，返回 true;否则返回 false
+     */
+    private boolean isReversible(){
+        return !isView() && ReverseReadDelegate.isSupported(readFileDelegate.getCharset());
+    }
+
+    /**
+     * 新建从文件结尾向前读取该文本的助手，调用前需要先确认 {@link #isReversible()}
+     * @return 从文件结尾向前读取的助手
+     */
+    private ReverseReadDelegate getReverseReadDelegate(){
+        ReverseReadDelegate reverseReadDelegate=new ReverseReadDelegate(readFileDelegate.getTextFile(),readFileDelegate.getCharset());
+        reverseReadDelegate.setSessionRegistry(readFileDelegate.getSessionRegistry());
+        return reverseReadDelegate;
+    }
+
+    /**
+     * 获取按字节范围复制文本的助手
+     * <p>只有该文本不是视图、编码是 {@link ByteRangeDelegate#isSupported(String)} 支持的编码、
+     * 并且没有设置 {@link #outputSinkFactory}（新文本文件使用源文本的编码）时才能按字节范围复制</p>
+     * @return 按字节范围复制文本的助手；不能按字节范围复制时返回 null
+     */
+    private ByteRangeDelegate getByteRangeDelegate(){
+        if(isView() || outputSinkFactory!=null || !ByteRangeDelegate.isSupported(readFileDelegate.getCharset())){
+            return null;
+        }
+        return new ByteRangeDelegate(readFileDelegate,fsyncPolicy);
+    }
+
+    /**
+     * 让 command 通过 {@link #getOutputSinkFactory()} 打开的输出端写入
+     * @param command 写入新文本文件的命令
+     * @param <T> 命令的类型
+     * @return command
+     */
+    <T extends WriterCommand> T output(T command){
+        command.setOutputSinkFactory(getOutputSinkFactory());
+        return command;
+    }
+
+    /**
+     * 是否可以使用并行模式
+     * @return 如果已经开启并行模式且文本编码支持按字节范围切分，返回 true;否则返回 false
+     */
+    private boolean isParallel(){
+        return parallelReadDelegate!=null && !isView() && ParallelReadDelegate.isSupported(readFileDelegate.getCharset());
+    }
+
     /**
      * 按段读取文本文件内容
      * <p>读取策略：在读取文本的时候，会推断读取的文本的尾部有没有 toFindStr 的开头部分， 有
@@ -425,5 +1442,47 @@ public class CzbBigText {
         readFileDelegate.readFile(offset,listener);
     }
 
+    /**
+     * 按段读取文本文件内容
+     * <p>读取策略：在读取文本的时候，会推断读取的文本的尾部有没有 toFindStr 的开头部分， 有
+     * 就需要将 toFindStr 剩余的字符读取到该段文字里</p>
+     * <p>为了尽可能保证读取不会因为读取策略导致OOM的问题,会尽可能的计算出合适的段大小</p>
+     * @param toFindStr 要查询字符串
+     * @param callback 按段读取文本文件时的零拷贝回调专用接口
+     */
+    public void readFile(String toFindStr, ReadSegmentCallback callback){
+        readFileDelegate.readFile(toFindStr,callback);
+    }
+
+    /**
+     * 按段读取文本文件内容
+     * <p>读取策略：在读取文本的时候，会推断读取的文本的尾部有没有 toFindStr 的开头部分， 有
+     * 就需要将 toFindStr 剩余的字符读取到该段文字里</p>
+     * <p>为了尽可能保证读取不会因为读取策略导致OOM的问题,会尽可能的计算出合适的段大小</p>
+     * @param offset 读取文本内容的开始位置
+     * @param toFindStr 要查询字符串
+     * @param listener 按段读取文本文件时的零拷贝回调专用接口
+     */
+    public void readFile(long offset, String toFindStr, ReadSegmentCallback listener){
+        readFileDelegate.readFile(offset,toFindStr,listener);
+    }
+
+    /**
+     * 按段读取文本文件内容
+     * @param callback 按段读取文本文件时的零拷贝回调专用接口
+     */
+    public void readFile(ReadSegmentCallback callback){
+        readFileDelegate.readFile(callback);
+    }
+
+    /**
+     * 按段读取文本文件内容
+     * @param offset 读取文本内容的开始位置
+     * @param listener 按段读取文本文件时的零拷贝回调专用接口
+     */
+    public void readFile(long offset, ReadSegmentCallback listener){
+        readFileDelegate.readFile(offset,listener);
+    }
+
 
 }
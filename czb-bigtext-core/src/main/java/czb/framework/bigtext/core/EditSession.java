@@ -0,0 +1,186 @@
+package czb.framework.bigtext.core;
+
+import czb.framework.bigtext.core.command.PieceTableCommand;
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.edit.PieceTable;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+/**
+ * 批量编辑文本的会话
+ * <p>通过 {@link CzbBigText#edit()} 创建。{@link CzbBigText#insert(long, String)} 每次插入都要完整复制一次文本文件，
+ * 会话则把插入、删除、替换记录在 {@link PieceTable} 中，不读写文本文件；
+ * 调用 {@link #commit()} 时才按顺序读取一次原文本，把编辑后的文本写入新文本文件。</p>
+ * <p>所有位置都是编辑后文本中的字符索引，每次编辑立刻生效，{@link #substring(long, long)} 、{@link #charAt(long)} 读到的就是编辑后的文本。
+ * 会话期间原文本文件不能被修改；该类不是线程安全的</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class EditSession {
+
+    /**
+     * 原文本
+     */
+    private CzbBigText czbBigText;
+    /**
+     * 记录编辑结果的片段表
+     */
+    private PieceTable pieceTable;
+
+    /**
+     * 新建一个 {@link EditSession} 实例
+     * @param czbBigText 原文本
+     */
+    EditSession(CzbBigText czbBigText) {
+        this.czbBigText = czbBigText;
+        this.pieceTable = new PieceTable(czbBigText.length());
+    }
+
+    /**
+     * 在 offset 处插入 str
+     * @param offset 插入位置
+     * @param str 要插入的字符串
+     * @return 该会话
+     * @throws StringIndexOutOfBoundsException 如果 offset 小于 0 或大于编辑后的字符数
+     */
+    public EditSession insert(long offset, String str){
+        pieceTable.insert(offset,str);
+        return this;
+    }
+
+    /**
+     * 删除 [begin, end) 之间的字符
+     * @param begin 开始位置
+     * @param end 结束位置（不包含）
+     * @return 该会话
+     * @throws StringIndexOutOfBoundsException 如果范围超出编辑后的文本或 begin 大于 end
+     */
+    public EditSession delete(long begin, long end){
+        pieceTable.delete(begin,end);
+        return this;
+    }
+
+    /**
+     * 把 [begin, end) 之间的字符替换成 str
+     * @param begin 开始位置
+     * @param end 结束位置（不包含）
+     * @param str 新字符串
+     * @return 该会话
+     * @throws StringIndexOutOfBoundsException 如果范围超出编辑后的文本或 begin 大于 end
+     */
+    public EditSession replace(long begin, long end, String str){
+        pieceTable.replace(begin,end,str);
+        return this;
+    }
+
+    /**
+     * 获取编辑后的字符数
+     * @return 编辑后的字符数
+     */
+    public long length(){
+        return pieceTable.length();
+    }
+
+    /**
+     * 获取编辑后文本中 index 处的字符
+     * @param index 字符索引
+     * @return 字符
+     * @throws StringIndexOutOfBoundsException 如果 index 小于 0 或不小于编辑后的字符数
+     */
+    public char charAt(long index){
+        if(index<0 || index>=length()){
+            throw new StringIndexOutOfBoundsException("String index out of range: "+index+", text length: "+length());
+        }
+        return substring(index,index+1).charAt(0);
+    }
+
+    /**
+     * 截取编辑后文本中 [begin, end) 之间的字符
+     * <p>追加缓冲区中的字符直接复制，原文本中的字符从对应位置开始读取，不需要先提交</p>
+     * @param begin 开始位置
+     * @param end 结束位置（不包含）
+     * @return 截取的字符串
+     * @throws StringIndexOutOfBoundsException 如果范围超出编辑后的文本或 begin 大于 end
+     * @throws IllegalArgumentException 如果截取的字符数超过了字符串的最大长度
+     */
+    public String substring(long begin, long end){
+        if(begin<0 || end>length() || begin>end){
+            throw new StringIndexOutOfBoundsException("begin "+begin+", end "+end+", text length "+length());
+        }
+        if(end-begin>Integer.MAX_VALUE-8){
+            throw new IllegalArgumentException("substring too long: "+(end-begin));
+        }
+        StringBuilder result=new StringBuilder((int) (end-begin));
+        long pieceStart=0;
+        for (PieceTable.Piece piece : pieceTable.getPieces()) {
+            long pieceEnd=pieceStart+piece.getLength();
+            if(pieceEnd>begin){
+                if(pieceStart>=end){
+                    break;
+                }
+                long from=piece.getStart()+Math.max(begin-pieceStart,0);
+                long to=piece.getStart()+Math.min(end,pieceEnd)-pieceStart;
+                if(piece.isOriginal()){
+                    readOriginal(from,to,result);
+                }else{
+                    result.append(pieceTable.getAdded(from,to));
+                }
+            }
+            pieceStart=pieceEnd;
+        }
+        return result.toString();
+    }
+
+    /**
+     * 读取原文本中 [from, to) 之间的字符
+     * @param from 开始位置
+     * @param to 结束位置（不包含）
+     * @param result 读取的字符追加到该处
+     */
+    private void readOriginal(long from, long to, StringBuilder result){
+        long count=to-from;
+        czbBigText.readFile(from,(ReadSegmentCallback) (currentReadSize, buff, offset, length) -> {
+            if(currentReadSize>=count){
+                result.append(buff,offset,(int) (count-(currentReadSize-length)));
+                return true;
+            }
+            result.append(buff,offset,length);
+            return false;
+        });
+    }
+
+    /**
+     * 提交编辑结果，把编辑后的文本写入 {@link CzbBigText#tempFileGenerator} 生成的文件
+     * @return 新文本文件，该文件存放编辑后的文本内容
+     */
+    public File commit(){
+        return commit(czbBigText.tempFileGenerator.getTempFile());
+    }
+
+    /**
+     * 提交编辑结果，把编辑后的文本写入 file
+     * <p>只按顺序读取一次原文本，从第一个保留的原文本字符开始，到最后一个保留的原文本字符结束；
+     * 提交后会话仍然可以继续编辑和提交</p>
+     * @param file 新文本文件，该文件存放编辑后的文本内容，不能是原文本文件
+     * @return file
+     */
+    public File commit(File file){
+        long offset=PieceTableCommand.getReadOffset(pieceTable);
+        try {
+            czbBigText.readFile(offset,czbBigText.output(new PieceTableCommand(pieceTable,offset,file)));
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+        return file;
+    }
+
+    /**
+     * 获取 记录编辑结果的片段表
+     * @see #pieceTable
+     */
+    public PieceTable getPieceTable() {
+        return pieceTable;
+    }
+}
@@ -0,0 +1,603 @@
+package czb.framework.bigtext.core;
+
+import czb.framework.bigtext.core.delegate.ByteLengthDelegate;
+import czb.framework.bigtext.core.delegate.ReadFileDelegate;
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.exception.BigTextException;
+import czb.framework.bigtext.core.index.CheckpointIndex;
+import czb.framework.bigtext.core.index.LineIndex;
+import czb.framework.bigtext.core.session.SessionRegistry;
+import czb.framework.bigtext.core.stats.TextStats;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 跟踪持续追加内容的文本文件（例如日志）的跟随会话
+ * <p>通过 {@link CzbBigText#follow()} 创建。会话记录已经处理到的字节位置 {@link #position} ，
+ * 每次 {@link #poll()} 只读取并解码该位置之后新追加的字节：</p>
+ * <ul>
+ *     <li>新追加的文本交给通过 {@link #addListener(ReadSegmentCallback)} 注册的回调，回调的查找状态在多次追加之间保持不变，
+ *     跨越两次追加的匹配项也能找到</li>
+ *     <li>在 {@link TextStats} 上继续统计新追加的文本，并更新 {@link CzbBigText} 缓存的字符数和统计结果</li>
+ *     <li>编码为 UTF-8 或单字节编码时，同时扫描新追加的字节，把新的检查点和行记录追加到 {@link CheckpointIndex} 和 {@link LineIndex} ，
+ *     两个索引在跟随期间处于 {@link CheckpointIndex#setAppendOnly(boolean) 追加模式} ，文本文件变大后仍然可用</li>
+ * </ul>
+ * <p>跟随期间 {@link CzbBigText#length()} 、{@link CzbBigText#stats()} 、{@link CzbBigText#lineCount()} 等方法返回的都是
+ * 已经处理的那部分文本的结果，不会因为文本文件变大而重新读取整个文件。
+ * 文件结尾不完整的字符（写入方只写入了一部分字节）留到下一次处理。</p>
+ * <p>{@link #start()} 启动一个后台线程，通过 {@link WatchService} 监听文本文件所在的目录，收到事件或者等待超过轮询间隔后调用 {@link #poll()} ，
+ * 所以不支持文件事件的文件系统也能跟随。文本文件变小或者被替换成另一个文件（日志轮转）时，从新文件的开头重新处理，
+ * 已注册的回调在此之前结束读取并被移除。</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class TextFollower implements AutoCloseable {
+
+    /**
+     * 默认的轮询间隔：1秒
+     */
+    public final static long DEFAULT_POLL_INTERVAL=1000;
+    /**
+     * 每次读取的字节数：64K
+     */
+    private final static int BUFFER_SIZE=64*1024;
+
+    /**
+     * 被跟随的文本
+     */
+    private CzbBigText czbBigText;
+    /**
+     * 文本文件
+     */
+    private File textFile;
+    /**
+     * 文本解码器，只在文本文件被重新处理时重置，所以有状态的编码（例如带 BOM 的 UTF-16）也能跨越多次追加解码
+     */
+    private CharsetDecoder decoder;
+    /**
+     * 是否扫描字节来扩展索引，只支持 UTF-8 和单字节编码
+     */
+    private boolean scanBytes;
+    /**
+     * 是否是 UTF-8 编码
+     */
+    private boolean utf8;
+    /**
+     * 通过 {@link #addListener(ReadSegmentCallback)} 注册的回调
+     */
+    private List<Listener> listeners=new CopyOnWriteArrayList<>();
+
+    /**
+     * 已经处理到的字节位置，总是在字符的边界上
+     */
+    private long position;
+    /**
+     * 已经处理的字符数
+     */
+    private long charPosition;
+    /**
+     * 已经处理的文本的统计结果
+     */
+    private TextStats textStats=new TextStats();
+    /**
+     * 文本文件的标识，用于发现文件被替换；文件系统不支持时为 null
+     */
+    private Object fileKey;
+    /**
+     * 文本被其他操作修改后，下一次 {@link #poll()} 时从文件开头重新处理
+     */
+    private volatile boolean resetRequested;
+    /**
+     * 是否已经至少处理过一次，第一次处理即使文本文件为空也要更新 {@link CzbBigText} 的缓存
+     */
+    private boolean initialized;
+
+    /**
+     * 检查点索引的构建器，不扩展检查点索引时为 null
+     */
+    private CheckpointIndex.Builder checkpointBuilder;
+    /**
+     * 行索引的构建器，不扩展行索引时为 null
+     */
+    private LineIndex.Builder lineBuilder;
+    /**
+     * 扫描字节得到的字符数，与 {@link #charPosition} 不一致时说明文本不是格式正确的 UTF-8 ，停止扩展索引
+     */
+    private long scanChars;
+    /**
+     * 已经结束的行数
+     */
+    private long line;
+    /**
+     * 上一个字节是否是 \r
+     */
+    private boolean lastCR;
+    /**
+     * 上一行已经结束，下一个字符是新一行的开头
+     */
+    private boolean startPending;
+
+    /**
+     * 后台跟随的线程，没有启动时为 null
+     */
+    private Thread thread;
+    /**
+     * 监听文本文件所在目录的服务，不支持时为 null ，只按轮询间隔跟随
+     */
+    private WatchService watchService;
+    /**
+     * 后台跟随时出现的异常，出现异常后后台线程结束
+     */
+    private volatile RuntimeException failure;
+    /**
+     * 是否已关闭
+     */
+    private volatile boolean closed;
+
+    /**
+     * 新建一个 {@link TextFollower} 实例，从文件开头开始处理
+     * @param czbBigText 被跟随的文本
+     */
+    TextFollower(CzbBigText czbBigText) {
+        this.czbBigText = czbBigText;
+        ReadFileDelegate readFileDelegate=czbBigText.readFileDelegate;
+        this.textFile = readFileDelegate.getTextFile();
+        Charset charset=Charset.forName(readFileDelegate.getCharset());
+        this.decoder=charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.scanBytes=ByteLengthDelegate.isSupported(readFileDelegate.getCharset());
+        this.utf8=charset.equals(StandardCharsets.UTF_8);
+        restart(false);
+    }
+
+    /**
+     * 处理文本文件新追加的内容
+     * <p>只读取 {@link #position} 之后的字节；文本文件变小或者被替换时，先从新文件的开头重新处理</p>
+     * @return 这次处理的字符数，没有新追加的内容时返回 0
+     * @throws IllegalStateException 如果会话已关闭
+     */
+    public synchronized long poll(){
+        if(closed){
+            throw new IllegalStateException("follower is closed: "+textFile.getAbsolutePath());
+        }
+        long before=charPosition;
+        try(FileChannel channel=FileChannel.open(textFile.toPath(), StandardOpenOption.READ)){
+            Object key=Files.readAttributes(textFile.toPath(),BasicFileAttributes.class).fileKey();
+            long size=channel.size();
+            boolean restarted=resetRequested || size<position || (fileKey!=null && !Objects.equals(key,fileKey));
+            if(restarted){
+                resetRequested=false;
+                completeListeners();
+                restart(true);
+                before=0;
+            }
+            fileKey=key;
+            if(size==position && !restarted && initialized){
+                return 0;
+            }
+            initialized=true;
+            ByteBuffer bytes=ByteBuffer.allocate(BUFFER_SIZE);
+            CharBuffer chars=CharBuffer.allocate((int) Math.ceil(BUFFER_SIZE*(double) decoder.maxCharsPerByte()));
+            while (position<size){
+                bytes.clear();
+                bytes.limit((int) Math.min(BUFFER_SIZE,size-position));
+                while (bytes.hasRemaining()){
+                    if(channel.read(bytes,position+bytes.position())<=0){
+                        break;
+                    }
+                }
+                bytes.flip();
+                int consumed=decode(bytes,chars);
+                //剩下的只有结尾不完整的字符，等下一次追加
+                if(consumed==0){
+                    break;
+                }
+                position+=consumed;
+            }
+        } catch (NoSuchFileException e) {
+            throw new BigTextException(" no found text file: "+textFile.getAbsolutePath(),e);
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+textFile.getAbsolutePath()+",throw IO exception: ",e);
+        }
+        if(checkpointBuilder!=null){
+            checkpointBuilder.complete(position);
+        }
+        if(lineBuilder!=null){
+            lineBuilder.complete(line+(!startPending && position>0 ? 1 : 0),position);
+        }
+        czbBigText.followed(this,textStats);
+        return charPosition-before;
+    }
+
+    /**
+     * 解码 bytes 中的字节，处理解码出来的文本
+     * @param bytes 从 {@link #position} 开始读取的字节
+     * @param chars 字符缓冲区
+     * @return 处理的字节数，结尾不完整的字符不会被处理
+     */
+    private int decode(ByteBuffer bytes, CharBuffer chars){
+        int consumed=0;
+        boolean overflow=true;
+        while (overflow){
+            chars.clear();
+            overflow=decoder.decode(bytes,chars,false).isOverflow();
+            chars.flip();
+            if(scanBytes){
+                scan(bytes,consumed,bytes.position());
+            }
+            consumed=bytes.position();
+            onText(chars.array(),0,chars.limit());
+        }
+        return consumed;
+    }
+
+    /**
+     * 扫描 [from, to) 之间的字节，把新的检查点和行记录到索引构建器中
+     * <p>回车、换行在 UTF-8 和单字节编码中都只会以单个字节出现，与 {@link czb.framework.bigtext.core.delegate.LineReadDelegate} 建立行索引的方式相同</p>
+     * @param bytes 从 {@link #position} 开始读取的字节
+     * @param from 开始位置
+     * @param to 结束位置（不包含）
+     */
+    private void scan(ByteBuffer bytes, int from, int to){
+        if(checkpointBuilder==null && lineBuilder==null){
+            return;
+        }
+        for (int k = from; k < to; k++) {
+            byte b=bytes.get(k);
+            if(utf8 && (b & 0xC0)==0x80){
+                continue;
+            }
+            long bytePosition=position+k;
+            if(checkpointBuilder!=null){
+                checkpointBuilder.record(scanChars,bytePosition);
+            }
+            if(lastCR && b=='\n'){
+                // \r\n 的 \n 属于上一行
+                lastCR=false;
+            }else{
+                if(startPending){
+                    if(lineBuilder!=null){
+                        lineBuilder.record(line,scanChars,bytePosition);
+                    }
+                    startPending=false;
+                }
+                lastCR= b=='\r';
+                if(b=='\n' || b=='\r'){
+                    line++;
+                    startPending=true;
+                }
+            }
+            scanChars+= utf8 && (b & 0xF8)==0xF0 ? 2 : 1;
+        }
+    }
+
+    /**
+     * 处理新解码出来的文本：统计并交给已注册的回调
+     * @param buff 字符数组
+     * @param offset 开始位置
+     * @param length 字符数
+     */
+    private void onText(char[] buff, int offset, int length){
+        if(length==0){
+            return;
+        }
+        charPosition+=length;
+        textStats.update(buff,offset,length);
+        if(scanBytes && scanChars!=charPosition){
+            //文本中有格式错误的字节，扫描的字符数与解码的字符数不一致，索引不再可信
+            stopIndexing();
+        }
+        for (Listener listener : listeners) {
+            listener.readSize+=length;
+            if(listener.callback.onSegmentRead(listener.readSize,buff,offset,length)){
+                listeners.remove(listener);
+                listener.callback.onCompleteRead(listener.readSize,buff,offset,length);
+            }
+        }
+    }
+
+    /**
+     * 从文件开头重新处理：重置解码器、统计结果和索引构建器
+     * <p>丢弃原有的索引时，文件已经被截断或替换，同时淘汰 {@link SessionRegistry} 中该文件的会话，立即关闭旧文件的通道</p>
+     * @param invalidate 是否丢弃原有的索引，原有的索引属于变化之前的文本
+     */
+    private void restart(boolean invalidate){
+        if(invalidate){
+            SessionRegistry sessionRegistry=czbBigText.readFileDelegate.getSessionRegistry();
+            if(sessionRegistry!=null){
+                sessionRegistry.evict(textFile);
+            }
+        }
+        decoder.reset();
+        position=0;
+        charPosition=0;
+        textStats=new TextStats();
+        scanChars=0;
+        line=0;
+        lastCR=false;
+        startPending=false;
+        checkpointBuilder=null;
+        lineBuilder=null;
+        if(scanBytes){
+            CheckpointIndex checkpointIndex=czbBigText.readFileDelegate.getCheckpointIndex();
+            if(checkpointIndex!=null){
+                if(invalidate){
+                    checkpointIndex.invalidate();
+                }
+                checkpointIndex.setAppendOnly(true);
+                checkpointBuilder=checkpointIndex.newBuilder();
+            }
+            LineIndex lineIndex=czbBigText.getLineReadDelegate().getLineIndex();
+            if(invalidate){
+                lineIndex.invalidate();
+            }
+            lineIndex.setAppendOnly(true);
+            lineBuilder=lineIndex.newBuilder();
+        }
+    }
+
+    /**
+     * 停止扩展索引，丢弃已有的索引
+     */
+    private void stopIndexing(){
+        checkpointBuilder=null;
+        lineBuilder=null;
+        releaseIndexes(true);
+    }
+
+    /**
+     * 关闭两个索引的追加模式
+     * @param invalidate 是否同时丢弃索引
+     */
+    private void releaseIndexes(boolean invalidate){
+        if(!scanBytes){
+            return;
+        }
+        CheckpointIndex checkpointIndex=czbBigText.readFileDelegate.getCheckpointIndex();
+        LineIndex lineIndex=czbBigText.getLineReadDelegate().getLineIndex();
+        if(checkpointIndex!=null){
+            checkpointIndex.setAppendOnly(false);
+            if(invalidate){
+                checkpointIndex.invalidate();
+            }
+        }
+        lineIndex.setAppendOnly(false);
+        if(invalidate){
+            lineIndex.invalidate();
+        }
+    }
+
+    /**
+     * 通知所有回调读取结束，并移除所有回调
+     */
+    private void completeListeners(){
+        for (Listener listener : listeners) {
+            listeners.remove(listener);
+            listener.callback.onCompleteRead(listener.readSize,new char[0],0,0);
+        }
+    }
+
+    /**
+     * 注册一个回调，之后追加的文本都会交给该回调
+     * <p>回调的 currentReadSize 从注册时开始计算，注册时的字符索引可以通过 {@link #getCharPosition()} 得到；
+     * 回调返回 true 时调用 {@link ReadSegmentCallback#onCompleteRead(long, char[], int, int)} 后移除，
+     * 否则一直到会话关闭或文本被重新处理时才结束读取</p>
+     * @param callback 回调，可以是 {@link czb.framework.bigtext.core.delegate.callback.ReadFileCallback} 或任意的指令
+     * @return 该会话
+     */
+    public synchronized TextFollower addListener(ReadSegmentCallback callback){
+        if(closed){
+            throw new IllegalStateException("follower is closed: "+textFile.getAbsolutePath());
+        }
+        listeners.add(new Listener(callback));
+        return this;
+    }
+
+    /**
+     * 移除一个回调，不会调用 {@link ReadSegmentCallback#onCompleteRead(long, char[], int, int)}
+     * @param callback 回调
+     * @return 如果该回调已注册，返回 true;否则返回 false
+     */
+    public synchronized boolean removeListener(ReadSegmentCallback callback){
+        for (Listener listener : listeners) {
+            if(listener.callback==callback){
+                return listeners.remove(listener);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 以 {@link #DEFAULT_POLL_INTERVAL} 的轮询间隔启动后台跟随
+     * @return 该会话
+     * @see #start(long)
+     */
+    public TextFollower start(){
+        return start(DEFAULT_POLL_INTERVAL);
+    }
+
+    /**
+     * 启动后台跟随
+     * <p>后台线程监听文本文件所在的目录，收到事件时马上处理；没有事件时每隔 pollInterval 毫秒检查一次文件大小。
+     * 回调都在后台线程中执行，出现异常时后台线程结束，异常可以通过 {@link #getFailure()} 得到</p>
+     * @param pollInterval 轮询间隔（毫秒），必须大于 0
+     * @return 该会话
+     * @throws IllegalStateException 如果已经启动或已关闭
+     */
+    public synchronized TextFollower start(long pollInterval){
+        if(pollInterval<=0){
+            throw new IllegalArgumentException("pollInterval must be positive: "+pollInterval);
+        }
+        if(closed || thread!=null){
+            throw new IllegalStateException("follower is closed or already started: "+textFile.getAbsolutePath());
+        }
+        Path dir=textFile.getAbsoluteFile().toPath().getParent();
+        try {
+            watchService=dir.getFileSystem().newWatchService();
+            dir.register(watchService,StandardWatchEventKinds.ENTRY_CREATE,StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            //不支持文件事件时只按轮询间隔跟随
+            closeWatchService();
+        }
+        thread=new Thread(() -> run(pollInterval),"czb-bigtext-follower-"+textFile.getName());
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * 后台线程：等待文件事件或轮询间隔，然后处理新追加的内容
+     * @param pollInterval 轮询间隔（毫秒）
+     */
+    private void run(long pollInterval){
+        try {
+            while (!closed){
+                if(watchService!=null){
+                    WatchKey key=watchService.poll(pollInterval, TimeUnit.MILLISECONDS);
+                    if(key!=null){
+                        //同一目录中其他文件的事件也会唤醒，poll() 只检查文件大小，代价很小
+                        key.pollEvents();
+                        key.reset();
+                    }
+                }else{
+                    Thread.sleep(pollInterval);
+                }
+                if(!closed){
+                    poll();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            //会话已关闭
+        } catch (RuntimeException e) {
+            if(!closed){
+                failure=e;
+            }
+        }
+    }
+
+    /**
+     * 关闭会话：停止后台跟随，通知所有回调读取结束
+     * <p>关闭后 {@link CzbBigText} 不再跟随文本文件；如果文本文件在最后一次处理之后又追加了内容，缓存的字符数、统计结果和索引都会失效</p>
+     */
+    @Override
+    public void close(){
+        Thread running;
+        synchronized (this){
+            if(closed){
+                return;
+            }
+            closed=true;
+            running=thread;
+            closeWatchService();
+        }
+        if(running!=null && running!=Thread.currentThread()){
+            running.interrupt();
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this){
+            completeListeners();
+            releaseIndexes(false);
+            czbBigText.unfollow(this,position);
+        }
+    }
+
+    /**
+     * 关闭监听目录的服务
+     */
+    private void closeWatchService(){
+        if(watchService==null){
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            //只用于唤醒后台线程，关闭失败不影响跟随
+        }
+        watchService=null;
+    }
+
+    /**
+     * 文本被其他操作修改后调用，下一次 {@link #poll()} 时从文件开头重新处理
+     */
+    void requestReset(){
+        resetRequested=true;
+    }
+
+    /**
+     * 获取 已经处理到的字节位置
+     * @see #position
+     */
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    /**
+     * 获取 已经处理的字符数，也是下一个追加的字符的索引
+     * @see #charPosition
+     */
+    public synchronized long getCharPosition() {
+        return charPosition;
+    }
+
+    /**
+     * 获取 后台跟随时出现的异常
+     * @return 异常；没有出现异常时返回 null
+     * @see #failure
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * 获取 是否已关闭
+     * @see #closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 已注册的回调以及交给它的字符数
+     */
+    private static class Listener {
+        /**
+         * 回调
+         */
+        private ReadSegmentCallback callback;
+        /**
+         * 注册之后交给该回调的字符数
+         */
+        private long readSize;
+
+        private Listener(ReadSegmentCallback callback) {
+            this.callback = callback;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package czb.framework.bigtext.core;
+
+import czb.framework.bigtext.core.command.PipelineCommand;
+import czb.framework.bigtext.core.delegate.ViewReadFileDelegate;
+import czb.framework.bigtext.core.pipeline.CaseStage;
+import czb.framework.bigtext.core.pipeline.DictionaryReplaceStage;
+import czb.framework.bigtext.core.pipeline.RegexReplaceStage;
+import czb.framework.bigtext.core.pipeline.ReplaceStage;
+import czb.framework.bigtext.core.pipeline.TextSink;
+import czb.framework.bigtext.core.pipeline.TrimStage;
+import czb.framework.bigtext.core.search.RegexReplacement;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 把多个转换操作合并成一次读取、一次写入的流水线
+ * <p>通过 {@link CzbBigText#pipeline()} 创建，例如：</p>
+ * <pre>
+ * File result=czbBigText.pipeline().toLowerCase().replace("a","b").trim().writeTo();
+ * </pre>
+ * <p>依次调用 {@link CzbBigText} 的 toLowerCase 、replace 、trim 每一步都要完整读写一次临时文件，
+ * 流水线中的各个步骤则在同一次读取中依次处理每段文本，中间结果不会写入临时文件。</p>
+ * <p>流水线只记录步骤，调用 writeTo 时才执行，同一个流水线可以多次执行</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class TextPipeline {
+
+    /**
+     * 源文本
+     */
+    private CzbBigText czbBigText;
+    /**
+     * 按执行顺序排列的步骤工厂，参数为下一个步骤
+     */
+    private List<Function<TextSink, TextSink>> stages=new ArrayList<>();
+
+    /**
+     * 新建一个 {@link TextPipeline} 实例
+     * @param czbBigText 源文本
+     */
+    TextPipeline(CzbBigText czbBigText) {
+        this.czbBigText = czbBigText;
+    }
+
+    /**
+     * 将所有字母转换成小写字母
+     * @return 该流水线
+     * @see CzbBigText#toLowerCase()
+     */
+    public TextPipeline toLowerCase(){
+        return toLowerCase(Locale.getDefault());
+    }
+
+    /**
+     * 将所有字母转换成小写字母
+     * @param locale 请查阅 {@link String#toLowerCase(Locale)}
+     * @return 该流水线
+     * @see CzbBigText#toLowerCase(Locale)
+     */
+    public TextPipeline toLowerCase(Locale locale){
+        if (locale == null) {
+            throw new NullPointerException();
+        }
+        return then(next -> new CaseStage(locale,false,next));
+    }
+
+    /**
+     * 将所有字母转换成大写字母
+     * @return 该流水线
+     * @see CzbBigText#toUpperCase()
+     */
+    public TextPipeline toUpperCase(){
+        return toUpperCase(Locale.getDefault());
+    }
+
+    /**
+     * 将所有字母转换成大写字母
+     * @param locale 请查阅 {@link String#toUpperCase(Locale)}
+     * @return 该流水线
+     * @see CzbBigText#toUpperCase(Locale)
+     */
+    public TextPipeline toUpperCase(Locale locale){
+        if (locale == null) {
+            throw new NullPointerException();
+        }
+        return then(next -> new CaseStage(locale,true,next));
+    }
+
+    /**
+     * 将 oldStr 覆盖成 newStr
+     * @param oldStr 旧字符串，不能为空字符串
+     * @param newStr 新字符串
+     * @return 该流水线
+     * @see CzbBigText#replace(String, String)
+     */
+    public TextPipeline replace(String oldStr, String newStr){
+        if(oldStr.isEmpty()){
+            throw new IllegalArgumentException("oldStr must not be empty");
+        }
+        return then(next -> new ReplaceStage(oldStr,newStr,next));
+    }
+
+    /**
+     * 把多个 oldStr 分别覆盖成对应的 newStr
+     * @param replacements 旧字符串 -&gt; 新字符串，旧字符串不能为空字符串
+     * @return 该流水线
+     * @see CzbBigText#replaceAll(Map)
+     */
+    public TextPipeline replaceAll(Map<String,String> replacements){
+        //复制一份，之后修改 replacements 不会影响流水线
+        Map<String,String> copy=new HashMap<>(replacements);
+        return then(next -> new DictionaryReplaceStage(copy,next));
+    }
+
+    /**
+     * 将正则表达式的所有匹配项覆盖成 replacement ，匹配项的长度不能超过 {@link CzbBigText#getMaxMatchLength()}
+     * @param pattern 要查找的正则表达式
+     * @param replacement 替换字符串
+     * @return 该流水线
+     * @see CzbBigText#replaceAll(Pattern, String)
+     */
+    public TextPipeline replaceAll(Pattern pattern, String replacement){
+        int maxMatchLength=czbBigText.getMaxMatchLength();
+        //提前解析一次，让 replacement 的语法错误在添加步骤时就抛出
+        new RegexReplacement(replacement,pattern.matcher("").groupCount());
+        return then(next -> new RegexReplaceStage(pattern,replacement,maxMatchLength,next));
+    }
+
+    /**
+     * 修剪开头和结尾的空格
+     * @return 该流水线
+     * @see CzbBigText#trim()
+     */
+    public TextPipeline trim(){
+        return then(next -> new TrimStage(false,next));
+    }
+
+    /**
+     * 修剪开头和结尾的空格、回车换行
+     * @return 该流水线
+     * @see CzbBigText#trimNoCRLF()
+     */
+    public TextPipeline trimNoCRLF(){
+        return then(next -> new TrimStage(true,next));
+    }
+
+    /**
+     * 添加一个自定义的步骤
+     * @param stage 步骤工厂，参数为下一个步骤，返回新建的步骤；每次执行流水线都会调用一次
+     * @return 该流水线
+     */
+    public TextPipeline then(Function<TextSink, TextSink> stage){
+        if (stage == null) {
+            throw new NullPointerException();
+        }
+        stages.add(stage);
+        return this;
+    }
+
+    /**
+     * 创建流水线结果的视图，不执行流水线
+     * <p>在视图上读取时才读取源文本并执行各个步骤，结果不会写入文件；需要文件时调用视图的 {@link CzbBigText#materialize()} ，
+     * 效果与 {@link #writeTo()} 相同。之后再添加的步骤不会影响已经创建的视图</p>
+     * @return 视图
+     */
+    public CzbBigText view(){
+        return czbBigText.view(new ViewReadFileDelegate(czbBigText.readFileDelegate,0,Long.MAX_VALUE,stages));
+    }
+
+    /**
+     * 执行流水线，把结果写入 {@link CzbBigText#tempFileGenerator} 生成的文件
+     * @return 新文本文件，该文件存放执行所有步骤后的文本内容
+     */
+    public File writeTo(){
+        return writeTo(czbBigText.tempFileGenerator.getTempFile());
+    }
+
+    /**
+     * 执行流水线，把结果写入 file
+     * @param file 新文本文件，该文件存放执行所有步骤后的文本内容
+     * @return file
+     */
+    public File writeTo(File file){
+        try {
+            czbBigText.readFile(czbBigText.output(new PipelineCommand(new ArrayList<>(stages),file)));
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+        return file;
+    }
+}
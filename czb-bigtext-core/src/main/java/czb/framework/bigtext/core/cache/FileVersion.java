@@ -0,0 +1,139 @@
+package czb.framework.bigtext.core.cache;
+
+import czb.framework.bigtext.core.exception.BigTextException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+/**
+ * 文本文件的版本：规范路径、字节数、修改时间和文件标识（例如 inode）
+ * <p>四项都相同时认为是同一个文件的同一个版本，任何一项变化（修改、追加、替换成另一个文件）都会得到不同的版本。
+ * 一次 {@link Files#readAttributes(java.nio.file.Path, Class, java.nio.file.LinkOption...)} 就能得到后三项，代价很小</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class FileVersion {
+
+    /**
+     * 文本文件的规范路径
+     */
+    private String canonicalPath;
+    /**
+     * 文本文件的字节数
+     */
+    private long size;
+    /**
+     * 文本文件的修改时间
+     */
+    private long lastModified;
+    /**
+     * 文本文件的标识，文件系统不支持时为 null
+     */
+    private String fileKey;
+
+    /**
+     * 新建一个 {@link FileVersion} 实例
+     * @param canonicalPath 文本文件的规范路径
+     * @param size 文本文件的字节数
+     * @param lastModified 文本文件的修改时间
+     * @param fileKey 文本文件的标识，文件系统不支持时为 null
+     */
+    public FileVersion(String canonicalPath, long size, long lastModified, String fileKey) {
+        this.canonicalPath = canonicalPath;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * 获取文本文件当前的版本
+     * @param file 文本文件
+     * @return 当前的版本；文本文件不存在时返回 null
+     */
+    public static FileVersion of(File file){
+        try {
+            return of(file.getCanonicalPath(),file);
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+file.getAbsolutePath()+",throw IO exception: ",e);
+        }
+    }
+
+    /**
+     * 获取文本文件当前的版本，规范路径已知时不需要再次解析
+     * @param canonicalPath 文本文件的规范路径
+     * @param file 文本文件
+     * @return 当前的版本；文本文件不存在时返回 null
+     */
+    public static FileVersion of(String canonicalPath, File file){
+        try {
+            BasicFileAttributes attributes=Files.readAttributes(file.toPath(),BasicFileAttributes.class);
+            Object key=attributes.fileKey();
+            return new FileVersion(canonicalPath,attributes.size(),attributes.lastModifiedTime().toMillis(),
+                    key==null ? null : key.toString());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+file.getAbsolutePath()+",throw IO exception: ",e);
+        }
+    }
+
+    /**
+     * 获取 文本文件的规范路径
+     * @see #canonicalPath
+     */
+    public String getCanonicalPath() {
+        return canonicalPath;
+    }
+
+    /**
+     * 获取 文本文件的字节数
+     * @see #size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 获取 文本文件的修改时间
+     * @see #lastModified
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * 获取 文本文件的标识
+     * @see #fileKey
+     */
+    public String getFileKey() {
+        return fileKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FileVersion)) {
+            return false;
+        }
+        FileVersion that = (FileVersion) o;
+        return size == that.size && lastModified == that.lastModified
+                && canonicalPath.equals(that.canonicalPath) && Objects.equals(fileKey, that.fileKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(canonicalPath, size, lastModified, fileKey);
+    }
+
+    @Override
+    public String toString() {
+        return canonicalPath+"@"+size+","+lastModified+","+fileKey;
+    }
+}
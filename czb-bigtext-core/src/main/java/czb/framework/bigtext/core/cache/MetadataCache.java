@@ -0,0 +1,319 @@
+package czb.framework.bigtext.core.cache;
+
+import czb.framework.bigtext.core.stats.TextStats;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 在多个 {@link czb.framework.bigtext.core.CzbBigText} 实例之间共享的文本元数据缓存
+ * <p>元数据（见 {@link TextMetadata}）按 文本文件的规范路径 + 编码 缓存，并记录所属的 {@link FileVersion} ；
+ * 读取时文本文件的字节数、修改时间或文件标识与缓存的版本不一致，说明文件已经被修改或替换，缓存自动失效。</p>
+ * <p>缓存分为两层：</p>
+ * <ul>
+ *     <li>内存层：最多保留 {@link #capacity} 个文件的元数据，超过时淘汰最久没有使用的；每份统计结果包含出现过的字符的出现次数，按 256 个字符一页分配，最多约占 512K 内存</li>
+ *     <li>旁路文件层（可选）：开启 {@link #persistent} 时，字符数和统计结果同时保存到 文本文件路径 + {@link #SIDECAR_SUFFIX} 旁路文件中，
+ *     重启后的新实例也能直接使用；检查点已经由 {@link czb.framework.bigtext.core.index.CheckpointIndex} 自己的旁路文件保存，只在内存层共享</li>
+ * </ul>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class MetadataCache {
+
+    /**
+     * 默认最多缓存多少个文件的元数据：32个
+     */
+    public final static int DEFAULT_CAPACITY=32;
+    /**
+     * 旁路文件的后缀
+     */
+    public final static String SIDECAR_SUFFIX=".meta";
+    /**
+     * 旁路文件的魔数
+     */
+    private final static int MAGIC=0x435A4D44;
+    /**
+     * 旁路文件的格式版本
+     */
+    private final static int FORMAT_VERSION=1;
+    /**
+     * 所有 {@link czb.framework.bigtext.core.CzbBigText} 实例默认共享的缓存
+     */
+    private final static MetadataCache DEFAULT=new MetadataCache(DEFAULT_CAPACITY);
+
+    /**
+     * 内存层最多缓存多少个文件的元数据
+     */
+    private int capacity;
+    /**
+     * 是否把元数据保存到旁路文件，默认不保存，避免在文本文件所在的目录中写入额外的文件（目录也可能是只读的）
+     */
+    private boolean persistent;
+    /**
+     * 内存层，按访问顺序排列，最久没有使用的在最前面
+     */
+    private LinkedHashMap<String,Entry> entries;
+
+    /**
+     * 新建一个 {@link MetadataCache} 实例
+     * @param capacity 内存层最多缓存多少个文件的元数据，必须大于 0
+     */
+    public MetadataCache(int capacity) {
+        if(capacity<=0){
+            throw new IllegalArgumentException("metadata cache capacity must be positive: "+capacity);
+        }
+        this.capacity = capacity;
+        this.entries=new LinkedHashMap<String,Entry>(16,0.75f,true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size()>MetadataCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * 获取所有 {@link czb.framework.bigtext.core.CzbBigText} 实例默认共享的缓存
+     * @return 默认的缓存
+     */
+    public static MetadataCache getDefault(){
+        return DEFAULT;
+    }
+
+    /**
+     * 获取文本文件某个版本的元数据
+     * <p>先查找内存层，版本不一致的元数据会被丢弃；内存层没有时再从旁路文件加载</p>
+     * @param version 文本文件当前的版本
+     * @param charset 文本编码
+     * @return 元数据；没有缓存时返回 null
+     */
+    public synchronized TextMetadata get(FileVersion version, String charset){
+        String key=key(version.getCanonicalPath(),charset);
+        Entry entry=entries.get(key);
+        if(entry!=null){
+            if(entry.version.equals(version)){
+                return entry.metadata;
+            }
+            entries.remove(key);
+        }
+        if(!persistent){
+            return null;
+        }
+        TextMetadata metadata=load(version,charset);
+        if(metadata!=null){
+            entries.put(key,new Entry(version,metadata));
+        }
+        return metadata;
+    }
+
+    /**
+     * 缓存文本文件某个版本的元数据，与已缓存的同一版本的元数据合并
+     * @param version 计算元数据之前文本文件的版本
+     * @param charset 文本编码
+     * @param metadata 元数据
+     * @return 如果已缓存，返回 true；计算期间文本文件发生了变化时不会缓存，返回 false
+     */
+    public synchronized boolean put(FileVersion version, String charset, TextMetadata metadata){
+        if(!version.equals(FileVersion.of(version.getCanonicalPath(),new File(version.getCanonicalPath())))){
+            return false;
+        }
+        String key=key(version.getCanonicalPath(),charset);
+        Entry entry=entries.get(key);
+        if(entry!=null && entry.version.equals(version)){
+            metadata=metadata.merge(entry.metadata);
+        }
+        entries.put(key,new Entry(version,metadata));
+        if(persistent && metadata.getLength()!=-1){
+            save(version,charset,metadata);
+        }
+        return true;
+    }
+
+    /**
+     * 丢弃文本文件所有编码的元数据
+     * <p>开启 {@link #persistent} 时同时删除旁路文件；只删除开头是本缓存的魔数和格式版本的文件，
+     * 不会误删用户自己的同名文件</p>
+     * @param file 文本文件
+     */
+    public synchronized void invalidate(File file){
+        String canonicalPath;
+        try {
+            canonicalPath=file.getCanonicalPath();
+        } catch (IOException e) {
+            canonicalPath=file.getAbsolutePath();
+        }
+        String prefix=canonicalPath+'\n';
+        Iterator<String> iterator=entries.keySet().iterator();
+        while (iterator.hasNext()){
+            if(iterator.next().startsWith(prefix)){
+                iterator.remove();
+            }
+        }
+        File sidecarFile=getSidecarFile(canonicalPath);
+        if(persistent && isSidecar(sidecarFile)){
+            sidecarFile.delete();
+        }
+    }
+
+    /**
+     * 丢弃内存层的所有元数据，旁路文件不受影响
+     */
+    public synchronized void clear(){
+        entries.clear();
+    }
+
+    /**
+     * 内存层缓存的文件数
+     * @return 文件数
+     */
+    public synchronized int size(){
+        return entries.size();
+    }
+
+    /**
+     * 内存层的键：规范路径 + 编码的规范名称，编码的别名（例如 utf8 和 UTF-8）使用同一个键
+     * @param canonicalPath 文本文件的规范路径
+     * @param charset 文本编码
+     * @return 键
+     */
+    private static String key(String canonicalPath, String charset){
+        return canonicalPath+'\n'+Charset.forName(charset).name();
+    }
+
+    /**
+     * 获取文本文件的旁路文件
+     * @param canonicalPath 文本文件的规范路径
+     * @return 旁路文件
+     */
+    private static File getSidecarFile(String canonicalPath){
+        return new File(canonicalPath+SIDECAR_SUFFIX);
+    }
+
+    /**
+     * 文件是否是本缓存写入的旁路文件，即开头是 {@link #MAGIC} 和 {@link #FORMAT_VERSION}
+     * @param sidecarFile 旁路文件
+     * @return 如果是本缓存写入的旁路文件，返回 true；文件不存在或无法读取时返回 false
+     */
+    private static boolean isSidecar(File sidecarFile){
+        if(!sidecarFile.isFile()){
+            return false;
+        }
+        try(DataInputStream in=new DataInputStream(new BufferedInputStream(new FileInputStream(sidecarFile)))){
+            return in.readInt()==MAGIC && in.readInt()==FORMAT_VERSION;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 从旁路文件加载元数据，旁路文件不存在、损坏、版本或编码不一致时忽略
+     * @param version 文本文件当前的版本
+     * @param charset 文本编码
+     * @return 元数据；无法使用时返回 null
+     */
+    private TextMetadata load(FileVersion version, String charset){
+        File sidecarFile=getSidecarFile(version.getCanonicalPath());
+        if(!sidecarFile.isFile()){
+            return null;
+        }
+        try(DataInputStream in=new DataInputStream(new BufferedInputStream(new FileInputStream(sidecarFile)))){
+            if(in.readInt()!=MAGIC || in.readInt()!=FORMAT_VERSION){
+                return null;
+            }
+            long size=in.readLong();
+            long modified=in.readLong();
+            String fileKey= in.readBoolean() ? in.readUTF() : null;
+            String charsetName=in.readUTF();
+            if(!version.equals(new FileVersion(version.getCanonicalPath(),size,modified,fileKey))
+                    || !charsetName.equals(Charset.forName(charset).name())){
+                return null;
+            }
+            long length=in.readLong();
+            long lengthNoCRLF=in.readLong();
+            TextStats textStats= in.readBoolean() ? TextStats.readFrom(in) : null;
+            return new TextMetadata(length,lengthNoCRLF,textStats,0,null);
+        } catch (IOException e) {
+            //旁路文件损坏，重新统计即可
+            return null;
+        }
+    }
+
+    /**
+     * 把元数据中的字符数和统计结果保存到旁路文件，保存失败时只保留内存层的元数据
+     * <p>已经存在的同名文件不是本缓存写入的旁路文件时不会覆盖</p>
+     * @param version 文本文件的版本
+     * @param charset 文本编码
+     * @param metadata 元数据
+     */
+    private void save(FileVersion version, String charset, TextMetadata metadata){
+        File sidecarFile=getSidecarFile(version.getCanonicalPath());
+        if(sidecarFile.exists() && !isSidecar(sidecarFile)){
+            return;
+        }
+        try(DataOutputStream out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sidecarFile)))){
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(version.getSize());
+            out.writeLong(version.getLastModified());
+            out.writeBoolean(version.getFileKey()!=null);
+            if(version.getFileKey()!=null){
+                out.writeUTF(version.getFileKey());
+            }
+            out.writeUTF(Charset.forName(charset).name());
+            out.writeLong(metadata.getLength());
+            out.writeLong(metadata.getLengthNoCRLF());
+            out.writeBoolean(metadata.getTextStats()!=null);
+            if(metadata.getTextStats()!=null){
+                metadata.getTextStats().writeTo(out);
+            }
+        } catch (IOException e) {
+            sidecarFile.delete();
+        }
+    }
+
+    /**
+     * 获取 内存层最多缓存多少个文件的元数据
+     * @see #capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 获取 是否把元数据保存到旁路文件
+     * @see #persistent
+     */
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    /**
+     * 设置 是否把元数据保存到旁路文件
+     * @see #persistent
+     */
+    public synchronized void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    /**
+     * 内存层的一项：元数据及其所属的版本
+     */
+    private static class Entry {
+        /**
+         * 元数据所属的版本
+         */
+        private FileVersion version;
+        /**
+         * 元数据
+         */
+        private TextMetadata metadata;
+
+        private Entry(FileVersion version, TextMetadata metadata) {
+            this.version = version;
+            this.metadata = metadata;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package czb.framework.bigtext.core.cache;
+
+import czb.framework.bigtext.core.stats.TextStats;
+
+/**
+ * 一个文本文件版本的元数据：字符数、统计结果和检查点
+ * <p>实例创建后不会再改变，各项都可能未知；同一个版本的两份元数据可以通过 {@link #merge(TextMetadata)} 合并。
+ * 其中的 {@link TextStats} 被多个实例共享，不能修改</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class TextMetadata {
+
+    /**
+     * 字符数【包含回车换行】，未知时为 -1
+     */
+    private long length;
+    /**
+     * 字符数【不包含回车换行】，未知时为 -1
+     */
+    private long lengthNoCRLF;
+    /**
+     * 统计结果，未知时为 null
+     */
+    private TextStats textStats;
+    /**
+     * 各个检查点的字符索引，未知时为 null
+     */
+    private long[] checkpointCharPositions;
+    /**
+     * 各个检查点的字节位置，与 {@link #checkpointCharPositions} 一一对应
+     */
+    private long[] checkpointBytePositions;
+    /**
+     * 建立检查点时的记录间隔，只与记录间隔相同的检查点索引共享
+     */
+    private int checkpointInterval;
+
+    /**
+     * 新建一个 {@link TextMetadata} 实例
+     * @param length 字符数【包含回车换行】，未知时为 -1 ；textStats 不为 null 时使用统计结果中的字符数
+     * @param lengthNoCRLF 字符数【不包含回车换行】，未知时为 -1 ；textStats 不为 null 时使用统计结果中的字符数
+     * @param textStats 统计结果，未知时为 null
+     * @param checkpointInterval 建立检查点时的记录间隔
+     * @param checkpoints {字符索引数组, 字节位置数组} ，见 {@link czb.framework.bigtext.core.index.CheckpointIndex#getCheckpoints()} ；未知时为 null
+     */
+    public TextMetadata(long length, long lengthNoCRLF, TextStats textStats, int checkpointInterval, long[][] checkpoints) {
+        this.length = textStats!=null ? textStats.getLength() : length;
+        this.lengthNoCRLF = textStats!=null ? textStats.getLengthNoCRLF() : lengthNoCRLF;
+        this.textStats = textStats;
+        if(checkpoints!=null){
+            this.checkpointInterval=checkpointInterval;
+            this.checkpointCharPositions=checkpoints[0];
+            this.checkpointBytePositions=checkpoints[1];
+        }
+    }
+
+    /**
+     * 合并同一个版本的另一份元数据，该元数据未知的项使用 other 中的值
+     * @param other 同一个版本的另一份元数据
+     * @return 合并后的元数据
+     */
+    public TextMetadata merge(TextMetadata other){
+        return new TextMetadata(length!=-1 ? length : other.length,
+                lengthNoCRLF!=-1 ? lengthNoCRLF : other.lengthNoCRLF,
+                textStats!=null ? textStats : other.textStats,
+                checkpointCharPositions!=null ? checkpointInterval : other.checkpointInterval,
+                checkpointCharPositions!=null ? getCheckpoints() : other.getCheckpoints());
+    }
+
+    /**
+     * 获取 字符数【包含回车换行】
+     * @return 字符数；未知时返回 -1
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * 获取 字符数【不包含回车换行】
+     * @return 字符数；未知时返回 -1
+     */
+    public long getLengthNoCRLF() {
+        return lengthNoCRLF;
+    }
+
+    /**
+     * 获取 统计结果
+     * @return 统计结果；未知时返回 null
+     */
+    public TextStats getTextStats() {
+        return textStats;
+    }
+
+    /**
+     * 获取 建立检查点时的记录间隔
+     * @see #checkpointInterval
+     */
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * 获取 检查点
+     * @return {字符索引数组, 字节位置数组} ；未知时返回 null
+     */
+    public long[][] getCheckpoints() {
+        return checkpointCharPositions==null ? null : new long[][]{checkpointCharPositions,checkpointBytePositions};
+    }
+}
@@ -0,0 +1,58 @@
+package czb.framework.bigtext.core.command;
+
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.search.AhoCorasick;
+import czb.framework.bigtext.core.search.MultiStreamSearcher;
+
+/**
+ * 判断本文是否包含所有关键字 的指令
+ * <p>使用 {@link MultiStreamSearcher} 一次读取同时查找所有关键字，所有关键字都找到后立即终止读取</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class ContainsAllCommand implements ReadSegmentCallback {
+
+    /**
+     * 每个关键字是否已经找到，下标为关键字序号
+     */
+    private boolean[] found;
+    /**
+     * 还没有找到的关键字数量
+     */
+    private int remain;
+    /**
+     * 跨段查找关键字的流式查找器
+     */
+    private MultiStreamSearcher searcher;
+
+    /**
+     * 新建一个 {@link ContainsAllCommand} 实例
+     * @param automaton 关键字的自动机
+     */
+    public ContainsAllCommand(AhoCorasick automaton) {
+        this.found=new boolean[automaton.size()];
+        this.remain=automaton.size();
+        this.searcher=automaton.newSearcher((keyword, position) -> {
+            if(!found[keyword]){
+                found[keyword]=true;
+                remain--;
+            }
+            return remain>0;
+        });
+    }
+
+    @Override
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        searcher.feed(buff,offset,length);
+        return remain==0;
+    }
+
+    /**
+     * 本文是否包含所有关键字
+     * @return 如果所有关键字都找到，返回 true;否则返回 false
+     */
+    public boolean isContainsAll() {
+        return remain==0;
+    }
+}
@@ -0,0 +1,27 @@
+package czb.framework.bigtext.core.command;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+/**
+ * 将读取到的文本内容原样写入临时文件 的命令
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class CopyCommand extends WriterCommand {
+
+    /**
+     * 新建一个 {@link CopyCommand} 实例
+     * @param tempFile 要写入的临时文件
+     * @throws FileNotFoundException 当 tempFile 不存在时抛出
+     */
+    public CopyCommand(File tempFile) throws FileNotFoundException {
+        super(tempFile);
+    }
+
+    @Override
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        writeData(buff,offset,length);
+        return false;
+    }
+}
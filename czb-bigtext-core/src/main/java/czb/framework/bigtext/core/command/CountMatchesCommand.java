@@ -0,0 +1,71 @@
+package czb.framework.bigtext.core.command;
+
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.search.AhoCorasick;
+import czb.framework.bigtext.core.search.MultiStreamSearcher;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 统计每个关键字在本文中的出现次数 的指令
+ * <p>使用 {@link MultiStreamSearcher} 一次读取同时统计所有关键字。同一个关键字的匹配项按从左到右、
+ * 互不重叠的方式统计，与 {@link String#replace(CharSequence, CharSequence)} 替换的次数一致；不同关键字之间允许重叠</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class CountMatchesCommand implements ReadSegmentCallback {
+
+    /**
+     * 每个关键字的出现次数，下标为关键字序号
+     */
+    private long[] counts;
+    /**
+     * 每个关键字的下一个匹配项最早可以开始的索引，用于排除同一个关键字互相重叠的匹配项
+     */
+    private long[] nextAllowed;
+    /**
+     * 关键字的自动机
+     */
+    private AhoCorasick automaton;
+    /**
+     * 跨段查找关键字的流式查找器
+     */
+    private MultiStreamSearcher searcher;
+
+    /**
+     * 新建一个 {@link CountMatchesCommand} 实例
+     * @param automaton 关键字的自动机
+     */
+    public CountMatchesCommand(AhoCorasick automaton) {
+        this.automaton=automaton;
+        this.counts=new long[automaton.size()];
+        this.nextAllowed=new long[automaton.size()];
+        this.searcher=automaton.newSearcher((keyword, position) -> {
+            if(position>=nextAllowed[keyword]){
+                counts[keyword]++;
+                nextAllowed[keyword]=position+automaton.getKeyword(keyword).length();
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        searcher.feed(buff,offset,length);
+        return false;
+    }
+
+    /**
+     * 获取每个关键字的出现次数
+     * @return 按关键字顺序排列的 关键字 -&gt; 出现次数
+     */
+    public Map<String,Long> getCounts() {
+        Map<String,Long> map=new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            map.put(automaton.getKeyword(i),counts[i]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,61 @@
+package czb.framework.bigtext.core.command;
+
+import czb.framework.bigtext.core.search.AhoCorasick;
+import czb.framework.bigtext.core.search.StreamReplacer;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Map;
+
+/**
+ * 一次读取把本文中的多个 oldStr 分别覆盖成对应 newStr 的命令
+ * <p>使用 {@link StreamReplacer} 按最左最长的方式跨段替换，替换结果通过 {@link WriterCommand} 写入新文本文件</p>
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class DictionaryReplaceCommand extends WriterCommand implements StreamReplacer.Output {
+
+    /**
+     * 跨段替换的流式替换器
+     */
+    private StreamReplacer replacer;
+
+    /**
+     * 新建一个 {@link DictionaryReplaceCommand} 实例
+     * @param replacements 旧字符串 -&gt; 新字符串，旧字符串不能为空字符串
+     * @param tempFile 新文本文件，该文件存放覆盖后的文本内容
+     * @throws FileNotFoundException 如果 tempFile 文件不存在
+     */
+    public DictionaryReplaceCommand(Map<String,String> replacements, File tempFile) throws FileNotFoundException {
+        super(tempFile);
+        AhoCorasick automaton=new AhoCorasick(replacements.keySet().toArray(new String[0]));
+        String[] newStrs=new String[automaton.size()];
+        for (int i = 0; i < newStrs.length; i++) {
+            newStrs[i]=replacements.get(automaton.getKeyword(i));
+        }
+        this.replacer=new StreamReplacer(automaton,newStrs,this);
+    }
+
+    @Override
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        replacer.feed(buff,offset,length);
+        return false;
+    }
+
+    @Override
+    public void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
+        //输出替换器暂存的尾部字符
+        replacer.finish();
+        super.onCompleteRead(currentReadSize, buff, offset, length);
+    }
+
+    @Override
+    public void write(char[] buff, int offset, int length) {
+        writeData(buff,offset,length);
+    }
+
+    @Override
+    public void write(String str) {
+        writeData(str);
+    }
+}
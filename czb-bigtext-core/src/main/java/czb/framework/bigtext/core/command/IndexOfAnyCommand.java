@@ -0,0 +1,72 @@
+package czb.framework.bigtext.core.command;
+
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.search.AhoCorasick;
+import czb.framework.bigtext.core.search.MultiStreamSearcher;
+
+/**
+ * 查找多个关键字,返回本文中任意一个关键字第一个匹配项的索引 的指令
+ * <p>使用 {@link MultiStreamSearcher} 一次读取同时查找所有关键字。匹配项按结束位置的先后顺序找到，
+ * 较长的关键字可能比已经找到的匹配项开始得更早，所以找到匹配项后还要继续读取，直到不可能再有更早开始的匹配项</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class IndexOfAnyCommand implements ReadSegmentCallback {
+
+    /**
+     * 开始搜索的索引
+     */
+    private long fromIndex;
+    /**
+     * 最早开始的匹配项在已读文本中的索引，-1 表示还没有找到
+     */
+    private long bestPos=-1;
+    /**
+     * 最早开始的匹配项的关键字序号
+     */
+    private int bestKeyword=-1;
+    /**
+     * 跨段查找关键字的流式查找器
+     */
+    private MultiStreamSearcher searcher;
+
+    /**
+     * 新建一个 {@link IndexOfAnyCommand} 实例
+     * @param automaton 关键字的自动机
+     * @param fromIndex 开始搜索的索引，读取文本时需要从该索引开始读取
+     */
+    public IndexOfAnyCommand(AhoCorasick automaton, long fromIndex) {
+        this.fromIndex = fromIndex;
+        this.searcher=automaton.newSearcher((keyword, position) -> {
+            if(bestPos==-1 || position<bestPos){
+                bestPos=position;
+                bestKeyword=keyword;
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        searcher.feed(buff,offset,length);
+        //新的匹配项不可能比已经找到的匹配项开始得更早时，终止读取
+        return bestPos!=-1 && searcher.getPendingStart()>=bestPos;
+    }
+
+    /**
+     * 任意一个关键字在该文本中第一个匹配项的索引
+     * @return 第一个匹配项的索引；没有找到时返回 -1
+     */
+    public long getGlobalPos() {
+        return bestPos==-1 ? -1 : fromIndex+bestPos;
+    }
+
+    /**
+     * 第一个匹配项的关键字
+     * @return 第一个匹配项的关键字；没有找到时返回 null
+     */
+    public String getKeyword() {
+        return bestKeyword==-1 ? null : searcher.getAutomaton().getKeyword(bestKeyword);
+    }
+}
@@ -1,15 +1,17 @@
 package czb.framework.bigtext.core.command;
 
-import czb.framework.bigtext.core.delegate.callback.ReadFileCallback;
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.search.StreamSearcher;
 
 /**
  * 查找指定字符串,返回本文中第一个匹配项的索引 的指令
  * <p>对应 {@link String#indexOf(String, int)} 方法</p>
+ * <p>使用 {@link StreamSearcher} 跨段查找，所以不需要使用带 toFindStr 的读取策略读取文本</p>
  *
  * @author chenzhuobin
  * @since  2020/11/13 0013
  */
-public class IndexOfCommand implements ReadFileCallback {
+public class IndexOfCommand implements ReadSegmentCallback {
 
     /**
      * {@link #toFindStr} 在该文本中的第一个字符索引位置
@@ -19,40 +21,49 @@ public class IndexOfCommand implements ReadFileCallback {
      * 查找指定字符串
      */
     private String toFindStr;
+    /**
+     * 是否已经找到 {@link #toFindStr}
+     */
+    private boolean found;
+    /**
+     * 跨段查找 {@link #toFindStr} 的流式查找器
+     */
+    private StreamSearcher searcher;
 
     /**
      * 新建一个 {@link IndexOfCommand} 实例
-     * @param toFindStr 当前索引位置
-     * @param fromIndex 查找指定字符串
+     * @param toFindStr 查找指定字符串，不能为空字符串
+     * @param fromIndex 开始搜索的索引，读取文本时需要从该索引开始读取
      */
     public IndexOfCommand(String toFindStr, long fromIndex){
         this.toFindStr=toFindStr;
         this.globalPos=fromIndex;
+        this.searcher=new StreamSearcher(toFindStr, position -> {
+            globalPos+=position;
+            found=true;
+            return false;
+        });
     }
 
     /**
-     * 将 segment 包装成 字符串 调用 {@link String#indexOf(String)} 得到 {@link #toFindStr} 在
-     * segment 的 索引位，然后通过 currentReadSize 和 索引位 计算出 {@link #globalPos}
+     * 将这段文本输入 {@link #searcher} ，找到匹配项时通过匹配项的全局索引计算出 {@link #globalPos}
      * @param currentReadSize 当前已读字符数
-     * @param segment 这段文本的内容
+     * @param buff 复用的字符数组
+     * @param offset 这段文本在 buff 中的开始位置
+     * @param length 这段文本的字符数
      * @return 当找到索引位会返回true,以终止文本的读取
      */
     @Override
-    public boolean onSegmentRead(long currentReadSize, char[] segment) {
-        String segmentStr=new String(segment);
-        int segmentOffset = segmentStr.indexOf(toFindStr);
-        if(segmentOffset!=-1){
-            globalPos += currentReadSize -(segment.length-segmentOffset);
-            return true;
-        }else{
-            return false;
-        }
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        searcher.feed(buff,offset,length);
+        return found;
     }
 
     /**
      * {@link #toFindStr} 在该文本中的第一个字符索引位置
+     * @return 第一个字符索引位置；没有找到时返回 -1
      */
     public long getGlobalPos() {
-        return globalPos;
+        return found ? globalPos : -1;
     }
 }
@@ -17,9 +17,7 @@ public class InsertFileCommand extends InsertCommand{
      */
     private File insertFile;
     /**
-     * 段的最大大小
-     * <p>用于 计算出该 offset 所在的段，也可以理解成 找到 offset 所需要的段数 </p>
-     * <p>也用于 按段读取 {@link #insertFile} 时的最大段大小</p>
+     * 按段读取 {@link #insertFile} 时的最大段大小
      */
     private int segmentSize;
     /**
@@ -31,24 +29,23 @@ public class InsertFileCommand extends InsertCommand{
      * 新建一个 {@link InsertFileCommand} 实例
      * @param tempFile 要插入的文本文件
      * @param offset 该文本的索引位，这里索引是基于字符的索引而不是字节索引
-     * @param segmentSize 段的最大大小。用于 计算出该 offset 所在的段，也可以理解成 找到 offset 所需要的段数 ；
-     *                      也用于 按段读取 {@link #insertFile} 时的最大段大小
+     * @param segmentSize 按段读取 {@link #insertFile} 时的最大段大小
      * @param charset 读取 insertFile 所用的编码
      * @param insertFile 要插入的文本文件
      * @throws FileNotFoundException 当 tempFile 不存在时抛出
      */
     public InsertFileCommand(File tempFile, long offset, int segmentSize,String charset,File insertFile) throws FileNotFoundException {
-        super(tempFile, offset, segmentSize);
+        super(tempFile, offset);
         this.insertFile = insertFile;
         this.segmentSize=segmentSize;
         this.charset=charset;
     }
 
     @Override
-    public void insert(long currentReadSize, char[] segment) {
+    public void insert(long currentReadSize, char[] buff, int offset, int length) {
         ReadFileDelegate delegate=new ReadFileDelegate(insertFile,segmentSize,charset);
-        delegate.readFile((oCurrentReadSize, oSegment) -> {
-            writeData(oSegment);
+        delegate.readFile((oCurrentReadSize, oBuff, oOffset, oLength) -> {
+            writeData(oBuff,oOffset,oLength);
             return false;
         });
     }
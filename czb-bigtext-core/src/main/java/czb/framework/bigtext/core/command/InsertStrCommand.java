@@ -14,14 +14,21 @@ public class InsertStrCommand extends InsertCommand {
      */
     private String str;
 
-    public InsertStrCommand(File tempFile,long offset, int segmentSize,String str) throws FileNotFoundException {
-        super(tempFile,offset,segmentSize);
+    /**
+     * 新建一个 {@link InsertStrCommand} 实例
+     * @param tempFile 要写入的临时文件
+     * @param offset 该文本的索引位，这里索引是基于字符的索引而不是字节索引
+     * @param str 要插入的字符串
+     * @throws FileNotFoundException 当 tempFile 不存在时抛出
+     */
+    public InsertStrCommand(File tempFile,long offset,String str) throws FileNotFoundException {
+        super(tempFile,offset);
         this.str = str;
     }
 
 
     @Override
-    public void insert(long currentReadSize, char[] segment)  {
+    public void insert(long currentReadSize, char[] buff, int offset, int length)  {
         writeData(str);
     }
 }
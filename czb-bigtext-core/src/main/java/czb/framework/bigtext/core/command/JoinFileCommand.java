@@ -1,7 +1,7 @@
 package czb.framework.bigtext.core.command;
 
 import czb.framework.bigtext.core.delegate.ReadFileDelegate;
-import czb.framework.bigtext.core.delegate.callback.ReadFileCallback;
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
 
 import java.io.*;
 
@@ -48,28 +48,28 @@ public class JoinFileCommand extends WriterCommand {
     }
 
     @Override
-    public boolean onSegmentRead(long currentReadSize, char[] segment) {
-        writeData(segment);
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        writeData(buff,offset,length);
         return false;
     }
 
     @Override
-    public void onCompleteRead(long currentReadSize, char[] lastSegment) {
+    public void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
         writeData(delimiter);
         //使用 {@link ReadFileDelegate} 按段读取要连接的文件的文本内容，然后直接输出到 tempFile 里
         for (int i = 0; i < joinFiles.length; i++) {
             File file= joinFiles[i];
             ReadFileDelegate delegate=new ReadFileDelegate(file,maxSegmentLength,charset);
             int finalI = i;
-            delegate.readFile(new ReadFileCallback() {
+            delegate.readFile(new ReadSegmentCallback() {
                 @Override
-                public boolean onSegmentRead(long currentReadSize, char[] segment) {
-                    writeData(segment);
+                public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+                    writeData(buff,offset,length);
                     return false;
                 }
 
                 @Override
-                public void onCompleteRead(long currentReadSize, char[] lastSegment) {
+                public void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
                     if(finalI!= joinFiles.length-1){
                         writeData(delimiter);
                     }
@@ -77,7 +77,7 @@ public class JoinFileCommand extends WriterCommand {
             });
         }
         //因为父级方法默认会关闭 tempFile的输出流，所以要放到方法的最后再执行，以免出现IO关闭问题
-        super.onCompleteRead(currentReadSize,lastSegment);
+        super.onCompleteRead(currentReadSize,buff,offset,length);
     }
 
 
@@ -31,19 +31,19 @@ public class JoinStrCommand extends WriterCommand {
     }
 
     @Override
-    public boolean onSegmentRead(long currentReadSize, char[] segment) {
-        writeData(segment);
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        writeData(buff,offset,length);
         return false;
     }
 
     @Override
-    public void onCompleteRead(long currentReadSize, char[] lastSegment) {
+    public void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
         for (String str : joinStrs) {
             writeData(delimiter);
             writeData(str);
         }
         //因为父级方法默认会关闭 tempFile的输出流，所以要放到方法的最后再执行，以免出现IO关闭问题
-        super.onCompleteRead(currentReadSize,lastSegment);
+        super.onCompleteRead(currentReadSize,buff,offset,length);
     }
 
 
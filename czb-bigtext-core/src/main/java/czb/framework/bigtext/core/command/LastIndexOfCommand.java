@@ -0,0 +1,109 @@
+package czb.framework.bigtext.core.command;
+
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.delegate.callback.ReverseReadCallback;
+
+/**
+ * 查找指定字符串,返回本文中最后一个匹配项的索引 的指令
+ * <p>对应 {@link String#lastIndexOf(String, int)} 方法，匹配项可以互相重叠</p>
+ * <p>既可以交给 {@link czb.framework.bigtext.core.delegate.ReverseReadDelegate} 从文件结尾向前读取，
+ * 找到的第一个匹配项就是结果，马上停止读取；也可以交给 {@link czb.framework.bigtext.core.delegate.ReadFileDelegate}
+ * 从文件开头按段读取，读到 fromIndex 之后停止读取。两种方式都在 段 + 相邻文本的 toFindStr.length()-1 个字符 组成的窗口中查找，
+ * 所以跨段的匹配项也能找到</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class LastIndexOfCommand implements ReadSegmentCallback, ReverseReadCallback {
+
+    /**
+     * 查找指定字符串
+     */
+    private String toFindStr;
+    /**
+     * 匹配项的开始索引不能超过该索引
+     */
+    private long fromIndex;
+    /**
+     * 文本的字符数，从文件结尾向前读取时用于计算段的开始索引
+     */
+    private long textLength;
+    /**
+     * 相邻文本中可能与该段组成匹配项的字符：向后读取时是前一段的结尾，向前读取时是后一段的开头
+     */
+    private String carry="";
+    /**
+     * 最后一个匹配项的索引，没有找到时为 -1
+     */
+    private long globalPos=-1;
+
+    /**
+     * 新建一个 {@link LastIndexOfCommand} 实例
+     * @param toFindStr 查找指定字符串，不能为空字符串
+     * @param fromIndex 开始向前搜索的索引，匹配项的开始索引不能超过该索引
+     * @param textLength 文本的字符数，从文件开头按段读取时不会使用
+     */
+    public LastIndexOfCommand(String toFindStr, long fromIndex, long textLength) {
+        if(toFindStr.isEmpty()){
+            throw new IllegalArgumentException("toFindStr must not be empty");
+        }
+        this.toFindStr = toFindStr;
+        this.fromIndex = fromIndex;
+        this.textLength = textLength;
+    }
+
+    /**
+     * 从文件开头按段读取：记录窗口中最后一个匹配项，读完从 fromIndex 开始的匹配项后终止读取
+     */
+    @Override
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        String window=carry+new String(buff,offset,length);
+        long windowStart=currentReadSize-window.length();
+        long found=find(window,windowStart);
+        if(found!=-1){
+            globalPos=found;
+        }
+        carry=window.substring(Math.max(0,window.length()-toFindStr.length()+1));
+        //从 fromIndex 开始的匹配项也要读完整
+        return currentReadSize-fromIndex>=toFindStr.length();
+    }
+
+    /**
+     * 从文件结尾向前读取：窗口中的匹配项就是最后一个匹配项，找到后终止读取
+     */
+    @Override
+    public boolean onBlockRead(long charsAfter, char[] buff, int offset, int length) {
+        String window=new String(buff,offset,length)+carry;
+        long windowStart=textLength-charsAfter-length;
+        long found=find(window,windowStart);
+        if(found!=-1){
+            globalPos=found;
+            return true;
+        }
+        carry=window.substring(0,Math.min(window.length(),toFindStr.length()-1));
+        return false;
+    }
+
+    /**
+     * 在窗口中查找开始索引不超过 {@link #fromIndex} 的最后一个匹配项
+     * @param window 窗口
+     * @param windowStart 窗口第一个字符的索引
+     * @return 匹配项的索引；没有找到时返回 -1
+     */
+    private long find(String window, long windowStart){
+        long limit=Math.min(window.length()-toFindStr.length(),fromIndex-windowStart);
+        if(limit<0){
+            return -1;
+        }
+        int i=window.lastIndexOf(toFindStr,(int) limit);
+        return i==-1 ? -1 : windowStart+i;
+    }
+
+    /**
+     * 最后一个匹配项在该文本中的第一个字符索引位置
+     * @return 第一个字符索引位置；没有找到时返回 -1
+     */
+    public long getGlobalPos() {
+        return globalPos;
+    }
+}
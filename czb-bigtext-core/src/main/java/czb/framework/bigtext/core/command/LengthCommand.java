@@ -1,13 +1,13 @@
 package czb.framework.bigtext.core.command;
 
-import czb.framework.bigtext.core.delegate.callback.ReadFileCallback;
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
 
 /**
  * 获取该文本文件的文本字符数【包含回车换行】 的指令
  * @author chenzhuobin
  * @since 2020/11/13 0013
  */
-public class LengthCommand implements ReadFileCallback {
+public class LengthCommand implements ReadSegmentCallback {
 
     /**
      * 该文本文件的文本字符数【包含回车换行】
@@ -15,13 +15,13 @@ public class LengthCommand implements ReadFileCallback {
     private long length;
 
     @Override
-    public boolean onSegmentRead(long currentReadSize, char[] segment) {
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
         return false;
     }
 
     @Override
-    public void onCompleteRead(long currentReadSize, char[] lastSegment) {
-        length=currentReadSize;
+    public void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
+        this.length=currentReadSize;
     }
 
     /**
@@ -1,13 +1,13 @@
 package czb.framework.bigtext.core.command;
 
-import czb.framework.bigtext.core.delegate.callback.ReadFileCallback;
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
 
 /**
  * 获取该文本文件的文本字符数【不包含回车换行】 的指令
  * @author chenzhuobin
  * @since 2020/11/13 0013
  */
-public class LengthNoCRLFCommand implements ReadFileCallback {
+public class LengthNoCRLFCommand implements ReadSegmentCallback {
 
     /**
      * 该文本文件的文本字符数【不包含回车换行】
@@ -15,12 +15,13 @@ public class LengthNoCRLFCommand implements ReadFileCallback {
     private long length =0;
 
     @Override
-    public boolean onSegmentRead(long currentReadSize, char[] segment) {
-        for (char c:segment) {
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        for (int i = offset; i < offset+length; i++) {
+            char c=buff[i];
             if(c=='\n'||c=='\r'){
                 continue;
             }
-            length++;
+            this.length++;
         }
         return false;
     }
@@ -0,0 +1,105 @@
+package czb.framework.bigtext.core.command;
+
+import czb.framework.bigtext.core.edit.PieceTable;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.List;
+
+/**
+ * 按片段表输出编辑后文本的命令
+ * <p>原文本片段的开始位置是递增的，所以只需要从第一个原文本片段的开始位置顺序读取一次原文本：
+ * 读到的每段文本中属于当前原文本片段的部分直接写出，遇到追加缓冲区的片段就写出缓冲区中的字符串；
+ * 最后一个原文本片段写完后就终止读取</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ * @see PieceTable
+ */
+public class PieceTableCommand extends WriterCommand {
+
+    /**
+     * 片段表
+     */
+    private PieceTable pieceTable;
+    /**
+     * 按顺序排列的片段
+     */
+    private List<PieceTable.Piece> pieces;
+    /**
+     * 读取原文本的开始位置，currentReadSize 从该位置开始计算
+     */
+    private long base;
+    /**
+     * 下一个要输出的片段的下标
+     */
+    private int index;
+
+    /**
+     * 新建一个 {@link PieceTableCommand} 实例
+     * @param pieceTable 片段表
+     * @param base 读取原文本的开始位置，必须与读取时的偏移字符数一致，见 {@link #getReadOffset(PieceTable)}
+     * @param tempFile 新文本文件，该文件存放编辑后的文本内容
+     * @throws FileNotFoundException 如果 tempFile 文件不存在
+     */
+    public PieceTableCommand(PieceTable pieceTable, long base, File tempFile) throws FileNotFoundException {
+        super(tempFile);
+        this.pieceTable = pieceTable;
+        this.pieces = pieceTable.getPieces();
+        this.base = base;
+    }
+
+    /**
+     * 获取读取原文本的开始位置：第一个原文本片段的开始位置，没有原文本片段时为 0
+     * @param pieceTable 片段表
+     * @return 读取原文本的开始位置
+     */
+    public static long getReadOffset(PieceTable pieceTable){
+        for (PieceTable.Piece piece : pieceTable.getPieces()) {
+            if(piece.isOriginal()){
+                return piece.getStart();
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        long segmentEnd=base+currentReadSize;
+        long segmentStart=segmentEnd-length;
+        while (index<pieces.size()){
+            PieceTable.Piece piece=pieces.get(index);
+            if(!piece.isOriginal()){
+                writeData(pieceTable.getAdded(piece.getStart(),piece.getEnd()));
+                index++;
+                continue;
+            }
+            if(piece.getStart()>=segmentEnd){
+                return false;
+            }
+            long from=Math.max(piece.getStart(),segmentStart);
+            long to=Math.min(piece.getEnd(),segmentEnd);
+            if(to>from){
+                writeData(buff,offset+(int) (from-segmentStart),(int) (to-from));
+            }
+            if(piece.getEnd()>segmentEnd){
+                return false;
+            }
+            index++;
+        }
+        //所有片段都已输出，不再读取后面的原文本
+        return true;
+    }
+
+    @Override
+    public void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
+        //原文本为空时不会回调 onSegmentRead ，剩下的只可能是追加缓冲区的片段
+        while (index<pieces.size()){
+            PieceTable.Piece piece=pieces.get(index++);
+            if(!piece.isOriginal()){
+                writeData(pieceTable.getAdded(piece.getStart(),piece.getEnd()));
+            }
+        }
+        super.onCompleteRead(currentReadSize, buff, offset, length);
+    }
+}
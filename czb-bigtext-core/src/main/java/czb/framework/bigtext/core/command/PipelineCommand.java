@@ -0,0 +1,67 @@
+package czb.framework.bigtext.core.command;
+
+import czb.framework.bigtext.core.pipeline.TextSink;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 在一次读取中依次执行多个转换步骤，并把最终结果写入新文本文件的命令
+ * <p>每段文本依次经过各个步骤，中间结果只在内存中传递，整个流水线只读取源文件一次、写入新文本文件一次</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ * @see czb.framework.bigtext.core.TextPipeline
+ */
+public class PipelineCommand extends WriterCommand implements TextSink {
+
+    /**
+     * 第一个步骤；没有步骤时就是该命令本身
+     */
+    private TextSink head;
+
+    /**
+     * 新建一个 {@link PipelineCommand} 实例
+     * @param stages 按执行顺序排列的步骤工厂，参数为下一个步骤，返回新建的步骤
+     * @param tempFile 新文本文件，该文件存放最终结果
+     * @throws FileNotFoundException 如果 tempFile 文件不存在
+     */
+    public PipelineCommand(List<Function<TextSink, TextSink>> stages, File tempFile) throws FileNotFoundException {
+        super(tempFile);
+        TextSink sink=this;
+        //从最后一个步骤开始，依次把后一个步骤连接到前一个步骤
+        for (int i = stages.size()-1; i >= 0; i--) {
+            sink=stages.get(i).apply(sink);
+        }
+        this.head=sink;
+    }
+
+    @Override
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        head.write(buff,offset,length);
+        return false;
+    }
+
+    @Override
+    public void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
+        //各个步骤依次输出暂存的字符，最后到达该命令的 finish
+        head.finish();
+        super.onCompleteRead(currentReadSize, buff, offset, length);
+    }
+
+    @Override
+    public void write(char[] buff, int offset, int length) {
+        writeData(buff,offset,length);
+    }
+
+    @Override
+    public void write(String str) {
+        writeData(str);
+    }
+
+    @Override
+    public void finish() {
+    }
+}
@@ -0,0 +1,44 @@
+package czb.framework.bigtext.core.command;
+
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.search.StreamRegexMatcher;
+
+import java.util.regex.Pattern;
+
+/**
+ * 查找本文中正则表达式所有匹配项 的指令
+ * <p>使用 {@link StreamRegexMatcher} 在滑动窗口中跨段查找，找到的匹配项交给调用方的监听器处理；
+ * 监听器返回 false 后终止读取</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class RegexFindCommand implements ReadSegmentCallback {
+
+    /**
+     * 跨段查找正则表达式的流式查找器
+     */
+    private StreamRegexMatcher matcher;
+
+    /**
+     * 新建一个 {@link RegexFindCommand} 实例
+     * @param pattern 要查找的正则表达式
+     * @param maxMatchLength 匹配项的最大长度
+     * @param listener 匹配结果监听器
+     */
+    public RegexFindCommand(Pattern pattern, int maxMatchLength, StreamRegexMatcher.MatchListener listener) {
+        this.matcher=new StreamRegexMatcher(pattern,maxMatchLength,listener);
+    }
+
+    @Override
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        matcher.feed(buff,offset,length);
+        return !matcher.isMatching();
+    }
+
+    @Override
+    public void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
+        //查找窗口中剩余的匹配项
+        matcher.finish();
+    }
+}
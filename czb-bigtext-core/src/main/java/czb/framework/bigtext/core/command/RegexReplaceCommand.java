@@ -0,0 +1,70 @@
+package czb.framework.bigtext.core.command;
+
+import czb.framework.bigtext.core.search.RegexReplacement;
+import czb.framework.bigtext.core.search.StreamRegexMatcher;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 将本文中正则表达式的所有匹配项覆盖成 replacement 的命令
+ * <p>使用 {@link StreamRegexMatcher} 在滑动窗口中跨段查找；replacement 的语法与 {@link Matcher#appendReplacement(StringBuffer, String)}
+ * 一致：$n 、${name} 引用捕获组，反斜杠转义下一个字符。replacement 由 {@link RegexReplacement} 在创建命令时解析一次</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class RegexReplaceCommand extends WriterCommand implements StreamRegexMatcher.MatchListener {
+
+    /**
+     * 解析后的 replacement
+     */
+    private RegexReplacement replacement;
+    /**
+     * 跨段查找正则表达式的流式查找器
+     */
+    private StreamRegexMatcher matcher;
+
+    /**
+     * 新建一个 {@link RegexReplaceCommand} 实例
+     * @param pattern 要查找的正则表达式
+     * @param replacement 替换字符串
+     * @param maxMatchLength 匹配项的最大长度
+     * @param tempFile 新文本文件，该文件存放覆盖后的文本内容
+     * @throws FileNotFoundException 如果 tempFile 文件不存在
+     * @throws IllegalArgumentException 如果 replacement 的语法错误
+     * @throws IndexOutOfBoundsException 如果 replacement 引用了不存在的捕获组序号
+     */
+    public RegexReplaceCommand(Pattern pattern, String replacement, int maxMatchLength, File tempFile) throws FileNotFoundException {
+        super(tempFile);
+        this.replacement=new RegexReplacement(replacement,pattern.matcher("").groupCount());
+        this.matcher=new StreamRegexMatcher(pattern,maxMatchLength,this);
+    }
+
+    @Override
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        matcher.feed(buff,offset,length);
+        return false;
+    }
+
+    @Override
+    public void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
+        //输出查找器窗口中剩余的字符
+        matcher.finish();
+        super.onCompleteRead(currentReadSize, buff, offset, length);
+    }
+
+    @Override
+    public void onText(char[] buff, int offset, int length) {
+        writeData(buff,offset,length);
+    }
+
+    @Override
+    public boolean onMatch(long position, MatchResult result) {
+        replacement.expand(result,this::writeData);
+        return true;
+    }
+}
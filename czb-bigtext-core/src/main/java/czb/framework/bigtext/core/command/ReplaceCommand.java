@@ -1,13 +1,16 @@
 package czb.framework.bigtext.core.command;
 
+import czb.framework.bigtext.core.search.StreamSearcher;
+
 import java.io.*;
 
 /**
  * 将本文文件的 oldStr 覆盖成 newStr 的命令
+ * <p>使用 {@link StreamSearcher} 跨段查找 oldStr ，跨越两段文本的 oldStr 也能被覆盖</p>
  * @author chenzhuobin
  * @since 2020/11/16 0016
  */
-public class ReplaceCommand extends WriterCommand {
+public class ReplaceCommand extends WriterCommand implements StreamSearcher.MatchListener {
 
     /**
      * 旧字符串
@@ -17,10 +20,14 @@ public class ReplaceCommand extends WriterCommand {
      * 新字符串
      */
     private String newStr;
+    /**
+     * 跨段查找 {@link #oldStr} 的流式查找器
+     */
+    private StreamSearcher searcher;
 
     /**
      * 新建一个 {@link ReplaceCommand} 实例
-     * @param oldStr 旧字符串
+     * @param oldStr 旧字符串，不能为空字符串
      * @param newStr 新字符串
      * @param tempFile 新文本文件，该文件存放覆盖后的文本内容
      * @throws FileNotFoundException 如果 tempFile 文件不存在
@@ -29,18 +36,36 @@ public class ReplaceCommand extends WriterCommand {
         super(tempFile);
         this.oldStr = oldStr;
         this.newStr = newStr;
+        this.searcher=new StreamSearcher(oldStr,this);
     }
 
 
     @Override
-    public boolean onSegmentRead(long currentReadSize, char[] segment) {
-        String segmentStr=new String(segment);
-        //如果可以覆盖
-        if(canReplace(currentReadSize,segmentStr)){
-            // 使用 {@link String#replace(char, char)} 进行覆盖
-            segmentStr=segmentStr.replace(oldStr,newStr);
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        searcher.feed(buff,offset,length);
+        return false;
+    }
+
+    @Override
+    public void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
+        //输出查找器保留下来的尾部字符
+        searcher.finish();
+        super.onCompleteRead(currentReadSize, buff, offset, length);
+    }
+
+    @Override
+    public void onText(char[] buff, int offset, int length) {
+        writeData(buff,offset,length);
+    }
+
+    @Override
+    public boolean onMatch(long position) {
+        // 如果可以覆盖
+        if(canReplace(position)){
+            writeData(newStr);
+            return true;
         }
-        writeData(segmentStr);
+        writeData(oldStr);
         return false;
     }
 
@@ -48,11 +73,11 @@ public class ReplaceCommand extends WriterCommand {
      * 是否可以覆盖
      * <p>钩子方法，交由子类控制是否将{@link #oldStr} 覆盖成 {@link #newStr}</p>
      * <p>默认实现直接返回true，表示所有的 {@link #oldStr} 都覆盖成 {@link #newStr}</p>
-     * @param currentReadSize 当前已读字符数
-     * @param segmentStr 这段文本的内容
+     * <p>返回 false 后不会再查找后续的 {@link #oldStr} ，剩余的文本内容原样输出</p>
+     * @param position 该 {@link #oldStr} 在本文中的字符索引
      * @return 返回 true 表示可以覆盖;否则为 false
      */
-    protected boolean canReplace(long currentReadSize, String segmentStr) {
+    protected boolean canReplace(long position) {
         return true;
     }
 }
@@ -1,25 +1,82 @@
 package czb.framework.bigtext.core.command;
 
 import czb.framework.bigtext.core.TempFileGenerator;
-import czb.framework.bigtext.core.delegate.callback.ReadFileCallback;
-import czb.framework.bigtext.core.exception.BigTextException;
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.output.ChannelOutputSink;
+import czb.framework.bigtext.core.output.FsyncPolicy;
+import czb.framework.bigtext.core.output.OutputSink;
+import czb.framework.bigtext.core.output.OutputSinkFactory;
+import czb.framework.bigtext.core.search.StreamRegexMatcher;
+import czb.framework.bigtext.core.search.StreamSearcher;
 
-import java.io.*;
+import java.io.File;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
 
 /**
  * 使用 splitStr 作为分隔符 对本文进行切分成多个文本文件 的指令
  * <p>如果需要，可通过设置 {@link #limit} 限制最大分割数，当达到分割数后，即使可以分割，也不会再分割</p>
+ * <p>使用 {@link StreamSearcher} 跨段查找分隔符，分隔符按字面匹配，不作为正则表达式；
+ * 使用 {@link Pattern} 创建时，改用 {@link StreamRegexMatcher} 在滑动窗口中跨段查找正则表达式</p>
+ * <p>与 {@link String#split(String)} 一样，不限制最大分割数时会去掉结尾的空文本文件</p>
+ * <p>每个新文本文件关闭后立即交给 {@link #partConsumer} ，不需要在内存中保存文件列表；结尾连续的空文本文件要等到
+ * 出现非空文本文件或读取结束才能确定是否保留，只记录它们的序号范围。</p>
+ * <p>设置了 {@link #writerPool} 时，每个新文本文件的内容按 {@link #CHUNK_SIZE} 个字符分块，交给写入线程池在后台写入，
+ * 同一个文件的分块按顺序写入，不同文件可以同时写入；同时等待写入的分块最多 {@link #MAX_PENDING_TASKS} 个，
+ * 超过时读取线程会等待，所以占用的内存有上限</p>
+ * <p>新文本文件通过 {@link #outputSinkFactory} 打开的 {@link OutputSink} 写入，默认使用平台默认编码的 {@link ChannelOutputSink}</p>
  * @author chenzhuobin
  * @since 2020/11/16 0016
  */
-public class SplitCommand implements ReadFileCallback {
+public class SplitCommand implements ReadSegmentCallback, StreamSearcher.MatchListener, StreamRegexMatcher.MatchListener {
+
+    /**
+     * 后台写入时每个分块的字符数
+     */
+    private final static int CHUNK_SIZE=16*1024;
+    /**
+     * 后台写入时同时等待写入的分块（包括关闭文件的任务）的最大数量
+     */
+    private final static int MAX_PENDING_TASKS=64;
 
     /**
      * 新文本文件列表，这些文件存放着分割后的每段文本内容；文件由 {@link #tempFileGenerator} 生成
+     * <p>只有没有指定 {@link #partConsumer} 时才会保存文件列表</p>
      */
     private List<File> tempFileList=new ArrayList<>();
+    /**
+     * 新文本文件关闭后的处理者，默认添加到 {@link #tempFileList}
+     */
+    private Consumer<File> partConsumer;
+    /**
+     * 后台写入新文本文件的线程池，为 null 表示在读取线程中直接写入
+     */
+    private ExecutorService writerPool;
+    /**
+     * 后台写入时还可以提交的任务数，用于限制等待写入的分块数量
+     */
+    private Semaphore taskPermits;
+    /**
+     * 后台写入或者 {@link #partConsumer} 抛出的第一个异常
+     */
+    private AtomicReference<RuntimeException> error=new AtomicReference<>();
+    /**
+     * 打开新文本文件的输出端的工厂
+     */
+    private OutputSinkFactory outputSinkFactory=ChannelOutputSink.factory(Charset.defaultCharset(), FsyncPolicy.NEVER);
+    /**
+     * 已关闭的新文本文件的字节数之和，后台写入时由写入线程累加
+     */
+    private AtomicLong bytesWritten=new AtomicLong();
     /**
      * 当前切分次数
      */
@@ -31,11 +88,19 @@ public class SplitCommand implements ReadFileCallback {
     /**
      * 当前操作的新文本文件
      */
-    private File tempFile;
+    private Part part;
+    /**
+     * 结尾连续的空文本文件中第一个文件的序号
+     */
+    private int firstTrailingEmpty;
     /**
-     * 当前操作的新文本文件的字符输出流
+     * 结尾连续的空文本文件数
      */
-    private OutputStreamWriter writer;
+    private int trailingEmptyCount;
+    /**
+     * 已经交给 {@link #partConsumer} 的新文本文件数
+     */
+    private int partCount;
 
     /**
      * 分隔符
@@ -50,89 +115,432 @@ public class SplitCommand implements ReadFileCallback {
      * 临时文件生成器
      */
     private TempFileGenerator tempFileGenerator;
+    /**
+     * 跨段查找 {@link #splitStr} 的流式查找器，使用正则表达式时为 null
+     */
+    private StreamSearcher searcher;
+    /**
+     * 跨段查找正则表达式的流式查找器，使用字面分隔符时为 null
+     */
+    private StreamRegexMatcher regexMatcher;
 
     /**
      * 新建一个 {@link SplitCommand} 实例
-     * @param splitStr 分隔符
+     * @param splitStr 分隔符，不能为空字符串
      * @param limit 限制最大分割数，当达到分割数后，即使可以分割，也不会再分割；
      *              如果为-1表示不限制
      * @param tempFileGenerator 临时文件生成器
      */
     public SplitCommand(String splitStr, int limit, TempFileGenerator tempFileGenerator) {
+        this(splitStr,limit,tempFileGenerator,null,null);
+    }
+
+    /**
+     * 新建一个 {@link SplitCommand} 实例，新文本文件关闭后立即交给 partConsumer
+     * @param splitStr 分隔符，不能为空字符串
+     * @param limit 限制最大分割数，当达到分割数后，即使可以分割，也不会再分割；
+     *              如果为-1表示不限制
+     * @param tempFileGenerator 临时文件生成器
+     * @param partConsumer 新文本文件关闭后的处理者，为 null 表示添加到 {@link #tempFileList}；
+     *                     后台写入时可能在写入线程中被并发调用，调用顺序也不一定是文件的顺序
+     * @param writerPool 后台写入新文本文件的线程池，为 null 表示在读取线程中直接写入
+     */
+    public SplitCommand(String splitStr, int limit, TempFileGenerator tempFileGenerator,
+                        Consumer<File> partConsumer, ExecutorService writerPool) {
         this.splitStr = splitStr;
         this.limit = limit;
         this.tempFileGenerator=tempFileGenerator;
+        this.searcher=new StreamSearcher(splitStr,this);
+        initOutput(partConsumer,writerPool);
     }
 
-    @Override
-    public boolean onSegmentRead(long currentReadSize, char[] segment) {
-        String segmentStr=new String(segment);
-        try{
-            // 初始化输出流
-            if(writer==null){
-                buildNewWriter();
-            }
-            // 如果当前分割次数还没有超过最大分割数 且 这段文本包含分割符
-            if((limit == -1 || nowSplitTimes<limit) && segmentStr.contains(splitStr)){
-                // 使用 {@link String#split(String)}切分字符串
-                String[] splitSegmentStrArr = segmentStr.split(splitStr);
-                if(splitSegmentStrArr.length>0){
-                    for (int i = 0; i < splitSegmentStrArr.length; i++) {
-                        String splitElementStr=splitSegmentStrArr[i];
-                        writer.write(splitElementStr);
-                        // i!=splitSegmentStrArr.length-1：最后一个字符串有可能是因为分段读取原因，所以不完整，
-                        //      所以不需要构建新的文本文件
-                        // segmentStr.endsWith(splitStr)：最后一个字符串有可能是分隔符，这种这种情况是需要构建新的文本文件的。
-                        if(i!=splitSegmentStrArr.length-1 || segmentStr.endsWith(splitStr)){
-                            // 关闭当前的文本文件流，
-                            writer.close();
-                            // 将当前文件添加到 新文本文件列表
-                            tempFileList.add(tempFile);
-                            //构建新文本文件
-                            buildNewWriter();
-                            //当前切分次数累加1
-                            nowSplitTimes++;
-                        }
-                    }
-                }
-            }else{
-                //如果这段文字不包含分隔符，或者当前分割数已经达到最大限制数
-                writer.write(segmentStr);
+    /**
+     * 新建一个使用正则表达式作为分隔符的 {@link SplitCommand} 实例
+     * @param pattern 分隔符的正则表达式
+     * @param maxMatchLength 分隔符的最大长度
+     * @param limit 限制最大分割数，当达到分割数后，即使可以分割，也不会再分割；
+     *              如果为-1表示不限制
+     * @param tempFileGenerator 临时文件生成器
+     */
+    public SplitCommand(Pattern pattern, int maxMatchLength, int limit, TempFileGenerator tempFileGenerator) {
+        this(pattern,maxMatchLength,limit,tempFileGenerator,null,null);
+    }
+
+    /**
+     * 新建一个使用正则表达式作为分隔符的 {@link SplitCommand} 实例，新文本文件关闭后立即交给 partConsumer
+     * @param pattern 分隔符的正则表达式
+     * @param maxMatchLength 分隔符的最大长度
+     * @param limit 限制最大分割数，当达到分割数后，即使可以分割，也不会再分割；
+     *              如果为-1表示不限制
+     * @param tempFileGenerator 临时文件生成器
+     * @param partConsumer 新文本文件关闭后的处理者，为 null 表示添加到 {@link #tempFileList}；
+     *                     后台写入时可能在写入线程中被并发调用，调用顺序也不一定是文件的顺序
+     * @param writerPool 后台写入新文本文件的线程池，为 null 表示在读取线程中直接写入
+     */
+    public SplitCommand(Pattern pattern, int maxMatchLength, int limit, TempFileGenerator tempFileGenerator,
+                        Consumer<File> partConsumer, ExecutorService writerPool) {
+        this.splitStr = pattern.pattern();
+        this.limit = limit;
+        this.tempFileGenerator=tempFileGenerator;
+        this.regexMatcher=new StreamRegexMatcher(pattern,maxMatchLength,this);
+        initOutput(partConsumer,writerPool);
+    }
+
+    /**
+     * 初始化新文本文件的输出方式
+     * @param partConsumer 新文本文件关闭后的处理者，为 null 表示添加到 {@link #tempFileList}
+     * @param writerPool 后台写入新文本文件的线程池，为 null 表示在读取线程中直接写入
+     */
+    private void initOutput(Consumer<File> partConsumer, ExecutorService writerPool){
+        if(partConsumer==null){
+            if(writerPool!=null){
+                throw new IllegalArgumentException("partConsumer is required when writing in background");
             }
-        }catch (FileNotFoundException e) {
-           throw new BigTextException("no found temp file:"+tempFile.getAbsolutePath(),e);
-        } catch (IOException e) {
-           throw new BigTextException(" write in tempFile: "+tempFile.getAbsolutePath()+" fail",e);
+            partConsumer=tempFileList::add;
+        }
+        this.partConsumer=partConsumer;
+        this.writerPool=writerPool;
+        if(writerPool!=null){
+            this.taskPermits=new Semaphore(MAX_PENDING_TASKS);
         }
-        return false;
     }
 
     @Override
-    public void onCompleteRead(long currentReadSize, char[] lastSegment) {
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        if(regexMatcher!=null){
+            regexMatcher.feed(buff,offset,length);
+        }else{
+            searcher.feed(buff,offset,length);
+        }
+        //后台写入失败时终止读取
+        return error.get()!=null;
+    }
+
+    @Override
+    public void onText(char[] buff, int offset, int length) {
+        // 初始化新文本文件
+        if(part==null){
+            part=new Part();
+        }
+        part.write(buff,offset,length);
+    }
+
+    @Override
+    public boolean onMatch(long position) {
+        return split(splitStr);
+    }
+
+    @Override
+    public boolean onMatch(long position, MatchResult result) {
+        //与 String#split(String) 一样，文本开头的空匹配项不会产生开头的空文本文件
+        if(position==0 && result.start()==result.end()){
+            return true;
+        }
+        return split(result.group());
+    }
+
+    /**
+     * 在找到的分隔符处切分
+     * @param separator 找到的分隔符
+     * @return 如果还可以继续切分，返回 true;否则返回 false
+     */
+    private boolean split(String separator){
+        if(part==null){
+            part=new Part();
+        }
+        // 已经达到最大分割数（例如 limit 为 1），不再切分；查找器不会输出匹配项，分隔符作为普通文本写回最后一个新文本文件
+        if(limit != -1 && nowSplitTimes>=limit){
+            part.write(separator.toCharArray(),0,separator.length());
+            return false;
+        }
+        // 关闭当前的新文本文件，并交给 partConsumer
+        closePart();
+        //构建新文本文件
+        part=new Part();
+        //当前切分次数累加1
+        nowSplitTimes++;
+        // 如果当前分割次数已经达到最大分割数，剩余的文本都写入最后一个新文本文件
+        return limit == -1 || nowSplitTimes<limit;
+    }
+
+    @Override
+    public void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
         //最后一个新文本文件的收尾工作
-        try {
-            writer.close();
-            tempFileList.add(tempFile);
-        } catch (IOException e) {
-            e.printStackTrace();
+        if(regexMatcher!=null){
+            regexMatcher.finish();
+        }else{
+            searcher.finish();
+        }
+        if(part==null){
+            part=new Part();
+        }
+        closePart();
+        //与 String#split(String) 一样，发生过切分时去掉结尾的空文本文件
+        if(limit==-1 && nowSplitTimes>1){
+            for (int i = 0; i < trailingEmptyCount; i++) {
+                tempFileGenerator.getTempFile(firstTrailingEmpty+i).delete();
+            }
+            trailingEmptyCount=0;
+        }else{
+            releaseTrailingEmpty();
+        }
+        //等待后台写入全部完成
+        if(writerPool!=null){
+            taskPermits.acquireUninterruptibly(MAX_PENDING_TASKS);
+            taskPermits.release(MAX_PENDING_TASKS);
+        }
+        RuntimeException e=error.get();
+        if(e!=null){
+            throw e;
         }
     }
 
     /**
-     * 构建 当前操作的新文本文件 {@link #tempFile} ,当前操作的新文本文件的字符输出流 {@link #writer},新文本文件序号+1
-     * @throws FileNotFoundException 如果 {@link #tempFile} 不存在
+     * 关闭 当前操作的新文本文件 {@link #part}
+     * <p>空文本文件先记录下来，等出现非空文本文件时再按顺序交给 {@link #partConsumer}</p>
      */
-    private void buildNewWriter() throws FileNotFoundException {
-        tempFile =tempFileGenerator.getTempFile(fileNum);
-        writer=new OutputStreamWriter(new FileOutputStream(tempFile));
-        fileNum++;
+    private void closePart(){
+        if(part.length==0){
+            part.close(false);
+            if(trailingEmptyCount==0){
+                firstTrailingEmpty=part.fileNum;
+            }
+            trailingEmptyCount++;
+            return;
+        }
+        releaseTrailingEmpty();
+        part.close(true);
+        partCount++;
+    }
+
+    /**
+     * 把记录下来的空文本文件交给 {@link #partConsumer}
+     */
+    private void releaseTrailingEmpty(){
+        for (int i = 0; i < trailingEmptyCount; i++) {
+            acceptPart(tempFileGenerator.getTempFile(firstTrailingEmpty+i));
+            partCount++;
+        }
+        trailingEmptyCount=0;
+    }
+
+    /**
+     * 把关闭后的新文本文件交给 {@link #partConsumer}，后台写入时记录它抛出的异常
+     * @param file 新文本文件
+     */
+    private void acceptPart(File file){
+        if(writerPool==null){
+            partConsumer.accept(file);
+            return;
+        }
+        try {
+            partConsumer.accept(file);
+        }catch (RuntimeException e){
+            error.compareAndSet(null,e);
+        }
     }
 
     /**
      * 新文本文件列表，这些文件存放着分割后的每段文本内容；文件由 {@link #tempFileGenerator} 生成
+     * <p>指定了 partConsumer 时为空列表</p>
      * @see #tempFileList
      */
     public List<File> getTempFileList() {
         return tempFileList;
     }
+
+    /**
+     * 获取 分割后的新文本文件数
+     * <p>读取结束后才是最终结果，与 {@link #getTempFileList()} 的大小一致</p>
+     */
+    public int getPartCount() {
+        return partCount;
+    }
+
+    /**
+     * 获取 打开新文本文件的输出端的工厂
+     * @see #outputSinkFactory
+     */
+    public OutputSinkFactory getOutputSinkFactory() {
+        return outputSinkFactory;
+    }
+
+    /**
+     * 设置 打开新文本文件的输出端的工厂，需要在读取之前设置
+     * @see #outputSinkFactory
+     */
+    public void setOutputSinkFactory(OutputSinkFactory outputSinkFactory) {
+        this.outputSinkFactory = outputSinkFactory;
+    }
+
+    /**
+     * 获取 所有新文本文件的字节数之和
+     * <p>读取结束后才是最终结果，包括后来被去掉的结尾的空文本文件（字节数为 0）</p>
+     */
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    /**
+     * 一个新文本文件
+     * <p>直接写入时在创建时打开输出端；后台写入时，内容先复制到分块中，分块写满后提交给 {@link #writerPool} ，
+     * 输出端在写入线程中打开，同一个文件的任务通过 {@link #tail} 串成一条链，按提交的顺序执行</p>
+     */
+    private class Part {
+
+        /**
+         * 新文本文件序号
+         */
+        private int fileNum;
+        /**
+         * 新文本文件
+         */
+        private File tempFile;
+        /**
+         * 新文本文件的输出端，后台写入时由写入线程打开
+         */
+        private OutputSink writer;
+        /**
+         * 已写入的字符数
+         */
+        private long length;
+        /**
+         * 后台写入时还没有提交的分块
+         */
+        private char[] chunk;
+        /**
+         * {@link #chunk} 中有效的字符数
+         */
+        private int chunkLength;
+        /**
+         * 后台写入时该文件最后提交的任务
+         */
+        private CompletableFuture<Void> tail=CompletableFuture.completedFuture(null);
+
+        /**
+         * 构建新文本文件，新文本文件序号+1
+         */
+        Part() {
+            this.fileNum=SplitCommand.this.fileNum++;
+            this.tempFile=tempFileGenerator.getTempFile(fileNum);
+            if(writerPool==null){
+                open();
+            }
+        }
+
+        /**
+         * 写入文本
+         */
+        void write(char[] buff, int offset, int length){
+            this.length+=length;
+            if(writerPool==null){
+                writeNow(buff,offset,length);
+                return;
+            }
+            while (length>0){
+                if(chunk==null){
+                    chunk=new char[CHUNK_SIZE];
+                }
+                int n=Math.min(length,CHUNK_SIZE-chunkLength);
+                System.arraycopy(buff,offset,chunk,chunkLength,n);
+                chunkLength+=n;
+                offset+=n;
+                length-=n;
+                if(chunkLength==CHUNK_SIZE){
+                    submitChunk();
+                }
+            }
+        }
+
+        /**
+         * 关闭输出端
+         * @param accept 关闭后是否交给 {@link #partConsumer}
+         */
+        void close(boolean accept){
+            if(writerPool==null){
+                closeNow();
+                if(accept){
+                    partConsumer.accept(tempFile);
+                }
+                return;
+            }
+            if(length==0){
+                //空文本文件直接在读取线程中创建，保证交给 partConsumer 时文件已经存在
+                open();
+                closeNow();
+                return;
+            }
+            if(chunkLength>0){
+                submitChunk();
+            }
+            submit(() -> {
+                if(writer!=null){
+                    closeNow();
+                }
+                if(accept && error.get()==null){
+                    acceptPart(tempFile);
+                }
+            },true);
+        }
+
+        /**
+         * 提交当前分块
+         */
+        private void submitChunk(){
+            char[] data=chunk;
+            int dataLength=chunkLength;
+            chunk=null;
+            chunkLength=0;
+            submit(() -> {
+                if(writer==null){
+                    open();
+                }
+                writeNow(data,0,dataLength);
+            },false);
+        }
+
+        /**
+         * 把任务接到该文件的任务链后面，交给 {@link #writerPool} 执行
+         * <p>任务不会抛出异常，否则任务链后面的任务不会执行，占用的许可也不会释放；出现异常后跳过剩余的写入任务，
+         * 但仍然会关闭输出端</p>
+         * @param task 任务
+         * @param always 出现异常后是否仍然执行
+         */
+        private void submit(Runnable task, boolean always){
+            taskPermits.acquireUninterruptibly();
+            tail=tail.thenRunAsync(() -> {
+                try {
+                    if(always || error.get()==null){
+                        task.run();
+                    }
+                }catch (RuntimeException e){
+                    error.compareAndSet(null,e);
+                }finally {
+                    taskPermits.release();
+                }
+            },writerPool);
+        }
+
+        /**
+         * 打开输出端
+         */
+        private void open(){
+            writer=outputSinkFactory.open(tempFile);
+        }
+
+        /**
+         * 在当前线程中写入文本
+         */
+        private void writeNow(char[] buff, int offset, int length){
+            writer.write(buff,offset,length);
+        }
+
+        /**
+         * 在当前线程中关闭输出端，并累加该文件的字节数
+         */
+        private void closeNow(){
+            writer.close();
+            bytesWritten.addAndGet(writer.getBytesWritten());
+        }
+    }
 }
@@ -0,0 +1,32 @@
+package czb.framework.bigtext.core.command;
+
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.stats.TextStats;
+
+/**
+ * 一次读取同时统计该文本文件多项数据 的指令
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ * @see TextStats
+ */
+public class TextStatsCommand implements ReadSegmentCallback {
+
+    /**
+     * 文本统计结果
+     */
+    private TextStats textStats=new TextStats();
+
+    @Override
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        textStats.update(buff,offset,length);
+        return false;
+    }
+
+    /**
+     * 获取 文本统计结果
+     * @see #textStats
+     */
+    public TextStats getTextStats() {
+        return textStats;
+    }
+}
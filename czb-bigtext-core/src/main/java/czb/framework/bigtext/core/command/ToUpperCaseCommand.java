@@ -16,6 +16,14 @@ public class ToUpperCaseCommand extends WriterCommand{
      * 请查阅 {@link String#toUpperCase(Locale)}
      */
     private Locale locale;
+    /**
+     * 是否可以对 ASCII 字符逐个转换；土耳其语、阿塞拜疆语和立陶宛语对 ASCII 字母有特殊的大小写规则，不能逐个转换
+     */
+    private boolean asciiFastPath;
+    /**
+     * 转换 ASCII 文本时复用的字符数组
+     */
+    private char[] scratch;
 
     /**
      * 新建一个 {@link ToUpperCaseCommand} 实例
@@ -26,12 +34,41 @@ public class ToUpperCaseCommand extends WriterCommand{
     public ToUpperCaseCommand(File tempFile, Locale locale) throws FileNotFoundException {
         super(tempFile);
         this.locale = locale;
+        String language=locale.getLanguage();
+        this.asciiFastPath=!"tr".equals(language) && !"az".equals(language) && !"lt".equals(language);
     }
 
     @Override
-    public boolean onSegmentRead(long currentReadSize, char[] segment) {
-        String segStr=new String(segment).toUpperCase(locale);
-        writeData(segStr);
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        //纯 ASCII 的文本直接逐个字符转换，不需要创建字符串
+        if(asciiFastPath && isAscii(buff,offset,length)){
+            if(scratch==null || scratch.length<length){
+                scratch=new char[length];
+            }
+            for (int i = 0; i < length; i++) {
+                char c=buff[offset+i];
+                scratch[i]= c>='a' && c<='z' ? (char) (c-32) : c;
+            }
+            writeData(scratch,0,length);
+        }else{
+            writeData(new String(buff,offset,length).toUpperCase(locale));
+        }
         return false;
     }
+
+    /**
+     * 这段文本是否只包含 ASCII 字符
+     * @param buff 复用的字符数组
+     * @param offset 这段文本在 buff 中的开始位置
+     * @param length 这段文本的字符数
+     * @return 如果只包含 ASCII 字符，返回 true;否则返回 false
+     */
+    private static boolean isAscii(char[] buff, int offset, int length){
+        for (int i = offset; i < offset+length; i++) {
+            if(buff[i]>=0x80){
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -1,6 +1,8 @@
 package czb.framework.bigtext.core.command;
 
 
+import czb.framework.bigtext.core.delegate.ReverseReadDelegate;
+
 import java.io.*;
 
 /**
@@ -14,6 +16,10 @@ public class TrimCommand extends WriterCommand {
      * 源文件
      */
     private File srcFile;
+    /**
+     * 源文件的编码
+     */
+    private String charset;
     /**
      * 修剪后的结束索引位
      */
@@ -24,15 +30,28 @@ public class TrimCommand extends WriterCommand {
     private boolean first=true;
 
     /**
-     * 新建一个 {@link TrimCommand} 实例
+     * 新建一个 {@link TrimCommand} 实例，源文件的编码为 UTF-8
      * @param srcfile 源文件
      * @param tempFile 要写入的临时文件
      * @param srcFileLength 源文件的文本内容总字符大小
      * @throws IOException 当 tempFile 不存在时抛出
      */
     public TrimCommand(File srcfile,File tempFile,long srcFileLength) throws IOException {
+        this(srcfile,tempFile,srcFileLength,"utf-8");
+    }
+
+    /**
+     * 新建一个 {@link TrimCommand} 实例
+     * @param srcfile 源文件
+     * @param tempFile 要写入的临时文件
+     * @param srcFileLength 源文件的文本内容总字符大小
+     * @param charset 源文件的编码，必须是 {@link ReverseReadDelegate#isSupported(String)} 支持的编码
+     * @throws IOException 当 tempFile 不存在时抛出
+     */
+    public TrimCommand(File srcfile,File tempFile,long srcFileLength,String charset) throws IOException {
         super(tempFile);
         this.srcFile = srcfile;
+        this.charset = charset;
         //确定修剪结尾索引位
         long end=determineTrimEndPos();
         //计算出修剪后的结束索引位
@@ -40,61 +59,51 @@ public class TrimCommand extends WriterCommand {
     }
 
     @Override
-    public boolean onSegmentRead(long currentReadSize, char[] segment) {
+    public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        int st=offset;
+        int end=offset+length;
         // 开头的修剪
         if(first){
-            int st=0;
-            int len=segment.length;
-            while ((st < len) && (isTrminChar(segment[st]))) {
+            while ((st < end) && (isTrminChar(buff[st]))) {
                 st++;
             }
-            int diff=len-st;
-            //因为时按段读取的，所以可能整段都是要修剪的字符，diff==0才意味着已经到了不是修剪字符的那段文字里。
-            first=diff==0;
-            if(!first){
-                char[] newSeg=new char[diff];
-                System.arraycopy(segment,st,newSeg,0,diff);
-                writeData(newSeg);
+            //因为时按段读取的，所以可能整段都是要修剪的字符，st<end 才意味着已经到了不是修剪字符的那段文字里。
+            first=st==end;
+            if(first){
+                return false;
             }
-        }else if (currentReadSize>=endLimit){//结尾的修剪
-            long diff = currentReadSize - endLimit;
-            int len=segment.length-Long.valueOf(diff).intValue();
-            char[] newSeg=new char[len];
-            System.arraycopy(segment,0,newSeg,0,len);
-            writeData(newSeg);
+        }
+        //结尾的修剪，开头和结尾可能在同一段文字里
+        if (currentReadSize>=endLimit){
+            int diff = (int) (currentReadSize - endLimit);
+            writeData(buff,st,Math.max(end-diff,st)-st);
             return true;
-        }else{//中间部分
-            writeData(segment);
         }
+        //中间部分
+        writeData(buff,st,end-st);
         return false;
     }
 
 
     /**
      * 确定修剪结尾索引位
-     * <p>倒叙读取文件内容</p>
+     * <p>使用 {@link ReverseReadDelegate} 从文件结尾向前按块读取，统计结尾连续的修剪字符数，
+     * 遇到第一个不用修剪的字符就停止读取</p>
      * @return 修剪结尾索引位
      * @throws IOException 读取源文件时出现的IO异常
      */
     private long determineTrimEndPos() throws IOException {
-        RandomAccessFile rf =new RandomAccessFile(srcFile,"r");
-        long len=rf.length();
-        long start = rf.getFilePointer();
-        long nextend = start + len - 1;
-        rf.seek(nextend);
-        long endOffset=0;
-        while (nextend > start) {
-            int c = rf.read();
-            if(isTrminChar((char) c)){
-                endOffset++;
-            }else{
-                break;
+        long[] endOffset={0};
+        new ReverseReadDelegate(srcFile,charset).readBackward((charsAfter, buff, offset, length) -> {
+            for (int i = offset+length-1; i >= offset; i--) {
+                if(!isTrminChar(buff[i])){
+                    return true;
+                }
+                endOffset[0]++;
             }
-            nextend--;
-            rf.seek(nextend);
-        }
-        rf.close();
-        return endOffset;
+            return false;
+        });
+        return endOffset[0];
     }
 
     /**
@@ -21,6 +21,18 @@ public class TrimNoCRLFCommand extends TrimCommand{
         super(srcfile, tempFile, srcFileLength);
     }
 
+    /**
+     * 新建一个 {@link TrimNoCRLFCommand} 实例
+     * @param srcfile 源文件
+     * @param tempFile 要写入的临时文件
+     * @param srcFileLength 源文件的文本内容总字符大小
+     * @param charset 源文件的编码
+     * @throws IOException 当 tempFile 不存在时抛出
+     */
+    public TrimNoCRLFCommand(File srcfile, File tempFile, long srcFileLength, String charset) throws IOException {
+        super(srcfile, tempFile, srcFileLength, charset);
+    }
+
     protected boolean isTrminChar(char c){
         return c==' '||c=='\r'||c=='\n';
     }
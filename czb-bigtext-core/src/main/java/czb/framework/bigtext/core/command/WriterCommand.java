@@ -1,47 +1,70 @@
 package czb.framework.bigtext.core.command;
 
-import czb.framework.bigtext.core.delegate.callback.ReadFileCallback;
-import czb.framework.bigtext.core.exception.BigTextException;
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.output.ChannelOutputSink;
+import czb.framework.bigtext.core.output.FsyncPolicy;
+import czb.framework.bigtext.core.output.OutputSink;
+import czb.framework.bigtext.core.output.OutputSinkFactory;
 
-import java.io.*;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.charset.Charset;
 
 
 /**
  * 将数据写入指定文件的命令，该类是抽象类，交由子类实现自己业务的数据写入。
- * <p>该类提供写入指定文件的统一方法和关闭指定文件的输出流的方法，</p>
- * <p>当读完文本文件内容后时，该类会自动关闭输出流，所以子类执行关注写入指定文件的数据</p>
+ * <p>该类提供写入指定文件的统一方法和关闭指定文件的输出端的方法，</p>
+ * <p>当读完文本文件内容后时，该类会自动关闭输出端，所以子类执行关注写入指定文件的数据</p>
+ * <p>输出端由 {@link #outputSinkFactory} 在第一次写入时打开，打开之前可以通过 {@link #setOutputSinkFactory(OutputSinkFactory)}
+ * 更换；默认使用平台默认编码的 {@link ChannelOutputSink}</p>
  * @author chenzhuobin
  * @since 2020/11/16 0016
  */
-public abstract class WriterCommand implements ReadFileCallback {
+public abstract class WriterCommand implements ReadSegmentCallback {
 
     /**
      * 要写入的临时文件
      */
     private File tempFile;
     /**
-     * 写入 {@link #tempFile} 的文本输出流
+     * 打开 {@link #outputSink} 的工厂
      */
-    private OutputStreamWriter writer;
+    private OutputSinkFactory outputSinkFactory;
+    /**
+     * 写入 {@link #tempFile} 的输出端，第一次写入时打开
+     */
+    private OutputSink outputSink;
 
     /**
-     * 新建一个 {@link WriterCommand} 实例
+     * 新建一个 {@link WriterCommand} 实例，使用平台默认编码写入
      * @param tempFile 要写入的临时文件
      * @throws FileNotFoundException 当 tempFile 不存在时抛出
      */
     public WriterCommand(File tempFile) throws FileNotFoundException {
+        this(tempFile,ChannelOutputSink.factory(Charset.defaultCharset(), FsyncPolicy.NEVER));
+    }
+
+    /**
+     * 新建一个 {@link WriterCommand} 实例
+     * @param tempFile 要写入的临时文件
+     * @param outputSinkFactory 打开输出端的工厂
+     * @throws FileNotFoundException 当 tempFile 不存在时抛出
+     */
+    public WriterCommand(File tempFile, OutputSinkFactory outputSinkFactory) throws FileNotFoundException {
         this.tempFile = tempFile;
-        writer=new OutputStreamWriter(new FileOutputStream(tempFile));
+        this.outputSinkFactory = outputSinkFactory;
     }
 
     /**
      * 当读完文本文件内容后回调
-     * <p>回调时，关闭 {@link #writer}</p>
+     * <p>回调时，关闭 {@link #outputSink}</p>
      * @param currentReadSize 当前已读字符数
-     * @param lastSegment 最后一段文本内容
+     * @param buff 复用的字符数组
+     * @param offset 最后一段文本在 buff 中的开始位置
+     * @param length 最后一段文本的字符数
      */
     @Override
-    public void onCompleteRead(long currentReadSize, char[] lastSegment) {
+    public void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
        closeWriter();
     }
 
@@ -50,11 +73,7 @@ public abstract class WriterCommand implements ReadFileCallback {
      * @param data 要写入 {@link #tempFile} 的文本数据
      */
     public void writeData(String data){
-        try {
-            writer.write(data);
-        } catch (IOException e) {
-            throw new BigTextException(" write in tempFile "+tempFile.getAbsolutePath()+" fail",e);
-        }
+        getOutputSink().write(data);
     }
 
     /**
@@ -62,22 +81,24 @@ public abstract class WriterCommand implements ReadFileCallback {
      * @param data  要写入 {@link #tempFile} 的文本数据
      */
     public void writeData(char[] data){
-        try {
-            writer.write(data);
-        } catch (IOException e) {
-            throw new BigTextException(" write in tempFile: "+tempFile.getAbsolutePath()+" fail",e);
-        }
+        getOutputSink().write(data,0,data.length);
+    }
+
+    /**
+     * 将 data 中从 offset 开始的 length 个字符写入 {@link #tempFile}
+     * @param data  要写入 {@link #tempFile} 的文本数据
+     * @param offset 开始位置
+     * @param length 字符数
+     */
+    public void writeData(char[] data, int offset, int length){
+        getOutputSink().write(data,offset,length);
     }
 
     /**
-     * 关闭 {@link #writer}
+     * 关闭 {@link #outputSink}，没有写入过任何内容时也会创建 {@link #tempFile}
      */
     public void closeWriter(){
-        try {
-            writer.close();
-        } catch (IOException e) {
-            throw new BigTextException(" close tempFile: "+tempFile.getAbsolutePath()+" fail",e);
-        }
+        getOutputSink().close();
     }
 
     /**
@@ -89,10 +110,34 @@ public abstract class WriterCommand implements ReadFileCallback {
     }
 
     /**
-     * 获取写入 {@link #tempFile} 的文本输出流
-     * @see #writer
+     * 获取写入 {@link #tempFile} 的输出端，还没有打开时打开
+     * @see #outputSink
+     */
+    public OutputSink getOutputSink() {
+        if(outputSink==null){
+            outputSink=outputSinkFactory.open(tempFile);
+        }
+        return outputSink;
+    }
+
+    /**
+     * 设置 打开输出端的工厂，只能在第一次写入之前设置
+     * @param outputSinkFactory 打开输出端的工厂
+     * @throws IllegalStateException 如果输出端已经打开
+     * @see #outputSinkFactory
+     */
+    public void setOutputSinkFactory(OutputSinkFactory outputSinkFactory) {
+        if(outputSink!=null){
+            throw new IllegalStateException("output sink is already opened: "+tempFile.getAbsolutePath());
+        }
+        this.outputSinkFactory = outputSinkFactory;
+    }
+
+    /**
+     * 获取已写入 {@link #tempFile} 的字节数，关闭后就是文件的字节数
+     * @return 已写入的字节数；还没有打开输出端时返回 0
      */
-    public OutputStreamWriter getWriter() {
-        return writer;
+    public long getBytesWritten() {
+        return outputSink==null ? 0 : outputSink.getBytesWritten();
     }
 }
@@ -0,0 +1,372 @@
+package czb.framework.bigtext.core.delegate;
+
+import czb.framework.bigtext.core.exception.BigTextException;
+import czb.framework.bigtext.core.session.BigTextSession;
+import czb.framework.bigtext.core.session.SessionRegistry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * 直接统计字节，不经过字符解码得到文本字符数的助手类型
+ * <p>UTF-8 文本的字符数（与 {@link String#length()} 一样按 UTF-16 计算）等于 不是后续字节（10xxxxxx）的字节数
+ * 加上 4 字节字符的首字节（11110xxx）数；回车、换行在 UTF-8 中只会以单个字节出现，直接统计 0x0D 、0x0A 字节即可。
+ * 单字节编码（ISO-8859-1、US-ASCII）的字符数就是字节数。</p>
+ * <p>每次把 8 个字节作为一个 long 处理：每个字节的最高位分别与左移 1~4 位后的最高位组合，就能得到后续字节、
+ * 4 字节首字节的标记位，再用 {@link Long#bitCount(long)} 统计；0x0D 、0x0A 字节使用 异或 + 零字节检测 统计。</p>
+ * <p>统计 UTF-8 文本时，包含非 ASCII 字节的 long 还会由 {@link Utf8Checker} 检查格式：每个首字节后面必须正好跟着
+ * 它需要的后续字节数，不能有多余的后续字节，也不能是过长的编码、代理字符或者超出 U+10FFFF 的字符，不完整字符的状态跨 long 、
+ * 跨读取缓冲区保留。发现格式错误时字符数与解码器的替换结果不同，返回 -1 ，由调用方改为解码统计</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class ByteLengthDelegate {
+
+    /**
+     * 每次从文件读取的字节数，默认：64K
+     */
+    public final static int DEFAULT_BUFFER_SIZE=64*1024;
+
+    /**
+     * 每个字节的最高位
+     */
+    private final static long HIGH_BITS=0x8080808080808080L;
+    /**
+     * 每个字节的低 7 位
+     */
+    private final static long LOW_BITS=0x7F7F7F7F7F7F7F7FL;
+    /**
+     * 8 个回车字节
+     */
+    private final static long CR_BYTES=0x0D0D0D0D0D0D0D0DL;
+    /**
+     * 8 个换行字节
+     */
+    private final static long LF_BYTES=0x0A0A0A0A0A0A0A0AL;
+
+    /**
+     * 文本文件
+     */
+    private File textFile;
+    /**
+     * 文本编码是否为 UTF-8 ，否则为单字节编码
+     */
+    private boolean utf8;
+    /**
+     * 每次从文件读取的字节数
+     */
+    private int bufferSize=DEFAULT_BUFFER_SIZE;
+    /**
+     * 共享文件会话的注册表；为 null 表示每次读取都单独打开文件
+     */
+    private SessionRegistry sessionRegistry=SessionRegistry.getDefault();
+
+    /**
+     * 新建一个 {@link ByteLengthDelegate} 实例
+     * @param textFile 文本文件
+     * @param charset 文本编码，必须是 {@link #isSupported(String)} 支持的编码
+     */
+    public ByteLengthDelegate(File textFile, String charset) {
+        if(!isSupported(charset)){
+            throw new IllegalArgumentException("unsupported charset for byte counting: "+charset);
+        }
+        this.textFile = textFile;
+        this.utf8=Charset.forName(charset).equals(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 编码是否支持直接统计字节
+     * @param charset 文本编码
+     * @return 如果支持，返回 true;否则返回 false
+     */
+    public static boolean isSupported(String charset){
+        return ParallelReadDelegate.isSupported(charset);
+    }
+
+    /**
+     * 统计整个文本文件的字符数
+     * @return {该文本文件的字符数【包含回车换行】, 该文本文件的字符数【不包含回车换行】} ；
+     *      文本不是格式正确的 UTF-8 时都为 -1
+     */
+    public long[] count(){
+        return count(0,textFile.length());
+    }
+
+    /**
+     * 统计 [start, end) 字节范围内的字符数
+     * @param start 开始字节位置，必须位于字符的边界上
+     * @param end 结束字节位置（不包含），必须位于字符的边界上
+     * @return {该范围的字符数【包含回车换行】, 该范围的字符数【不包含回车换行】} ；
+     *      文本不是格式正确的 UTF-8 时都为 -1
+     */
+    public long[] count(long start, long end){
+        //依次为：字节数，后续字节数，4 字节首字节数，回车换行字节数
+        long[] counters=new long[4];
+        Utf8Checker checker= utf8 ? new Utf8Checker() : null;
+        try(BigTextSession session=openSession()){
+            ByteBuffer buffer=ByteBuffer.allocateDirect(bufferSize);
+            long position=start;
+            while (position<end){
+                ReadCancellation.checkCancelled();
+                buffer.limit((int) Math.min(buffer.capacity(),buffer.position()+end-position));
+                int read=session.read(buffer,position);
+                if(read<=0){
+                    break;
+                }
+                position+=read;
+                buffer.flip();
+                while (buffer.remaining()>=8){
+                    long x=buffer.getLong();
+                    countWord(x,counters);
+                    if(checker!=null && !checker.check(x,counters)){
+                        return new long[]{-1,-1};
+                    }
+                }
+                //不足 8 个字节的部分留到下一次读取，保证只有范围的结尾才会出现不足 8 个字节的 long
+                buffer.compact();
+            }
+            buffer.flip();
+            //结尾不足 8 个字节的部分补 0 ，0 字节不会影响任何统计；与 getLong 一样按大端顺序组合，第一个字节在最高位
+            long tail=0;
+            int tailLength=buffer.remaining();
+            for (int i = 0; i < tailLength; i++) {
+                tail|=(buffer.get() & 0xFFL)<<(56-i*8);
+            }
+            countWord(tail,counters);
+            counters[0]-=8-tailLength;
+            //范围的结尾是不完整的字符时同样不是格式正确的 UTF-8
+            if(checker!=null && (!checker.check(tail,counters) || !checker.isComplete())){
+                return new long[]{-1,-1};
+            }
+        } catch (NoSuchFileException e) {
+            throw new BigTextException(" no found text file: "+textFile.getAbsolutePath(),e);
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+textFile.getAbsolutePath()+",throw IO exception: ",e);
+        }
+        long length;
+        if(utf8){
+            length=counters[0]-counters[1]+counters[2];
+        }else{
+            length=counters[0];
+        }
+        return new long[]{length,length-counters[3]};
+    }
+
+    /**
+     * 统计一个 long 中 8 个字节的字节数和回车换行字节数，累加到 counters ；UTF-8 的后续字节和 4 字节首字节由 {@link Utf8Checker} 统计
+     * @param x 8 个字节
+     * @param counters 计数数组，见 {@link #count(long, long)}
+     */
+    private static void countWord(long x, long[] counters){
+        counters[0]+=8;
+        counters[3]+=Long.bitCount(zeroBytes(x ^ CR_BYTES))+Long.bitCount(zeroBytes(x ^ LF_BYTES));
+    }
+
+    /**
+     * 统计 8 个 UTF-8 字节中的 UTF-16 字符数，不检查格式
+     * @param x 8 个字节
+     * @return 不是后续字节的字节数 加上 4 字节首字节数
+     */
+    static int utf8CharCount(long x){
+        if((x & HIGH_BITS)==0){
+            return 8;
+        }
+        long s1=x<<1;
+        return 8-Long.bitCount(x & ~s1 & HIGH_BITS)+Long.bitCount(x & s1 & (x<<2) & (x<<3) & ~(x<<4) & HIGH_BITS);
+    }
+
+    /**
+     * 8 个字节中是否有回车或换行字节
+     * @param x 8 个字节
+     * @return 如果有，返回 true;否则返回 false
+     */
+    static boolean hasLineBreak(long x){
+        return (zeroBytes(x ^ CR_BYTES) | zeroBytes(x ^ LF_BYTES))!=0;
+    }
+
+    /**
+     * 找出 y 中值为 0 的字节
+     * <p>低 7 位加上 0x7F 后，只有低 7 位全为 0 的字节最高位仍为 0 ，再排除最高位本身为 1 的字节，结果是精确的，
+     * 不会受到相邻字节进位的影响</p>
+     * @param y 8 个字节
+     * @return 值为 0 的字节的最高位为 1 ，其余位都为 0
+     */
+    private static long zeroBytes(long y){
+        long t=(y & LOW_BITS)+LOW_BITS;
+        return ~(t | y | LOW_BITS);
+    }
+
+    /**
+     * 获取文本文件的会话
+     * @return 会话，由调用方负责关闭
+     * @throws IOException 打开文件时出现的IO异常，文件不存在时为 {@link NoSuchFileException}
+     */
+    private BigTextSession openSession() throws IOException {
+        return sessionRegistry!=null ? sessionRegistry.acquire(textFile) : BigTextSession.open(textFile);
+    }
+
+    /**
+     * 检查 UTF-8 格式，同时统计后续字节数和 4 字节首字节数，每次处理一个 long ，不完整字符的状态跨 long 保留
+     * <p>左移 k 位（k &lt; 8）后，每个字节的最高位是原来该字节的第 7-k 位，不会混入相邻字节的位，由此得到后续字节和各种首字节的标记位。</p>
+     * <p>结构：每个首字节要求后面 1~3 个字节是后续字节，
+     * 把这些要求右移到对应的字节上，必须与后续字节的标记位完全相同，才说明每个首字节后面正好跟着它需要的后续字节，
+     * 并且没有多余的后续字节；移出当前 long 的要求留给下一个 long 。</p>
+     * <p>取值范围：与 {@link StandardCharsets#UTF_8} 解码器一致，C0 、C1 、F5~FF 不能作为首字节，E0 、F0 后面不能是过长的编码，
+     * ED 后面不能是代理字符，F4 后面不能超出 U+10FFFF 。只有这些首字节（以及所有 4 字节首字节）才需要逐个检查第二个字节，
+     * 中文等常用字符只需要检查结构</p>
+     */
+    private static class Utf8Checker {
+        /**
+         * 每个字节的第 1~4 位，2 字节首字节的这几位都为 0 时是 C0 或 C1
+         */
+        private final static long C0_MASK=0x1E1E1E1E1E1E1E1EL;
+        /**
+         * 每个字节的低 4 位
+         */
+        private final static long NIBBLE_MASK=0x0F0F0F0F0F0F0F0FL;
+        /**
+         * 8 个 0x0D ，用于找出 ED 首字节
+         */
+        private final static long ED_NIBBLES=0x0D0D0D0D0D0D0D0DL;
+
+        /**
+         * 上一个 long 的首字节要求下一个 long 开头的哪些字节是后续字节
+         */
+        private long carry;
+        /**
+         * 上一个 long 最后一个字节是需要检查第二个字节的首字节时为该首字节，否则为 0
+         */
+        private int pendingLead;
+
+        /**
+         * 检查 8 个字节
+         * @param x 按大端顺序组合的 8 个字节，第一个字节在最高位；结尾不足 8 个字节时补 0 ，补的 0 字节不能是后续字节，
+         *          所以结尾不完整的字符会被发现
+         * @param counters 计数数组，见 {@link #count(long, long)} ，累加后续字节数和 4 字节首字节数
+         * @return 如果格式正确（结尾可以是不完整的字符，见 {@link #isComplete()}），返回 true;否则返回 false
+         */
+        private boolean check(long x, long[] counters){
+            //ASCII 的 long 不需要检查，单独判断以便内联到读取循环中
+            return (carry==0 && (x & HIGH_BITS)==0) || checkNonAscii(x,counters);
+        }
+
+        /**
+         * 检查包含非 ASCII 字节或者需要接着上一个 long 检查的 8 个字节
+         * @param x 按大端顺序组合的 8 个字节
+         * @param counters 计数数组
+         * @return 如果格式正确，返回 true;否则返回 false
+         */
+        private boolean checkNonAscii(long x, long[] counters){
+            if(pendingLead!=0){
+                if(!isValidSecond(pendingLead,(int) (x>>>56) & 0xFF)){
+                    return false;
+                }
+                pendingLead=0;
+            }
+            long s1=x<<1;
+            long s2=x<<2;
+            long s3=x<<3;
+            long s4=x<<4;
+            long lead=x & s1 & HIGH_BITS;
+            long lead2=lead & ~s2;
+            long lead3=lead & s2 & ~s3;
+            long lead4=lead & s2 & s3 & ~s4;
+            long continuation=x & ~s1 & HIGH_BITS;
+            counters[1]+=Long.bitCount(continuation);
+            counters[2]+=Long.bitCount(lead4);
+            long need1=lead2 | lead3 | lead4;
+            long need2=lead3 | lead4;
+            long required=carry | need1>>>8 | need2>>>16 | lead4>>>24;
+            carry=need1<<56 | need2<<48 | lead4<<40;
+            if(continuation!=required || (lead & s2 & s3 & s4)!=0){
+                return false;
+            }
+            //C0 、C1 、E0 、ED 以及所有 4 字节首字节需要检查第二个字节
+            long special=(lead2 & zeroBytes(x & C0_MASK))
+                    | (lead3 & (zeroBytes(x & NIBBLE_MASK) | zeroBytes((x & NIBBLE_MASK) ^ ED_NIBBLES)))
+                    | lead4;
+            while (special!=0){
+                int i=Long.numberOfLeadingZeros(special)>>>3;
+                int b=(int) (x>>>(56-i*8)) & 0xFF;
+                if(i==7){
+                    pendingLead=b;
+                }else if(!isValidSecond(b,(int) (x>>>(48-i*8)) & 0xFF)){
+                    return false;
+                }
+                special&=~(HIGH_BITS & (0xFF00000000000000L>>>(i*8)));
+            }
+            return true;
+        }
+
+        /**
+         * 已检查的字节是否以完整的字符结尾
+         * @return 如果是，返回 true;否则返回 false
+         */
+        private boolean isComplete(){
+            return carry==0;
+        }
+
+        /**
+         * 需要检查第二个字节的首字节后面是否可以是 second
+         * @param lead 首字节
+         * @param second 第二个字节，已经（或者将会）检查过是后续字节
+         * @return 如果可以，返回 true;否则返回 false
+         */
+        private static boolean isValidSecond(int lead, int second){
+            switch (lead){
+                case 0xE0:
+                    return second>=0xA0;
+                case 0xED:
+                    return second<=0x9F;
+                case 0xF0:
+                    return second>=0x90;
+                case 0xF4:
+                    return second<=0x8F;
+                case 0xF1:
+                case 0xF2:
+                case 0xF3:
+                    return true;
+                default:
+                    //C0 、C1 只能组成过长的编码，F5~F7 超出 U+10FFFF
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * 获取 每次从文件读取的字节数
+     * @see #bufferSize
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 设置 每次从文件读取的字节数
+     * @see #bufferSize
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = Math.max(8,bufferSize);
+    }
+
+    /**
+     * 获取 共享文件会话的注册表
+     * @see #sessionRegistry
+     */
+    public SessionRegistry getSessionRegistry() {
+        return sessionRegistry;
+    }
+
+    /**
+     * 设置 共享文件会话的注册表，为 null 表示每次读取都单独打开文件
+     * @see #sessionRegistry
+     */
+    public void setSessionRegistry(SessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
+    }
+}
@@ -0,0 +1,255 @@
+package czb.framework.bigtext.core.delegate;
+
+import czb.framework.bigtext.core.exception.BigTextException;
+import czb.framework.bigtext.core.output.ChannelOutputSink;
+import czb.framework.bigtext.core.output.FsyncPolicy;
+import czb.framework.bigtext.core.session.BigTextSession;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * 按字节范围复制文本的助手类型
+ * <p>截取、修剪、插入、连接这些操作不会改变原有的文本，只需要确定操作的字符边界所对应的字节位置，
+ * 再用 {@link ChannelOutputSink#transfer(File, long, long)} 把不变的字节范围直接复制到新文本文件，
+ * 只有插入的字符串和分隔符需要编码，不变的文本既不解码也不编码。</p>
+ * <p>字符边界通过 {@link ReadFileDelegate#getBytePositions(long...)} 转换为字节位置，只解码到最后一个边界为止，
+ * 检查点索引可用时只解码每个边界附近的文本；修剪要去掉的空格、回车、换行直接按字节查找，不解码任何字符。</p>
+ * <p>字节范围的复制要求新文本文件使用与源文本相同的编码，并且空格、回车、换行都是单个字节，
+ * 所以只支持 UTF-8 和单字节编码，见 {@link #isSupported(String)}；字符边界落在代理对中间时没有对应的字节位置，
+ * 这时各个方法返回 false ，由调用方改为按字符处理</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class ByteRangeDelegate {
+
+    /**
+     * 修剪时每次读取的字节数：8K
+     */
+    private final static int SCAN_BUFFER_SIZE=8*1024;
+
+    /**
+     * 按段读取源文本文件的助手，用于把字符边界转换为字节位置
+     */
+    private ReadFileDelegate readFileDelegate;
+    /**
+     * 写入新文本文件时强制同步的时机
+     */
+    private FsyncPolicy fsyncPolicy;
+
+    /**
+     * 新建一个 {@link ByteRangeDelegate} 实例
+     * @param readFileDelegate 按段读取源文本文件的助手，编码必须是 {@link #isSupported(String)} 支持的编码
+     * @param fsyncPolicy 写入新文本文件时强制同步的时机
+     */
+    public ByteRangeDelegate(ReadFileDelegate readFileDelegate, FsyncPolicy fsyncPolicy) {
+        if(!isSupported(readFileDelegate.getCharset())){
+            throw new IllegalArgumentException("unsupported charset for byte range copy: "+readFileDelegate.getCharset());
+        }
+        this.readFileDelegate = readFileDelegate;
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * 编码是否支持按字节范围复制
+     * @param charset 文本编码
+     * @return 如果支持，返回 true;否则返回 false
+     */
+    public static boolean isSupported(String charset){
+        return ParallelReadDelegate.isSupported(charset);
+    }
+
+    /**
+     * 把源文本从 begin 到 end 范围内的文本写入 target
+     * @param begin 开始位置，不能小于 0
+     * @param end 结束位置（不包含），不能小于 begin ，超过文本长度时截取到文本的结尾
+     * @param target 新文本文件
+     * @return 如果已写入，返回 true；begin 或 end 落在代理对中间时返回 false ，不会写入 target
+     */
+    public boolean substring(long begin, long end, File target){
+        long[] positions=readFileDelegate.getBytePositions(begin,end);
+        if(positions[0]==-1 || positions[1]==-1){
+            return false;
+        }
+        ChannelOutputSink sink=openSink(target);
+        try {
+            sink.transfer(getTextFile(),positions[0],positions[1]);
+        }finally {
+            sink.close();
+        }
+        return true;
+    }
+
+    /**
+     * 把源文本从 position 字节位置一直到结尾的内容写入 target
+     * @param position 开始字节位置，必须在字符的边界上
+     * @param target 新文本文件
+     */
+    public void copyFrom(long position, File target){
+        ChannelOutputSink sink=openSink(target);
+        try {
+            sink.transfer(getTextFile(),position,getTextFile().length());
+        }finally {
+            sink.close();
+        }
+    }
+
+    /**
+     * 去掉源文本开头和结尾的空格后写入 target
+     * @param trimCRLF 是否同时去掉开头和结尾的回车换行
+     * @param target 新文本文件
+     */
+    public void trim(boolean trimCRLF, File target){
+        long start;
+        long end;
+        try(BigTextSession session=readFileDelegate.openSession()){
+            long total=session.size();
+            start=skipTrimBytes(session,0,total,trimCRLF,true);
+            end= start==total ? start : skipTrimBytes(session,start,total,trimCRLF,false);
+        } catch (NoSuchFileException e) {
+            throw new BigTextException(" no found text file: "+getTextFile().getAbsolutePath(),e);
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+getTextFile().getAbsolutePath()+",throw IO exception: ",e);
+        }
+        ChannelOutputSink sink=openSink(target);
+        try {
+            sink.transfer(getTextFile(),start,end);
+        }finally {
+            sink.close();
+        }
+    }
+
+    /**
+     * 在 [from, to) 字节范围内跳过要修剪的字节
+     * @param session 源文本文件的会话
+     * @param from 开始字节位置
+     * @param to 结束字节位置（不包含）
+     * @param trimCRLF 回车换行是否也要修剪
+     * @param forward 为 true 时从 from 向后跳过，返回第一个不用修剪的字节位置；
+     *                否则从 to 向前跳过，返回最后一个不用修剪的字节之后的位置
+     * @return 跳过之后的字节位置
+     * @throws IOException 读取文件时出现的IO异常
+     */
+    private long skipTrimBytes(BigTextSession session, long from, long to, boolean trimCRLF, boolean forward) throws IOException {
+        ByteBuffer buffer=ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position= forward ? from : to;
+        while (forward ? position<to : position>from){
+            ReadCancellation.checkCancelled();
+            int size=(int) Math.min(SCAN_BUFFER_SIZE, forward ? to-position : position-from);
+            long bufferStart= forward ? position : position-size;
+            buffer.clear();
+            buffer.limit(size);
+            int read=0;
+            while (read<size){
+                int n=session.read(buffer,bufferStart+read);
+                if(n<=0){
+                    throw new IOException("unexpected end of file at byte "+(bufferStart+read));
+                }
+                read+=n;
+            }
+            for (int i = 0; i < size; i++) {
+                byte b=buffer.get(forward ? i : size-1-i);
+                if(!(b==' ' || (trimCRLF && (b=='\r' || b=='\n')))){
+                    return forward ? position+i : position-i;
+                }
+            }
+            position= forward ? position+size : position-size;
+        }
+        return position;
+    }
+
+    /**
+     * 把 str 插入到源文本的 offset 位置后写入 target
+     * @param offset 插入位置，不能小于 0 ，超过文本长度时插入到文本的结尾
+     * @param str 要插入的字符串
+     * @param target 新文本文件
+     * @return 如果已写入，返回 true；offset 落在代理对中间时返回 false ，不会写入 target
+     */
+    public boolean insert(long offset, String str, File target){
+        long position=readFileDelegate.getBytePositions(offset)[0];
+        if(position==-1){
+            return false;
+        }
+        ChannelOutputSink sink=openSink(target);
+        try {
+            sink.transfer(getTextFile(),0,position);
+            sink.write(str);
+            sink.transfer(getTextFile(),position,getTextFile().length());
+        }finally {
+            sink.close();
+        }
+        return true;
+    }
+
+    /**
+     * 把 file 的全部内容插入到源文本的 offset 位置后写入 target ，file 的编码必须与源文本相同
+     * @param offset 插入位置，不能小于 0 ，超过文本长度时插入到文本的结尾
+     * @param file 要插入的文本文件
+     * @param target 新文本文件
+     * @return 如果已写入，返回 true；offset 落在代理对中间时返回 false ，不会写入 target
+     */
+    public boolean insert(long offset, File file, File target){
+        long position=readFileDelegate.getBytePositions(offset)[0];
+        if(position==-1){
+            return false;
+        }
+        ChannelOutputSink sink=openSink(target);
+        try {
+            sink.transfer(getTextFile(),0,position);
+            sink.transfer(file,0,file.length());
+            sink.transfer(getTextFile(),position,getTextFile().length());
+        }finally {
+            sink.close();
+        }
+        return true;
+    }
+
+    /**
+     * 用 delimiter 连接源文本和 joinFiles 的全部内容后写入 target ，joinFiles 的编码必须与源文本相同
+     * <p>所有的文件都直接按字节复制，只有分隔符需要编码</p>
+     * @param delimiter 分隔符
+     * @param joinFiles 要连接的文本文件
+     * @param target 新文本文件
+     */
+    public void join(String delimiter, File[] joinFiles, File target){
+        ChannelOutputSink sink=openSink(target);
+        try {
+            sink.transfer(getTextFile(),0,getTextFile().length());
+            for (File file : joinFiles) {
+                sink.write(delimiter);
+                sink.transfer(file,0,file.length());
+            }
+        }finally {
+            sink.close();
+        }
+    }
+
+    /**
+     * 打开写入 target 的输出端，使用源文本的编码
+     * @param target 新文本文件
+     * @return 输出端
+     */
+    private ChannelOutputSink openSink(File target){
+        return new ChannelOutputSink(target, Charset.forName(readFileDelegate.getCharset()),fsyncPolicy);
+    }
+
+    /**
+     * 获取源文本文件
+     * @return 源文本文件
+     */
+    private File getTextFile(){
+        return readFileDelegate.getTextFile();
+    }
+
+    /**
+     * 获取 写入新文本文件时强制同步的时机
+     * @see #fsyncPolicy
+     */
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+}
@@ -0,0 +1,104 @@
+package czb.framework.bigtext.core.delegate;
+
+import czb.framework.bigtext.core.session.BigTextSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * 使用 {@link FileChannel} 按位置读取文本文件的字符输入流
+ * <p>每个字节窗口都通过 {@link FileChannel#read(ByteBuffer, long)} 读取到同一个可复用的堆缓冲区中，
+ * 所以可以从任意的字符边界字节位置开始读取，配合 {@link czb.framework.bigtext.core.index.CheckpointIndex}
+ * 实现快速定位；也可以通过共享的 {@link BigTextSession} 读取，不需要为每次读取打开文件</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class ChannelFileReader extends DecodingReader {
+
+    /**
+     * 默认每个字节窗口的最大字节数：64K
+     */
+    public final static int DEFAULT_WINDOW_SIZE=64*1024;
+
+    /**
+     * 文本文件的通道
+     */
+    private FileChannel channel;
+    /**
+     * 文本文件的会话，与 {@link #channel} 二选一
+     */
+    private BigTextSession session;
+    /**
+     * 可复用的字节窗口缓冲区
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * 新建一个 {@link ChannelFileReader} 实例，从 startPosition 读到文件结尾
+     * <p>关闭该输入流时会同时关闭 channel</p>
+     * @param channel 文本文件的通道
+     * @param charset 文本编码
+     * @param startPosition 开始读取的字节位置，必须位于字符的边界上
+     * @param windowSize 每个字节窗口的最大字节数
+     * @throws IOException 获取文件大小时出现的IO异常
+     */
+    public ChannelFileReader(FileChannel channel, Charset charset, long startPosition, int windowSize) throws IOException {
+        this(channel, charset, startPosition, channel.size(), windowSize);
+    }
+
+    /**
+     * 新建一个 {@link ChannelFileReader} 实例，从 startPosition 读到 endPosition
+     * <p>关闭该输入流时会同时关闭 channel</p>
+     * @param channel 文本文件的通道
+     * @param charset 文本编码
+     * @param startPosition 开始读取的字节位置，必须位于字符的边界上
+     * @param endPosition 读取的结束字节位置（不包含），必须位于字符的边界上
+     * @param windowSize 每个字节窗口的最大字节数
+     */
+    public ChannelFileReader(FileChannel channel, Charset charset, long startPosition, long endPosition, int windowSize) {
+        super(charset, startPosition, endPosition, windowSize);
+        this.channel=channel;
+        this.buffer=ByteBuffer.allocate(windowSize);
+    }
+
+    /**
+     * 新建一个 {@link ChannelFileReader} 实例，通过会话从 startPosition 读到 endPosition
+     * <p>关闭该输入流时只释放会话，见 {@link BigTextSession#close()}</p>
+     * @param session 文本文件的会话
+     * @param charset 文本编码
+     * @param startPosition 开始读取的字节位置，必须位于字符的边界上
+     * @param endPosition 读取的结束字节位置（不包含），必须位于字符的边界上
+     * @param windowSize 每个字节窗口的最大字节数
+     */
+    public ChannelFileReader(BigTextSession session, Charset charset, long startPosition, long endPosition, int windowSize) {
+        super(charset, startPosition, endPosition, windowSize);
+        this.session=session;
+        this.buffer=ByteBuffer.allocate(windowSize);
+    }
+
+    @Override
+    protected ByteBuffer readWindow(long position, int size) throws IOException {
+        buffer.clear();
+        buffer.limit(size);
+        while (buffer.hasRemaining()){
+            int read= session!=null ? session.read(buffer,position+buffer.position()) : channel.read(buffer,position+buffer.position());
+            if(read==-1){
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(session!=null){
+            session.close();
+        }else {
+            channel.close();
+        }
+    }
+}
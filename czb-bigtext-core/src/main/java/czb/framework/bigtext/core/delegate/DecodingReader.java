@@ -0,0 +1,260 @@
+package czb.framework.bigtext.core.delegate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * 按字节窗口解码的字符输入流
+ * <p>与 {@link java.io.InputStreamReader} 不同，该类直接把字节窗口解码到调用方提供的字符数组里，
+ * 不会额外缓存已解码的字符，所以 {@link #getPosition()} 能准确给出已返回字符所对应的文件字节位置。</p>
+ * <p>字节窗口由子类通过 {@link #readWindow(long, int)} 提供，窗口的尾部如果是不完整的字符，会在下一个窗口
+ * 中从该字符的第一个字节开始重新读取。</p>
+ * <p>UTF-8 、UTF-16BE 、UTF-16LE 编码的堆内存窗口先经过 {@link FastPathDecoder} 解码，
+ * 快速路径处理不了的字节（非法字节、不完整的字符、代理字符等）每次最多取 {@link #FALLBACK_STEP} 个交给通用解码器，
+ * 之后马上回到快速路径，不会让通用解码器解码整个窗口剩余的内容</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public abstract class DecodingReader extends Reader {
+
+    /**
+     * 字节窗口的最小大小，保证一个窗口至少能容纳一个完整的字符
+     */
+    protected final static int MIN_WINDOW_SIZE=16;
+    /**
+     * 快速路径停下时交给通用解码器的最大字节数，不小于一个字符的最大字节数，保证通用解码器每次都能取得进展
+     */
+    private final static int FALLBACK_STEP=16;
+
+    /**
+     * 文本解码器，非法字节与 {@link java.io.InputStreamReader} 一样替换成替换字符
+     */
+    private CharsetDecoder decoder;
+    /**
+     * 文本编码的快速解码路径，编码没有快速路径时为 null
+     */
+    private FastPathDecoder fastPath;
+    /**
+     * 每个字节窗口的最大字节数
+     */
+    private int windowSize;
+    /**
+     * 读取的结束字节位置（不包含）
+     */
+    private long endPosition;
+    /**
+     * 当前字节窗口，为 null 表示还没有读取过窗口
+     */
+    private ByteBuffer window;
+    /**
+     * 当前字节窗口第一个字节在文件中的字节位置
+     */
+    private long windowStart;
+    /**
+     * 当前字节窗口是否已经到达 {@link #endPosition}
+     */
+    private boolean endOfInput;
+    /**
+     * 解码器是否已经完成收尾，完成后不会再有字符输出
+     */
+    private boolean flushed;
+    /**
+     * 当调用方只剩一个字符的空间而下一个字符是代理对时，代理对的低位字符暂存于此；为 -1 表示没有暂存字符
+     */
+    private int pendingChar=-1;
+    /**
+     * 解码代理对时使用的临时缓冲区
+     */
+    private CharBuffer pairBuff=CharBuffer.allocate(2);
+
+    /**
+     * 新建一个 {@link DecodingReader} 实例
+     * @param charset 文本编码
+     * @param startPosition 开始读取的字节位置，必须位于字符的边界上
+     * @param endPosition 读取的结束字节位置（不包含）
+     * @param windowSize 每个字节窗口的最大字节数
+     */
+    protected DecodingReader(Charset charset, long startPosition, long endPosition, int windowSize) {
+        if(windowSize < MIN_WINDOW_SIZE){
+            throw new IllegalArgumentException("window size must be at least "+MIN_WINDOW_SIZE+": "+windowSize);
+        }
+        this.decoder=charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.fastPath=FastPathDecoder.of(charset);
+        this.windowStart=startPosition;
+        this.endPosition=endPosition;
+        this.windowSize=windowSize;
+    }
+
+    /**
+     * 读取从 position 开始的字节窗口
+     * @param position 窗口第一个字节在文件中的字节位置
+     * @param size 窗口的字节数，调用方保证不会超过 {@link #getEndPosition()}
+     * @return 字节窗口，窗口的 position 为 0 ，limit 为实际可用的字节数
+     * @throws IOException 读取文件时出现的IO异常
+     */
+    protected abstract ByteBuffer readWindow(long position, int size) throws IOException;
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if(len==0){
+            return 0;
+        }
+        int n=0;
+        if(pendingChar!=-1){
+            cbuf[off]=(char) pendingChar;
+            pendingChar=-1;
+            if(++n==len){
+                return n;
+            }
+        }
+        CharBuffer out=CharBuffer.wrap(cbuf,off+n,len-n);
+        while (out.hasRemaining() && !flushed){
+            if(window==null && !fill(windowStart)){
+                break;
+            }
+            if(fastPath!=null && window.hasArray()){
+                fastPath.decode(window,out);
+                if(!out.hasRemaining()){
+                    break;
+                }
+            }
+            boolean partial=isPartial();
+            CoderResult result=decodeWindow(out,partial);
+            if(result.isUnderflow()){
+                if(partial){
+                    //只解码了窗口的一部分，回到快速路径继续
+                    continue;
+                }
+                if(endOfInput){
+                    flushed=decoder.flush(out).isUnderflow();
+                    break;
+                }
+                //窗口尾部是不完整的字符，从该字符的第一个字节开始读取下一个窗口
+                fill(windowStart+window.position());
+            }else if(result.isOverflow()){
+                //只剩一个字符的空间但下一个字符是代理对，先解码到临时缓冲区，低位字符留到下次读取，
+                // 保证除了文件结尾以外，每次读取都能填满调用方的字符数组
+                if(out.remaining()==1){
+                    readPair(out);
+                }
+                break;
+            }else{
+                result.throwException();
+            }
+        }
+        int read=n+out.position()-(off+n);
+        return read==0 ? -1 : read;
+    }
+
+    /**
+     * 是否只把窗口的一部分交给通用解码器
+     * <p>使用快速路径时，通用解码器每次最多解码 {@link #FALLBACK_STEP} 个字节；这部分字节之后还有内容，所以不是输入的结尾</p>
+     * @return 如果只解码窗口的一部分，返回 true;否则返回 false
+     */
+    private boolean isPartial(){
+        //内存映射的窗口没有可访问的数组，不使用快速路径
+        return fastPath!=null && window.hasArray() && window.remaining()>FALLBACK_STEP;
+    }
+
+    /**
+     * 使用通用解码器解码当前窗口
+     * @param out 输出缓冲区
+     * @param partial 是否只解码窗口的前 {@link #FALLBACK_STEP} 个字节，见 {@link #isPartial()}
+     * @return 解码结果；partial 为 true 时的 underflow 只表示这部分字节已经解码完
+     */
+    private CoderResult decodeWindow(CharBuffer out, boolean partial){
+        if(!partial){
+            return decoder.decode(window,out,endOfInput);
+        }
+        int limit=window.limit();
+        window.limit(window.position()+FALLBACK_STEP);
+        CoderResult result=decoder.decode(window,out,false);
+        window.limit(limit);
+        return result;
+    }
+
+    /**
+     * 解码一个代理对，高位字符写入 out ，低位字符暂存到 {@link #pendingChar}
+     * @param out 只剩一个字符空间的输出缓冲区
+     * @throws IOException 读取文件时出现的IO异常
+     */
+    private void readPair(CharBuffer out) throws IOException {
+        pairBuff.clear();
+        while (pairBuff.position()<2){
+            boolean partial=isPartial();
+            CoderResult result=decodeWindow(pairBuff,partial);
+            if(result.isUnderflow()){
+                if(partial){
+                    continue;
+                }
+                if(endOfInput){
+                    break;
+                }
+                fill(windowStart+window.position());
+            }else if(result.isOverflow()){
+                break;
+            }else{
+                result.throwException();
+            }
+        }
+        pairBuff.flip();
+        if(pairBuff.hasRemaining()){
+            out.put(pairBuff.get());
+        }
+        if(pairBuff.hasRemaining()){
+            pendingChar=pairBuff.get();
+        }
+    }
+
+    /**
+     * 读取从 position 开始的下一个字节窗口
+     * @param position 窗口第一个字节在文件中的字节位置
+     * @return 如果已经没有可读的字节，返回 false;否则返回 true
+     * @throws IOException 读取文件时出现的IO异常
+     */
+    private boolean fill(long position) throws IOException {
+        if(position>=endPosition){
+            endOfInput=true;
+            return false;
+        }
+        int size=Long.valueOf(Math.min(windowSize,endPosition-position)).intValue();
+        window=readWindow(position,size);
+        windowStart=position;
+        endOfInput=position+window.limit()>=endPosition;
+        return true;
+    }
+
+    /**
+     * 获取已返回的字符所对应的文件字节位置，即下一个要解码的字节位置
+     * <p>如果存在暂存的代理对低位字符（见 {@link #hasPendingChar()}），该位置已经越过了这个代理对</p>
+     * @return 下一个要解码的字节位置
+     */
+    public long getPosition() {
+        return window==null ? windowStart : windowStart+window.position();
+    }
+
+    /**
+     * 是否存在还没有返回的代理对低位字符
+     * <p>存在时 {@link #getPosition()} 并不在字符的边界上</p>
+     */
+    public boolean hasPendingChar() {
+        return pendingChar!=-1;
+    }
+
+    /**
+     * 获取 读取的结束字节位置（不包含）
+     * @see #endPosition
+     */
+    public long getEndPosition() {
+        return endPosition;
+    }
+}
@@ -0,0 +1,180 @@
+package czb.framework.bigtext.core.delegate;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 常用编码的快速解码路径，供 {@link DecodingReader} 在调用通用的 {@link CharsetDecoder} 之前使用
+ * <p>快速路径只处理能确定结果的字节：遇到非法字节、窗口尾部不完整的字符或者字符数组的空间不足时就停下，
+ * 剩余的字节交给通用解码器，所以解码结果（包括非法字节的替换）与通用解码器完全一致。</p>
+ * <ul>
+ *     <li>UTF-8：每次取 8 个字节作为一个 long ，最高位都为 0 时说明是一段 ASCII ，交给 US-ASCII 解码器整段扩展成字符；
+ *     只有非 ASCII 的部分才交给 UTF-8 解码器。通用解码器每次只能快速处理开头的一段 ASCII ，遇到第一个非 ASCII 字符后就逐个字节判断，
+ *     大部分是 ASCII 、夹杂少量其他字符的文本使用快速路径收益最大</li>
+ *     <li>UTF-16BE 、UTF-16LE：直接在字节数组和字符数组之间转换，每两个字节组成一个字符，遇到代理字符和反向的字节顺序标记停下；
+ *     带字节顺序标记的 UTF-16 需要解码器识别字节顺序，不使用快速路径</li>
+ * </ul>
+ * <p>ISO-8859-1 、US-ASCII 的通用解码器本身就是逐字节扩展的循环（较新的 JDK 还会使用向量指令），不需要快速路径。</p>
+ * <p>每个 {@link DecodingReader} 使用自己的实例，不能在多个线程之间共享</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public abstract class FastPathDecoder {
+
+    /**
+     * 每个字节的最高位
+     */
+    private final static long HIGH_BITS=0x8080808080808080L;
+    /**
+     * 获取编码的快速解码路径
+     * @param charset 文本编码
+     * @return 新的快速解码路径；编码没有快速路径时返回 null
+     */
+    public static FastPathDecoder of(Charset charset){
+        if(charset.equals(StandardCharsets.UTF_8)){
+            return new Utf8();
+        }
+        if(charset.equals(StandardCharsets.UTF_16BE)){
+            return new Utf16(true);
+        }
+        if(charset.equals(StandardCharsets.UTF_16LE)){
+            return new Utf16(false);
+        }
+        return null;
+    }
+
+    /**
+     * 从 in 的 position 开始尽可能多地解码到 out 中，两个缓冲区的 position 都移到已处理的位置之后
+     * <p>两个缓冲区都必须有可访问的数组（{@link ByteBuffer#hasArray()}）</p>
+     * @param in 字节缓冲区
+     * @param out 字符缓冲区
+     */
+    public abstract void decode(ByteBuffer in, CharBuffer out);
+
+    /**
+     * UTF-8 的快速路径
+     * <p>ASCII 段交给 {@link #widenAsciiRun(ByteBuffer, CharBuffer)} ；非 ASCII 的部分一直到下一个全是 ASCII 的 8 字节块之前，
+     * 都交给 UTF-8 解码器逐个字符解码，中文等非 ASCII 字符为主的文本基本保持通用解码器的速度</p>
+     */
+    private static class Utf8 extends FastPathDecoder {
+
+        /**
+         * 解码非 ASCII 部分的 UTF-8 解码器，非法字节与通用解码器一样替换成替换字符
+         */
+        private CharsetDecoder decoder=StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        /**
+         * 扩展 ASCII 段的 US-ASCII 解码器，非 ASCII 字节按默认的 {@link CodingErrorAction#REPORT} 处理，
+         * 所以遇到第一个非 ASCII 字节就停下；较新的 JDK 用向量指令查找和扩展 ASCII 字节
+         */
+        private CharsetDecoder asciiDecoder=StandardCharsets.US_ASCII.newDecoder();
+
+        @Override
+        public void decode(ByteBuffer in, CharBuffer out) {
+            while (in.hasRemaining() && out.hasRemaining()){
+                int position=in.position();
+                if(in.get(position)>=0){
+                    if(widenAsciiRun(in,out)==0){
+                        out.put((char) in.get());
+                    }
+                    continue;
+                }
+                int limit=in.limit();
+                in.limit(nextAsciiBlock(in,position));
+                decoder.decode(in,out,false);
+                in.limit(limit);
+                if(in.position()==position){
+                    //非 ASCII 部分的结尾是不完整或者非法的字符，需要结合后面的字节判断，交给通用解码器处理
+                    break;
+                }
+            }
+        }
+
+        /**
+         * 从 in 的 position 开始把连续的 ASCII 字节扩展成字符，两个缓冲区的 position 都移到已处理的位置之后
+         * <p>先把接下来的 8 个字节作为一个 long 检查，最高位都为 0 时才交给 {@link #asciiDecoder} 一直扩展到第一个非 ASCII 字节，
+         * 避免为零散的 ASCII 字节付出调用解码器的开销</p>
+         * @param in 字节缓冲区
+         * @param out 字符缓冲区
+         * @return 扩展的字节数；接下来的 8 个字节不全是 ASCII 或者空间不足 8 个字符时返回 0
+         */
+        private int widenAsciiRun(ByteBuffer in, CharBuffer out){
+            int position=in.position();
+            if(in.remaining()<8 || out.remaining()<8 || (in.getLong(position) & HIGH_BITS)!=0){
+                return 0;
+            }
+            asciiDecoder.decode(in,out,false);
+            return in.position()-position;
+        }
+
+        /**
+         * 从 position 之后每隔 16 个字节检查一次，找出下一个全是 ASCII 的 8 字节块
+         * <p>ASCII 字节一定是字符的边界；至少 23 个字节的 ASCII 段一定能被找到，更短的留给 UTF-8 解码器。
+         * 间隔越小能找到的 ASCII 段越短，但中文等非 ASCII 字符为主的文本查找的开销也越大</p>
+         * @param in 字节缓冲区
+         * @param position 非 ASCII 字节的位置
+         * @return 8 字节块的开始位置；找不到时返回 in 的 limit
+         */
+        private static int nextAsciiBlock(ByteBuffer in, int position){
+            byte[] sa=in.array();
+            int offset=in.arrayOffset();
+            int limit=in.limit();
+            for (int p = position+1; p+8 <= limit; p+=16) {
+                //先检查一个字节，非 ASCII 为主的文本大多不需要读取整个块
+                if(sa[offset+p]>=0 && (in.getLong(p) & HIGH_BITS)==0){
+                    return p;
+                }
+            }
+            return limit;
+        }
+    }
+
+    /**
+     * UTF-16BE 、UTF-16LE 的快速路径
+     */
+    private static class Utf16 extends FastPathDecoder {
+
+        /**
+         * 反向的字节顺序标记，通用解码器把它当作非法字符
+         */
+        private final static char REVERSED_MARK=(char) 0xFFFE;
+
+        /**
+         * 是否为大端字节顺序
+         */
+        private boolean bigEndian;
+
+        private Utf16(boolean bigEndian) {
+            this.bigEndian = bigEndian;
+        }
+
+        @Override
+        public void decode(ByteBuffer in, CharBuffer out) {
+            byte[] sa=in.array();
+            int sourceOffset=in.arrayOffset();
+            int sp=sourceOffset+in.position();
+            int sl=sourceOffset+in.limit();
+            char[] da=out.array();
+            int targetOffset=out.arrayOffset();
+            int dp=targetOffset+out.position();
+            int dl=targetOffset+out.limit();
+            int high= bigEndian ? 0 : 1;
+            while (sp+1<sl && dp<dl){
+                char c=(char) (((sa[sp+high] & 0xFF)<<8) | (sa[sp+1-high] & 0xFF));
+                if(Character.isSurrogate(c) || c==REVERSED_MARK){
+                    break;
+                }
+                da[dp++]=c;
+                sp+=2;
+            }
+            in.position(sp-sourceOffset);
+            out.position(dp-targetOffset);
+        }
+    }
+}
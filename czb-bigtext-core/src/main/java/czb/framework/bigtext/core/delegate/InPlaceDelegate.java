@@ -0,0 +1,290 @@
+package czb.framework.bigtext.core.delegate;
+
+import czb.framework.bigtext.core.exception.BigTextException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 直接修改文本文件中部分字节的助手类型
+ * <p>修改前后字节数相同时，不需要复制整个文件：先只读地扫描文件找到要修改的字节范围，
+ * 再用 {@link FileChannel#write(ByteBuffer, long)} 只覆盖这些字节。</p>
+ * <p>按字节查找字符串要求编码后的字节序列只会在字符的边界上匹配，UTF-8 和单字节编码满足这一点，
+ * 所以只支持这些编码，见 {@link #isSupported(String)}。修改过程中出现异常时文件可能只修改了一部分</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class InPlaceDelegate {
+
+    /**
+     * 每次读取的字节数：64K
+     */
+    private final static int BUFFER_SIZE=64*1024;
+    /**
+     * 累计多少个匹配项后覆盖一次
+     */
+    private final static int PATCH_BATCH=4096;
+
+    /**
+     * 文本文件
+     */
+    private File textFile;
+    /**
+     * 文本编码
+     */
+    private Charset charset;
+
+    /**
+     * 新建一个 {@link InPlaceDelegate} 实例
+     * @param textFile 文本文件
+     * @param charset 文本编码，必须是 {@link #isSupported(String)} 支持的编码
+     */
+    public InPlaceDelegate(File textFile, String charset) {
+        if(!isSupported(charset)){
+            throw new IllegalArgumentException("unsupported charset for in-place edit: "+charset);
+        }
+        this.textFile = textFile;
+        this.charset = Charset.forName(charset);
+    }
+
+    /**
+     * 编码是否支持按字节查找和修改
+     * @param charset 文本编码
+     * @return 如果支持，返回 true;否则返回 false
+     */
+    public static boolean isSupported(String charset){
+        return ParallelReadDelegate.isSupported(charset);
+    }
+
+    /**
+     * 把字符串编码成字节
+     * @param str 字符串
+     * @return 编码后的字节；包含文本编码无法表示的字符时返回 null
+     */
+    public byte[] encode(String str){
+        try {
+            ByteBuffer buffer=charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .encode(CharBuffer.wrap(str));
+            byte[] bytes=new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 把文件中所有的 oldBytes 覆盖成 newBytes
+     * <p>与 {@link String#replace(CharSequence, CharSequence)} 一样，从左到右查找互不重叠的匹配项；
+     * 匹配项累计到 {@link #PATCH_BATCH} 个就覆盖一次，覆盖的字节都在已扫描的范围内，不会影响后续的查找</p>
+     * @param oldBytes 旧字符串编码后的字节，不能为空
+     * @param newBytes 新字符串编码后的字节，字节数必须与 oldBytes 相同
+     * @return 覆盖的匹配项个数
+     */
+    public long replace(byte[] oldBytes, byte[] newBytes){
+        if(oldBytes.length==0){
+            throw new IllegalArgumentException("oldBytes must not be empty");
+        }
+        if(oldBytes.length!=newBytes.length){
+            throw new IllegalArgumentException("byte length differs: "+oldBytes.length+" != "+newBytes.length);
+        }
+        int m=oldBytes.length;
+        byte first=oldBytes[0];
+        long count=0;
+        try(FileChannel channel=openChannel()){
+            long total=channel.size();
+            byte[] buff=new byte[BUFFER_SIZE+m];
+            long[] pending=new long[PATCH_BATCH];
+            int pendingCount=0;
+            //buff 开头保留的上一次未查找完的字节数
+            int carry=0;
+            long readPosition=0;
+            while (readPosition<total){
+                ReadCancellation.checkCancelled();
+                int read=readFully(channel,buff,carry,(int) Math.min(BUFFER_SIZE,total-readPosition),readPosition);
+                if(read==0){
+                    //文件在修改期间被截断
+                    break;
+                }
+                readPosition+=read;
+                int length=carry+read;
+                long buffStart=readPosition-length;
+                int i=0;
+                while (i<=length-m){
+                    if(buff[i]!=first){
+                        i++;
+                        continue;
+                    }
+                    if(matchesAt(buff,i,oldBytes)){
+                        pending[pendingCount++]=buffStart+i;
+                        if(pendingCount==pending.length){
+                            patch(channel,pending,pendingCount,newBytes);
+                            pendingCount=0;
+                        }
+                        count++;
+                        i+=m;
+                    }else{
+                        i++;
+                    }
+                }
+                //从 i 开始的字节可能是跨越两次读取的匹配项的开头
+                carry=length-i;
+                System.arraycopy(buff,i,buff,0,carry);
+            }
+            patch(channel,pending,pendingCount,newBytes);
+        } catch (NoSuchFileException e) {
+            throw new BigTextException(" no found text file: "+textFile.getAbsolutePath(),e);
+        } catch (IOException e) {
+            throw new BigTextException(" write in text file: "+textFile.getAbsolutePath()+" fail",e);
+        }
+        return count;
+    }
+
+    /**
+     * 文件是否只包含 ASCII 字符
+     * @return 如果只包含 ASCII 字符，返回 true;否则返回 false
+     */
+    public boolean isAscii(){
+        try(FileChannel channel=FileChannel.open(textFile.toPath(), StandardOpenOption.READ)){
+            ByteBuffer buffer=ByteBuffer.allocate(BUFFER_SIZE);
+            byte[] buff=buffer.array();
+            long position=0;
+            int read;
+            while ((read=channel.read(buffer,position))!=-1){
+                ReadCancellation.checkCancelled();
+                for (int i = 0; i < read; i++) {
+                    if(buff[i]<0){
+                        return false;
+                    }
+                }
+                position+=read;
+                buffer.clear();
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            throw new BigTextException(" no found text file: "+textFile.getAbsolutePath(),e);
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+textFile.getAbsolutePath()+",throw IO exception: ",e);
+        }
+    }
+
+    /**
+     * 把文件中所有的 ASCII 字母转换成大写或小写字母
+     * <p>每次读取的字节中只覆盖从第一个到最后一个被转换的字节，没有字母需要转换时不写入；
+     * 调用前需要先通过 {@link #isAscii()} 确认文件只包含 ASCII 字符</p>
+     * @param upper 为 true 时转换成大写字母;否则转换成小写字母
+     * @return 转换的字母个数
+     */
+    public long convertAsciiCase(boolean upper){
+        byte from= (byte) (upper ? 'a' : 'A');
+        byte to= (byte) (upper ? 'z' : 'Z');
+        int delta= upper ? -32 : 32;
+        long count=0;
+        try(FileChannel channel=openChannel()){
+            long total=channel.size();
+            byte[] buff=new byte[BUFFER_SIZE];
+            long position=0;
+            while (position<total){
+                ReadCancellation.checkCancelled();
+                int read=readFully(channel,buff,0,(int) Math.min(BUFFER_SIZE,total-position),position);
+                if(read==0){
+                    break;
+                }
+                int firstChanged=-1;
+                int lastChanged=-1;
+                for (int i = 0; i < read; i++) {
+                    byte b=buff[i];
+                    if(b>=from && b<=to){
+                        buff[i]= (byte) (b+delta);
+                        if(firstChanged==-1){
+                            firstChanged=i;
+                        }
+                        lastChanged=i;
+                        count++;
+                    }
+                }
+                if(firstChanged!=-1){
+                    writeFully(channel,ByteBuffer.wrap(buff,firstChanged,lastChanged-firstChanged+1),position+firstChanged);
+                }
+                position+=read;
+            }
+        } catch (NoSuchFileException e) {
+            throw new BigTextException(" no found text file: "+textFile.getAbsolutePath(),e);
+        } catch (IOException e) {
+            throw new BigTextException(" write in text file: "+textFile.getAbsolutePath()+" fail",e);
+        }
+        return count;
+    }
+
+    /**
+     * 在每个字节位置覆盖 newBytes
+     * @param channel 文本文件的通道
+     * @param positions 字节位置
+     * @param count positions 中有效的个数
+     * @param newBytes 新字符串编码后的字节
+     * @throws IOException 写入文件时出现的IO异常
+     */
+    private static void patch(FileChannel channel, long[] positions, int count, byte[] newBytes) throws IOException {
+        for (int i = 0; i < count; i++) {
+            writeFully(channel,ByteBuffer.wrap(newBytes),positions[i]);
+        }
+    }
+
+    /**
+     * buff 从 i 开始的字节是否与 pattern 相同，调用方保证不会越界
+     */
+    private static boolean matchesAt(byte[] buff, int i, byte[] pattern){
+        for (int k = 1; k < pattern.length; k++) {
+            if(buff[i+k]!=pattern[k]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 从 position 开始读取 length 个字节到 buff
+     * @return 实际读取的字节数，只有文件被截断时才会小于 length
+     * @throws IOException 读取文件时出现的IO异常
+     */
+    private static int readFully(FileChannel channel, byte[] buff, int offset, int length, long position) throws IOException {
+        ByteBuffer buffer=ByteBuffer.wrap(buff,offset,length);
+        while (buffer.hasRemaining()){
+            int read=channel.read(buffer,position+buffer.position()-offset);
+            if(read<0){
+                break;
+            }
+        }
+        return buffer.position()-offset;
+    }
+
+    /**
+     * 把 buffer 中剩余的字节全部写入 position 处
+     * @throws IOException 写入文件时出现的IO异常
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()){
+            position+=channel.write(buffer,position);
+        }
+    }
+
+    /**
+     * 以读写方式打开文本文件的通道
+     * @return 文本文件的通道
+     * @throws IOException 打开文件时出现的IO异常
+     */
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(textFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+}
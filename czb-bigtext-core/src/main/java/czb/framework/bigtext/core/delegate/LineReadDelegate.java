@@ -0,0 +1,315 @@
+package czb.framework.bigtext.core.delegate;
+
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.exception.BigTextException;
+import czb.framework.bigtext.core.index.LineIndex;
+import czb.framework.bigtext.core.session.BigTextSession;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 按行读取文本文件的助手类型
+ * <p>借助 {@link LineIndex} 按行号定位：从不大于目标行号的最近记录开始解码，只需要跳过少量的行。</p>
+ * <p>行索引在第一次按行读取时建立：编码为 UTF-8 或单字节编码时直接扫描字节，每次处理 8 个字节，
+ * 没有回车换行的 8 个字节直接统计字符数后跳过；其他编码需要解码扫描，此时只能记录每行开头的字符索引，
+ * 定位时通过 {@link ReadFileDelegate#openReaderAt(long)} 按字符索引打开字符输入流，
+ * 带字节顺序标记的 UTF-16 这类有解码状态的编码不会从文件中间开始解码</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class LineReadDelegate {
+
+    /**
+     * 按段读取文本文件的助手
+     */
+    private ReadFileDelegate readFileDelegate;
+    /**
+     * 行号到字符索引、字节位置的稀疏行索引
+     */
+    private LineIndex lineIndex;
+
+    /**
+     * 新建一个 {@link LineReadDelegate} 实例
+     * @param readFileDelegate 按段读取文本文件的助手
+     * @param lineIndex 行号到字符索引、字节位置的稀疏行索引
+     * @throws IllegalArgumentException 如果行索引的编码与 readFileDelegate 的编码不一致
+     */
+    public LineReadDelegate(ReadFileDelegate readFileDelegate, LineIndex lineIndex) {
+        this.readFileDelegate = readFileDelegate;
+        checkCharset(lineIndex);
+        this.lineIndex = lineIndex;
+    }
+
+    /**
+     * 获取文本的行数，与 {@link java.io.BufferedReader#readLine()} 读出的行数一致
+     * @return 文本的行数
+     */
+    public long lineCount(){
+        ensureIndex();
+        return lineIndex.getLineCount();
+    }
+
+    /**
+     * 获取第 line 行的文本内容，不包含结尾的回车换行
+     * @param line 行号，从 0 开始
+     * @return 第 line 行的文本内容
+     * @throws IndexOutOfBoundsException 如果 line 小于 0 或者不小于 {@link #lineCount()}
+     */
+    public String lineAt(long line){
+        if(line<0 || line>=lineCount()){
+            throw new IndexOutOfBoundsException("Line index out of range: "+line+", line count: "+lineCount());
+        }
+        StringBuilder sb=new StringBuilder();
+        readLines(line,line+1,(currentReadSize, buff, offset, length) -> {
+            sb.append(buff,offset,length);
+            return false;
+        });
+        int end=sb.length();
+        if(end>0 && sb.charAt(end-1)=='\n'){
+            end--;
+        }
+        if(end>0 && sb.charAt(end-1)=='\r'){
+            end--;
+        }
+        sb.setLength(end);
+        return sb.toString();
+    }
+
+    /**
+     * 按段读取从第 fromLine 行开头到第 toLine 行开头的文本内容，包含每行结尾的回车换行
+     * @param fromLine 开始行号（包含）
+     * @param toLine 结束行号（不包含）
+     * @param callback 按段读取文本文件时 的零拷贝回调专用接口，currentReadSize 从第 fromLine 行开头开始计算
+     * @throws IndexOutOfBoundsException 如果 fromLine 小于 0 ， toLine 大于 {@link #lineCount()} ，或者 fromLine 大于 toLine
+     */
+    public void readLines(long fromLine, long toLine, ReadSegmentCallback callback){
+        long lineCount=lineCount();
+        if(fromLine<0 || toLine>lineCount || fromLine>toLine){
+            throw new IndexOutOfBoundsException("begin "+fromLine+", end "+toLine+", line count "+lineCount);
+        }
+        char[] buff=new char[readFileDelegate.getSegmentSize()];
+        long currentReadSize=0;
+        int lastOffset=0;
+        int lastLength=0;
+        boolean cancelled=false;
+        if(fromLine<toLine){
+            int i=lineIndex.floor(fromLine);
+            //当前字符所在的行号
+            long line=(long) i*lineIndex.getInterval();
+            long bytePosition=lineIndex.getBytePosition(i);
+            //解码扫描建立的行索引只有字符索引，按字符索引打开，有解码状态的编码也能从文件开头正确解码
+            try(DecodingReader reader= bytePosition!=-1 ? readFileDelegate.openReader(bytePosition,readFileDelegate.getTextFile().length())
+                    : readFileDelegate.openReaderAt(lineIndex.getCharPosition(i))){
+                boolean lastCR=false;
+                boolean startPending=false;
+                boolean finished=false;
+                int read;
+                while (!finished && (read=reader.read(buff,0,buff.length))!=-1){
+                    //这段文本中要输出的开始位置，-1 表示还没到 fromLine
+                    int start= line>=fromLine ? 0 : -1;
+                    int end=read;
+                    for (int k = 0; k < read; k++) {
+                        char c=buff[k];
+                        // \r\n 的 \n 属于上一行
+                        if(lastCR && c=='\n'){
+                            lastCR=false;
+                            continue;
+                        }
+                        if(startPending){
+                            startPending=false;
+                            line++;
+                            if(line==fromLine){
+                                start=k;
+                            }
+                            if(line==toLine){
+                                end=k;
+                                finished=true;
+                                break;
+                            }
+                        }
+                        lastCR= c=='\r';
+                        startPending= c=='\n' || c=='\r';
+                    }
+                    if(start!=-1 && end>start){
+                        currentReadSize+=end-start;
+                        lastOffset=start;
+                        lastLength=end-start;
+                        if(callback.onSegmentRead(currentReadSize,buff,start,end-start)){
+                            break;
+                        }
+                    }
+                    //已取消时在段的边界上停止读取
+                    if(ReadCancellation.isCancelled()){
+                        cancelled=true;
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                throw new BigTextException(" read text file: "+readFileDelegate.getTextFile().getAbsolutePath()+",throw IO exception: ",e);
+            }
+        }
+        callback.onCompleteRead(currentReadSize,buff,lastOffset,lastLength);
+        if(cancelled){
+            throw new CancellationException(" read text file: "+readFileDelegate.getTextFile().getAbsolutePath()+" was cancelled");
+        }
+    }
+
+    /**
+     * 行索引不可用时，建立行索引
+     */
+    private synchronized void ensureIndex(){
+        if(lineIndex.isAvailable()){
+            return;
+        }
+        if(ByteLengthDelegate.isSupported(readFileDelegate.getCharset())){
+            buildIndexFromBytes();
+        }else{
+            buildIndexFromChars();
+        }
+    }
+
+    /**
+     * 直接扫描字节建立行索引
+     * <p>回车、换行在 UTF-8 和单字节编码中都只会以单个字节出现；没有回车换行的 8 个字节直接统计字符数后跳过</p>
+     */
+    private void buildIndexFromBytes(){
+        LineIndex.Builder builder=lineIndex.newBuilder();
+        File textFile=readFileDelegate.getTextFile();
+        boolean utf8=Charset.forName(readFileDelegate.getCharset()).equals(StandardCharsets.UTF_8);
+        long bytePosition=0;
+        long charPosition=0;
+        long line=0;
+        boolean lastCR=false;
+        boolean startPending=false;
+        try(BigTextSession session=readFileDelegate.openSession()){
+            ByteBuffer buffer=ByteBuffer.allocateDirect(ByteLengthDelegate.DEFAULT_BUFFER_SIZE);
+            int read;
+            while ((read=session.read(buffer,bytePosition))!=-1){
+                ReadCancellation.checkCancelled();
+                int k=0;
+                while (k<read){
+                    if(k+8<=read){
+                        long word=buffer.getLong(k);
+                        if(!ByteLengthDelegate.hasLineBreak(word)){
+                            if(startPending){
+                                builder.record(line,charPosition,bytePosition+k);
+                                startPending=false;
+                            }
+                            lastCR=false;
+                            charPosition+= utf8 ? ByteLengthDelegate.utf8CharCount(word) : 8;
+                            k+=8;
+                            continue;
+                        }
+                    }
+                    byte b=buffer.get(k);
+                    if(lastCR && b=='\n'){
+                        // \r\n 的 \n 属于上一行
+                        lastCR=false;
+                    }else{
+                        if(startPending){
+                            builder.record(line,charPosition,bytePosition+k);
+                            startPending=false;
+                        }
+                        lastCR= b=='\r';
+                        if(b=='\n' || b=='\r'){
+                            line++;
+                            startPending=true;
+                        }
+                    }
+                    if(!utf8 || (b & 0xC0)!=0x80){
+                        charPosition+= utf8 && (b & 0xF8)==0xF0 ? 2 : 1;
+                    }
+                    k++;
+                }
+                bytePosition+=read;
+                buffer.clear();
+            }
+        } catch (NoSuchFileException e) {
+            throw new BigTextException(" no found text file: "+textFile.getAbsolutePath(),e);
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+textFile.getAbsolutePath()+",throw IO exception: ",e);
+        }
+        builder.complete(line+(!startPending && bytePosition>0 ? 1 : 0));
+    }
+
+    /**
+     * 解码扫描建立行索引，只记录每行开头的字符索引
+     */
+    private void buildIndexFromChars(){
+        LineIndex.Builder builder=lineIndex.newBuilder();
+        readFileDelegate.readFile(new ReadSegmentCallback() {
+            /**
+             * 当前字符的字符索引
+             */
+            long charPosition=0;
+            /**
+             * 当前字符所在的行号
+             */
+            long line=0;
+            boolean lastCR=false;
+            boolean startPending=false;
+
+            @Override
+            public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+                for (int k = offset; k < offset+length; k++,charPosition++) {
+                    char c=buff[k];
+                    if(lastCR && c=='\n'){
+                        lastCR=false;
+                        continue;
+                    }
+                    if(startPending){
+                        builder.record(line,charPosition,-1);
+                        startPending=false;
+                    }
+                    lastCR= c=='\r';
+                    if(c=='\n' || c=='\r'){
+                        line++;
+                        startPending=true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
+                builder.complete(line+(!startPending && currentReadSize>0 ? 1 : 0));
+            }
+        });
+    }
+
+    /**
+     * 获取 行号到字符索引、字节位置的稀疏行索引
+     * @see #lineIndex
+     */
+    public LineIndex getLineIndex() {
+        return lineIndex;
+    }
+
+    /**
+     * 设置 行号到字符索引、字节位置的稀疏行索引
+     * @throws IllegalArgumentException 如果行索引的编码与 {@link #readFileDelegate} 的编码不一致
+     * @see #lineIndex
+     */
+    public synchronized void setLineIndex(LineIndex lineIndex) {
+        checkCharset(lineIndex);
+        this.lineIndex = lineIndex;
+    }
+
+    /**
+     * 检查行索引的编码与 {@link #readFileDelegate} 的编码是否一致，不同编码下同一行开头的字符索引和字节位置都不同
+     * @param lineIndex 行索引
+     * @throws IllegalArgumentException 如果编码不一致
+     */
+    private void checkCharset(LineIndex lineIndex){
+        if(!lineIndex.getCharset().equals(Charset.forName(readFileDelegate.getCharset()).name())){
+            throw new IllegalArgumentException("line index charset "+lineIndex.getCharset()+" does not match "+readFileDelegate.getCharset());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package czb.framework.bigtext.core.delegate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 使用内存映射按窗口读取文本文件的字符输入流
+ * <p>通过 {@link FileChannel#map(FileChannel.MapMode, long, long)} 把文件按 {@link #windowSize} 分窗口映射到内存，
+ * 再直接从映射的 {@link ByteBuffer} 解码，省去了把文件内容拷贝到堆内存的开销</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class MappedFileReader extends DecodingReader {
+
+    /**
+     * 文本文件的通道
+     */
+    private FileChannel channel;
+
+    /**
+     * 新建一个 {@link MappedFileReader} 实例，从文件开头读到文件结尾
+     * @param textFile 文本文件
+     * @param charset 文本编码
+     * @param windowSize 每个映射窗口的最大字节数
+     * @throws IOException 打开文件时出现的IO异常
+     */
+    public MappedFileReader(File textFile, Charset charset, int windowSize) throws IOException {
+        this(FileChannel.open(textFile.toPath(), StandardOpenOption.READ), charset, 0, windowSize);
+    }
+
+    /**
+     * 新建一个 {@link MappedFileReader} 实例，从 startPosition 读到文件结尾
+     * <p>关闭该输入流时会同时关闭 channel</p>
+     * @param channel 文本文件的通道
+     * @param charset 文本编码
+     * @param startPosition 开始读取的字节位置，必须位于字符的边界上
+     * @param windowSize 每个映射窗口的最大字节数
+     * @throws IOException 获取文件大小时出现的IO异常
+     */
+    public MappedFileReader(FileChannel channel, Charset charset, long startPosition, int windowSize) throws IOException {
+        this(channel, charset, startPosition, channel.size(), windowSize);
+    }
+
+    /**
+     * 新建一个 {@link MappedFileReader} 实例，从 startPosition 读到 endPosition
+     * <p>关闭该输入流时会同时关闭 channel</p>
+     * @param channel 文本文件的通道
+     * @param charset 文本编码
+     * @param startPosition 开始读取的字节位置，必须位于字符的边界上
+     * @param endPosition 读取的结束字节位置（不包含），必须位于字符的边界上
+     * @param windowSize 每个映射窗口的最大字节数
+     */
+    public MappedFileReader(FileChannel channel, Charset charset, long startPosition, long endPosition, int windowSize) {
+        super(charset, startPosition, endPosition, windowSize);
+        this.channel=channel;
+    }
+
+    @Override
+    protected ByteBuffer readWindow(long position, int size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
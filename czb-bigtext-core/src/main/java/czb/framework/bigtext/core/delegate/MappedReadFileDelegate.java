@@ -0,0 +1,65 @@
+package czb.framework.bigtext.core.delegate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 使用内存映射读取文本文件的 {@link ReadFileDelegate}
+ * <p>把文本文件按大窗口映射到内存，直接从映射的字节缓冲区解码成字符，详情请看 {@link MappedFileReader}。
+ * 分段策略与回调方式与 {@link ReadFileDelegate} 完全相同，所以所有的指令都可以直接在该读取引擎上运行。</p>
+ * <p>使用方式：<code>new CzbBigText(file, new MappedReadFileDelegate(file, 1000, "utf-8"))</code></p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class MappedReadFileDelegate extends ReadFileDelegate {
+
+    /**
+     * 默认每个映射窗口的最大字节数：64M
+     */
+    public final static int DEFAULT_WINDOW_SIZE=64*1024*1024;
+
+    /**
+     * 每个映射窗口的最大字节数
+     */
+    private int windowSize;
+
+    /**
+     * 新建一个 {@link MappedReadFileDelegate} 实例，映射窗口大小为 {@link #DEFAULT_WINDOW_SIZE}
+     * @param textFile 文本文件
+     * @param segmentSize 每段最多读取的字符数
+     * @param charset 文本编码
+     */
+    public MappedReadFileDelegate(File textFile, int segmentSize, String charset) {
+        this(textFile, segmentSize, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * 新建一个 {@link MappedReadFileDelegate} 实例
+     * @param textFile 文本文件
+     * @param segmentSize 每段最多读取的字符数
+     * @param charset 文本编码
+     * @param windowSize 每个映射窗口的最大字节数
+     */
+    public MappedReadFileDelegate(File textFile, int segmentSize, String charset, int windowSize) {
+        super(textFile, segmentSize, charset);
+        this.windowSize=windowSize;
+    }
+
+    @Override
+    public DecodingReader openReader(long position, long endPosition) throws IOException {
+        return new MappedFileReader(FileChannel.open(getTextFile().toPath(), StandardOpenOption.READ),
+                Charset.forName(getCharset()), position, endPosition, windowSize);
+    }
+
+    /**
+     * 获取 每个映射窗口的最大字节数
+     * @see #windowSize
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+}
@@ -0,0 +1,366 @@
+package czb.framework.bigtext.core.delegate;
+
+import czb.framework.bigtext.core.exception.BigTextException;
+import czb.framework.bigtext.core.search.StreamSearcher;
+import czb.framework.bigtext.core.session.BigTextSession;
+import czb.framework.bigtext.core.stats.TextStats;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 按字节范围并行读取文本文件的助手类型
+ * <p>把文本文件切分成多个字节范围，每个范围的边界都会向后对齐到字符的边界上，然后在 {@link ForkJoinPool}
+ * 上并行处理各个范围，最后按范围的先后顺序合并结果。</p>
+ * <p>只有能从任意字节位置找到字符边界的编码才能切分，目前支持 UTF-8 和单字节编码（ISO-8859-1、US-ASCII），
+ * 见 {@link #isSupported(String)}</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class ParallelReadDelegate {
+
+    /**
+     * 每个字节范围的最小字节数，默认：1M
+     */
+    public final static long DEFAULT_MIN_RANGE_SIZE=1024*1024;
+
+    /**
+     * 按段读取文本文件的助手，用于打开各个范围的字符输入流
+     */
+    private ReadFileDelegate readFileDelegate;
+    /**
+     * 执行并行任务的线程池
+     */
+    private ForkJoinPool pool;
+    /**
+     * 每个字节范围的最小字节数
+     */
+    private long minRangeSize=DEFAULT_MIN_RANGE_SIZE;
+
+    /**
+     * 新建一个 {@link ParallelReadDelegate} 实例
+     * @param readFileDelegate 按段读取文本文件的助手
+     * @param pool 执行并行任务的线程池
+     */
+    public ParallelReadDelegate(ReadFileDelegate readFileDelegate, ForkJoinPool pool) {
+        this.readFileDelegate = readFileDelegate;
+        this.pool = pool;
+    }
+
+    /**
+     * 编码是否支持按字节范围切分
+     * @param charset 文本编码
+     * @return 如果支持，返回 true;否则返回 false
+     */
+    public static boolean isSupported(String charset){
+        Charset cs;
+        try {
+            cs=Charset.forName(charset);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return cs.equals(StandardCharsets.UTF_8) || cs.equals(StandardCharsets.ISO_8859_1)
+                || cs.equals(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 把 [start, end) 字节范围切分成多个对齐到字符边界的字节范围
+     * <p>范围的数量为 线程池并行度 * 4 ，但每个范围不小于 {@link #minRangeSize}</p>
+     * @param start 开始字节位置，必须位于字符的边界上
+     * @param end 结束字节位置（不包含）
+     * @return 按先后顺序排列的字节范围，每个元素为 {开始字节位置, 结束字节位置}
+     */
+    public List<long[]> splitRanges(long start, long end){
+        List<long[]> ranges=new ArrayList<>();
+        long total=end-start;
+        if(total<=0){
+            return ranges;
+        }
+        long count=Math.max(1,Math.min(pool.getParallelism()*4L,total/minRangeSize));
+        long rangeSize=(total+count-1)/count;
+        try(BigTextSession session=readFileDelegate.openSession()){
+            long rangeStart=start;
+            while (rangeStart<end){
+                long rangeEnd=rangeStart+rangeSize>=end ? end : alignToCharBoundary(session,rangeStart+rangeSize,end);
+                ranges.add(new long[]{rangeStart,rangeEnd});
+                rangeStart=rangeEnd;
+            }
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+readFileDelegate.getTextFile().getAbsolutePath()+",throw IO exception: ",e);
+        }
+        return ranges;
+    }
+
+    /**
+     * 把 position 向后对齐到字符的边界上
+     * <p>UTF-8 的后续字节都是 10xxxxxx 的形式，跳过这些字节即可到达下一个字符的第一个字节；单字节编码的每个字节都是字符边界</p>
+     * @param session 文本文件的会话
+     * @param position 字节位置
+     * @param end 结束字节位置（不包含）
+     * @return 不小于 position 的字符边界字节位置
+     * @throws IOException 读取文件时出现的IO异常
+     */
+    private long alignToCharBoundary(BigTextSession session, long position, long end) throws IOException {
+        ByteBuffer buffer=ByteBuffer.allocate(4);
+        session.read(buffer,position);
+        buffer.flip();
+        while (buffer.hasRemaining() && position<end && (buffer.get() & 0xC0)==0x80){
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * 并行查找 toFindStr 在本文中第一个匹配项的索引
+     * <p>每个范围使用 {@link StreamSearcher} 查找，并在范围的结尾之后再多读 toFindStr.length()-1 个字符，
+     * 保证跨越范围边界的匹配项也能被找到；
+     * 当前面的范围已经找到匹配项时，后面的范围会尽早取消。</p>
+     * <p>范围只能从字符的边界开始，fromIndex 落在代理对中间时先对齐到代理对的边界：代理对的开始位置是高位字符，
+     * 只有 toFindStr 以高位字符开头时才可能在那里匹配，所以此时向后对齐到代理对之后，否则向前对齐到代理对的开始位置，
+     * 两种情况都不会漏掉或者多出匹配项</p>
+     * @param toFindStr 要查找的字符串，不能为空字符串
+     * @param fromIndex 开始搜索的索引
+     * @return toFindStr 在本文中第一个匹配项的索引；没有找到时返回 -1
+     */
+    public long indexOf(String toFindStr, long fromIndex){
+        long charsBefore=Math.max(fromIndex,0);
+        long start=0;
+        if(charsBefore>0){
+            start=readFileDelegate.getBytePositions(charsBefore)[0];
+            if(start==-1){
+                charsBefore= Character.isHighSurrogate(toFindStr.charAt(0)) ? charsBefore+1 : charsBefore-1;
+                start=readFileDelegate.getBytePosition(charsBefore);
+            }
+        }
+        long fileEnd=readFileDelegate.getTextFile().length();
+        List<long[]> ranges=splitRanges(start,fileEnd);
+        //已经找到匹配项的最小范围序号
+        AtomicInteger foundRange=new AtomicInteger(Integer.MAX_VALUE);
+        BooleanSupplier cancelled=ReadCancellation.current();
+        List<IndexOfTask> tasks=new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            IndexOfTask task=new IndexOfTask(readFileDelegate,i,ranges.get(i),fileEnd,toFindStr,foundRange,cancelled);
+            tasks.add(task);
+            pool.execute(task);
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            long[] result=tasks.get(i).join();
+            if(result[1]!=-1){
+                for (int j = i+1; j < tasks.size(); j++) {
+                    tasks.get(j).cancel(false);
+                }
+                return charsBefore+result[1];
+            }
+            charsBefore+=result[0];
+        }
+        return -1;
+    }
+
+    /**
+     * 并行直接统计字节，得到文本文件的字符数
+     * <p>每个范围由 {@link ByteLengthDelegate} 统计，最后把各范围的字符数相加</p>
+     * @return {该文本文件的字符数【包含回车换行】, 该文本文件的字符数【不包含回车换行】} ；
+     *      文本不是格式正确的 UTF-8 时都为 -1
+     * @see ByteLengthDelegate#count(long, long)
+     */
+    public long[] countLength(){
+        ByteLengthDelegate byteLengthDelegate=new ByteLengthDelegate(readFileDelegate.getTextFile(),readFileDelegate.getCharset());
+        byteLengthDelegate.setSessionRegistry(readFileDelegate.getSessionRegistry());
+        List<long[]> ranges=splitRanges(0,readFileDelegate.getTextFile().length());
+        BooleanSupplier cancelled=ReadCancellation.current();
+        List<ForkJoinTask<long[]>> tasks=new ArrayList<>(ranges.size());
+        for (long[] range : ranges) {
+            tasks.add(pool.submit(() -> ReadCancellation.call(cancelled,() -> byteLengthDelegate.count(range[0],range[1]))));
+        }
+        long[] total={0,0};
+        for (ForkJoinTask<long[]> task : tasks) {
+            long[] result=task.join();
+            if(result[0]==-1){
+                return result;
+            }
+            total[0]+=result[0];
+            total[1]+=result[1];
+        }
+        return total;
+    }
+
+    /**
+     * 并行统计文本文件的多项数据
+     * <p>每个范围各自解码统计，最后按范围的先后顺序合并</p>
+     * @return 文本统计结果
+     * @see TextStats#merge(TextStats)
+     */
+    public TextStats stats(){
+        List<long[]> ranges=splitRanges(0,readFileDelegate.getTextFile().length());
+        BooleanSupplier cancelled=ReadCancellation.current();
+        List<ForkJoinTask<TextStats>> tasks=new ArrayList<>(ranges.size());
+        for (long[] range : ranges) {
+            tasks.add(pool.submit(() -> ReadCancellation.call(cancelled,() -> stats(range))));
+        }
+        TextStats textStats=new TextStats();
+        for (ForkJoinTask<TextStats> task : tasks) {
+            textStats.merge(task.join());
+        }
+        return textStats;
+    }
+
+    /**
+     * 统计一个字节范围内的文本
+     * @param range 字节范围 {开始字节位置, 结束字节位置}
+     * @return 该范围的文本统计结果
+     */
+    private TextStats stats(long[] range){
+        TextStats textStats=new TextStats();
+        char[] buff=new char[readFileDelegate.getSegmentSize()];
+        try(DecodingReader reader=readFileDelegate.openReader(range[0],range[1])){
+            int read;
+            while ((read=reader.read(buff,0,buff.length))!=-1){
+                textStats.update(buff,0,read);
+                ReadCancellation.checkCancelled();
+            }
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+readFileDelegate.getTextFile().getAbsolutePath()+",throw IO exception: ",e);
+        }
+        return textStats;
+    }
+
+    /**
+     * 在一个字节范围内查找第一个匹配项的任务
+     * <p>任务结果为 {范围内的字符数, 第一个匹配项在范围内的字符索引} ，没有匹配项时字符索引为 -1</p>
+     */
+    private static class IndexOfTask extends RecursiveTask<long[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 按段读取文本文件的助手
+         */
+        private final transient ReadFileDelegate readFileDelegate;
+        /**
+         * 范围序号
+         */
+        private int rangeIndex;
+        /**
+         * 字节范围 {开始字节位置, 结束字节位置}
+         */
+        private long[] range;
+        /**
+         * 文件的字节数
+         */
+        private long fileEnd;
+        /**
+         * 要查找的字符串
+         */
+        private String toFindStr;
+        /**
+         * 已经找到匹配项的最小范围序号
+         */
+        private AtomicInteger foundRange;
+        /**
+         * 提交任务的线程上的取消标记
+         */
+        private transient BooleanSupplier cancelled;
+
+        IndexOfTask(ReadFileDelegate readFileDelegate, int rangeIndex, long[] range, long fileEnd, String toFindStr,
+                    AtomicInteger foundRange, BooleanSupplier cancelled) {
+            this.readFileDelegate = readFileDelegate;
+            this.rangeIndex = rangeIndex;
+            this.range = range;
+            this.fileEnd = fileEnd;
+            this.toFindStr = toFindStr;
+            this.foundRange = foundRange;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected long[] compute() {
+            return ReadCancellation.call(cancelled,this::search);
+        }
+
+        /**
+         * 在字节范围内查找第一个匹配项
+         * @return {范围内的字符数, 第一个匹配项在范围内的字符索引}
+         */
+        private long[] search() {
+            //匹配项在范围内的字符索引
+            long[] match={-1};
+            StreamSearcher searcher=new StreamSearcher(toFindStr, position -> {
+                match[0]=position;
+                return false;
+            });
+            char[] buff=new char[readFileDelegate.getSegmentSize()];
+            long rangeChars=0;
+            try(DecodingReader reader=readFileDelegate.openReader(range[0],range[1])){
+                int read;
+                while ((read=reader.read(buff,0,buff.length))!=-1){
+                    rangeChars+=read;
+                    searcher.feed(buff,0,read);
+                    if(match[0]!=-1){
+                        foundRange.accumulateAndGet(rangeIndex,Math::min);
+                        return new long[]{rangeChars,match[0]};
+                    }
+                    //前面的范围已经找到匹配项，该范围的结果不会再被使用
+                    if(foundRange.get()<rangeIndex){
+                        return new long[]{rangeChars,-1};
+                    }
+                    ReadCancellation.checkCancelled();
+                }
+            } catch (IOException e) {
+                throw new BigTextException(" read text file: "+readFileDelegate.getTextFile().getAbsolutePath()+",throw IO exception: ",e);
+            }
+            //读取范围结尾之后的 toFindStr.length()-1 个字符，查找跨越范围边界的匹配项
+            int overlap=toFindStr.length()-1;
+            if(overlap>0 && range[1]<fileEnd){
+                try(DecodingReader reader=readFileDelegate.openReader(range[1],fileEnd)){
+                    int read;
+                    while (overlap>0 && (read=reader.read(buff,0,Math.min(overlap,buff.length)))!=-1){
+                        overlap-=read;
+                        searcher.feed(buff,0,read);
+                    }
+                } catch (IOException e) {
+                    throw new BigTextException(" read text file: "+readFileDelegate.getTextFile().getAbsolutePath()+",throw IO exception: ",e);
+                }
+                //匹配项必须从该范围内开始
+                if(match[0]!=-1 && match[0]<rangeChars){
+                    foundRange.accumulateAndGet(rangeIndex,Math::min);
+                    return new long[]{rangeChars,match[0]};
+                }
+            }
+            return new long[]{rangeChars,-1};
+        }
+    }
+
+    /**
+     * 获取 每个字节范围的最小字节数
+     * @see #minRangeSize
+     */
+    public long getMinRangeSize() {
+        return minRangeSize;
+    }
+
+    /**
+     * 设置 每个字节范围的最小字节数
+     * @see #minRangeSize
+     */
+    public void setMinRangeSize(long minRangeSize) {
+        this.minRangeSize = minRangeSize;
+    }
+
+    /**
+     * 获取 执行并行任务的线程池
+     * @see #pool
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+}
@@ -0,0 +1,80 @@
+package czb.framework.bigtext.core.delegate;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 读取文本文件时的取消标记
+ * <p>通过 {@link #call(BooleanSupplier, Supplier)} 把取消标记绑定到当前线程，在该线程中执行的读取循环
+ * （{@link ReadFileDelegate} 、{@link LineReadDelegate} 、{@link ByteLengthDelegate} 等）每读完一段都会检查取消标记，
+ * 已取消时在段的边界上停止读取，并抛出 {@link CancellationException} ，不会返回不完整的结果。</p>
+ * <p>{@link ParallelReadDelegate} 会把提交任务的线程上的取消标记传递给各个范围的任务</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public final class ReadCancellation {
+
+    /**
+     * 没有绑定取消标记时使用的标记，永远不会取消
+     */
+    private final static BooleanSupplier NEVER=() -> false;
+    /**
+     * 当前线程绑定的取消标记
+     */
+    private final static ThreadLocal<BooleanSupplier> CURRENT=new ThreadLocal<>();
+
+    private ReadCancellation() {
+    }
+
+    /**
+     * 把取消标记绑定到当前线程后执行 action ，执行结束后恢复原来的取消标记
+     * @param cancelled 取消标记，返回 true 表示已取消
+     * @param action 要执行的操作
+     * @param <T> 操作的结果类型
+     * @return 操作的结果
+     * @throws CancellationException 如果读取循环发现已取消
+     */
+    public static <T> T call(BooleanSupplier cancelled, Supplier<T> action){
+        BooleanSupplier previous=CURRENT.get();
+        CURRENT.set(cancelled);
+        try {
+            return action.get();
+        }finally {
+            if(previous==null){
+                CURRENT.remove();
+            }else{
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 获取当前线程绑定的取消标记，用于传递给其他线程
+     * @return 当前线程绑定的取消标记；没有绑定时返回永远不会取消的标记
+     */
+    public static BooleanSupplier current(){
+        BooleanSupplier cancelled=CURRENT.get();
+        return cancelled==null ? NEVER : cancelled;
+    }
+
+    /**
+     * 当前线程的读取是否已取消
+     * @return 如果已取消，返回 true;否则返回 false
+     */
+    public static boolean isCancelled(){
+        BooleanSupplier cancelled=CURRENT.get();
+        return cancelled!=null && cancelled.getAsBoolean();
+    }
+
+    /**
+     * 当前线程的读取已取消时抛出 {@link CancellationException}
+     * @throws CancellationException 如果已取消
+     */
+    public static void checkCancelled(){
+        if(isCancelled()){
+            throw new CancellationException("read text file was cancelled");
+        }
+    }
+}
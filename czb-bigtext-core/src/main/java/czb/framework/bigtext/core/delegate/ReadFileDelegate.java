@@ -1,19 +1,29 @@
 package czb.framework.bigtext.core.delegate;
 
 import czb.framework.bigtext.core.delegate.callback.ReadFileCallback;
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
 import czb.framework.bigtext.core.exception.BigTextException;
+import czb.framework.bigtext.core.index.CheckpointIndex;
+import czb.framework.bigtext.core.session.BigTextSession;
+import czb.framework.bigtext.core.session.SessionRegistry;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.NoSuchFileException;
+import java.util.concurrent.CancellationException;
 
-/**
- *
- */
 /**
  * 按段读取文本文件的助手类型
  * <p><b>读取策略：</b>在读取文本的时候，会推断读取的文本的尾部有没有 toFindStr 的开头部分，
  * 有就需要将 toFindStr 剩余的字符读取到该段文字里。详情请看：{@link #readFile(long, String, ReadFileCallback)}</p>
  * <p>为了尽可能保证读取不会因为读取策略导致OOM的问题，会调用 {@link #calSuitableSegmentSize(int)} 得到合适
  * 的段文本大小。</p>
+ * <p>按字符索引偏移读取时，会借助 {@link CheckpointIndex} 从最近的检查点开始解码，检查点索引在第一次从文件开头
+ * 完整读取文本时建立；有解码状态的编码（见 {@link CheckpointIndex#isSupported(String)}）不使用检查点索引，总是从文件开头解码。</p>
+ * <p>每读完一段都会检查 {@link ReadCancellation} 的取消标记，已取消时在段的边界上停止读取，
+ * 回调 onCompleteRead 后抛出 {@link CancellationException}</p>
+ * <p>文件通过 {@link SessionRegistry} 中共享的 {@link BigTextSession} 读取，同一个文件的所有读取共用一个打开的通道</p>
  *
  * @author chenzhuobin
  * @since 2020/11/13 0013
@@ -33,6 +43,15 @@ public class ReadFileDelegate {
      * 文本文件
      */
     private File textFile;
+    /**
+     * 字符索引到字节位置的检查点索引，用于快速定位到指定的字符索引；为 null 表示不使用检查点索引，
+     * 编码不是 {@link CheckpointIndex#isSupported(String)} 支持的编码时默认为 null
+     */
+    private CheckpointIndex checkpointIndex;
+    /**
+     * 共享文件会话的注册表；为 null 表示每次读取都单独打开文件
+     */
+    private SessionRegistry sessionRegistry=SessionRegistry.getDefault();
 
     /**
      * 新建一个 {@link ReadFileDelegate} 实例
@@ -45,6 +64,9 @@ public class ReadFileDelegate {
         this.textFile = textFile;
         this.segmentSize =segmentSize;
         this.charset =charset;
+        if(CheckpointIndex.isSupported(charset)){
+            this.checkpointIndex=new CheckpointIndex(textFile,charset,CheckpointIndex.DEFAULT_INTERVAL);
+        }
     }
 
 
@@ -61,6 +83,19 @@ public class ReadFileDelegate {
         readFile(0,toFindStr,callback);
     }
 
+    /**
+     * 按段读取文本文件内容
+     * <p><b>读取策略：</b>在读取文本的时候，会推断读取的文本的尾部有没有 toFindStr 的开头部分，
+     * 有就需要将 toFindStr 剩余的字符读取到该段文字里。</p>
+     * <p>为了尽可能保证读取不会因为读取策略导致OOM的问题，会调用 {@link #calSuitableSegmentSize(int)} 得到合适
+     * 的段文本大小。</p>
+     * @param toFindStr 要查询字符串
+     * @param callback 按段读取文本文件时 的零拷贝回调专用接口
+     */
+    public void readFile(String toFindStr, ReadSegmentCallback callback){
+        readFile(0,toFindStr,callback);
+    }
+
     /**
      * 按段读取文本文件内容
      * <p><b>读取策略：</b>在读取文本的时候，会推断读取的文本的尾部有没有 toFindStr 的开头部分，
@@ -72,40 +107,68 @@ public class ReadFileDelegate {
      * @param callback 按段读取文本文件时 的回调专用接口
      */
     public void readFile(long offset, String toFindStr, ReadFileCallback callback){
-        try(InputStreamReader reader=new InputStreamReader(new FileInputStream(textFile), charset)){
-            //跳过 offset 个字符数
-            reader.skip(offset);
+        readFile(offset,toFindStr,(ReadSegmentCallback) callback);
+    }
+
+    /**
+     * 按段读取文本文件内容
+     * <p><b>读取策略：</b>在读取文本的时候，会推断读取的文本的尾部有没有 toFindStr 的开头部分，
+     * 有就需要将 toFindStr 剩余的字符读取到该段文字里。</p>
+     * <p>为了尽可能保证读取不会因为读取策略导致OOM的问题，会调用 {@link #calSuitableSegmentSize(int)} 得到合适
+     * 的段文本大小。</p>
+     * <p>整个读取过程只使用一个字符数组，该数组预留了补读 toFindStr 剩余字符的空间</p>
+     * @param offset 偏移字符数
+     * @param toFindStr 要查询字符串
+     * @param callback 按段读取文本文件时 的零拷贝回调专用接口
+     */
+    public void readFile(long offset, String toFindStr, ReadSegmentCallback callback){
+        try(DecodingReader reader=openReaderAt(offset)){
+            //只有从文件开头完整读取时，才顺便建立检查点索引
+            CheckpointIndex.Builder indexBuilder=newIndexBuilder(offset);
+            char[] target=toFindStr.toCharArray();
             // 计算合适的段大小
-            int pad= calSuitableSegmentSize(toFindStr.length());
-            char[] cbuff=new char[pad];
-            int read= reader.read(cbuff,0,pad) ;
-            long currnetReadSize=read;
-            char[] newCbuff=cbuff;
-            while (read!=-1){
+            int pad= calSuitableSegmentSize(target.length);
+            char[] cbuff=new char[pad+target.length];
+            long currnetReadSize=0;
+            int length=0;
+            int read;
+            boolean broken=false;
+            boolean cancelled=false;
+            while ((read=reader.read(cbuff,0,pad))!=-1){
+                length=read;
+                currnetReadSize+=read;
                 //获取 source 的尾部匹配到 target 的开头部分时，target 剩余未匹配的字符数
-                int shouldReadCount = getMatchRemainCount(cbuff, toFindStr.toCharArray());
+                int shouldReadCount = target.length==0 ? -1 : getMatchRemainCount(cbuff, length, target);
                 if(shouldReadCount>0){
-                    newCbuff=new char[read+shouldReadCount];
-                    System.arraycopy(cbuff,0,newCbuff,0,cbuff.length);
-                    currnetReadSize+=reader.read(newCbuff,pad,shouldReadCount);
-                }else{
-                    newCbuff=new char[read];
-                    System.arraycopy(cbuff,0,newCbuff,0,read);
+                    int appendRead=reader.read(cbuff,length,shouldReadCount);
+                    if(appendRead>0){
+                        length+=appendRead;
+                        currnetReadSize+=appendRead;
+                    }
                 }
+                recordCheckpoint(indexBuilder,reader,currnetReadSize);
                 //当前读取完一段文本后回调
-                if(callback.onSegmentRead(currnetReadSize,newCbuff)){
+                if(callback.onSegmentRead(currnetReadSize,cbuff,0,length)){
+                    broken=true;
                     break;
                 }
-                read = reader.read(cbuff,0,pad);
-                if(read!=-1){
-                    currnetReadSize+=read;
+                //已取消时在段的边界上停止读取
+                if(ReadCancellation.isCancelled()){
+                    cancelled=true;
+                    break;
                 }
             }
-            //当读完文本文件内容后回调
-            callback.onCompleteRead(currnetReadSize,newCbuff);
-        } catch (UnsupportedEncodingException e) {
+            if(!broken && !cancelled && indexBuilder!=null){
+                indexBuilder.complete();
+            }
+            //当读完文本文件内容后回调，已取消时也需要回调，以便命令释放输出流
+            callback.onCompleteRead(currnetReadSize,cbuff,0,length);
+            if(cancelled){
+                throw new CancellationException(" read text file: "+textFile.getAbsolutePath()+" was cancelled");
+            }
+        } catch (UnsupportedCharsetException e) {
             throw new BigTextException(" no support charset: "+charset,e);
-        } catch (FileNotFoundException e) {
+        } catch (NoSuchFileException e) {
             throw new BigTextException(" no found text file: "+textFile.getAbsolutePath(),e);
         } catch (IOException e) {
             throw new BigTextException(" read text file: "+textFile.getAbsolutePath()+",throw IO exception: ",e);
@@ -120,41 +183,246 @@ public class ReadFileDelegate {
         readFile(0,callback);
     }
 
+    /**
+     * 按段读取文本文件内容
+     * @param callback 按段读取文本文件时 的零拷贝回调专用接口
+     */
+    public void readFile(ReadSegmentCallback callback){
+        readFile(0,callback);
+    }
+
     /**
      * 按段读取文本文件内容
      * @param offset 偏移字符数
      * @param listener 按段读取文本文件时 的回调专用接口
      */
     public void readFile(long offset, ReadFileCallback listener){
-        try(InputStreamReader reader=new InputStreamReader(new FileInputStream(textFile), charset)){
-            reader.skip(offset);
-            int buffSize= segmentSize;
-            char[] cbuff=new char[buffSize];
-            int read= reader.read(cbuff,0,buffSize) ;
-            long currnetReadSize=read;
-            char[] newCbuff=cbuff;
-            while (read!=-1){
-                newCbuff=new char[read];
-                System.arraycopy(cbuff,0,newCbuff,0,read);
+        readFile(offset,(ReadSegmentCallback) listener);
+    }
+
+    /**
+     * 按段读取文本文件内容
+     * <p>整个读取过程只使用一个大小为 {@link #segmentSize} 的字符数组</p>
+     * @param offset 偏移字符数
+     * @param listener 按段读取文本文件时 的零拷贝回调专用接口
+     */
+    public void readFile(long offset, ReadSegmentCallback listener){
+        try(DecodingReader reader=openReaderAt(offset)){
+            //只有从文件开头完整读取时，才顺便建立检查点索引
+            CheckpointIndex.Builder indexBuilder=newIndexBuilder(offset);
+            char[] cbuff=new char[segmentSize];
+            long currnetReadSize=0;
+            int length=0;
+            int read;
+            boolean broken=false;
+            boolean cancelled=false;
+            while ((read=reader.read(cbuff,0,cbuff.length))!=-1){
+                length=read;
+                currnetReadSize+=read;
+                recordCheckpoint(indexBuilder,reader,currnetReadSize);
                 //当前读取完一段文本后回调
-                if(listener.onSegmentRead(currnetReadSize,newCbuff)){
+                if(listener.onSegmentRead(currnetReadSize,cbuff,0,length)){
+                    broken=true;
                     break;
                 }
-                read= reader.read(cbuff,0,buffSize);
-                if(read!=-1){
-                    currnetReadSize+=read;
+                //已取消时在段的边界上停止读取
+                if(ReadCancellation.isCancelled()){
+                    cancelled=true;
+                    break;
+                }
+            }
+            if(!broken && !cancelled && indexBuilder!=null){
+                indexBuilder.complete();
+            }
+            //当读完文本文件内容后回调，已取消时也需要回调，以便命令释放输出流
+            listener.onCompleteRead(currnetReadSize,cbuff,0,length);
+            if(cancelled){
+                throw new CancellationException(" read text file: "+textFile.getAbsolutePath()+" was cancelled");
+            }
+        } catch (UnsupportedCharsetException e) {
+            throw new BigTextException(" no support charset: "+charset,e);
+        } catch (NoSuchFileException e) {
+            throw new BigTextException(" no found text file: "+textFile.getAbsolutePath(),e);
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+textFile.getAbsolutePath()+",throw IO exception: ",e);
+        }
+
+    }
+
+    /**
+     * 打开从 position 字节位置开始读取文本内容的字符输入流，一直读到文件结尾
+     * @param position 开始读取的字节位置，必须位于字符的边界上
+     * @return 字符输入流，由调用方负责关闭
+     * @throws IOException 打开文件时出现的IO异常
+     * @see #openReader(long, long)
+     */
+    protected DecodingReader openReader(long position) throws IOException {
+        return openReader(position, textFile.length());
+    }
+
+    /**
+     * 打开从 position 字节位置开始读取到 endPosition 字节位置的字符输入流
+     * <p>默认实现使用 {@link ChannelFileReader} 按位置读取文件通道，子类可以覆盖该方法更换读取引擎，
+     * 例如 {@link MappedReadFileDelegate} 使用内存映射读取；所有的按段读取都通过该方法获取字符输入流，
+     * 所以更换读取引擎不会影响 {@link ReadFileCallback} 的回调方式</p>
+     * @param position 开始读取的字节位置，必须位于字符的边界上
+     * @param endPosition 读取的结束字节位置（不包含），必须位于字符的边界上
+     * @return 字符输入流，由调用方负责关闭
+     * @throws IOException 打开文件时出现的IO异常
+     */
+    public DecodingReader openReader(long position, long endPosition) throws IOException {
+        Charset cs=Charset.forName(charset);
+        return new ChannelFileReader(openSession(), cs, position, endPosition, ChannelFileReader.DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * 获取 {@link #textFile} 的文件会话，用于按位置读取文件的字节
+     * <p>设置了 {@link #sessionRegistry} 时返回其中共享的会话，否则单独打开一个会话</p>
+     * @return 会话，由调用方负责关闭
+     * @throws IOException 打开文件时出现的IO异常，文件不存在时为 {@link NoSuchFileException}
+     */
+    public BigTextSession openSession() throws IOException {
+        return sessionRegistry!=null ? sessionRegistry.acquire(textFile) : BigTextSession.open(textFile);
+    }
+
+    /**
+     * 读取的文本是否只是视图，而不是 {@link #textFile} 的全部内容
+     * <p>视图的字符与 {@link #textFile} 的字节不对应，按字节处理文件的操作都不能使用，见 {@link ViewReadFileDelegate}</p>
+     * @return 默认实现返回 false
+     */
+    public boolean isView(){
+        return false;
+    }
+
+    /**
+     * 获取字符索引 charOffset 所对应的字节位置
+     * <p>如果 {@link #checkpointIndex} 可用，只需要从最近的检查点开始解码</p>
+     * @param charOffset 字符索引，超过文本长度时返回文件的字节数
+     * @return 字符索引所对应的字节位置
+     */
+    public long getBytePosition(long charOffset){
+        try(DecodingReader reader=openReaderAt(charOffset)){
+            return reader.getPosition();
+        } catch (UnsupportedCharsetException e) {
+            throw new BigTextException(" no support charset: "+charset,e);
+        } catch (NoSuchFileException e) {
+            throw new BigTextException(" no found text file: "+textFile.getAbsolutePath(),e);
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+textFile.getAbsolutePath()+",throw IO exception: ",e);
+        }
+    }
+
+    /**
+     * 依次获取多个字符索引所对应的字节位置
+     * <p>与多次调用 {@link #getBytePosition(long)} 不同，后一个字符索引从前一个字符索引继续解码；
+     * 只有 {@link #checkpointIndex} 中有更近的检查点时才从检查点重新开始解码，所以解码的字符数不会超过最后一个字符索引</p>
+     * @param charOffsets 从小到大排列的字符索引，超过文本长度时对应文件的字节数
+     * @return 每个字符索引所对应的字节位置；字符索引落在代理对中间、没有对应的字节位置时为 -1
+     * @throws IllegalArgumentException 如果字符索引小于 0 或者没有从小到大排列
+     */
+    public long[] getBytePositions(long... charOffsets){
+        long[] positions=new long[charOffsets.length];
+        DecodingReader reader=null;
+        long readerOffset=0;
+        try {
+            for (int i = 0; i < charOffsets.length; i++) {
+                long offset=charOffsets[i];
+                if(offset<0 || (i>0 && offset<charOffsets[i-1])){
+                    throw new IllegalArgumentException("char offsets must be non-negative and in ascending order: "+offset);
+                }
+                boolean nearerCheckpoint= checkpointIndex!=null && checkpointIndex.isAvailable()
+                        && checkpointIndex.getCharPosition(checkpointIndex.floor(offset))>readerOffset;
+                if(reader==null || nearerCheckpoint){
+                    if(reader!=null){
+                        reader.close();
+                    }
+                    reader=openReaderAt(offset);
+                }else{
+                    skip(reader,offset-readerOffset);
                 }
+                readerOffset=offset;
+                positions[i]= reader.hasPendingChar() ? -1 : reader.getPosition();
             }
-            //当读完文本文件内容后回调
-            listener.onCompleteRead(currnetReadSize,newCbuff);
-        } catch (UnsupportedEncodingException e) {
+        } catch (UnsupportedCharsetException e) {
             throw new BigTextException(" no support charset: "+charset,e);
-        } catch (FileNotFoundException e) {
+        } catch (NoSuchFileException e) {
             throw new BigTextException(" no found text file: "+textFile.getAbsolutePath(),e);
         } catch (IOException e) {
             throw new BigTextException(" read text file: "+textFile.getAbsolutePath()+",throw IO exception: ",e);
+        } finally {
+            if(reader!=null){
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    throw new BigTextException(" read text file: "+textFile.getAbsolutePath()+",throw IO exception: ",e);
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * 打开从 offset 字符索引开始读取文本内容的字符输入流
+     * <p>如果 {@link #checkpointIndex} 可用，从不大于 offset 的最近检查点开始解码，只跳过剩余的字符；
+     * 否则从文件开头解码并跳过 offset 个字符；有解码状态的编码只能这样打开文件中间的字符输入流，
+     * 不能直接从 {@link #getBytePosition(long)} 得到的字节位置开始解码</p>
+     * @param offset 偏移字符数
+     * @return 字符输入流，由调用方负责关闭
+     * @throws IOException 打开文件时出现的IO异常
+     */
+    public DecodingReader openReaderAt(long offset) throws IOException {
+        long charPosition=0;
+        long bytePosition=0;
+        if(offset>0 && checkpointIndex!=null && checkpointIndex.isAvailable()){
+            int i=checkpointIndex.floor(offset);
+            charPosition=checkpointIndex.getCharPosition(i);
+            bytePosition=checkpointIndex.getBytePosition(i);
+        }
+        DecodingReader reader=openReader(bytePosition);
+        skip(reader,offset-charPosition);
+        return reader;
+    }
+
+    /**
+     * 在字符输入流中跳过 count 个字符，到达读取的结束位置时停止
+     * @param reader 字符输入流
+     * @param count 要跳过的字符数
+     * @throws IOException 读取文件时出现的IO异常
+     */
+    private void skip(DecodingReader reader, long count) throws IOException {
+        long remain=count;
+        while (remain>0){
+            long skipped=reader.skip(remain);
+            if(skipped<=0){
+                break;
+            }
+            remain-=skipped;
+        }
+    }
+
+    /**
+     * 新建检查点索引构建器
+     * @param offset 偏移字符数
+     * @return 如果是从文件开头读取且 {@link #checkpointIndex} 还不可用，返回索引构建器；否则返回 null
+     */
+    private CheckpointIndex.Builder newIndexBuilder(long offset){
+        if(offset!=0 || checkpointIndex==null || checkpointIndex.isAvailable()){
+            return null;
         }
+        return checkpointIndex.newBuilder();
+    }
 
+    /**
+     * 记录当前读取到的字符索引和字节位置
+     * @param indexBuilder 检查点索引构建器，为 null 时不记录
+     * @param reader 字符输入流
+     * @param currentReadSize 当前已读字符数
+     */
+    private void recordCheckpoint(CheckpointIndex.Builder indexBuilder, DecodingReader reader, long currentReadSize){
+        //存在暂存的代理对低位字符时，字节位置不在字符边界上，不能作为检查点
+        if(indexBuilder!=null && !reader.hasPendingChar()){
+            indexBuilder.record(currentReadSize,reader.getPosition());
+        }
     }
 
     /**
@@ -190,8 +458,18 @@ public class ReadFileDelegate {
      * @return 返回 target 减去 与source尾部匹配的字符数 所得到的剩余字符数 ；返回 -1 表示 source 与 target 完全没有匹配
      */
     public int getMatchRemainCount(char[] source, char[] target){
+        return getMatchRemainCount(source,source.length,target);
+    }
+
+    /**
+     * 获取 source 前 sourceLength 个字符的尾部匹配到 target 的开头部分时，target 剩余未匹配的字符数
+     * @param source 源字符串字符数组
+     * @param sourceLength 源字符串字符数组的有效字符数
+     * @param target 目标字符串字符数组
+     * @return 返回 target 减去 与source尾部匹配的字符数 所得到的剩余字符数 ；返回 -1 表示 source 与 target 完全没有匹配
+     */
+    public int getMatchRemainCount(char[] source, int sourceLength, char[] target){
         char first = target[0];
-        int sourceLength=source.length;
         int targetLength=target.length;
         for (int i = 0 ; i < sourceLength; i++) {
             //匹配成功的字符数
@@ -234,4 +512,48 @@ public class ReadFileDelegate {
     public String getCharset() {
         return charset;
     }
+
+    /**
+     * 获取 文本文件
+     * @see #textFile
+     */
+    public File getTextFile() {
+        return textFile;
+    }
+
+    /**
+     * 获取 字符索引到字节位置的检查点索引
+     * @see #checkpointIndex
+     */
+    public CheckpointIndex getCheckpointIndex() {
+        return checkpointIndex;
+    }
+
+    /**
+     * 设置 字符索引到字节位置的检查点索引，为 null 表示不使用检查点索引
+     * @throws IllegalArgumentException 如果检查点索引的编码与 {@link #charset} 不一致
+     * @see #checkpointIndex
+     */
+    public void setCheckpointIndex(CheckpointIndex checkpointIndex) {
+        if(checkpointIndex!=null && !checkpointIndex.getCharset().equals(Charset.forName(charset).name())){
+            throw new IllegalArgumentException("checkpoint index charset "+checkpointIndex.getCharset()+" does not match "+charset);
+        }
+        this.checkpointIndex = checkpointIndex;
+    }
+
+    /**
+     * 获取 共享文件会话的注册表
+     * @see #sessionRegistry
+     */
+    public SessionRegistry getSessionRegistry() {
+        return sessionRegistry;
+    }
+
+    /**
+     * 设置 共享文件会话的注册表，为 null 表示每次读取都单独打开文件
+     * @see #sessionRegistry
+     */
+    public void setSessionRegistry(SessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
+    }
 }
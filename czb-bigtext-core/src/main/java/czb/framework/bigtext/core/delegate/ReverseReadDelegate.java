@@ -0,0 +1,232 @@
+package czb.framework.bigtext.core.delegate;
+
+import czb.framework.bigtext.core.delegate.callback.ReverseReadCallback;
+import czb.framework.bigtext.core.exception.BigTextException;
+import czb.framework.bigtext.core.session.BigTextSession;
+import czb.framework.bigtext.core.session.SessionRegistry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * 从文件结尾向前按块读取文本文件的助手类型
+ * <p>每次从文件中读取 {@link #blockSize} 个字节，解码后通过 {@link ReverseReadCallback} 回调，再读取前一块；
+ * 只关心文本结尾的操作（{@code lastIndexOf} 、{@code endsWith} 、{@code tail} 、修剪结尾）只需要读取文件的结尾部分，
+ * 不需要从文件开头解码。</p>
+ * <p>块的开始位置可能落在一个 UTF-8 字符的中间，这时跳过块开头的后续字节（10xxxxxx），
+ * 这些字节留给前一块，所以每块都从字符的边界开始解码，代理对也不会被拆开。
+ * 只支持 UTF-8 和单字节编码，见 {@link #isSupported(String)}</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class ReverseReadDelegate {
+
+    /**
+     * 默认每块读取的字节数：64K
+     */
+    public final static int DEFAULT_BLOCK_SIZE=64*1024;
+
+    /**
+     * 文本文件
+     */
+    private File textFile;
+    /**
+     * 文本编码
+     */
+    private Charset charset;
+    /**
+     * 每块读取的字节数
+     */
+    private int blockSize;
+    /**
+     * 共享文件会话的注册表；为 null 表示每次读取都单独打开文件
+     */
+    private SessionRegistry sessionRegistry=SessionRegistry.getDefault();
+
+    /**
+     * 新建一个 {@link ReverseReadDelegate} 实例，每块读取 {@link #DEFAULT_BLOCK_SIZE} 个字节
+     * @param textFile 文本文件
+     * @param charset 文本编码，必须是 {@link #isSupported(String)} 支持的编码
+     */
+    public ReverseReadDelegate(File textFile, String charset) {
+        this(textFile,charset,DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * 新建一个 {@link ReverseReadDelegate} 实例
+     * @param textFile 文本文件
+     * @param charset 文本编码，必须是 {@link #isSupported(String)} 支持的编码
+     * @param blockSize 每块读取的字节数，不能小于 4 ，保证每块至少包含一个完整的 UTF-8 字符
+     */
+    public ReverseReadDelegate(File textFile, String charset, int blockSize) {
+        if(!isSupported(charset)){
+            throw new IllegalArgumentException("unsupported charset for reverse reading: "+charset);
+        }
+        if(blockSize<4){
+            throw new IllegalArgumentException("blockSize must not be less than 4: "+blockSize);
+        }
+        this.textFile = textFile;
+        this.charset = Charset.forName(charset);
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * 编码是否支持从文件结尾向前读取
+     * @param charset 文本编码
+     * @return 如果支持，返回 true;否则返回 false
+     */
+    public static boolean isSupported(String charset){
+        return ParallelReadDelegate.isSupported(charset);
+    }
+
+    /**
+     * 从文件结尾向前按块读取文本，每块解码后交给 callback ，直到 callback 返回 true 或者读到文件开头
+     * @param callback 回调
+     */
+    public void readBackward(ReverseReadCallback callback){
+        CharsetDecoder decoder=charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        boolean utf8=charset.equals(StandardCharsets.UTF_8);
+        ByteBuffer bytes=ByteBuffer.allocate(blockSize);
+        //UTF-8 和单字节编码中每个字节最多解码出一个字符
+        CharBuffer chars=CharBuffer.allocate(blockSize);
+        try(BigTextSession session=openSession()){
+            long end=session.size();
+            long charsAfter=0;
+            while (end>0){
+                ReadCancellation.checkCancelled();
+                long start=Math.max(0,end-blockSize);
+                int size=(int) (end-start);
+                readFully(session,bytes,start,size);
+                //跳过块开头不完整的 UTF-8 字符，一个字符最多有 3 个后续字节
+                int skip=0;
+                if(utf8 && start>0){
+                    while (skip<3 && (bytes.get(skip)&0xC0)==0x80){
+                        skip++;
+                    }
+                }
+                bytes.position(skip);
+                chars.clear();
+                decoder.reset();
+                decoder.decode(bytes,chars,true);
+                decoder.flush(chars);
+                chars.flip();
+                if(callback.onBlockRead(charsAfter,chars.array(),0,chars.limit())){
+                    return;
+                }
+                charsAfter+=chars.limit();
+                end=start+skip;
+            }
+        } catch (NoSuchFileException e) {
+            throw new BigTextException(" no found text file: "+textFile.getAbsolutePath(),e);
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+textFile.getAbsolutePath()+",throw IO exception: ",e);
+        }
+    }
+
+    /**
+     * 找到最后 nLines 行的开头
+     * <p>行的划分与 {@link java.io.BufferedReader#readLine()} 一致：\n 、\r 和 \r\n 都是行的结尾，文件结尾的换行不会产生空行。
+     * 回车、换行在 UTF-8 和单字节编码中都只会以单个字节出现，所以直接按字节向前查找，不需要解码</p>
+     * @param nLines 行数，不能小于 0
+     * @return 最后 nLines 行的开头的字节位置；文本不足 nLines 行时返回 0 ，nLines 为 0 时返回文件的字节数
+     */
+    public long lastLinesStart(long nLines){
+        if(nLines<0){
+            throw new IllegalArgumentException("nLines must not be negative: "+nLines);
+        }
+        ByteBuffer bytes=ByteBuffer.allocate(blockSize);
+        try(BigTextSession session=openSession()){
+            long total=session.size();
+            if(nLines==0){
+                return total;
+            }
+            long count=0;
+            boolean afterLF=false;
+            long end=total;
+            while (end>0){
+                ReadCancellation.checkCancelled();
+                long start=Math.max(0,end-blockSize);
+                int size=(int) (end-start);
+                readFully(session,bytes,start,size);
+                for (int i = size-1; i >= 0; i--) {
+                    byte b=bytes.get(i);
+                    //\r\n 的 \r 已经随 \n 一起计算过
+                    boolean lineEnd= b=='\n' || (b=='\r' && !afterLF);
+                    afterLF= b=='\n';
+                    //文件结尾的换行属于最后一行，不计算
+                    if(lineEnd && start+i+1<total && ++count==nLines){
+                        return start+i+1;
+                    }
+                }
+                end=start;
+            }
+            return 0;
+        } catch (NoSuchFileException e) {
+            throw new BigTextException(" no found text file: "+textFile.getAbsolutePath(),e);
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+textFile.getAbsolutePath()+",throw IO exception: ",e);
+        }
+    }
+
+    /**
+     * 从 position 开始读取 size 个字节到 bytes 中
+     * @param session 文本文件的会话
+     * @param bytes 字节缓冲区，读取后 position 为 0 ，limit 为 size
+     * @param position 开始字节位置
+     * @param size 字节数
+     * @throws IOException 读取文件时出现的IO异常
+     */
+    private void readFully(BigTextSession session, ByteBuffer bytes, long position, int size) throws IOException {
+        bytes.clear();
+        bytes.limit(size);
+        while (bytes.hasRemaining()){
+            if(session.read(bytes,position+bytes.position())<=0){
+                throw new IOException("unexpected end of file at byte "+(position+bytes.position()));
+            }
+        }
+        bytes.flip();
+    }
+
+    /**
+     * 获取文本文件的会话
+     * @return 会话，由调用方负责关闭
+     * @throws IOException 打开文件时出现的IO异常，文件不存在时为 {@link NoSuchFileException}
+     */
+    private BigTextSession openSession() throws IOException {
+        return sessionRegistry!=null ? sessionRegistry.acquire(textFile) : BigTextSession.open(textFile);
+    }
+
+    /**
+     * 获取 每块读取的字节数
+     * @see #blockSize
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * 获取 共享文件会话的注册表
+     * @see #sessionRegistry
+     */
+    public SessionRegistry getSessionRegistry() {
+        return sessionRegistry;
+    }
+
+    /**
+     * 设置 共享文件会话的注册表，为 null 表示每次读取都单独打开文件
+     * @see #sessionRegistry
+     */
+    public void setSessionRegistry(SessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
+    }
+}
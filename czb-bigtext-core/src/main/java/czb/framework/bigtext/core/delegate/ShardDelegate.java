@@ -0,0 +1,216 @@
+package czb.framework.bigtext.core.delegate;
+
+import czb.framework.bigtext.core.TempFileGenerator;
+import czb.framework.bigtext.core.exception.BigTextException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按行边界把文本文件切分成多个分片文件的助手类型
+ * <p>切分点只在字节层面确定：先定位到目标字节位置，再向后找到下一个换行，切分点就在该换行之后，
+ * 然后用 {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} 把每个字节范围直接复制到分片文件，
+ * 整个过程不需要解码任何字符。</p>
+ * <p>回车、换行在 UTF-8 和单字节编码中都只会以单个字节出现，所以只支持这些编码，见 {@link #isSupported(String)}；
+ * 行的划分与 {@link java.io.BufferedReader#readLine()} 一致，\r\n 不会被切开</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class ShardDelegate {
+
+    /**
+     * 查找换行时每次读取的字节数：8K
+     */
+    private final static int SCAN_BUFFER_SIZE=8*1024;
+
+    /**
+     * 文本文件
+     */
+    private File textFile;
+
+    /**
+     * 新建一个 {@link ShardDelegate} 实例
+     * @param textFile 文本文件
+     * @param charset 文本编码，必须是 {@link #isSupported(String)} 支持的编码
+     */
+    public ShardDelegate(File textFile, String charset) {
+        if(!isSupported(charset)){
+            throw new IllegalArgumentException("unsupported charset for sharding: "+charset);
+        }
+        this.textFile = textFile;
+    }
+
+    /**
+     * 编码是否支持按字节查找换行
+     * @param charset 文本编码
+     * @return 如果支持，返回 true;否则返回 false
+     */
+    public static boolean isSupported(String charset){
+        return ParallelReadDelegate.isSupported(charset);
+    }
+
+    /**
+     * 把文本文件切分成 n 个字节数大致相等的字节范围，每个范围都在行的边界上结束
+     * <p>一行比分片还长时，该行所跨越的切分点会合并，实际的范围数可能少于 n</p>
+     * @param n 范围数，必须大于 0
+     * @return 按先后顺序排列的字节范围，每个元素为 {开始字节位置, 结束字节位置}；空文件返回空列表
+     */
+    public List<long[]> cutRanges(int n){
+        if(n<=0){
+            throw new IllegalArgumentException("shard count must be positive: "+n);
+        }
+        long total=textFile.length();
+        long[] targets=new long[n-1];
+        for (int i = 1; i < n; i++) {
+            targets[i-1]=total*i/n;
+        }
+        return cutRanges(targets,total);
+    }
+
+    /**
+     * 把文本文件切分成多个字节范围，每个范围约为 size 个字节，并在行的边界上结束
+     * <p>范围会一直延伸到 size 字节之后的第一个换行，所以可能略大于 size</p>
+     * @param size 每个范围的目标字节数，必须大于 0
+     * @return 按先后顺序排列的字节范围，每个元素为 {开始字节位置, 结束字节位置}；空文件返回空列表
+     */
+    public List<long[]> cutRangesBySize(long size){
+        if(size<=0){
+            throw new IllegalArgumentException("shard size must be positive: "+size);
+        }
+        long total=textFile.length();
+        List<long[]> ranges=new ArrayList<>();
+        try(FileChannel channel=openChannel()){
+            long start=0;
+            while (start<total){
+                long end= total-start<=size ? total : nextLineStart(channel,start+size,total);
+                ranges.add(new long[]{start,end});
+                start=end;
+            }
+        } catch (NoSuchFileException e) {
+            throw new BigTextException(" no found text file: "+textFile.getAbsolutePath(),e);
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+textFile.getAbsolutePath()+",throw IO exception: ",e);
+        }
+        return ranges;
+    }
+
+    /**
+     * 把每个目标字节位置向后移动到下一行的开头，得到切分点
+     * @param targets 从小到大排列的目标字节位置
+     * @param total 文件的字节数
+     * @return 按先后顺序排列的字节范围
+     */
+    private List<long[]> cutRanges(long[] targets, long total){
+        List<long[]> ranges=new ArrayList<>();
+        try(FileChannel channel=openChannel()){
+            long start=0;
+            for (long target : targets) {
+                if(target<=start){
+                    continue;
+                }
+                long end=nextLineStart(channel,target,total);
+                if(end>=total){
+                    break;
+                }
+                ranges.add(new long[]{start,end});
+                start=end;
+            }
+            if(start<total){
+                ranges.add(new long[]{start,total});
+            }
+        } catch (NoSuchFileException e) {
+            throw new BigTextException(" no found text file: "+textFile.getAbsolutePath(),e);
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+textFile.getAbsolutePath()+",throw IO exception: ",e);
+        }
+        return ranges;
+    }
+
+    /**
+     * 找到 不在 position 之前开始 的第一行的开头
+     * <p>从 position-1 开始查找回车或换行：\n 和单独的 \r 之后就是下一行的开头，\r\n 之后才是下一行的开头；
+     * position 本身就是行的开头时直接返回 position</p>
+     * @param channel 文本文件的通道
+     * @param position 目标字节位置，大于 0
+     * @param total 文件的字节数
+     * @return 下一行开头的字节位置；没有更多的行时返回 total
+     * @throws IOException 读取文件时出现的IO异常
+     */
+    private long nextLineStart(FileChannel channel, long position, long total) throws IOException {
+        ByteBuffer buffer=ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long bufferStart=position-1;
+        boolean lastCR=false;
+        while (bufferStart<total){
+            buffer.clear();
+            int read=channel.read(buffer,bufferStart);
+            if(read<=0){
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b=buffer.get(i);
+                if(lastCR){
+                    return b=='\n' ? bufferStart+i+1 : bufferStart+i;
+                }
+                if(b=='\n'){
+                    return bufferStart+i+1;
+                }
+                lastCR= b=='\r';
+            }
+            bufferStart+=read;
+        }
+        return total;
+    }
+
+    /**
+     * 把每个字节范围复制到一个分片文件
+     * @param ranges 按先后顺序排列的字节范围
+     * @param tempFileGenerator 临时文件生成器，第 i 个范围（从 1 开始）写入 {@link TempFileGenerator#getTempFile(int)} 生成的文件
+     * @return 分片文件列表
+     */
+    public List<File> copyRanges(List<long[]> ranges, TempFileGenerator tempFileGenerator){
+        List<File> files=new ArrayList<>();
+        try(FileChannel channel=openChannel()){
+            for (int i = 0; i < ranges.size(); i++) {
+                ReadCancellation.checkCancelled();
+                long[] range=ranges.get(i);
+                File shardFile=tempFileGenerator.getTempFile(i+1);
+                try(FileChannel target=FileChannel.open(shardFile.toPath(), StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE,StandardOpenOption.TRUNCATE_EXISTING)){
+                    long position=range[0];
+                    //transferTo 一次可能只复制一部分字节
+                    while (position<range[1]){
+                        long transferred=channel.transferTo(position,range[1]-position,target);
+                        if(transferred<=0){
+                            throw new IOException("unexpected end of file at byte "+position);
+                        }
+                        position+=transferred;
+                    }
+                } catch (IOException e) {
+                    throw new BigTextException(" write in tempFile: "+shardFile.getAbsolutePath()+" fail",e);
+                }
+                files.add(shardFile);
+            }
+        } catch (NoSuchFileException e) {
+            throw new BigTextException(" no found text file: "+textFile.getAbsolutePath(),e);
+        } catch (IOException e) {
+            throw new BigTextException(" read text file: "+textFile.getAbsolutePath()+",throw IO exception: ",e);
+        }
+        return files;
+    }
+
+    /**
+     * 以只读方式打开文本文件的通道
+     * @return 文本文件的通道
+     * @throws IOException 打开文件时出现的IO异常
+     */
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(textFile.toPath(), StandardOpenOption.READ);
+    }
+}
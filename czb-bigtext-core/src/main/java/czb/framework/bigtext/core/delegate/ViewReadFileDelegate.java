@@ -0,0 +1,279 @@
+package czb.framework.bigtext.core.delegate;
+
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.pipeline.TextSink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 读取视图的助手类型
+ * <p>视图只描述如何从源文本得到新文本：截取源文本中 [{@link #begin}, {@link #end}) 之间的字符，
+ * 再依次经过 {@link #stages} 中的转换步骤。每次读取视图都会读取源文本并当场完成转换，结果不会写入文件，
+ * 所以在视图上查找、统计等只读操作不需要先写出整个新文本。</p>
+ * <p>源文本本身也可以是视图，多个视图可以层层叠加。视图的文本与 {@link #getTextFile()} 的字节不再对应，
+ * 按字节处理文件的操作（字节统计、并行读取、分片、行索引）都不能在视图上使用，见 {@link #isView()}</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class ViewReadFileDelegate extends ReadFileDelegate {
+
+    /**
+     * 读取源文本的助手
+     */
+    private ReadFileDelegate source;
+    /**
+     * 截取源文本的开始位置
+     */
+    private long begin;
+    /**
+     * 截取源文本的结束位置（不包含），{@link Long#MAX_VALUE} 表示一直到源文本的结尾
+     */
+    private long end;
+    /**
+     * 按执行顺序排列的转换步骤工厂，参数为下一个步骤；为空时视图的字符与源文本一一对应
+     */
+    private List<Function<TextSink, TextSink>> stages;
+
+    /**
+     * 新建一个 {@link ViewReadFileDelegate} 实例
+     * @param source 读取源文本的助手
+     * @param begin 截取源文本的开始位置
+     * @param end 截取源文本的结束位置（不包含），{@link Long#MAX_VALUE} 表示一直到源文本的结尾
+     * @param stages 按执行顺序排列的转换步骤工厂，参数为下一个步骤，每次读取都会调用一次
+     */
+    public ViewReadFileDelegate(ReadFileDelegate source, long begin, long end, List<Function<TextSink, TextSink>> stages) {
+        super(source.getTextFile(),source.getSegmentSize(),source.getCharset());
+        if(begin<0 || begin>end){
+            throw new StringIndexOutOfBoundsException("begin "+begin+", end "+end);
+        }
+        this.source = source;
+        this.begin = begin;
+        this.end = end;
+        this.stages = Collections.unmodifiableList(new ArrayList<>(stages));
+        setCheckpointIndex(null);
+    }
+
+    @Override
+    public void readFile(long offset, ReadSegmentCallback listener) {
+        read(offset,"",getSegmentSize(),listener);
+    }
+
+    @Override
+    public void readFile(long offset, String toFindStr, ReadSegmentCallback callback) {
+        read(offset,toFindStr,calSuitableSegmentSize(toFindStr.length()),callback);
+    }
+
+    /**
+     * 读取视图的文本，按段回调 callback
+     * <p>没有转换步骤时直接从源文本的 begin+offset 处开始读取；否则从 begin 处开始读取，丢弃转换结果的前 offset 个字符</p>
+     * @param offset 偏移字符数
+     * @param toFindStr 要查询字符串，含义与 {@link ReadFileDelegate#readFile(long, String, ReadSegmentCallback)} 一致
+     * @param pad 段大小
+     * @param callback 按段读取文本文件时 的零拷贝回调专用接口
+     */
+    private void read(long offset, String toFindStr, int pad, ReadSegmentCallback callback){
+        boolean direct=stages.isEmpty();
+        long readFrom= direct ? Math.min(begin+offset,end) : begin;
+        //段大小很小时 calSuitableSegmentSize 可能得到 0 ，至少每段一个字符
+        Segmenter segmenter=new Segmenter(callback,Math.max(pad,1),toFindStr.toCharArray(), direct ? 0 : offset);
+        TextSink sink=segmenter;
+        for (int i = stages.size()-1; i >= 0; i--) {
+            sink=stages.get(i).apply(sink);
+        }
+        TextSink head=sink;
+        long limit=end-readFrom;
+        source.readFile(readFrom,new ReadSegmentCallback() {
+            @Override
+            public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+                long before=currentReadSize-length;
+                if(before>=limit){
+                    return true;
+                }
+                int take=(int) Math.min(length,limit-before);
+                head.write(buff,offset,take);
+                return segmenter.stopped || currentReadSize>=limit;
+            }
+
+            @Override
+            public void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
+                //已取消时源文本的读取会抛出异常，不需要再输出暂存的字符，但仍要回调以便命令释放输出流
+                if(!ReadCancellation.isCancelled()){
+                    head.finish();
+                }
+                segmenter.complete();
+            }
+        });
+    }
+
+    /**
+     * 视图的文本不是 {@link #getTextFile()} 的全部内容
+     * @return true
+     */
+    @Override
+    public boolean isView() {
+        return true;
+    }
+
+    /**
+     * 视图的字符与文件的字节不对应，不支持按字节位置读取
+     * @throws UnsupportedOperationException 总是抛出
+     */
+    @Override
+    public DecodingReader openReader(long position, long endPosition) throws IOException {
+        throw new UnsupportedOperationException("a view can not be read by byte position");
+    }
+
+    /**
+     * 视图的字符与文件的字节不对应，不支持获取字节位置
+     * @throws UnsupportedOperationException 总是抛出
+     */
+    @Override
+    public long getBytePosition(long charOffset) {
+        throw new UnsupportedOperationException("a view has no byte position");
+    }
+
+    /**
+     * 获取 读取源文本的助手
+     * @see #source
+     */
+    public ReadFileDelegate getSource() {
+        return source;
+    }
+
+    /**
+     * 获取 截取源文本的开始位置
+     * @see #begin
+     */
+    public long getBegin() {
+        return begin;
+    }
+
+    /**
+     * 获取 截取源文本的结束位置（不包含）
+     * @see #end
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * 获取 按执行顺序排列的转换步骤工厂
+     * @see #stages
+     */
+    public List<Function<TextSink, TextSink>> getStages() {
+        return stages;
+    }
+
+    /**
+     * 把转换后的文本重新切分成段并回调，切分方式与 {@link ReadFileDelegate} 一致
+     */
+    private class Segmenter implements TextSink {
+
+        /**
+         * 按段读取文本文件时 的零拷贝回调专用接口
+         */
+        private ReadSegmentCallback callback;
+        /**
+         * 段大小
+         */
+        private int pad;
+        /**
+         * 要查询字符串
+         */
+        private char[] target;
+        /**
+         * 复用的字符数组，预留了补读 {@link #target} 剩余字符的空间
+         */
+        private char[] cbuff;
+        /**
+         * {@link #cbuff} 中有效的字符数
+         */
+        private int length;
+        /**
+         * 当前段需要的字符数，补读 {@link #target} 剩余字符时大于 {@link #pad}
+         */
+        private int need;
+        /**
+         * 还要丢弃的字符数
+         */
+        private long skip;
+        /**
+         * 已回调的字符数
+         */
+        private long currentReadSize;
+        /**
+         * 上一次回调的段的字符数
+         */
+        private int lastLength;
+        /**
+         * callback 是否已经要求终止读取
+         */
+        private boolean stopped;
+
+        Segmenter(ReadSegmentCallback callback, int pad, char[] target, long skip) {
+            this.callback = callback;
+            this.pad = pad;
+            this.target = target;
+            this.cbuff = new char[pad+target.length];
+            this.need = pad;
+            this.skip = skip;
+        }
+
+        @Override
+        public void write(char[] buff, int offset, int length) {
+            if(skip>0){
+                int n=(int) Math.min(skip,length);
+                offset+=n;
+                length-=n;
+                skip-=n;
+            }
+            while (length>0 && !stopped){
+                int n=Math.min(length,need-this.length);
+                System.arraycopy(buff,offset,cbuff,this.length,n);
+                this.length+=n;
+                offset+=n;
+                length-=n;
+                //段的尾部是 target 的开头部分时，把 target 剩余的字符也放到该段里
+                if(this.length==pad && need==pad && target.length>0){
+                    int remain=getMatchRemainCount(cbuff,pad,target);
+                    if(remain>0){
+                        need=pad+remain;
+                    }
+                }
+                if(this.length==need){
+                    emit();
+                }
+            }
+        }
+
+        @Override
+        public void finish() {
+            if(!stopped && length>0){
+                emit();
+            }
+        }
+
+        /**
+         * 回调 {@link #cbuff} 中的字符
+         */
+        private void emit(){
+            currentReadSize+=length;
+            lastLength=length;
+            stopped=callback.onSegmentRead(currentReadSize,cbuff,0,length);
+            length=0;
+            need=pad;
+        }
+
+        /**
+         * 读取结束，回调 onCompleteRead
+         */
+        private void complete(){
+            callback.onCompleteRead(currentReadSize,cbuff,0,lastLength);
+        }
+    }
+}
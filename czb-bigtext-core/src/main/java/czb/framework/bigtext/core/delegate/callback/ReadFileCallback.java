@@ -1,14 +1,18 @@
 package czb.framework.bigtext.core.delegate.callback;
 
 
+import java.util.Arrays;
+
 /**
  * {@link czb.framework.bigtext.core.delegate.ReadFileDelegate} 按段读取文本文件时
  * 的回调专用接口
+ * <p>每段文本都会拷贝成一个新的字符数组，回调方可以随意保存和修改；对性能敏感的场景请直接实现
+ * {@link ReadSegmentCallback} ，避免每段文本的拷贝</p>
  *
  * @author chenzhuobin
  * @since 2020/11/13 0013
  */
-public interface ReadFileCallback {
+public interface ReadFileCallback extends ReadSegmentCallback {
     /**
      * 当前读取完一段文本后回调
      * @param currentReadSize 当前已读字符数
@@ -24,4 +28,20 @@ public interface ReadFileCallback {
      * @param lastSegment 最后一段文本内容
      */
     default void onCompleteRead(long currentReadSize,char[] lastSegment) {}
-}
\ No newline at end of file
+
+    /**
+     * 把这段文本拷贝成新的字符数组，再调用 {@link #onSegmentRead(long, char[])}
+     */
+    @Override
+    default boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+        return onSegmentRead(currentReadSize, Arrays.copyOfRange(buff,offset,offset+length));
+    }
+
+    /**
+     * 把最后一段文本拷贝成新的字符数组，再调用 {@link #onCompleteRead(long, char[])}
+     */
+    @Override
+    default void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
+        onCompleteRead(currentReadSize, Arrays.copyOfRange(buff,offset,offset+length));
+    }
+}
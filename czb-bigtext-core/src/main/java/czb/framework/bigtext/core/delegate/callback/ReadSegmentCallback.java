@@ -0,0 +1,35 @@
+package czb.framework.bigtext.core.delegate.callback;
+
+
+/**
+ * {@link czb.framework.bigtext.core.delegate.ReadFileDelegate} 按段读取文本文件时
+ * 的零拷贝回调专用接口
+ * <p>与 {@link ReadFileCallback} 不同，每段文本不会拷贝到新的字符数组，而是以 字符数组 + 开始位置 + 字符数 的
+ * 只读视图传入，字符数组在整个读取过程中会被复用，所以只在回调方法执行期间有效，不能修改也不能保存引用。</p>
+ * <p>{@link ReadFileCallback} 继承了该接口，并把视图拷贝成新的字符数组，以兼容原有的回调方式</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public interface ReadSegmentCallback {
+
+    /**
+     * 当前读取完一段文本后回调
+     * @param currentReadSize 当前已读字符数
+     * @param buff 复用的字符数组，这段文本的内容位于 [offset, offset+length)
+     * @param offset 这段文本在 buff 中的开始位置
+     * @param length 这段文本的字符数
+     * @return 如果返回true,则不再读取下一段文本，直接终止读取；
+     *      否则继续读取下一段文本指定文本完全读完。
+     */
+    boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length);
+
+    /**
+     * 当读完文本文件内容后回调
+     * @param currentReadSize 当前已读字符数
+     * @param buff 复用的字符数组，最后一段文本的内容位于 [offset, offset+length)
+     * @param offset 最后一段文本在 buff 中的开始位置
+     * @param length 最后一段文本的字符数
+     */
+    default void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {}
+}
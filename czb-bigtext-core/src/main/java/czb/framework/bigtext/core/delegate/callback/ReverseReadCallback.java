@@ -0,0 +1,22 @@
+package czb.framework.bigtext.core.delegate.callback;
+
+/**
+ * {@link czb.framework.bigtext.core.delegate.ReverseReadDelegate} 从文件结尾向前按块读取文本文件时的回调接口
+ * <p>块按从后往前的顺序回调，每块中的字符仍然是正常的顺序；与 {@link ReadSegmentCallback} 一样，
+ * 字符数组在整个读取过程中会被复用，只在回调方法执行期间有效</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public interface ReverseReadCallback {
+
+    /**
+     * 向前读取完一块文本后回调
+     * @param charsAfter 这块文本之后（一直到文件结尾）的字符数
+     * @param buff 复用的字符数组，这块文本的内容位于 [offset, offset+length)
+     * @param offset 这块文本在 buff 中的开始位置
+     * @param length 这块文本的字符数
+     * @return 如果返回true,则不再读取前一块文本，直接终止读取；否则继续向前读取，直到文件开头
+     */
+    boolean onBlockRead(long charsAfter, char[] buff, int offset, int length);
+}
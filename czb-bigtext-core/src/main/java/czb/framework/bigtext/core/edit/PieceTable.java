@@ -0,0 +1,229 @@
+package czb.framework.bigtext.core.edit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 记录编辑结果的片段表
+ * <p>编辑后的文本由一串片段按顺序拼接而成，每个片段要么引用原文本的一段字符范围，要么引用追加缓冲区中的一段字符范围。
+ * 插入只是把新字符串追加到缓冲区并插入一个片段，删除只是拆分、移除片段，原文本不会被修改，也不需要复制。</p>
+ * <p>编辑不会改变原文本片段之间的先后顺序，所以原文本片段的开始位置总是递增的，
+ * 按顺序读取一次原文本就能输出编辑后的全部文本。</p>
+ * <p>该类不是线程安全的</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class PieceTable {
+
+    /**
+     * 按顺序排列的片段
+     */
+    private List<Piece> pieces=new ArrayList<>();
+    /**
+     * 追加缓冲区，存放所有插入的字符串
+     */
+    private StringBuilder added=new StringBuilder();
+    /**
+     * 编辑后的字符数
+     */
+    private long length;
+
+    /**
+     * 新建一个 {@link PieceTable} 实例
+     * @param originalLength 原文本的字符数
+     */
+    public PieceTable(long originalLength) {
+        if(originalLength<0){
+            throw new IllegalArgumentException("originalLength must not be negative: "+originalLength);
+        }
+        if(originalLength>0){
+            pieces.add(new Piece(true,0,originalLength));
+        }
+        this.length=originalLength;
+    }
+
+    /**
+     * 在 offset 处插入 str
+     * @param offset 插入位置
+     * @param str 要插入的字符串
+     * @throws StringIndexOutOfBoundsException 如果 offset 小于 0 或大于编辑后的字符数
+     */
+    public void insert(long offset, String str){
+        checkOffset(offset);
+        if(str.isEmpty()){
+            return;
+        }
+        int index=split(offset);
+        //紧接着上一次插入的位置继续插入时，直接延长上一个片段
+        if(index>0){
+            Piece previous=pieces.get(index-1);
+            if(!previous.original && previous.getEnd()==added.length()){
+                added.append(str);
+                pieces.set(index-1,new Piece(false,previous.start,previous.length+str.length()));
+                length+=str.length();
+                return;
+            }
+        }
+        pieces.add(index,new Piece(false,added.length(),str.length()));
+        added.append(str);
+        length+=str.length();
+    }
+
+    /**
+     * 删除 [begin, end) 之间的字符
+     * @param begin 开始位置
+     * @param end 结束位置（不包含）
+     * @throws StringIndexOutOfBoundsException 如果范围超出编辑后的文本或 begin 大于 end
+     */
+    public void delete(long begin, long end){
+        checkRange(begin,end);
+        if(begin==end){
+            return;
+        }
+        int from=split(begin);
+        int to=split(end);
+        pieces.subList(from,to).clear();
+        length-=end-begin;
+    }
+
+    /**
+     * 把 [begin, end) 之间的字符替换成 str
+     * @param begin 开始位置
+     * @param end 结束位置（不包含）
+     * @param str 新字符串
+     * @throws StringIndexOutOfBoundsException 如果范围超出编辑后的文本或 begin 大于 end
+     */
+    public void replace(long begin, long end, String str){
+        checkRange(begin,end);
+        delete(begin,end);
+        insert(begin,str);
+    }
+
+    /**
+     * 在 offset 处拆分片段，使 offset 成为某个片段的开头
+     * @param offset 编辑后文本中的位置
+     * @return 从 offset 开始的片段的下标；offset 等于编辑后的字符数时返回片段数
+     */
+    private int split(long offset){
+        long pieceStart=0;
+        for (int i = 0; i < pieces.size(); i++) {
+            Piece piece=pieces.get(i);
+            if(offset==pieceStart){
+                return i;
+            }
+            long inner=offset-pieceStart;
+            if(inner<piece.length){
+                pieces.set(i,new Piece(piece.original,piece.start,inner));
+                pieces.add(i+1,new Piece(piece.original,piece.start+inner,piece.length-inner));
+                return i+1;
+            }
+            pieceStart+=piece.length;
+        }
+        return pieces.size();
+    }
+
+    /**
+     * 检查位置是否在编辑后的文本范围内
+     * @param offset 位置
+     */
+    private void checkOffset(long offset){
+        if(offset<0 || offset>length){
+            throw new StringIndexOutOfBoundsException("String index out of range: "+offset+", text length: "+length);
+        }
+    }
+
+    /**
+     * 检查范围是否在编辑后的文本范围内
+     * @param begin 开始位置
+     * @param end 结束位置（不包含）
+     */
+    private void checkRange(long begin, long end){
+        if(begin<0 || end>length || begin>end){
+            throw new StringIndexOutOfBoundsException("begin "+begin+", end "+end+", text length "+length);
+        }
+    }
+
+    /**
+     * 获取 编辑后的字符数
+     * @see #length
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * 获取按顺序排列的片段
+     * @return 只读的片段列表
+     */
+    public List<Piece> getPieces() {
+        return Collections.unmodifiableList(pieces);
+    }
+
+    /**
+     * 获取追加缓冲区中 [start, end) 之间的字符
+     * @param start 开始位置
+     * @param end 结束位置（不包含）
+     * @return 字符串
+     */
+    public String getAdded(long start, long end){
+        return added.substring((int) start,(int) end);
+    }
+
+    /**
+     * 片段表中的一个片段
+     */
+    public static final class Piece {
+
+        /**
+         * 为 true 时引用原文本;否则引用追加缓冲区
+         */
+        private final boolean original;
+        /**
+         * 在原文本或追加缓冲区中的开始位置
+         */
+        private final long start;
+        /**
+         * 字符数
+         */
+        private final long length;
+
+        Piece(boolean original, long start, long length) {
+            this.original = original;
+            this.start = start;
+            this.length = length;
+        }
+
+        /**
+         * 是否引用原文本
+         * @see #original
+         */
+        public boolean isOriginal() {
+            return original;
+        }
+
+        /**
+         * 获取 在原文本或追加缓冲区中的开始位置
+         * @see #start
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * 获取 在原文本或追加缓冲区中的结束位置（不包含）
+         */
+        public long getEnd() {
+            return start+length;
+        }
+
+        /**
+         * 获取 字符数
+         * @see #length
+         */
+        public long getLength() {
+            return length;
+        }
+    }
+}
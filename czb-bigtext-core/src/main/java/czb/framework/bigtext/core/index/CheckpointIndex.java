@@ -0,0 +1,490 @@
+package czb.framework.bigtext.core.index;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.Arrays;
+
+/**
+ * 字符索引到字节位置的稀疏检查点索引
+ * <p>每隔 {@link #interval} 个字符记录一次 (字符索引, 字节位置) ，按字符索引定位时先找到不大于该索引的
+ * 最近检查点，直接从检查点的字节位置开始解码，只需要跳过剩余的少量字符，而不用从文件开头解码。</p>
+ * <p>索引在第一次完整读取文本时建立（见 {@link #newBuilder()}），并保存到 {@link #sidecarFile} 旁路文件中，
+ * 旁路文件记录了建立索引时文本文件的大小和修改时间，文本文件发生变化后索引自动失效；同一个字符索引在不同编码下对应不同的字节位置，
+ * 所以旁路文件还记录了文本编码和记录间隔，与当前实例不一致时不会加载。</p>
+ * <p>只在结尾追加内容的文本文件（例如持续写入的日志）可以开启 {@link #appendOnly} ：文本文件变大后索引仍然可用，
+ * 只覆盖建立索引时的那部分文本，再由 {@link Builder#complete(long)} 把后面追加的文本记录进来</p>
+ * <p>从检查点开始解码时使用的是一个新的解码器，所以只支持没有解码状态的编码，见 {@link #isSupported(String)}；
+ * 带字节顺序标记的 UTF-16 、UTF-32 和 ISO-2022 这类有切换状态的编码只能从文件开头解码</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class CheckpointIndex {
+
+    /**
+     * 默认每隔多少个字符记录一次检查点：1M个字符
+     */
+    public final static int DEFAULT_INTERVAL=1024*1024;
+    /**
+     * 旁路文件的后缀
+     */
+    public final static String SIDECAR_SUFFIX=".ckpt";
+    /**
+     * 旁路文件的魔数
+     */
+    private final static int MAGIC=0x435A4243;
+    /**
+     * 旁路文件的格式版本
+     */
+    private final static int FORMAT_VERSION=2;
+    /**
+     * 检查编码是否有解码状态时使用的探测字符，只检查编码能够表示的字符
+     */
+    private final static String PROBE_TEXT="a\r\n中日가é€😀";
+
+    /**
+     * 文本文件
+     */
+    private File textFile;
+    /**
+     * 保存索引的旁路文件
+     */
+    private File sidecarFile;
+    /**
+     * 文本编码的规范名称，编码的别名（例如 utf8 和 UTF-8）对应同一个名称
+     */
+    private String charset;
+    /**
+     * 每隔多少个字符记录一次检查点
+     */
+    private int interval;
+    /**
+     * 是否把索引保存到 {@link #sidecarFile}
+     */
+    private boolean persistent=true;
+    /**
+     * 是否已经尝试过从 {@link #sidecarFile} 加载索引
+     */
+    private boolean sidecarLoaded;
+    /**
+     * 文本文件是否只在结尾追加内容，为 true 时文本文件变大不会使索引失效
+     */
+    private boolean appendOnly;
+
+    /**
+     * 各个检查点的字符索引，升序排列，第一个检查点总是 0
+     */
+    private long[] charPositions;
+    /**
+     * 各个检查点的字节位置，与 {@link #charPositions} 一一对应
+     */
+    private long[] bytePositions;
+    /**
+     * 建立索引时文本文件的字节数
+     */
+    private long fileSize=-1;
+    /**
+     * 建立索引时文本文件的修改时间
+     */
+    private long lastModified=-1;
+
+    /**
+     * 新建一个 {@link CheckpointIndex} 实例，旁路文件为 文本文件路径 + {@link #SIDECAR_SUFFIX}
+     * @param textFile 文本文件
+     * @param charset 文本编码
+     * @param interval 每隔多少个字符记录一次检查点
+     */
+    public CheckpointIndex(File textFile, String charset, int interval) {
+        this(textFile,new File(textFile.getAbsolutePath()+SIDECAR_SUFFIX),charset,interval);
+    }
+
+    /**
+     * 新建一个 {@link CheckpointIndex} 实例
+     * @param textFile 文本文件
+     * @param sidecarFile 保存索引的旁路文件
+     * @param charset 文本编码
+     * @param interval 每隔多少个字符记录一次检查点
+     * @throws IllegalArgumentException 如果 interval 不是正数，或者编码不是 {@link #isSupported(String)} 支持的编码
+     */
+    public CheckpointIndex(File textFile, File sidecarFile, String charset, int interval) {
+        if(interval<=0){
+            throw new IllegalArgumentException("checkpoint interval must be positive: "+interval);
+        }
+        if(!isSupported(charset)){
+            throw new IllegalArgumentException("unsupported charset for checkpoint index: "+charset);
+        }
+        this.textFile = textFile;
+        this.sidecarFile = sidecarFile;
+        this.charset = Charset.forName(charset).name();
+        this.interval = interval;
+    }
+
+    /**
+     * 是否支持该编码
+     * <p>检查点要求从任意一个字符边界开始，用新的解码器解码出的字符与从文件开头解码时一致，所以编码不能有解码状态：</p>
+     * <ul>
+     *     <li>有切换状态的编码（例如 ISO-2022-JP）和每次编码都写入字节顺序标记的编码（例如 UTF-16），
+     *     分别编码两个相同的字符得到的字节与一起编码这两个字符不同</li>
+     *     <li>会识别字节顺序标记的解码器（例如 UTF-32）会把开头的 U+FEFF 当作字节顺序标记吞掉，
+     *     从文件中间开始解码时只能按默认的字节顺序解码</li>
+     * </ul>
+     * @param charset 文本编码
+     * @return 如果是没有解码状态的编码，返回 true；编码不存在时返回 false
+     */
+    public static boolean isSupported(String charset){
+        Charset cs;
+        try {
+            cs=Charset.forName(charset);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if(!cs.canEncode()){
+            return false;
+        }
+        CharsetEncoder encoder=cs.newEncoder();
+        for (int i = 0; i < PROBE_TEXT.length(); i+=Character.charCount(PROBE_TEXT.codePointAt(i))) {
+            String c=new String(Character.toChars(PROBE_TEXT.codePointAt(i)));
+            if(!encoder.canEncode(c)){
+                continue;
+            }
+            byte[] once=c.getBytes(cs);
+            byte[] twice=(c+c).getBytes(cs);
+            if(twice.length!=once.length*2 || !Arrays.equals(Arrays.copyOf(twice,once.length),once)
+                    || !Arrays.equals(Arrays.copyOfRange(twice,once.length,twice.length),once)){
+                return false;
+            }
+        }
+        return !encoder.canEncode("\uFEFFa") || new String("\uFEFFa".getBytes(cs),cs).equals("\uFEFFa");
+    }
+
+    /**
+     * 索引是否可用
+     * <p>第一次调用时会尝试从 {@link #sidecarFile} 加载索引；如果文本文件的大小或修改时间与建立索引时不一致，
+     * 索引会被丢弃；开启 {@link #appendOnly} 时只有文本文件变小才会丢弃索引</p>
+     * @return 如果索引已经建立且与当前文本文件一致，返回 true;否则返回 false
+     */
+    public synchronized boolean isAvailable(){
+        if(!sidecarLoaded){
+            sidecarLoaded=true;
+            if(charPositions==null && persistent){
+                load();
+            }
+        }
+        if(charPositions==null){
+            return false;
+        }
+        if(isChanged(fileSize,lastModified)){
+            charPositions=null;
+            bytePositions=null;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 查找不大于 charOffset 的最近检查点
+     * <p>调用前需要先确认 {@link #isAvailable()}</p>
+     * @param charOffset 字符索引
+     * @return 最近检查点在索引中的序号，可通过 {@link #getCharPosition(int)} 和 {@link #getBytePosition(int)} 获取位置
+     */
+    public synchronized int floor(long charOffset){
+        int i= Arrays.binarySearch(charPositions,charOffset);
+        return i>=0 ? i : Math.max(0,-i-2);
+    }
+
+    /**
+     * 获取第 i 个检查点的字符索引
+     * @param i 检查点序号
+     * @return 检查点的字符索引
+     */
+    public synchronized long getCharPosition(int i){
+        return charPositions[i];
+    }
+
+    /**
+     * 获取第 i 个检查点的字节位置
+     * @param i 检查点序号
+     * @return 检查点的字节位置
+     */
+    public synchronized long getBytePosition(int i){
+        return bytePositions[i];
+    }
+
+    /**
+     * 获取检查点的数量
+     * @return 检查点的数量，索引不可用时返回 0
+     */
+    public synchronized int size(){
+        return charPositions==null ? 0 : charPositions.length;
+    }
+
+    /**
+     * 新建一个索引构建器，在完整读取文本的过程中调用 {@link Builder#record(long, long)} 记录位置，
+     * 读取完成后调用 {@link Builder#complete()} 生效
+     * @return 索引构建器
+     */
+    public Builder newBuilder(){
+        return new Builder(textFile.length(),textFile.lastModified());
+    }
+
+    /**
+     * 获取所有检查点，用于在多个实例之间共享索引
+     * <p>调用前需要先确认 {@link #isAvailable()}</p>
+     * @return {字符索引数组, 字节位置数组} 的副本
+     * @see #restore(long[], long[], long, long)
+     */
+    public synchronized long[][] getCheckpoints(){
+        return new long[][]{charPositions.clone(),bytePositions.clone()};
+    }
+
+    /**
+     * 使用其他实例建立的检查点，不会保存到 {@link #sidecarFile}
+     * @param charPositions 各个检查点的字符索引
+     * @param bytePositions 各个检查点的字节位置
+     * @param fileSize 建立索引时文本文件的字节数
+     * @param lastModified 建立索引时文本文件的修改时间
+     * @return 如果检查点属于当前的文本文件并已生效，返回 true;否则返回 false
+     * @see #getCheckpoints()
+     */
+    public synchronized boolean restore(long[] charPositions, long[] bytePositions, long fileSize, long lastModified){
+        if(charPositions.length==0 || charPositions.length!=bytePositions.length || isChanged(fileSize,lastModified)){
+            return false;
+        }
+        this.charPositions=charPositions.clone();
+        this.bytePositions=bytePositions.clone();
+        this.fileSize=fileSize;
+        this.lastModified=lastModified;
+        sidecarLoaded=true;
+        return true;
+    }
+
+    /**
+     * 丢弃当前索引并删除 {@link #sidecarFile}
+     */
+    public synchronized void invalidate(){
+        charPositions=null;
+        bytePositions=null;
+        sidecarLoaded=true;
+        if(sidecarFile.exists()){
+            sidecarFile.delete();
+        }
+    }
+
+    /**
+     * 使构建好的索引生效
+     * @param builder 索引构建器
+     */
+    private synchronized void install(Builder builder){
+        //建立索引期间文本文件发生了变化，索引不可信
+        if(isChanged(builder.fileSize,builder.lastModified)){
+            return;
+        }
+        charPositions=Arrays.copyOf(builder.charPositions,builder.size);
+        bytePositions=Arrays.copyOf(builder.bytePositions,builder.size);
+        fileSize=builder.fileSize;
+        lastModified=builder.lastModified;
+        sidecarLoaded=true;
+        // 只有一个检查点时索引没有加速作用，不需要保存
+        if(persistent && builder.size>1){
+            save();
+        }
+    }
+
+    /**
+     * 文本文件与建立索引时相比是否发生了变化
+     * @param fileSize 建立索引时文本文件的字节数
+     * @param lastModified 建立索引时文本文件的修改时间
+     * @return 如果发生了变化，返回 true;否则返回 false
+     */
+    private boolean isChanged(long fileSize, long lastModified){
+        if(appendOnly){
+            return textFile.length()<fileSize;
+        }
+        return textFile.length()!=fileSize || textFile.lastModified()!=lastModified;
+    }
+
+    /**
+     * 从 {@link #sidecarFile} 加载索引，旁路文件不存在、损坏、编码或者记录间隔不一致时忽略
+     */
+    private void load(){
+        if(!sidecarFile.isFile()){
+            return;
+        }
+        try(DataInputStream in=new DataInputStream(new BufferedInputStream(new FileInputStream(sidecarFile)))){
+            if(in.readInt()!=MAGIC || in.readInt()!=FORMAT_VERSION){
+                return;
+            }
+            long size=in.readLong();
+            long modified=in.readLong();
+            if(!in.readUTF().equals(charset) || in.readInt()!=interval){
+                return;
+            }
+            int count=in.readInt();
+            long[] chars=new long[count];
+            long[] bytes=new long[count];
+            for (int i = 0; i < count; i++) {
+                chars[i]=in.readLong();
+                bytes[i]=in.readLong();
+            }
+            charPositions=chars;
+            bytePositions=bytes;
+            fileSize=size;
+            lastModified=modified;
+        } catch (IOException e) {
+            //旁路文件损坏，重新建立索引即可
+            charPositions=null;
+            bytePositions=null;
+        }
+    }
+
+    /**
+     * 把索引保存到 {@link #sidecarFile}，保存失败时只保留内存中的索引
+     */
+    private void save(){
+        try(DataOutputStream out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sidecarFile)))){
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(fileSize);
+            out.writeLong(lastModified);
+            out.writeUTF(charset);
+            out.writeInt(interval);
+            out.writeInt(charPositions.length);
+            for (int i = 0; i < charPositions.length; i++) {
+                out.writeLong(charPositions[i]);
+                out.writeLong(bytePositions[i]);
+            }
+        } catch (IOException e) {
+            sidecarFile.delete();
+        }
+    }
+
+    /**
+     * 获取 每隔多少个字符记录一次检查点
+     * @see #interval
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * 获取 文本编码的规范名称
+     * @see #charset
+     */
+    public String getCharset() {
+        return charset;
+    }
+
+    /**
+     * 获取 保存索引的旁路文件
+     * @see #sidecarFile
+     */
+    public File getSidecarFile() {
+        return sidecarFile;
+    }
+
+    /**
+     * 获取 文本文件是否只在结尾追加内容
+     * @see #appendOnly
+     */
+    public boolean isAppendOnly() {
+        return appendOnly;
+    }
+
+    /**
+     * 设置 文本文件是否只在结尾追加内容
+     * @see #appendOnly
+     */
+    public synchronized void setAppendOnly(boolean appendOnly) {
+        this.appendOnly = appendOnly;
+    }
+
+    /**
+     * 获取 是否把索引保存到旁路文件
+     * @see #persistent
+     */
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    /**
+     * 设置 是否把索引保存到旁路文件
+     * @see #persistent
+     */
+    public void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    /**
+     * 检查点索引构建器
+     * <p>记录的位置必须来自同一次从文件开头开始的完整读取</p>
+     */
+    public class Builder {
+        /**
+         * 开始建立索引时文本文件的字节数
+         */
+        private long fileSize;
+        /**
+         * 开始建立索引时文本文件的修改时间
+         */
+        private long lastModified;
+        /**
+         * 已记录的检查点字符索引
+         */
+        private long[] charPositions=new long[16];
+        /**
+         * 已记录的检查点字节位置
+         */
+        private long[] bytePositions=new long[16];
+        /**
+         * 已记录的检查点数量
+         */
+        private int size=1;
+        /**
+         * 下一个检查点的最小字符索引
+         */
+        private long nextCharPosition=interval;
+
+        private Builder(long fileSize, long lastModified) {
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * 记录一个字符边界的位置，只有距离上一个检查点达到 {@link #interval} 个字符时才会真正记录
+         * @param charPosition 字符索引
+         * @param bytePosition 该字符索引对应的字节位置
+         */
+        public void record(long charPosition, long bytePosition){
+            if(charPosition<nextCharPosition){
+                return;
+            }
+            if(size==charPositions.length){
+                charPositions=Arrays.copyOf(charPositions,size*2);
+                bytePositions=Arrays.copyOf(bytePositions,size*2);
+            }
+            charPositions[size]=charPosition;
+            bytePositions[size]=bytePosition;
+            size++;
+            nextCharPosition=charPosition+interval;
+        }
+
+        /**
+         * 完整读取文本后调用，使索引生效
+         */
+        public void complete(){
+            install(this);
+        }
+
+        /**
+         * 开启 {@link #appendOnly} 时，文本文件的前 fileSize 个字节已经读取完整后调用，使目前记录的检查点生效；
+         * 之后可以继续记录追加的文本，并再次调用该方法
+         * @param fileSize 已经读取完整的字节数，必须在字符的边界上
+         */
+        public void complete(long fileSize){
+            this.fileSize=fileSize;
+            this.lastModified=textFile.lastModified();
+            install(this);
+        }
+    }
+}
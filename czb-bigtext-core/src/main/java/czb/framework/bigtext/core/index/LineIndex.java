@@ -0,0 +1,429 @@
+package czb.framework.bigtext.core.index;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * 行号到字符索引、字节位置的稀疏行索引
+ * <p>每隔 {@link #interval} 行记录一次该行开头的 (字符索引, 字节位置) ，按行号定位时先找到不大于该行号的
+ * 最近记录，直接从记录的位置开始读取，最多只需要跳过 {@link #interval}-1 行，而不用从文件开头统计换行。</p>
+ * <p>行的划分与 {@link java.io.BufferedReader#readLine()} 一致：\n 、\r 、\r\n 都是一个换行，结尾的换行不会多出一个空行，
+ * 行号从 0 开始。</p>
+ * <p>索引在第一次按行读取时建立（见 {@link #newBuilder()}），并保存到 {@link #sidecarFile} 旁路文件中，
+ * 旁路文件记录了建立索引时文本文件的大小和修改时间，文本文件发生变化后索引自动失效；记录的字符索引和字节位置只适用于建立索引时的编码，
+ * 所以旁路文件还记录了文本编码，编码或记录间隔与当前实例不一致时不会加载。</p>
+ * <p>只在结尾追加内容的文本文件（例如持续写入的日志）可以开启 {@link #appendOnly} ：文本文件变大后索引仍然可用，
+ * 只覆盖建立索引时的那部分文本，再由 {@link Builder#complete(long, long)} 把后面追加的文本记录进来</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class LineIndex {
+
+    /**
+     * 默认每隔多少行记录一次：1024行
+     */
+    public final static int DEFAULT_INTERVAL=1024;
+    /**
+     * 旁路文件的后缀
+     */
+    public final static String SIDECAR_SUFFIX=".lidx";
+    /**
+     * 旁路文件的魔数
+     */
+    private final static int MAGIC=0x435A4C49;
+    /**
+     * 旁路文件的格式版本
+     */
+    private final static int FORMAT_VERSION=2;
+
+    /**
+     * 文本文件
+     */
+    private File textFile;
+    /**
+     * 保存索引的旁路文件
+     */
+    private File sidecarFile;
+    /**
+     * 文本编码的规范名称，编码的别名（例如 utf8 和 UTF-8）对应同一个名称
+     */
+    private String charset;
+    /**
+     * 每隔多少行记录一次
+     */
+    private int interval;
+    /**
+     * 是否把索引保存到 {@link #sidecarFile}
+     */
+    private boolean persistent=true;
+    /**
+     * 是否已经尝试过从 {@link #sidecarFile} 加载索引
+     */
+    private boolean sidecarLoaded;
+    /**
+     * 文本文件是否只在结尾追加内容，为 true 时文本文件变大不会使索引失效
+     */
+    private boolean appendOnly;
+
+    /**
+     * 第 i*{@link #interval} 行开头的字符索引
+     */
+    private long[] charPositions;
+    /**
+     * 第 i*{@link #interval} 行开头的字节位置，与 {@link #charPositions} 一一对应；为 -1 表示建立索引时无法得到字节位置
+     */
+    private long[] bytePositions;
+    /**
+     * 文本的行数
+     */
+    private long lineCount=-1;
+    /**
+     * 建立索引时文本文件的字节数
+     */
+    private long fileSize=-1;
+    /**
+     * 建立索引时文本文件的修改时间
+     */
+    private long lastModified=-1;
+
+    /**
+     * 新建一个 {@link LineIndex} 实例，旁路文件为 文本文件路径 + {@link #SIDECAR_SUFFIX}
+     * @param textFile 文本文件
+     * @param charset 文本编码
+     * @param interval 每隔多少行记录一次
+     */
+    public LineIndex(File textFile, String charset, int interval) {
+        this(textFile,new File(textFile.getAbsolutePath()+SIDECAR_SUFFIX),charset,interval);
+    }
+
+    /**
+     * 新建一个 {@link LineIndex} 实例
+     * @param textFile 文本文件
+     * @param sidecarFile 保存索引的旁路文件
+     * @param charset 文本编码
+     * @param interval 每隔多少行记录一次
+     */
+    public LineIndex(File textFile, File sidecarFile, String charset, int interval) {
+        if(interval<=0){
+            throw new IllegalArgumentException("line index interval must be positive: "+interval);
+        }
+        this.textFile = textFile;
+        this.sidecarFile = sidecarFile;
+        this.charset = Charset.forName(charset).name();
+        this.interval = interval;
+    }
+
+    /**
+     * 索引是否可用
+     * <p>第一次调用时会尝试从 {@link #sidecarFile} 加载索引；如果文本文件的大小或修改时间与建立索引时不一致，
+     * 索引会被丢弃；开启 {@link #appendOnly} 时只有文本文件变小才会丢弃索引</p>
+     * @return 如果索引已经建立且与当前文本文件一致，返回 true;否则返回 false
+     */
+    public synchronized boolean isAvailable(){
+        if(!sidecarLoaded){
+            sidecarLoaded=true;
+            if(charPositions==null && persistent){
+                load();
+            }
+        }
+        if(charPositions==null){
+            return false;
+        }
+        if(isChanged(fileSize,lastModified)){
+            charPositions=null;
+            bytePositions=null;
+            lineCount=-1;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 查找不大于 line 的最近记录
+     * <p>调用前需要先确认 {@link #isAvailable()}</p>
+     * @param line 行号
+     * @return 最近记录在索引中的序号，该记录的行号为 序号*{@link #interval}
+     */
+    public synchronized int floor(long line){
+        return (int) Math.max(0,Math.min(line/interval,charPositions.length-1));
+    }
+
+    /**
+     * 获取第 i 个记录的字符索引
+     * @param i 记录序号
+     * @return 第 i*{@link #interval} 行开头的字符索引
+     */
+    public synchronized long getCharPosition(int i){
+        return charPositions[i];
+    }
+
+    /**
+     * 获取第 i 个记录的字节位置
+     * @param i 记录序号
+     * @return 第 i*{@link #interval} 行开头的字节位置；为 -1 表示没有记录字节位置
+     */
+    public synchronized long getBytePosition(int i){
+        return bytePositions[i];
+    }
+
+    /**
+     * 获取文本的行数
+     * <p>调用前需要先确认 {@link #isAvailable()}</p>
+     * @return 文本的行数
+     */
+    public synchronized long getLineCount(){
+        return lineCount;
+    }
+
+    /**
+     * 获取记录的数量
+     * @return 记录的数量，索引不可用时返回 0
+     */
+    public synchronized int size(){
+        return charPositions==null ? 0 : charPositions.length;
+    }
+
+    /**
+     * 新建一个索引构建器，在从文件开头完整读取文本的过程中调用 {@link Builder#record(long, long, long)} 记录每行开头的位置，
+     * 读取完成后调用 {@link Builder#complete(long)} 生效
+     * @return 索引构建器
+     */
+    public Builder newBuilder(){
+        return new Builder(textFile.length(),textFile.lastModified());
+    }
+
+    /**
+     * 丢弃当前索引并删除 {@link #sidecarFile}
+     */
+    public synchronized void invalidate(){
+        charPositions=null;
+        bytePositions=null;
+        lineCount=-1;
+        sidecarLoaded=true;
+        if(sidecarFile.exists()){
+            sidecarFile.delete();
+        }
+    }
+
+    /**
+     * 使构建好的索引生效
+     * @param builder 索引构建器
+     * @param lineCount 文本的行数
+     */
+    private synchronized void install(Builder builder, long lineCount){
+        //建立索引期间文本文件发生了变化，索引不可信
+        if(isChanged(builder.fileSize,builder.lastModified)){
+            return;
+        }
+        charPositions=Arrays.copyOf(builder.charPositions,builder.size);
+        bytePositions=Arrays.copyOf(builder.bytePositions,builder.size);
+        this.lineCount=lineCount;
+        fileSize=builder.fileSize;
+        lastModified=builder.lastModified;
+        sidecarLoaded=true;
+        if(persistent){
+            save();
+        }
+    }
+
+    /**
+     * 文本文件与建立索引时相比是否发生了变化
+     * @param fileSize 建立索引时文本文件的字节数
+     * @param lastModified 建立索引时文本文件的修改时间
+     * @return 如果发生了变化，返回 true;否则返回 false
+     */
+    private boolean isChanged(long fileSize, long lastModified){
+        if(appendOnly){
+            return textFile.length()<fileSize;
+        }
+        return textFile.length()!=fileSize || textFile.lastModified()!=lastModified;
+    }
+
+    /**
+     * 从 {@link #sidecarFile} 加载索引，旁路文件不存在、损坏、编码或者记录间隔不一致时忽略
+     */
+    private void load(){
+        if(!sidecarFile.isFile()){
+            return;
+        }
+        try(DataInputStream in=new DataInputStream(new BufferedInputStream(new FileInputStream(sidecarFile)))){
+            if(in.readInt()!=MAGIC || in.readInt()!=FORMAT_VERSION){
+                return;
+            }
+            long size=in.readLong();
+            long modified=in.readLong();
+            if(!in.readUTF().equals(charset) || in.readInt()!=interval){
+                return;
+            }
+            long lines=in.readLong();
+            int count=in.readInt();
+            long[] chars=new long[count];
+            long[] bytes=new long[count];
+            for (int i = 0; i < count; i++) {
+                chars[i]=in.readLong();
+                bytes[i]=in.readLong();
+            }
+            charPositions=chars;
+            bytePositions=bytes;
+            lineCount=lines;
+            fileSize=size;
+            lastModified=modified;
+        } catch (IOException e) {
+            //旁路文件损坏，重新建立索引即可
+            charPositions=null;
+            bytePositions=null;
+            lineCount=-1;
+        }
+    }
+
+    /**
+     * 把索引保存到 {@link #sidecarFile}，保存失败时只保留内存中的索引
+     */
+    private void save(){
+        try(DataOutputStream out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sidecarFile)))){
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(fileSize);
+            out.writeLong(lastModified);
+            out.writeUTF(charset);
+            out.writeInt(interval);
+            out.writeLong(lineCount);
+            out.writeInt(charPositions.length);
+            for (int i = 0; i < charPositions.length; i++) {
+                out.writeLong(charPositions[i]);
+                out.writeLong(bytePositions[i]);
+            }
+        } catch (IOException e) {
+            sidecarFile.delete();
+        }
+    }
+
+    /**
+     * 获取 每隔多少行记录一次
+     * @see #interval
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * 获取 文本编码的规范名称
+     * @see #charset
+     */
+    public String getCharset() {
+        return charset;
+    }
+
+    /**
+     * 获取 保存索引的旁路文件
+     * @see #sidecarFile
+     */
+    public File getSidecarFile() {
+        return sidecarFile;
+    }
+
+    /**
+     * 获取 文本文件是否只在结尾追加内容
+     * @see #appendOnly
+     */
+    public boolean isAppendOnly() {
+        return appendOnly;
+    }
+
+    /**
+     * 设置 文本文件是否只在结尾追加内容
+     * @see #appendOnly
+     */
+    public synchronized void setAppendOnly(boolean appendOnly) {
+        this.appendOnly = appendOnly;
+    }
+
+    /**
+     * 获取 是否把索引保存到旁路文件
+     * @see #persistent
+     */
+    public boolean isPersistent() {
+        return persistent;
+    }
+
+    /**
+     * 设置 是否把索引保存到旁路文件
+     * @see #persistent
+     */
+    public void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    /**
+     * 行索引构建器
+     * <p>记录的位置必须来自同一次从文件开头开始的完整读取，第 0 行总是从 (0, 0) 开始，不需要记录</p>
+     */
+    public class Builder {
+        /**
+         * 开始建立索引时文本文件的字节数
+         */
+        private long fileSize;
+        /**
+         * 开始建立索引时文本文件的修改时间
+         */
+        private long lastModified;
+        /**
+         * 已记录的行开头字符索引
+         */
+        private long[] charPositions=new long[16];
+        /**
+         * 已记录的行开头字节位置
+         */
+        private long[] bytePositions=new long[16];
+        /**
+         * 已记录的数量
+         */
+        private int size=1;
+
+        private Builder(long fileSize, long lastModified) {
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * 记录一行开头的位置，只有行号是 {@link #interval} 的倍数时才会真正记录
+         * @param line 行号，必须按顺序逐行记录
+         * @param charPosition 该行开头的字符索引
+         * @param bytePosition 该行开头的字节位置；无法得到字节位置时为 -1
+         */
+        public void record(long line, long charPosition, long bytePosition){
+            if(line==0 || line%interval!=0){
+                return;
+            }
+            if(size==charPositions.length){
+                charPositions=Arrays.copyOf(charPositions,size*2);
+                bytePositions=Arrays.copyOf(bytePositions,size*2);
+            }
+            charPositions[size]=charPosition;
+            bytePositions[size]=bytePosition;
+            size++;
+        }
+
+        /**
+         * 完整读取文本后调用，使索引生效
+         * @param lineCount 文本的行数
+         */
+        public void complete(long lineCount){
+            install(this,lineCount);
+        }
+
+        /**
+         * 开启 {@link #appendOnly} 时，文本文件的前 fileSize 个字节已经读取完整后调用，使目前记录的位置生效；
+         * 之后可以继续记录追加的文本，并再次调用该方法
+         * @param lineCount 前 fileSize 个字节的行数
+         * @param fileSize 已经读取完整的字节数，必须在字符的边界上
+         */
+        public void complete(long lineCount, long fileSize){
+            this.fileSize=fileSize;
+            this.lastModified=textFile.lastModified();
+            install(this,lineCount);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package czb.framework.bigtext.core.output;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 复用固定大小的直接缓冲区的池
+ * <p>直接缓冲区的分配和回收代价都比较高，输出端关闭后把缓冲区还给池，下一个输出端可以直接使用；
+ * 池中最多保留 {@link #maxPooled} 个缓冲区，多余的交给垃圾回收。该类是线程安全的</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class ByteBufferPool {
+
+    /**
+     * 每个缓冲区的字节数
+     */
+    private int bufferSize;
+    /**
+     * 池中最多保留的缓冲区数
+     */
+    private int maxPooled;
+    /**
+     * 空闲的缓冲区
+     */
+    private ConcurrentLinkedQueue<ByteBuffer> buffers=new ConcurrentLinkedQueue<>();
+    /**
+     * {@link #buffers} 中的缓冲区数
+     */
+    private AtomicInteger pooled=new AtomicInteger();
+
+    /**
+     * 新建一个 {@link ByteBufferPool} 实例
+     * @param bufferSize 每个缓冲区的字节数，必须大于 0
+     * @param maxPooled 池中最多保留的缓冲区数，不能小于 0
+     */
+    public ByteBufferPool(int bufferSize, int maxPooled) {
+        if(bufferSize<=0){
+            throw new IllegalArgumentException("bufferSize must be positive: "+bufferSize);
+        }
+        if(maxPooled<0){
+            throw new IllegalArgumentException("maxPooled must not be negative: "+maxPooled);
+        }
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * 取出一个清空的缓冲区，池为空时分配新的直接缓冲区
+     * @return 缓冲区
+     */
+    public ByteBuffer acquire(){
+        ByteBuffer buffer=buffers.poll();
+        if(buffer==null){
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 把缓冲区还给池，还回之后不能再使用该缓冲区
+     * @param buffer 由 {@link #acquire()} 取出的缓冲区
+     */
+    public void release(ByteBuffer buffer){
+        if(buffer.capacity()!=bufferSize || !buffer.isDirect()){
+            return;
+        }
+        if(pooled.incrementAndGet()>maxPooled){
+            pooled.decrementAndGet();
+            return;
+        }
+        buffers.offer(buffer);
+    }
+
+    /**
+     * 获取 每个缓冲区的字节数
+     * @see #bufferSize
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+}
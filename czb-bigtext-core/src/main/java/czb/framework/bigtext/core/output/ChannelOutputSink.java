@@ -0,0 +1,360 @@
+package czb.framework.bigtext.core.output;
+
+import czb.framework.bigtext.core.exception.BigTextException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 通过 {@link FileChannel} 写入文件的输出端
+ * <p>文本由指定编码的 {@link CharsetEncoder} 直接编码到 {@link #BUFFER_COUNT} 个 {@link #BUFFER_SIZE} 字节的直接缓冲区中，
+ * 全部写满后用一次聚集写入（{@link FileChannel#write(ByteBuffer[], int, int)}）写入文件，
+ * 不会像 {@link java.io.OutputStreamWriter} 那样每次写入都经过一个小的中间缓冲区；
+ * 缓冲区来自共享的 {@link ByteBufferPool} ，关闭后还给池，供后续的输出端复用。</p>
+ * <p>与 {@link java.io.OutputStreamWriter} 一样，无法编码的字符和不成对的代理字符写入为编码的替换字节；
+ * 一次写入以高代理字符结尾时，该字符会暂存到下一次写入，所以代理对可以跨写入被拆开。
+ * 何时把内容强制同步到存储设备由 {@link FsyncPolicy} 决定</p>
+ * <p>{@link #transfer(File, long, long)} 可以把另一个文件的字节范围直接复制到该文件，不解码也不编码，
+ * 用于复制与输出编码相同、内容不变的文本</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class ChannelOutputSink implements OutputSink {
+
+    /**
+     * 每个缓冲区的字节数：64K
+     */
+    public final static int BUFFER_SIZE=64*1024;
+    /**
+     * 每个输出端使用的缓冲区数，也是一次聚集写入的最大缓冲区数
+     */
+    public final static int BUFFER_COUNT=4;
+    /**
+     * 所有输出端共享的缓冲区池，最多保留 64 个缓冲区，即 4M
+     */
+    private final static ByteBufferPool POOL=new ByteBufferPool(BUFFER_SIZE,64);
+
+    /**
+     * 要写入的文件
+     */
+    private File file;
+    /**
+     * 写入 {@link #file} 的通道
+     */
+    private FileChannel channel;
+    /**
+     * 文本编码器
+     */
+    private CharsetEncoder encoder;
+    /**
+     * 强制同步的时机
+     */
+    private FsyncPolicy fsyncPolicy;
+    /**
+     * 缓冲区，按需从 {@link #POOL} 取出
+     */
+    private ByteBuffer[] buffers=new ByteBuffer[BUFFER_COUNT];
+    /**
+     * 正在写入的缓冲区的下标，之前的缓冲区都已写满
+     */
+    private int current;
+    /**
+     * 上一次写入结尾没有编码的字符，一般是高代理字符
+     */
+    private char[] pending=new char[2];
+    /**
+     * {@link #pending} 中有效的字符数
+     */
+    private int pendingLength;
+    /**
+     * 已写入文件的字节数
+     */
+    private long bytesWritten;
+    /**
+     * 是否已关闭
+     */
+    private boolean closed;
+
+    /**
+     * 新建一个 {@link ChannelOutputSink} 实例，不主动同步
+     * @param file 要写入的文件，已存在时清空原有内容
+     * @param charset 文本编码
+     */
+    public ChannelOutputSink(File file, Charset charset) {
+        this(file,charset,FsyncPolicy.NEVER);
+    }
+
+    /**
+     * 新建一个 {@link ChannelOutputSink} 实例
+     * @param file 要写入的文件，已存在时清空原有内容
+     * @param charset 文本编码
+     * @param fsyncPolicy 强制同步的时机
+     */
+    public ChannelOutputSink(File file, Charset charset, FsyncPolicy fsyncPolicy) {
+        this.file = file;
+        this.fsyncPolicy = fsyncPolicy;
+        this.encoder=charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        try {
+            this.channel=FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE,StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new BigTextException(" write in tempFile: "+file.getAbsolutePath()+" fail",e);
+        }
+        buffers[0]=POOL.acquire();
+    }
+
+    /**
+     * 创建打开 {@link ChannelOutputSink} 的工厂
+     * @param charset 文本编码
+     * @param fsyncPolicy 强制同步的时机
+     * @return 输出端工厂
+     */
+    public static OutputSinkFactory factory(Charset charset, FsyncPolicy fsyncPolicy){
+        return file -> new ChannelOutputSink(file,charset,fsyncPolicy);
+    }
+
+    @Override
+    public void write(char[] buff, int offset, int length) {
+        if(closed){
+            throw new IllegalStateException("output sink is closed: "+file.getAbsolutePath());
+        }
+        //先把上一次剩下的字符和本次开头的字符拼起来编码
+        while (pendingLength>0 && length>0){
+            int taken=Math.min(length,2);
+            char[] joined=Arrays.copyOf(pending,pendingLength+taken);
+            System.arraycopy(buff,offset,joined,pendingLength,taken);
+            CharBuffer in=CharBuffer.wrap(joined);
+            encode(in,false);
+            int consumed=in.position()-pendingLength;
+            if(consumed<0){
+                savePending(in);
+                offset+=taken;
+                length-=taken;
+            }else{
+                pendingLength=0;
+                offset+=consumed;
+                length-=consumed;
+            }
+        }
+        if(length==0){
+            return;
+        }
+        CharBuffer in=CharBuffer.wrap(buff,offset,length);
+        encode(in,false);
+        savePending(in);
+    }
+
+    /**
+     * 把 source 中 [start, end) 字节范围直接复制到该文件，复制前先写入缓冲区中的字节
+     * <p>使用 {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} 复制，
+     * 由操作系统在内核中完成（Linux 上为 sendfile 或 copy_file_range），字节不经过 Java 堆；
+     * 调用方需要保证 source 的编码与该输出端相同，并且 start 和 end 都在字符的边界上</p>
+     * @param source 要复制的文件
+     * @param start 开始字节位置
+     * @param end 结束字节位置（不包含）
+     */
+    public void transfer(File source, long start, long end){
+        if(closed){
+            throw new IllegalStateException("output sink is closed: "+file.getAbsolutePath());
+        }
+        if(pendingLength>0){
+            //暂存的高代理字符后面不会再有低代理字符，写入为替换字节
+            encode(CharBuffer.wrap(pending,0,pendingLength),true);
+            pendingLength=0;
+            flushEncoder();
+            encoder.reset();
+        }
+        flush();
+        try(FileChannel sourceChannel=FileChannel.open(source.toPath(), StandardOpenOption.READ)){
+            long position=start;
+            //transferTo 一次可能只复制一部分字节
+            while (position<end){
+                long transferred=sourceChannel.transferTo(position,end-position,channel);
+                if(transferred<=0){
+                    throw new IOException("unexpected end of file at byte "+position);
+                }
+                position+=transferred;
+                bytesWritten+=transferred;
+            }
+            if(end>start && fsyncPolicy==FsyncPolicy.ON_FLUSH){
+                channel.force(false);
+            }
+        } catch (NoSuchFileException e) {
+            throw new BigTextException(" no found text file: "+source.getAbsolutePath(),e);
+        } catch (IOException e) {
+            throw new BigTextException(" write in tempFile: "+file.getAbsolutePath()+" fail",e);
+        }
+    }
+
+    /**
+     * 把 in 中没有编码的字符暂存到 {@link #pending}
+     * @param in 编码后的字符缓冲区
+     */
+    private void savePending(CharBuffer in){
+        pendingLength=in.remaining();
+        if(pendingLength>pending.length){
+            pending=new char[pendingLength];
+        }
+        in.get(pending,0,pendingLength);
+    }
+
+    /**
+     * 把 in 中的字符编码到缓冲区，缓冲区全部写满时写入文件
+     * @param in 字符缓冲区
+     * @param endOfInput 是否没有更多的输入
+     */
+    private void encode(CharBuffer in, boolean endOfInput){
+        while (true){
+            CoderResult result=encoder.encode(in,buffers[current],endOfInput);
+            if(result.isOverflow()){
+                nextBuffer();
+            }else if(result.isError()){
+                throwCodingError(result);
+            }else{
+                return;
+            }
+        }
+    }
+
+    /**
+     * 切换到下一个缓冲区，所有缓冲区都已写满时先写入文件
+     */
+    private void nextBuffer(){
+        if(current==BUFFER_COUNT-1){
+            flush();
+            return;
+        }
+        current++;
+        if(buffers[current]==null){
+            buffers[current]=POOL.acquire();
+        }
+    }
+
+    /**
+     * 用一次聚集写入把所有缓冲区中的字节写入文件，然后清空缓冲区
+     */
+    private void flush(){
+        long remaining=0;
+        for (int i = 0; i <= current; i++) {
+            buffers[i].flip();
+            remaining+=buffers[i].remaining();
+        }
+        try {
+            long total=remaining;
+            //聚集写入一次可能只写入一部分字节
+            while (remaining>0){
+                remaining-=channel.write(buffers,0,current+1);
+            }
+            bytesWritten+=total;
+            if(total>0 && fsyncPolicy==FsyncPolicy.ON_FLUSH){
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new BigTextException(" write in tempFile: "+file.getAbsolutePath()+" fail",e);
+        }
+        for (int i = 0; i <= current; i++) {
+            buffers[i].clear();
+        }
+        current=0;
+    }
+
+    @Override
+    public void close() {
+        if(closed){
+            return;
+        }
+        closed=true;
+        try {
+            //剩下的字符不会再有后续输入，不成对的代理字符写入为替换字节
+            encode(CharBuffer.wrap(pending,0,pendingLength),true);
+            pendingLength=0;
+            flushEncoder();
+            flush();
+            if(fsyncPolicy!=FsyncPolicy.NEVER){
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            throw new BigTextException(" write in tempFile: "+file.getAbsolutePath()+" fail",e);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new BigTextException(" close tempFile: "+file.getAbsolutePath()+" fail",e);
+            } finally {
+                for (int i = 0; i < buffers.length; i++) {
+                    if(buffers[i]!=null){
+                        POOL.release(buffers[i]);
+                        buffers[i]=null;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 把编码器内部暂存的字节输出到缓冲区
+     */
+    private void flushEncoder(){
+        CoderResult result;
+        while ((result=encoder.flush(buffers[current])).isOverflow()){
+            nextBuffer();
+        }
+        if(result.isError()){
+            throwCodingError(result);
+        }
+    }
+
+    /**
+     * 把编码错误转换成 {@link BigTextException} 抛出，错误处理方式为替换，正常情况下不会发生
+     * @param result 编码结果
+     */
+    private void throwCodingError(CoderResult result){
+        try {
+            result.throwException();
+        } catch (CharacterCodingException e) {
+            throw new BigTextException(" write in tempFile: "+file.getAbsolutePath()+" fail",e);
+        }
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * 获取 要写入的文件
+     * @see #file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 获取 文本编码
+     */
+    public Charset getCharset() {
+        return encoder.charset();
+    }
+
+    /**
+     * 获取 强制同步的时机
+     * @see #fsyncPolicy
+     */
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+}
@@ -0,0 +1,23 @@
+package czb.framework.bigtext.core.output;
+
+/**
+ * {@link ChannelOutputSink} 把写入的内容强制同步到存储设备的时机
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public enum FsyncPolicy {
+
+    /**
+     * 不主动同步，由操作系统决定何时写入存储设备
+     */
+    NEVER,
+    /**
+     * 关闭时同步一次文件的内容和元数据
+     */
+    ON_CLOSE,
+    /**
+     * 每次把缓冲区写入文件后都同步文件的内容，关闭时再同步一次文件的内容和元数据
+     */
+    ON_FLUSH
+}
@@ -0,0 +1,40 @@
+package czb.framework.bigtext.core.output;
+
+/**
+ * 把文本编码后写入文件的输出端
+ * <p>文本按原顺序分多次写入，写入结束后调用一次 {@link #close()}；
+ * 一个输出端同一时刻只能由一个线程使用</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public interface OutputSink {
+
+    /**
+     * 写入 buff 中从 offset 开始的 length 个字符
+     * @param buff 字符数组，只在该方法执行期间有效，不能保存引用
+     * @param offset 开始位置
+     * @param length 字符数
+     */
+    void write(char[] buff, int offset, int length);
+
+    /**
+     * 写入字符串
+     * @param str 字符串
+     */
+    default void write(String str){
+        write(str.toCharArray(),0,str.length());
+    }
+
+    /**
+     * 输出所有暂存的内容并关闭文件，重复调用不会有任何效果
+     */
+    void close();
+
+    /**
+     * 获取已写入文件的字节数
+     * <p>暂存在缓冲区中还没有写入文件的字节不计算在内，关闭后就是文件的字节数</p>
+     * @return 已写入文件的字节数
+     */
+    long getBytesWritten();
+}
@@ -0,0 +1,20 @@
+package czb.framework.bigtext.core.output;
+
+import java.io.File;
+
+/**
+ * 为文件打开 {@link OutputSink} 的工厂
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+@FunctionalInterface
+public interface OutputSinkFactory {
+
+    /**
+     * 打开写入 file 的输出端，file 已存在时清空原有内容
+     * @param file 要写入的文件
+     * @return 输出端
+     */
+    OutputSink open(File file);
+}
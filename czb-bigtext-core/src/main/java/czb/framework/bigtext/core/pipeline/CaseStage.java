@@ -0,0 +1,120 @@
+package czb.framework.bigtext.core.pipeline;
+
+import java.util.Locale;
+
+/**
+ * 将所有字母转换成小写或大写字母的步骤
+ * <p>与 {@link czb.framework.bigtext.core.command.ToLowerCaseCommand} 一样，纯 ASCII 的文本逐个字符转换；
+ * 结尾是高代理项的文本会把该字符留到下一次写入，保证增补字符不会被拆开转换</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ * @see String#toLowerCase(Locale)
+ * @see String#toUpperCase(Locale)
+ */
+public class CaseStage extends TransformStage {
+
+    /**
+     * 请查阅 {@link String#toLowerCase(Locale)}
+     */
+    private Locale locale;
+    /**
+     * 是否转换成大写字母
+     */
+    private boolean upper;
+    /**
+     * 是否可以对 ASCII 字符逐个转换；土耳其语、阿塞拜疆语和立陶宛语对 ASCII 字母有特殊的大小写规则，不能逐个转换
+     */
+    private boolean asciiFastPath;
+    /**
+     * 转换 ASCII 文本时复用的字符数组
+     */
+    private char[] scratch;
+    /**
+     * 上一次写入结尾的高代理项，0 表示没有
+     */
+    private char highSurrogate;
+
+    /**
+     * 新建一个 {@link CaseStage} 实例
+     * @param locale 请查阅 {@link String#toLowerCase(Locale)}
+     * @param upper 为 true 时转换成大写字母;否则转换成小写字母
+     * @param next 下一个步骤
+     */
+    public CaseStage(Locale locale, boolean upper, TextSink next) {
+        super(next);
+        this.locale = locale;
+        this.upper = upper;
+        String language=locale.getLanguage();
+        this.asciiFastPath=!"tr".equals(language) && !"az".equals(language) && !"lt".equals(language);
+    }
+
+    @Override
+    public void write(char[] buff, int offset, int length) {
+        if(length==0){
+            return;
+        }
+        if(highSurrogate==0 && asciiFastPath && isAscii(buff,offset,length)){
+            if(scratch==null || scratch.length<length){
+                scratch=new char[length];
+            }
+            for (int i = 0; i < length; i++) {
+                char c=buff[offset+i];
+                if(upper){
+                    scratch[i]= c>='a' && c<='z' ? (char) (c-32) : c;
+                }else{
+                    scratch[i]= c>='A' && c<='Z' ? (char) (c+32) : c;
+                }
+            }
+            next.write(scratch,0,length);
+            return;
+        }
+        StringBuilder text=new StringBuilder(length+1);
+        if(highSurrogate!=0){
+            text.append(highSurrogate);
+            highSurrogate=0;
+        }
+        int end=offset+length;
+        if(Character.isHighSurrogate(buff[end-1])){
+            highSurrogate=buff[--end];
+        }
+        text.append(buff,offset,end-offset);
+        if(text.length()>0){
+            next.write(convert(text.toString()));
+        }
+    }
+
+    @Override
+    public void finish() {
+        if(highSurrogate!=0){
+            next.write(convert(String.valueOf(highSurrogate)));
+            highSurrogate=0;
+        }
+        super.finish();
+    }
+
+    /**
+     * 转换字符串
+     * @param text 字符串
+     * @return 转换后的字符串
+     */
+    private String convert(String text){
+        return upper ? text.toUpperCase(locale) : text.toLowerCase(locale);
+    }
+
+    /**
+     * 这段文本是否只包含 ASCII 字符
+     * @param buff 字符数组
+     * @param offset 这段文本在 buff 中的开始位置
+     * @param length 这段文本的字符数
+     * @return 如果只包含 ASCII 字符，返回 true;否则返回 false
+     */
+    private static boolean isAscii(char[] buff, int offset, int length){
+        for (int i = offset; i < offset+length; i++) {
+            if(buff[i]>=0x80){
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,60 @@
+package czb.framework.bigtext.core.pipeline;
+
+import czb.framework.bigtext.core.search.AhoCorasick;
+import czb.framework.bigtext.core.search.StreamReplacer;
+
+import java.util.Map;
+
+/**
+ * 把多个 oldStr 分别覆盖成对应 newStr 的步骤
+ * <p>使用 {@link StreamReplacer} 按最左最长的方式替换</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ * @see czb.framework.bigtext.core.command.DictionaryReplaceCommand
+ */
+public class DictionaryReplaceStage extends TransformStage {
+
+    /**
+     * 跨段替换的流式替换器
+     */
+    private StreamReplacer replacer;
+
+    /**
+     * 新建一个 {@link DictionaryReplaceStage} 实例
+     * @param replacements 旧字符串 -&gt; 新字符串，旧字符串不能为空字符串
+     * @param next 下一个步骤
+     */
+    public DictionaryReplaceStage(Map<String,String> replacements, TextSink next) {
+        super(next);
+        AhoCorasick automaton=new AhoCorasick(replacements.keySet().toArray(new String[0]));
+        String[] newStrs=new String[automaton.size()];
+        for (int i = 0; i < newStrs.length; i++) {
+            newStrs[i]=replacements.get(automaton.getKeyword(i));
+        }
+        //替换结果直接输出到下一个步骤
+        this.replacer=new StreamReplacer(automaton,newStrs,new StreamReplacer.Output() {
+            @Override
+            public void write(char[] buff, int offset, int length) {
+                next.write(buff,offset,length);
+            }
+
+            @Override
+            public void write(String str) {
+                next.write(str);
+            }
+        });
+    }
+
+    @Override
+    public void write(char[] buff, int offset, int length) {
+        replacer.feed(buff,offset,length);
+    }
+
+    @Override
+    public void finish() {
+        //输出替换器暂存的尾部字符
+        replacer.finish();
+        super.finish();
+    }
+}
@@ -0,0 +1,65 @@
+package czb.framework.bigtext.core.pipeline;
+
+import czb.framework.bigtext.core.search.RegexReplacement;
+import czb.framework.bigtext.core.search.StreamRegexMatcher;
+
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+
+/**
+ * 将正则表达式的所有匹配项覆盖成 replacement 的步骤
+ * <p>使用 {@link StreamRegexMatcher} 在滑动窗口中查找，replacement 的语法请查阅 {@link RegexReplacement}</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ * @see czb.framework.bigtext.core.command.RegexReplaceCommand
+ */
+public class RegexReplaceStage extends TransformStage implements StreamRegexMatcher.MatchListener {
+
+    /**
+     * 解析后的 replacement
+     */
+    private RegexReplacement replacement;
+    /**
+     * 跨段查找正则表达式的流式查找器
+     */
+    private StreamRegexMatcher matcher;
+
+    /**
+     * 新建一个 {@link RegexReplaceStage} 实例
+     * @param pattern 要查找的正则表达式
+     * @param replacement 替换字符串
+     * @param maxMatchLength 匹配项的最大长度
+     * @param next 下一个步骤
+     * @throws IllegalArgumentException 如果 replacement 的语法错误
+     * @throws IndexOutOfBoundsException 如果 replacement 引用了不存在的捕获组序号
+     */
+    public RegexReplaceStage(Pattern pattern, String replacement, int maxMatchLength, TextSink next) {
+        super(next);
+        this.replacement=new RegexReplacement(replacement,pattern.matcher("").groupCount());
+        this.matcher=new StreamRegexMatcher(pattern,maxMatchLength,this);
+    }
+
+    @Override
+    public void write(char[] buff, int offset, int length) {
+        matcher.feed(buff,offset,length);
+    }
+
+    @Override
+    public void finish() {
+        //输出查找器窗口中剩余的字符
+        matcher.finish();
+        super.finish();
+    }
+
+    @Override
+    public void onText(char[] buff, int offset, int length) {
+        next.write(buff,offset,length);
+    }
+
+    @Override
+    public boolean onMatch(long position, MatchResult result) {
+        replacement.expand(result,next::write);
+        return true;
+    }
+}
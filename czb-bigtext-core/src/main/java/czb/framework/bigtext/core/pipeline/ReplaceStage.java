@@ -0,0 +1,58 @@
+package czb.framework.bigtext.core.pipeline;
+
+import czb.framework.bigtext.core.search.StreamSearcher;
+
+/**
+ * 将 oldStr 覆盖成 newStr 的步骤
+ * <p>使用 {@link StreamSearcher} 查找，跨越两次写入的 oldStr 也能被覆盖</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ * @see czb.framework.bigtext.core.command.ReplaceCommand
+ */
+public class ReplaceStage extends TransformStage implements StreamSearcher.MatchListener {
+
+    /**
+     * 新字符串
+     */
+    private String newStr;
+    /**
+     * 跨段查找 oldStr 的流式查找器
+     */
+    private StreamSearcher searcher;
+
+    /**
+     * 新建一个 {@link ReplaceStage} 实例
+     * @param oldStr 旧字符串，不能为空字符串
+     * @param newStr 新字符串
+     * @param next 下一个步骤
+     */
+    public ReplaceStage(String oldStr, String newStr, TextSink next) {
+        super(next);
+        this.newStr = newStr;
+        this.searcher=new StreamSearcher(oldStr,this);
+    }
+
+    @Override
+    public void write(char[] buff, int offset, int length) {
+        searcher.feed(buff,offset,length);
+    }
+
+    @Override
+    public void finish() {
+        //输出查找器保留下来的尾部字符
+        searcher.finish();
+        super.finish();
+    }
+
+    @Override
+    public void onText(char[] buff, int offset, int length) {
+        next.write(buff,offset,length);
+    }
+
+    @Override
+    public boolean onMatch(long position) {
+        next.write(newStr);
+        return true;
+    }
+}
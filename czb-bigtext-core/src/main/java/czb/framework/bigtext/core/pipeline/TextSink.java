@@ -0,0 +1,32 @@
+package czb.framework.bigtext.core.pipeline;
+
+/**
+ * 流水线中接收文本的一端
+ * <p>文本按原顺序分多次写入，写入结束后调用一次 {@link #finish()}</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public interface TextSink {
+
+    /**
+     * 写入 buff 中从 offset 开始的 length 个字符
+     * @param buff 字符数组，只在该方法执行期间有效，不能保存引用
+     * @param offset 开始位置
+     * @param length 字符数
+     */
+    void write(char[] buff, int offset, int length);
+
+    /**
+     * 写入字符串
+     * @param str 字符串
+     */
+    default void write(String str){
+        write(str.toCharArray(),0,str.length());
+    }
+
+    /**
+     * 写入结束，输出所有暂存的字符
+     */
+    void finish();
+}
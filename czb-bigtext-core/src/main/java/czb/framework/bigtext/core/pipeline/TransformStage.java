@@ -0,0 +1,33 @@
+package czb.framework.bigtext.core.pipeline;
+
+/**
+ * 流水线中的一个转换步骤
+ * <p>每个步骤把转换后的文本写入下一个步骤 {@link #next} ，所有步骤在同一次读取中依次完成，
+ * 中间结果不会写入临时文件</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public abstract class TransformStage implements TextSink {
+
+    /**
+     * 下一个步骤
+     */
+    protected final TextSink next;
+
+    /**
+     * 新建一个 {@link TransformStage} 实例
+     * @param next 下一个步骤
+     */
+    protected TransformStage(TextSink next) {
+        this.next = next;
+    }
+
+    /**
+     * 默认实现直接结束下一个步骤；暂存了字符的步骤需要先输出暂存的字符
+     */
+    @Override
+    public void finish() {
+        next.finish();
+    }
+}
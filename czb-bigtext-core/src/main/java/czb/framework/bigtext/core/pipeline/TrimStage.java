@@ -0,0 +1,100 @@
+package czb.framework.bigtext.core.pipeline;
+
+import java.util.Arrays;
+
+/**
+ * 修剪文本开头和结尾的步骤
+ * <p>开头的修剪字符直接丢弃；结尾的修剪字符要等到后面出现了不是修剪字符的字符才能确定不在结尾，
+ * 所以连续的修剪字符会先暂存起来，写入结束时仍在暂存的字符就是结尾的修剪字符。
+ * 与 {@link czb.framework.bigtext.core.command.TrimCommand} 不同，不需要从文件末尾倒着读取，可以修剪前面步骤转换后的文本</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class TrimStage extends TransformStage {
+
+    /**
+     * 是否把回车换行也当作修剪字符
+     */
+    private boolean trimCRLF;
+    /**
+     * 是否已经写出了不是修剪字符的字符
+     */
+    private boolean started;
+    /**
+     * 暂存的连续修剪字符
+     */
+    private char[] pending=new char[16];
+    /**
+     * {@link #pending} 中有效的字符数
+     */
+    private int pendingLength;
+
+    /**
+     * 新建一个 {@link TrimStage} 实例
+     * @param trimCRLF 为 true 时修剪空格和回车换行，与 {@link String#trim()} 不同，不修剪其他控制字符;否则只修剪空格
+     * @param next 下一个步骤
+     */
+    public TrimStage(boolean trimCRLF, TextSink next) {
+        super(next);
+        this.trimCRLF = trimCRLF;
+    }
+
+    @Override
+    public void write(char[] buff, int offset, int length) {
+        int st=offset;
+        int end=offset+length;
+        if(!started){
+            while (st<end && isTrimChar(buff[st])){
+                st++;
+            }
+            if(st==end){
+                return;
+            }
+            started=true;
+        }
+        int last=end;
+        while (last>st && isTrimChar(buff[last-1])){
+            last--;
+        }
+        if(last>st){
+            //出现了不是修剪字符的字符，暂存的修剪字符不在结尾
+            if(pendingLength>0){
+                next.write(pending,0,pendingLength);
+                pendingLength=0;
+            }
+            next.write(buff,st,last-st);
+        }
+        hold(buff,last,end-last);
+    }
+
+    @Override
+    public void finish() {
+        //仍在暂存的修剪字符就是结尾的修剪字符，直接丢弃
+        pendingLength=0;
+        super.finish();
+    }
+
+    /**
+     * 暂存连续的修剪字符
+     * @param buff 字符数组
+     * @param offset 开始位置
+     * @param length 字符数
+     */
+    private void hold(char[] buff, int offset, int length){
+        if(pendingLength+length>pending.length){
+            pending=Arrays.copyOf(pending,Math.max(pending.length*2,pendingLength+length));
+        }
+        System.arraycopy(buff,offset,pending,pendingLength,length);
+        pendingLength+=length;
+    }
+
+    /**
+     * 是否为修剪字符
+     * @param c 字符
+     * @return 如果是修剪字符，返回 true;否则返回 false
+     */
+    private boolean isTrimChar(char c){
+        return c==' ' || (trimCRLF && (c=='\r' || c=='\n'));
+    }
+}
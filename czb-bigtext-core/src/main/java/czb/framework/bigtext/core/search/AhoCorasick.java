@@ -0,0 +1,300 @@
+package czb.framework.bigtext.core.search;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+/**
+ * 多关键字查找的 Aho-Corasick 自动机
+ * <p>关键字中出现过的字符按字符的大小顺序各自映射成一个字符类，没有出现过的字符都属于字符类 0 。</p>
+ * <p>状态按广度优先的顺序编号，根状态和较浅的状态（编号小于 {@link #denseStateCount}）使用稠密的状态转移表，
+ * 以 状态 * 字符类数 + 字符类 为下标保存在一个 int 数组中，失败转移在建立自动机时就已经展开，查找时每个字符只需要查一次表；
+ * 稠密表的大小不超过 {@link #DENSE_CELL_LIMIT} 个 int ，其余的状态只保存按字符类排序的子状态，
+ * 没有子状态时沿失败转移回退，直到遇到稠密的状态。这样关键字很多、字符种类很多（例如几千个中文关键字）时，
+ * 自动机的内存也只与关键字的总长度成正比。</p>
+ * <p>每个状态记录 以该状态结尾的关键字 和 最近的带输出的后缀状态（输出链），沿输出链即可找到在当前位置结束的所有关键字。</p>
+ * <p>自动机建立后不会再改变，可以被多个 {@link MultiStreamSearcher} 同时使用</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class AhoCorasick {
+
+    /**
+     * 稠密状态转移表最多的 int 数：1M个，即 4M 字节
+     */
+    public final static int DENSE_CELL_LIMIT=1024*1024;
+    /**
+     * 状态数量的上限，关键字的总长度不能超过该值
+     */
+    private final static int MAX_STATES=Integer.MAX_VALUE-8;
+
+    /**
+     * 去重后的关键字，关键字的序号就是它在该数组中的下标
+     */
+    private String[] keywords;
+    /**
+     * 字符到字符类的映射，超出数组范围的字符属于字符类 0
+     */
+    private int[] charClasses;
+    /**
+     * 字符类的数量，包括字符类 0
+     */
+    private int classCount;
+    /**
+     * 使用稠密状态转移表的状态数量，编号小于该值的状态都是稠密的状态
+     */
+    private int denseStateCount;
+    /**
+     * 稠密状态的状态转移表，下标为 状态 * {@link #classCount} + 字符类
+     */
+    private int[] transitions;
+    /**
+     * 每个状态的子状态在 {@link #childClasses} 、{@link #childStates} 中的开始位置，最后一个元素为子状态的总数
+     */
+    private int[] childStarts;
+    /**
+     * 子状态的字符类，每个状态的子状态按字符类升序排列
+     */
+    private int[] childClasses;
+    /**
+     * 子状态，与 {@link #childClasses} 一一对应
+     */
+    private int[] childStates;
+    /**
+     * 每个状态的失败转移，即 最长的、同时是某个关键字前缀的真后缀 所对应的状态
+     */
+    private int[] failures;
+    /**
+     * 每个状态对应的前缀长度
+     */
+    int[] depths;
+    /**
+     * 以该状态结尾的关键字序号，-1 表示没有
+     */
+    int[] outputs;
+    /**
+     * 最近的带输出的真后缀状态，-1 表示没有
+     */
+    int[] outputLinks;
+    /**
+     * 最长关键字的长度
+     */
+    private int maxLength;
+
+    /**
+     * 新建一个 {@link AhoCorasick} 实例
+     * @param keywords 关键字，重复的关键字只保留一个，不能为空字符串
+     * @throws IllegalArgumentException 如果关键字为空字符串，或者关键字的总长度超过自动机能容纳的状态数量
+     */
+    public AhoCorasick(String... keywords) {
+        this.keywords=new LinkedHashSet<>(Arrays.asList(keywords)).toArray(new String[0]);
+        int maxChar=0;
+        long totalLength=0;
+        for (String keyword : this.keywords) {
+            if(keyword.isEmpty()){
+                throw new IllegalArgumentException("keyword must not be empty");
+            }
+            for (int i = 0; i < keyword.length(); i++) {
+                maxChar=Math.max(maxChar,keyword.charAt(i));
+            }
+            totalLength+=keyword.length();
+            maxLength=Math.max(maxLength,keyword.length());
+        }
+        if(totalLength>=MAX_STATES){
+            throw new IllegalArgumentException("keywords are too long to build an automaton: "+totalLength+" chars in total");
+        }
+        //字符类按字符的大小顺序编号，按字典序插入关键字时，每个状态的子状态按字符类升序建立
+        charClasses=new int[maxChar+1];
+        for (String keyword : this.keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                charClasses[keyword.charAt(i)]=1;
+            }
+        }
+        classCount=1;
+        for (int c = 0; c <= maxChar; c++) {
+            if(charClasses[c]!=0){
+                charClasses[c]=classCount++;
+            }
+        }
+        //按字典序插入关键字建立字典树，只需要和上一个关键字比较公共前缀，0 为根状态
+        int maxStates=(int) totalLength+1;
+        int[] parents=new int[maxStates];
+        int[] classes=new int[maxStates];
+        int[] trieDepths=new int[maxStates];
+        int[] trieOutputs=new int[maxStates];
+        Arrays.fill(trieOutputs,-1);
+        Integer[] order=new Integer[this.keywords.length];
+        for (int k = 0; k < order.length; k++) {
+            order[k]=k;
+        }
+        Arrays.sort(order,(a,b) -> this.keywords[a].compareTo(this.keywords[b]));
+        //上一个关键字每个前缀对应的状态
+        int[] path=new int[maxLength+1];
+        String previous="";
+        int stateCount=1;
+        for (int k : order) {
+            String keyword=this.keywords[k];
+            int common=0;
+            while (common<previous.length() && previous.charAt(common)==keyword.charAt(common)){
+                common++;
+            }
+            int state=path[common];
+            for (int i = common; i < keyword.length(); i++) {
+                parents[stateCount]=state;
+                classes[stateCount]=charClasses[keyword.charAt(i)];
+                trieDepths[stateCount]=i+1;
+                state=stateCount++;
+                path[i+1]=state;
+            }
+            trieOutputs[state]=k;
+            previous=keyword;
+        }
+        //按广度优先的顺序重新编号，较浅的状态编号较小
+        int[] trieChildStarts=new int[stateCount+1];
+        for (int state = 1; state < stateCount; state++) {
+            trieChildStarts[parents[state]+1]++;
+        }
+        for (int state = 0; state < stateCount; state++) {
+            trieChildStarts[state+1]+=trieChildStarts[state];
+        }
+        int[] trieChildren=new int[stateCount-1];
+        int[] fill=Arrays.copyOf(trieChildStarts,stateCount);
+        for (int state = 1; state < stateCount; state++) {
+            trieChildren[fill[parents[state]]++]=state;
+        }
+        int[] queue=new int[stateCount];
+        int[] ids=new int[stateCount];
+        int tail=1;
+        for (int head = 0; head < tail; head++) {
+            int state=queue[head];
+            ids[state]=head;
+            for (int j = trieChildStarts[state]; j < trieChildStarts[state+1]; j++) {
+                queue[tail++]=trieChildren[j];
+            }
+        }
+        depths=new int[stateCount];
+        outputs=new int[stateCount];
+        childStarts=new int[stateCount+1];
+        childClasses=new int[stateCount-1];
+        childStates=new int[stateCount-1];
+        for (int id = 0; id < stateCount; id++) {
+            int state=queue[id];
+            depths[id]=trieDepths[state];
+            outputs[id]=trieOutputs[state];
+            int start=childStarts[id];
+            int count=trieChildStarts[state+1]-trieChildStarts[state];
+            for (int j = 0; j < count; j++) {
+                int child=trieChildren[trieChildStarts[state]+j];
+                childClasses[start+j]=classes[child];
+                childStates[start+j]=ids[child];
+            }
+            childStarts[id+1]=start+count;
+        }
+        //按广度优先的顺序计算失败转移和输出链，失败转移总是指向编号更小的状态
+        denseStateCount=Math.max(1,Math.min(stateCount,DENSE_CELL_LIMIT/classCount));
+        transitions=new int[Math.multiplyExact(denseStateCount,classCount)];
+        failures=new int[stateCount];
+        outputLinks=new int[stateCount];
+        outputLinks[0]=-1;
+        for (int state = 0; state < stateCount; state++) {
+            int failure=failures[state];
+            if(state>0){
+                outputLinks[state]= outputs[failure]!=-1 ? failure : outputLinks[failure];
+            }
+            //稠密状态先继承失败转移的状态转移，再覆盖自己的子状态
+            if(state>0 && state<denseStateCount){
+                System.arraycopy(transitions,failure*classCount,transitions,state*classCount,classCount);
+            }
+            for (int j = childStarts[state]; j < childStarts[state+1]; j++) {
+                int child=childStates[j];
+                failures[child]= state==0 ? 0 : nextByClass(failure,childClasses[j]);
+                if(state<denseStateCount){
+                    transitions[state*classCount+childClasses[j]]=child;
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取状态 state 输入字符 c 后转移到的状态
+     * @param state 当前状态
+     * @param c 输入的字符
+     * @return 转移到的状态
+     */
+    int next(int state, char c){
+        int cls= c<charClasses.length ? charClasses[c] : 0;
+        if(state<denseStateCount){
+            return transitions[state*classCount+cls];
+        }
+        return nextByClass(state,cls);
+    }
+
+    /**
+     * 获取状态 state 输入字符类 cls 后转移到的状态
+     * <p>稀疏的状态在子状态中二分查找字符类，找不到时沿失败转移回退，直到找到子状态或者回退到稠密的状态</p>
+     * @param state 当前状态
+     * @param cls 输入的字符类
+     * @return 转移到的状态
+     */
+    private int nextByClass(int state, int cls){
+        if(cls==0){
+            return 0;
+        }
+        while (state>=denseStateCount){
+            int j=Arrays.binarySearch(childClasses,childStarts[state],childStarts[state+1],cls);
+            if(j>=0){
+                return childStates[j];
+            }
+            state=failures[state];
+        }
+        return transitions[state*classCount+cls];
+    }
+
+    /**
+     * 新建一个使用该自动机的流式查找器
+     * @param listener 匹配结果监听器
+     * @return 流式查找器
+     */
+    public MultiStreamSearcher newSearcher(MultiStreamSearcher.MatchListener listener){
+        return new MultiStreamSearcher(this,listener);
+    }
+
+    /**
+     * 获取 去重后的关键字，关键字的序号就是它在该数组中的下标
+     * @see #keywords
+     */
+    public String[] getKeywords() {
+        return keywords.clone();
+    }
+
+    /**
+     * 获取 序号为 i 的关键字
+     * @param i 关键字序号
+     * @return 关键字
+     */
+    public String getKeyword(int i) {
+        return keywords[i];
+    }
+
+    /**
+     * 获取 关键字的数量
+     */
+    public int size() {
+        return keywords.length;
+    }
+
+    /**
+     * 获取 最长关键字的长度
+     * @see #maxLength
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * 获取 状态的数量
+     */
+    public int getStateCount() {
+        return depths.length;
+    }
+}
@@ -0,0 +1,128 @@
+package czb.framework.bigtext.core.search;
+
+/**
+ * 跨段查找多个关键字的流式查找器
+ * <p>使用 {@link AhoCorasick} 自动机，按段调用 {@link #feed(char[], int, int)} 输入文本，自动机的状态会保留到下一段，
+ * 所以跨越两段的关键字也能被找到，一次读取即可找到所有关键字的所有匹配项（包括互相重叠的匹配项）。</p>
+ * <p>匹配项按结束位置的先后顺序通知 {@link MatchListener} ，结束位置相同时先通知较长的关键字；
+ * 查找过程中不会创建任何对象</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class MultiStreamSearcher {
+
+    /**
+     * 多关键字查找的自动机
+     */
+    private AhoCorasick automaton;
+    /**
+     * 匹配结果监听器
+     */
+    private MatchListener listener;
+    /**
+     * 自动机的当前状态
+     */
+    private int state;
+    /**
+     * 已输入的字符总数
+     */
+    private long consumed;
+    /**
+     * 是否继续查找匹配项
+     */
+    private boolean matching=true;
+
+    /**
+     * 新建一个 {@link MultiStreamSearcher} 实例
+     * @param automaton 多关键字查找的自动机
+     * @param listener 匹配结果监听器
+     */
+    public MultiStreamSearcher(AhoCorasick automaton, MatchListener listener) {
+        this.automaton = automaton;
+        this.listener = listener;
+    }
+
+    /**
+     * 输入一段文本
+     * <p>段的内容在方法返回后就不会再被引用，调用方可以复用该字符数组</p>
+     * @param buff 字符数组
+     * @param offset 段在字符数组中的开始位置
+     * @param length 段的字符数
+     */
+    public void feed(char[] buff, int offset, int length){
+        if(!matching){
+            consumed+=length;
+            return;
+        }
+        int[] outputs=automaton.outputs;
+        int[] outputLinks=automaton.outputLinks;
+        int[] depths=automaton.depths;
+        int s=state;
+        //buff 中下标为 i 的字符在全文中的索引为 base+i
+        long base=consumed-offset;
+        for (int i = offset; i < offset+length; i++) {
+            char c=buff[i];
+            s=automaton.next(s,c);
+            int out= outputs[s]!=-1 ? s : outputLinks[s];
+            while (out!=-1){
+                if(!listener.onMatch(outputs[out],base+i+1-depths[out])){
+                    matching=false;
+                    state=s;
+                    consumed+=length;
+                    return;
+                }
+                out=outputLinks[out];
+            }
+        }
+        state=s;
+        consumed+=length;
+    }
+
+    /**
+     * 获取 已输入的字符总数
+     * @see #consumed
+     */
+    public long getConsumed() {
+        return consumed;
+    }
+
+    /**
+     * 后续输入的文本中，新的匹配项最早可能开始的字符索引
+     * <p>自动机的当前状态对应已输入文本最长的、同时是某个关键字前缀的后缀，新的匹配项只能从这个后缀或者之后开始</p>
+     * @return 新的匹配项最早可能开始的字符索引
+     */
+    public long getPendingStart() {
+        return consumed-automaton.depths[state];
+    }
+
+    /**
+     * 获取 是否继续查找匹配项
+     * @see #matching
+     */
+    public boolean isMatching() {
+        return matching;
+    }
+
+    /**
+     * 获取 多关键字查找的自动机
+     * @see #automaton
+     */
+    public AhoCorasick getAutomaton() {
+        return automaton;
+    }
+
+    /**
+     * 匹配结果监听器
+     */
+    public interface MatchListener {
+
+        /**
+         * 找到一个匹配项
+         * @param keyword 关键字序号，见 {@link AhoCorasick#getKeyword(int)}
+         * @param position 匹配项在已输入文本中的字符索引
+         * @return 返回 true 继续查找；返回 false 则不再查找
+         */
+        boolean onMatch(int keyword, long position);
+    }
+}
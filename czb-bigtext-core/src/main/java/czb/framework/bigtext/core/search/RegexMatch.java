@@ -0,0 +1,78 @@
+package czb.framework.bigtext.core.search;
+
+import java.util.regex.MatchResult;
+
+/**
+ * 正则表达式的一个匹配项
+ * <p>保存匹配项的全局字符索引和各个捕获组的内容，读取结束后仍然有效</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class RegexMatch {
+
+    /**
+     * 匹配项第一个字符的全局字符索引
+     */
+    private long start;
+    /**
+     * 各个捕获组的内容，下标 0 为整个匹配项；没有参与匹配的捕获组为 null
+     */
+    private String[] groups;
+
+    /**
+     * 新建一个 {@link RegexMatch} 实例
+     * @param start 匹配项第一个字符的全局字符索引
+     * @param result 匹配结果，只读取它的捕获组内容
+     */
+    public RegexMatch(long start, MatchResult result) {
+        this.start = start;
+        this.groups=new String[result.groupCount()+1];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i]=result.group(i);
+        }
+    }
+
+    /**
+     * 获取 匹配项第一个字符的全局字符索引
+     * @see #start
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * 获取 匹配项最后一个字符之后的全局字符索引
+     */
+    public long getEnd() {
+        return start+groups[0].length();
+    }
+
+    /**
+     * 获取 整个匹配项的内容
+     */
+    public String group() {
+        return groups[0];
+    }
+
+    /**
+     * 获取 第 group 个捕获组的内容
+     * @param group 捕获组序号，0 表示整个匹配项
+     * @return 捕获组的内容；没有参与匹配时返回 null
+     */
+    public String group(int group) {
+        return groups[group];
+    }
+
+    /**
+     * 获取 捕获组的数量，不包括整个匹配项
+     */
+    public int groupCount() {
+        return groups.length-1;
+    }
+
+    @Override
+    public String toString() {
+        return "RegexMatch{start="+start+", group='"+groups[0]+"'}";
+    }
+}
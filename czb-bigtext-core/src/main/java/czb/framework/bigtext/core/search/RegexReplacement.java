@@ -0,0 +1,137 @@
+package czb.framework.bigtext.core.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+
+/**
+ * 解析后的正则表达式替换字符串
+ * <p>语法与 {@link Matcher#appendReplacement(StringBuffer, String)} 一致：$n 、${name} 引用捕获组，反斜杠转义下一个字符。
+ * replacement 只在创建时解析一次，每个匹配项只需要按顺序输出各个部分</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class RegexReplacement {
+
+    /**
+     * 解析后的 replacement ，元素为 字面文本（{@link String}） 、捕获组序号（{@link Integer}） 或 捕获组名称（{@link GroupName}）
+     */
+    private List<Object> parts;
+
+    /**
+     * 新建一个 {@link RegexReplacement} 实例
+     * @param replacement 替换字符串
+     * @param groupCount 正则表达式的捕获组数量
+     * @throws IllegalArgumentException 如果 replacement 的语法错误
+     * @throws IndexOutOfBoundsException 如果 replacement 引用了不存在的捕获组序号
+     */
+    public RegexReplacement(String replacement, int groupCount) {
+        this.parts=parseReplacement(replacement,groupCount);
+    }
+
+    /**
+     * 按顺序输出一个匹配项的替换结果的各个部分，没有参与匹配的捕获组不输出
+     * @param result 匹配结果，引用捕获组名称时必须是 {@link Matcher}
+     * @param output 各个部分的输出
+     */
+    public void expand(MatchResult result, Consumer<String> output){
+        for (Object part : parts) {
+            String text;
+            if(part instanceof String){
+                text=(String) part;
+            }else if(part instanceof Integer){
+                text=result.group((Integer) part);
+            }else{
+                text=((Matcher) result).group(((GroupName) part).name);
+            }
+            if(text!=null){
+                output.accept(text);
+            }
+        }
+    }
+
+    /**
+     * 解析 replacement
+     * @param replacement 替换字符串
+     * @param groupCount 正则表达式的捕获组数量
+     * @return 解析后的各个部分
+     */
+    private static List<Object> parseReplacement(String replacement, int groupCount){
+        List<Object> parts=new ArrayList<>();
+        StringBuilder literal=new StringBuilder();
+        int i=0;
+        while (i<replacement.length()){
+            char c=replacement.charAt(i++);
+            if(c=='\\'){
+                if(i==replacement.length()){
+                    throw new IllegalArgumentException("character to be escaped is missing");
+                }
+                literal.append(replacement.charAt(i++));
+            }else if(c=='$'){
+                if(i==replacement.length()){
+                    throw new IllegalArgumentException("Illegal group reference: group index is missing");
+                }
+                Object ref;
+                if(replacement.charAt(i)=='{'){
+                    int close=replacement.indexOf('}',i);
+                    if(close==-1){
+                        throw new IllegalArgumentException("named capturing group is missing trailing '}'");
+                    }
+                    if(close==i+1){
+                        throw new IllegalArgumentException("named capturing group has 0 length name");
+                    }
+                    ref=new GroupName(replacement.substring(i+1,close));
+                    i=close+1;
+                }else{
+                    int group=replacement.charAt(i)-'0';
+                    if(group<0 || group>9){
+                        throw new IllegalArgumentException("Illegal group reference");
+                    }
+                    i++;
+                    //与 Matcher 一样，后续数字只在不超过捕获组数量时才属于组序号
+                    while (i<replacement.length()){
+                        int digit=replacement.charAt(i)-'0';
+                        if(digit<0 || digit>9 || group*10+digit>groupCount){
+                            break;
+                        }
+                        group=group*10+digit;
+                        i++;
+                    }
+                    if(group>groupCount){
+                        throw new IndexOutOfBoundsException("No group "+group);
+                    }
+                    ref=group;
+                }
+                if(literal.length()>0){
+                    parts.add(literal.toString());
+                    literal.setLength(0);
+                }
+                parts.add(ref);
+            }else{
+                literal.append(c);
+            }
+        }
+        if(literal.length()>0){
+            parts.add(literal.toString());
+        }
+        return parts;
+    }
+
+    /**
+     * replacement 中引用的捕获组名称
+     */
+    private static class GroupName {
+
+        /**
+         * 捕获组名称
+         */
+        private String name;
+
+        GroupName(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package czb.framework.bigtext.core.search;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 跨段查找正则表达式的流式查找器
+ * <p>按段调用 {@link #feed(char[], int, int)} 输入文本，查找器在一个滑动窗口中查找 {@link #pattern} ：
+ * 匹配项碰到了窗口的结尾（{@link Matcher#hitEnd()}），说明更多的输入可能改变匹配结果，这时会等待后续输入；
+ * 匹配项的长度假定不超过 {@link #maxMatchLength} ，所以只需要保留窗口尾部最多 maxMatchLength 个字符，
+ * 更早的字符已经可以确定不属于匹配项，通过 {@link MatchListener#onText(char[], int, int)} 按原顺序输出。</p>
+ * <p>新输入的字符累计达到 maxMatchLength 个时才查找一次，每个字符最多被重新查找一次，吞吐量与文本长度成线性关系；
+ * 窗口最多保留 maxMatchLength 个已输出的字符作为回看内容（供 \b 、后行断言等使用），
+ * 内存占用只与 maxMatchLength 和段大小有关，与文本长度无关。</p>
+ * <p>匹配项按从左到右、互不重叠的方式查找，与 {@link Matcher#find()} 的语义一致；
+ * 超过 maxMatchLength 的匹配项会在窗口结尾处被截断，不带 {@link Pattern#MULTILINE} 的 ^ 只匹配文本的开头，$ 只匹配文本的结尾</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class StreamRegexMatcher {
+
+    /**
+     * 默认的最大匹配长度：4K
+     */
+    public final static int DEFAULT_MAX_MATCH_LENGTH=4*1024;
+
+    /**
+     * 要查找的正则表达式
+     */
+    private Pattern pattern;
+    /**
+     * 在窗口中查找 {@link #pattern} 的匹配器
+     */
+    private Matcher matcher;
+    /**
+     * 匹配项的最大长度，也是窗口保留的回看字符数
+     */
+    private int maxMatchLength;
+    /**
+     * 滑动窗口
+     */
+    private char[] window;
+    /**
+     * {@link #window} 中有效的字符数
+     */
+    private int windowLength;
+    /**
+     * window[0] 的全局字符索引
+     */
+    private long windowBase;
+    /**
+     * 下一次查找在窗口中的开始位置
+     */
+    private int searchFrom;
+    /**
+     * 窗口中还没有输出的第一个字符的位置
+     */
+    private int emitFrom;
+    /**
+     * 上一次查找之后新输入的字符数
+     */
+    private int unscanned;
+    /**
+     * 是否继续查找匹配项，为 false 时所有的文本都直接输出
+     */
+    private boolean matching=true;
+    /**
+     * 匹配结果监听器
+     */
+    private MatchListener listener;
+
+    /**
+     * 新建一个 {@link StreamRegexMatcher} 实例，最大匹配长度为 {@link #DEFAULT_MAX_MATCH_LENGTH}
+     * @param pattern 要查找的正则表达式
+     * @param listener 匹配结果监听器
+     */
+    public StreamRegexMatcher(Pattern pattern, MatchListener listener) {
+        this(pattern,DEFAULT_MAX_MATCH_LENGTH,listener);
+    }
+
+    /**
+     * 新建一个 {@link StreamRegexMatcher} 实例
+     * @param pattern 要查找的正则表达式
+     * @param maxMatchLength 匹配项的最大长度，必须大于 0
+     * @param listener 匹配结果监听器
+     */
+    public StreamRegexMatcher(Pattern pattern, int maxMatchLength, MatchListener listener) {
+        if(maxMatchLength<=0){
+            throw new IllegalArgumentException("maxMatchLength must be positive: "+maxMatchLength);
+        }
+        this.pattern = pattern;
+        this.maxMatchLength = maxMatchLength;
+        this.listener = listener;
+        this.matcher=pattern.matcher("");
+        this.matcher.useTransparentBounds(true);
+        this.matcher.useAnchoringBounds(false);
+        this.window=new char[maxMatchLength*3];
+    }
+
+    /**
+     * 输入一段文本
+     * <p>段的内容在方法返回后就不会再被引用，调用方可以复用该字符数组</p>
+     * @param buff 字符数组
+     * @param offset 段在字符数组中的开始位置
+     * @param length 段的字符数
+     */
+    public void feed(char[] buff, int offset, int length){
+        if(!matching){
+            windowBase+=length;
+            listener.onText(buff,offset,length);
+            return;
+        }
+        ensureCapacity(length);
+        System.arraycopy(buff,offset,window,windowLength,length);
+        windowLength+=length;
+        unscanned+=length;
+        if(unscanned>=maxMatchLength){
+            scan(false);
+        }
+    }
+
+    /**
+     * 输入结束，查找剩余的匹配项并输出所有暂存的字符
+     */
+    public void finish(){
+        if(matching){
+            scan(true);
+        }
+        emit(windowLength);
+    }
+
+    /**
+     * 在窗口中查找匹配项，并输出已经确定不属于匹配项的字符
+     * @param end 是否已经输入结束，结束时匹配结果不会再改变
+     */
+    private void scan(boolean end){
+        unscanned=0;
+        matcher.reset(CharBuffer.wrap(window,0,windowLength));
+        while (searchFrom<=windowLength){
+            matcher.region(searchFrom,windowLength);
+            if(!matcher.find()){
+                //碰到窗口结尾的尝试可能在后续输入后匹配成功，这些尝试只能从窗口尾部 maxMatchLength 个字符中开始
+                searchFrom= end || !matcher.hitEnd() ? windowLength : Math.max(searchFrom,windowLength-maxMatchLength);
+                break;
+            }
+            int start=matcher.start();
+            int matchEnd=matcher.end();
+            if(!end && matcher.hitEnd() && windowLength-start<maxMatchLength){
+                searchFrom=Math.max(searchFrom,windowLength-maxMatchLength);
+                break;
+            }
+            emit(start);
+            emitFrom=matchEnd;
+            if(!listener.onMatch(windowBase+start,matcher)){
+                matching=false;
+                searchFrom=windowLength;
+                break;
+            }
+            //与 Matcher#find() 一样，空匹配项之后从下一个字符开始查找
+            searchFrom= matchEnd==start ? matchEnd+1 : matchEnd;
+        }
+        emit(Math.min(searchFrom,windowLength));
+    }
+
+    /**
+     * 输出窗口中 [{@link #emitFrom}, to) 之间的字符
+     * @param to 结束位置（不包含）
+     */
+    private void emit(int to){
+        if(to>emitFrom){
+            listener.onText(window,emitFrom,to-emitFrom);
+            emitFrom=to;
+        }
+    }
+
+    /**
+     * 保证窗口还能放下 length 个字符：先丢弃已输出且超出回看范围的字符，不够再扩容
+     * @param length 要放入的字符数
+     */
+    private void ensureCapacity(int length){
+        if(windowLength+length<=window.length){
+            return;
+        }
+        int keepFrom=Math.max(0,emitFrom-maxMatchLength);
+        if(keepFrom>0){
+            System.arraycopy(window,keepFrom,window,0,windowLength-keepFrom);
+            windowLength-=keepFrom;
+            windowBase+=keepFrom;
+            emitFrom-=keepFrom;
+            searchFrom-=keepFrom;
+        }
+        if(windowLength+length>window.length){
+            window=Arrays.copyOf(window,Math.max(window.length*2,windowLength+length));
+        }
+    }
+
+    /**
+     * 获取 要查找的正则表达式
+     * @see #pattern
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * 获取 匹配项的最大长度
+     * @see #maxMatchLength
+     */
+    public int getMaxMatchLength() {
+        return maxMatchLength;
+    }
+
+    /**
+     * 是否还在查找匹配项
+     * @see #matching
+     */
+    public boolean isMatching() {
+        return matching;
+    }
+
+    /**
+     * {@link StreamRegexMatcher} 的匹配结果监听器
+     */
+    public interface MatchListener {
+
+        /**
+         * 输出不属于匹配项的文本，文本按原顺序输出
+         * <p>buff 只在方法调用期间有效，不能保存引用</p>
+         * @param buff 字符数组
+         * @param offset 文本在字符数组中的开始位置
+         * @param length 文本的字符数
+         */
+        default void onText(char[] buff, int offset, int length) {}
+
+        /**
+         * 找到一个匹配项
+         * <p>result 就是在窗口中查找的 {@link Matcher} ，只在方法调用期间有效；它的 group 内容是正确的，
+         * 但 start 、end 是窗口中的位置，全局字符索引请使用 position</p>
+         * @param position 匹配项第一个字符的全局字符索引，从第一次输入的字符开始计算
+         * @param result 匹配结果
+         * @return 如果返回 true ，继续查找后续的匹配项；否则停止查找，后续的文本全部通过
+         *      {@link #onText(char[], int, int)} 输出
+         */
+        boolean onMatch(long position, MatchResult result);
+    }
+}
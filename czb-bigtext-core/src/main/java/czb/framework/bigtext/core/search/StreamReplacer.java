@@ -0,0 +1,190 @@
+package czb.framework.bigtext.core.search;
+
+import java.util.Arrays;
+
+/**
+ * 跨段把多个关键字分别替换成对应新字符串的流式替换器
+ * <p>使用 {@link AhoCorasick} 自动机一次输入同时查找所有关键字，按 最左最长 的方式选择匹配项：
+ * 开始位置最早的匹配项优先，开始位置相同时最长的匹配项优先，被替换的文本不会再参与匹配。</p>
+ * <p>还不能确定是否属于匹配项的字符会暂存起来，直到新的匹配项不可能比候选匹配项开始得更早时才输出；
+ * 替换一个匹配项后，自动机从该匹配项之后重新开始，重新扫描暂存的少量字符（不超过最长关键字的长度）。</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class StreamReplacer {
+
+    /**
+     * 关键字的自动机
+     */
+    private AhoCorasick automaton;
+    /**
+     * 每个关键字的新字符串，下标为关键字序号
+     */
+    private String[] replacements;
+    /**
+     * 替换结果的输出
+     */
+    private Output output;
+    /**
+     * 暂存的还没有输出的字符
+     */
+    private char[] pending;
+    /**
+     * {@link #pending} 中有效的字符数
+     */
+    private int pendingLength;
+    /**
+     * {@link #pending} 中已经输入自动机的字符数
+     */
+    private int scanned;
+    /**
+     * 自动机的当前状态
+     */
+    private int state;
+    /**
+     * 候选匹配项在 {@link #pending} 中的开始位置，-1 表示没有候选匹配项
+     */
+    private int bestStart=-1;
+    /**
+     * 候选匹配项在 {@link #pending} 中的结束位置（不包含）
+     */
+    private int bestEnd;
+    /**
+     * 候选匹配项的关键字序号
+     */
+    private int bestKeyword;
+
+    /**
+     * 新建一个 {@link StreamReplacer} 实例
+     * @param automaton 关键字的自动机
+     * @param replacements 每个关键字的新字符串，下标为关键字序号
+     * @param output 替换结果的输出
+     */
+    public StreamReplacer(AhoCorasick automaton, String[] replacements, Output output) {
+        if(replacements.length!=automaton.size()){
+            throw new IllegalArgumentException("replacements count "+replacements.length+" does not match keyword count "+automaton.size());
+        }
+        this.automaton = automaton;
+        this.replacements = replacements;
+        this.output = output;
+        this.pending=new char[Math.max(16,automaton.getMaxLength()*2)];
+    }
+
+    /**
+     * 输入一段文本
+     * <p>段的内容在方法返回后就不会再被引用，调用方可以复用该字符数组</p>
+     * @param buff 字符数组
+     * @param offset 段在字符数组中的开始位置
+     * @param length 段的字符数
+     */
+    public void feed(char[] buff, int offset, int length){
+        if(pendingLength+length>pending.length){
+            pending=Arrays.copyOf(pending,Math.max(pending.length*2,pendingLength+length));
+        }
+        System.arraycopy(buff,offset,pending,pendingLength,length);
+        pendingLength+=length;
+        scan(false);
+        //新的匹配项只能从自动机当前状态对应的后缀开始，在此之前且不属于候选匹配项的字符都可以输出
+        int safe=pendingLength-automaton.depths[state];
+        if(bestStart!=-1){
+            safe=Math.min(safe,bestStart);
+        }
+        flush(safe);
+    }
+
+    /**
+     * 输入结束，替换剩余的候选匹配项并输出所有暂存的字符
+     */
+    public void finish(){
+        scan(true);
+        flush(pendingLength);
+    }
+
+    /**
+     * 把 {@link #pending} 中还没有输入自动机的字符输入自动机
+     * @param end 是否已经输入结束，结束时候选匹配项不会再有更早或更长的竞争者
+     */
+    private void scan(boolean end){
+        int[] outputs=automaton.outputs;
+        int[] outputLinks=automaton.outputLinks;
+        int[] depths=automaton.depths;
+        while (true){
+            int s=state;
+            while (scanned<pendingLength){
+                char c=pending[scanned++];
+                s=automaton.next(s,c);
+                int out= outputs[s]!=-1 ? s : outputLinks[s];
+                while (out!=-1){
+                    int start=scanned-depths[out];
+                    if(bestStart==-1 || start<bestStart || (start==bestStart && scanned>bestEnd)){
+                        bestStart=start;
+                        bestEnd=scanned;
+                        bestKeyword=outputs[out];
+                    }
+                    out=outputLinks[out];
+                }
+                //新的匹配项不可能比候选匹配项开始得更早，也不可能与它同时开始而更长
+                if(bestStart!=-1 && scanned-depths[s]>bestStart){
+                    break;
+                }
+            }
+            state=s;
+            if(bestStart==-1 || (scanned==pendingLength && !end && scanned-depths[s]<=bestStart)){
+                return;
+            }
+            replaceBest();
+        }
+    }
+
+    /**
+     * 替换候选匹配项：输出它之前的字符和新字符串，丢弃被替换的字符，自动机从它之后重新开始
+     */
+    private void replaceBest(){
+        output.write(pending,0,bestStart);
+        output.write(replacements[bestKeyword]);
+        System.arraycopy(pending,bestEnd,pending,0,pendingLength-bestEnd);
+        pendingLength-=bestEnd;
+        scanned=0;
+        state=0;
+        bestStart=-1;
+    }
+
+    /**
+     * 输出 {@link #pending} 中前 count 个字符
+     * @param count 字符数
+     */
+    private void flush(int count){
+        if(count<=0){
+            return;
+        }
+        output.write(pending,0,count);
+        System.arraycopy(pending,count,pending,0,pendingLength-count);
+        pendingLength-=count;
+        scanned-=count;
+        if(bestStart!=-1){
+            bestStart-=count;
+            bestEnd-=count;
+        }
+    }
+
+    /**
+     * 替换结果的输出
+     */
+    public interface Output {
+
+        /**
+         * 输出 buff 中从 offset 开始的 length 个字符
+         * @param buff 字符数组，只在该方法执行期间有效
+         * @param offset 开始位置
+         * @param length 字符数
+         */
+        void write(char[] buff, int offset, int length);
+
+        /**
+         * 输出新字符串
+         * @param str 新字符串
+         */
+        void write(String str);
+    }
+}
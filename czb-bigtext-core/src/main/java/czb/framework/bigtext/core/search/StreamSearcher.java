@@ -0,0 +1,254 @@
+package czb.framework.bigtext.core.search;
+
+/**
+ * 跨段查找字符串的流式查找器
+ * <p>使用 Boyer-Moore-Horspool 算法查找 {@link #pattern} ，按段调用 {@link #feed(char[], int, int)} 输入文本，
+ * 查找器会保留上一段尾部最多 pattern.length()-1 个还不能确定是否属于匹配项的字符，与下一段一起查找，
+ * 所以不需要回读段的尾部，也不需要把每段包装成字符串。</p>
+ * <p>匹配项按从左到右、互不重叠的方式查找，与 {@link String#indexOf(String, int)} 和 {@link String#replace(CharSequence, CharSequence)}
+ * 的语义一致；不属于匹配项的文本通过 {@link MatchListener#onText(char[], int, int)} 按原顺序输出。</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class StreamSearcher {
+
+    /**
+     * 坏字符跳转表的大小，字符按低 8 位分桶
+     */
+    private final static int SHIFT_TABLE_SIZE=256;
+
+    /**
+     * 要查找的字符串
+     */
+    private char[] pattern;
+    /**
+     * 坏字符跳转表，同一个桶里的字符取最小的跳转距离，保证不会跳过匹配项
+     */
+    private int[] shift=new int[SHIFT_TABLE_SIZE];
+    /**
+     * 上一段尾部保留下来的字符，这些字符还不能确定是否属于匹配项
+     */
+    private char[] carry;
+    /**
+     * {@link #carry} 中有效的字符数
+     */
+    private int carryLength;
+    /**
+     * 已输入的字符总数
+     */
+    private long consumed;
+    /**
+     * 是否继续查找匹配项，为 false 时所有的文本都直接输出
+     */
+    private boolean matching=true;
+    /**
+     * 匹配结果监听器
+     */
+    private MatchListener listener;
+
+    /**
+     * 新建一个 {@link StreamSearcher} 实例
+     * @param pattern 要查找的字符串，不能为空字符串
+     * @param listener 匹配结果监听器
+     */
+    public StreamSearcher(String pattern, MatchListener listener) {
+        if(pattern.isEmpty()){
+            throw new IllegalArgumentException("pattern must not be empty");
+        }
+        this.pattern=pattern.toCharArray();
+        this.listener=listener;
+        this.carry=new char[this.pattern.length];
+        int m=this.pattern.length;
+        for (int i = 0; i < SHIFT_TABLE_SIZE; i++) {
+            shift[i]=m;
+        }
+        for (int j = 0; j < m-1; j++) {
+            shift[this.pattern[j] & 0xFF]=m-1-j;
+        }
+    }
+
+    /**
+     * 输入一段文本
+     * <p>段的内容在方法返回后就不会再被引用，调用方可以复用该字符数组</p>
+     * @param buff 字符数组
+     * @param offset 段在字符数组中的开始位置
+     * @param length 段的字符数
+     */
+    public void feed(char[] buff, int offset, int length){
+        int c=carryLength;
+        int n=c+length;
+        //carry[0] 的全局字符索引
+        long base=consumed-c;
+        consumed+=length;
+        if(!matching){
+            emit(buff,offset,0,n);
+            carryLength=0;
+            return;
+        }
+        int m=pattern.length;
+        int last=m-1;
+        char lastChar=pattern[last];
+        int emitFrom=0;
+        int i=0;
+        // 匹配项从 carry 中开始，需要跨 carry 和 buff 取字符
+        while (i<c && i<=n-m){
+            char ch=charAt(buff,offset,c,i+last);
+            if(ch==lastChar && matchesAt(buff,offset,c,i)){
+                emit(buff,offset,emitFrom,i);
+                emitFrom=i+m;
+                if(!listener.onMatch(base+i)){
+                    stopMatching(buff,offset,emitFrom,n);
+                    return;
+                }
+                i+=m;
+            }else{
+                i+=shift[ch & 0xFF];
+            }
+        }
+        // 匹配项从 buff 中开始，直接访问 buff
+        int bound=offset-c+n-m;
+        int j=offset+i-c;
+        while (j<=bound){
+            char ch=buff[j+last];
+            if(ch==lastChar && regionMatches(buff,j)){
+                emit(buff,offset,emitFrom,j-offset+c);
+                emitFrom=j-offset+c+m;
+                if(!listener.onMatch(base+j-offset+c)){
+                    stopMatching(buff,offset,emitFrom,n);
+                    return;
+                }
+                j+=m;
+            }else{
+                j+=shift[ch & 0xFF];
+            }
+        }
+        i=j-offset+c;
+        //[emitFrom, keep) 之间的字符已经确定不属于匹配项，[keep, n) 之间的字符留到下一段再确定
+        int keep=Math.max(emitFrom,Math.min(i,n));
+        emit(buff,offset,emitFrom,keep);
+        int keepLength=n-keep;
+        if(keep<c){
+            System.arraycopy(carry,keep,carry,0,c-keep);
+            System.arraycopy(buff,offset,carry,c-keep,length);
+        }else{
+            System.arraycopy(buff,offset+keep-c,carry,0,keepLength);
+        }
+        carryLength=keepLength;
+    }
+
+    /**
+     * 输入结束，输出保留下来的字符
+     */
+    public void finish(){
+        if(carryLength>0){
+            listener.onText(carry,0,carryLength);
+            carryLength=0;
+        }
+    }
+
+    /**
+     * 停止查找，把 [from, n) 之间的字符全部输出
+     */
+    private void stopMatching(char[] buff, int offset, int from, int n){
+        matching=false;
+        emit(buff,offset,from,n);
+        carryLength=0;
+    }
+
+    /**
+     * 输出 carry + buff 组成的虚拟文本中 [from, to) 之间的字符
+     */
+    private void emit(char[] buff, int offset, int from, int to){
+        if(from>=to){
+            return;
+        }
+        int c=carryLength;
+        if(from<c){
+            int carryEnd=Math.min(to,c);
+            listener.onText(carry,from,carryEnd-from);
+            from=carryEnd;
+        }
+        if(from<to){
+            listener.onText(buff,offset+from-c,to-from);
+        }
+    }
+
+    /**
+     * 获取 carry + buff 组成的虚拟文本中第 i 个字符
+     */
+    private char charAt(char[] buff, int offset, int c, int i){
+        return i<c ? carry[i] : buff[offset+i-c];
+    }
+
+    /**
+     * carry + buff 组成的虚拟文本从第 i 个字符开始是否匹配 {@link #pattern}
+     */
+    private boolean matchesAt(char[] buff, int offset, int c, int i){
+        for (int k = pattern.length-2; k >= 0; k--) {
+            if(charAt(buff,offset,c,i+k)!=pattern[k]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * buff 从 start 开始是否匹配 {@link #pattern}
+     */
+    private boolean regionMatches(char[] buff, int start){
+        for (int k = pattern.length-2; k >= 0; k--) {
+            if(buff[start+k]!=pattern[k]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取 已输入的字符总数
+     * @see #consumed
+     */
+    public long getConsumed() {
+        return consumed;
+    }
+
+    /**
+     * 是否还在查找匹配项
+     * @see #matching
+     */
+    public boolean isMatching() {
+        return matching;
+    }
+
+    /**
+     * 获取要查找的字符串的长度
+     * @return 要查找的字符串的长度
+     */
+    public int getPatternLength() {
+        return pattern.length;
+    }
+
+    /**
+     * {@link StreamSearcher} 的匹配结果监听器
+     */
+    public interface MatchListener {
+
+        /**
+         * 输出不属于匹配项的文本，文本按原顺序输出
+         * <p>buff 只在方法调用期间有效，不能保存引用</p>
+         * @param buff 字符数组
+         * @param offset 文本在字符数组中的开始位置
+         * @param length 文本的字符数
+         */
+        default void onText(char[] buff, int offset, int length) {}
+
+        /**
+         * 找到一个匹配项
+         * @param position 匹配项第一个字符的全局字符索引，从第一次输入的字符开始计算
+         * @return 如果返回 true ，继续查找后续的匹配项；否则停止查找，后续的文本全部通过
+         *      {@link #onText(char[], int, int)} 输出
+         */
+        boolean onMatch(long position);
+    }
+}
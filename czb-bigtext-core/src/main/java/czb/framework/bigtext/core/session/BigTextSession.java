@@ -0,0 +1,184 @@
+package czb.framework.bigtext.core.session;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+/**
+ * 只打开一次文本文件、供所有操作共享的读取会话
+ * <p>会话持有一个只读的 {@link FileChannel} ，所有读取都是按位置读取（{@link FileChannel#read(ByteBuffer, long)}），
+ * 不改变通道的位置，所以多个线程可以同时使用同一个会话；操作系统为这个打开的文件维护的预读状态也在多次读取之间保留。</p>
+ * <p>会话通过引用计数管理：{@link SessionRegistry#acquire(File)} 每次返回会话时计数加一，使用完后调用 {@link #close()} 减一，
+ * 所以可以像 {@link FileChannel} 一样放在 try-with-resources 中使用。会话被 {@link SessionRegistry} 淘汰后，
+ * 等最后一个使用者关闭时才真正关闭通道</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class BigTextSession implements AutoCloseable {
+
+    /**
+     * 文本文件
+     */
+    private File textFile;
+    /**
+     * 文本文件的只读通道
+     */
+    private FileChannel channel;
+    /**
+     * 打开会话时文本文件的标识，用于发现文件被替换；文件系统不支持时为 null
+     */
+    private Object fileKey;
+    /**
+     * 正在使用该会话的使用者数量
+     */
+    private int refCount;
+    /**
+     * 是否已不再被 {@link SessionRegistry} 管理，为 true 时最后一个使用者关闭后关闭通道
+     */
+    private boolean released;
+
+    /**
+     * 打开一个会话，引用计数为 0
+     * @param textFile 文本文件
+     * @throws IOException 打开文件时出现的IO异常，文件不存在时为 {@link java.nio.file.NoSuchFileException}
+     */
+    BigTextSession(File textFile) throws IOException {
+        this.textFile = textFile;
+        this.channel=FileChannel.open(textFile.toPath(), StandardOpenOption.READ);
+        this.fileKey=Files.readAttributes(textFile.toPath(),BasicFileAttributes.class).fileKey();
+    }
+
+    /**
+     * 打开一个不被任何 {@link SessionRegistry} 管理的会话，关闭时直接关闭通道
+     * @param textFile 文本文件
+     * @return 会话
+     * @throws IOException 打开文件时出现的IO异常，文件不存在时为 {@link java.nio.file.NoSuchFileException}
+     */
+    public static BigTextSession open(File textFile) throws IOException {
+        BigTextSession session=new BigTextSession(textFile);
+        session.released=true;
+        session.retain();
+        return session;
+    }
+
+    /**
+     * 从 position 开始读取字节到 dst 中，不改变通道的位置
+     * @param dst 字节缓冲区
+     * @param position 开始读取的字节位置
+     * @return 读取的字节数；position 不小于文件的字节数时返回 -1
+     * @throws IOException 读取时出现的IO异常
+     * @see FileChannel#read(ByteBuffer, long)
+     */
+    public int read(ByteBuffer dst, long position) throws IOException {
+        return channel.read(dst,position);
+    }
+
+    /**
+     * 获取文本文件当前的字节数
+     * @return 字节数
+     * @throws IOException 获取时出现的IO异常
+     */
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * 把 [position, position+count) 字节范围直接复制到 target
+     * @param position 开始字节位置
+     * @param count 最多复制的字节数
+     * @param target 目标通道
+     * @return 实际复制的字节数
+     * @throws IOException 复制时出现的IO异常
+     * @see FileChannel#transferTo(long, long, WritableByteChannel)
+     */
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        return channel.transferTo(position,count,target);
+    }
+
+    /**
+     * 该会话是否仍然对应 {@link #textFile} 路径上的文件
+     * <p>文件被删除或者被替换成另一个文件（例如先写临时文件再重命名覆盖）后，已打开的通道读到的仍然是原来的文件</p>
+     * @return 如果对应，返回 true;否则返回 false ；文件系统不支持文件标识时只检查文件是否存在
+     */
+    boolean isCurrent(){
+        try {
+            Object key=Files.readAttributes(textFile.toPath(),BasicFileAttributes.class).fileKey();
+            return fileKey==null || Objects.equals(fileKey,key);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 增加一个使用者
+     */
+    synchronized void retain(){
+        refCount++;
+    }
+
+    /**
+     * 不再被 {@link SessionRegistry} 管理，没有使用者时马上关闭通道
+     */
+    synchronized void release(){
+        released=true;
+        if(refCount==0){
+            closeChannel();
+        }
+    }
+
+    /**
+     * 减少一个使用者；会话已不再被 {@link SessionRegistry} 管理并且没有使用者时关闭通道
+     */
+    @Override
+    public synchronized void close(){
+        if(refCount==0){
+            return;
+        }
+        refCount--;
+        if(refCount==0 && released){
+            closeChannel();
+        }
+    }
+
+    /**
+     * 关闭通道，关闭失败时忽略，只读通道没有需要写回的内容
+     */
+    private void closeChannel(){
+        try {
+            channel.close();
+        } catch (IOException e) {
+            //只读通道关闭失败不影响已读取的内容
+        }
+    }
+
+    /**
+     * 通道是否仍然打开
+     * @return 如果打开，返回 true;否则返回 false
+     */
+    public boolean isOpen(){
+        return channel.isOpen();
+    }
+
+    /**
+     * 获取 正在使用该会话的使用者数量
+     * @see #refCount
+     */
+    public synchronized int getRefCount() {
+        return refCount;
+    }
+
+    /**
+     * 获取 文本文件
+     * @see #textFile
+     */
+    public File getTextFile() {
+        return textFile;
+    }
+}
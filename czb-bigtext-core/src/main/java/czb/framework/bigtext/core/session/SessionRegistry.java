@@ -0,0 +1,130 @@
+package czb.framework.bigtext.core.session;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按文件路径管理 {@link BigTextSession} 的注册表
+ * <p>同一个文件的所有读取共享一个会话，不需要每次读取都打开、关闭文件。注册表最多保留 {@link #capacity} 个会话，
+ * 超过时淘汰最久没有使用的会话；正在使用的会话被淘汰后，等使用者关闭时才真正关闭通道，所以淘汰不会影响正在进行的读取。</p>
+ * <p>每次获取会话时检查文件标识（例如 inode），文件被替换后旧会话被淘汰，重新打开新文件；
+ * 原地修改、追加不会改变文件标识，共享的通道能直接读到修改后的内容；通道因为读取线程被中断而关闭时也会重新打开</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class SessionRegistry {
+
+    /**
+     * 默认最多保留多少个会话：64个
+     */
+    public final static int DEFAULT_CAPACITY=64;
+    /**
+     * 所有 {@link czb.framework.bigtext.core.delegate.ReadFileDelegate} 默认共享的注册表
+     */
+    private final static SessionRegistry DEFAULT=new SessionRegistry(DEFAULT_CAPACITY);
+
+    /**
+     * 最多保留多少个会话
+     */
+    private int capacity;
+    /**
+     * 文件的绝对路径 -&gt; 会话，按访问顺序排列，最久没有使用的在最前面
+     */
+    private LinkedHashMap<String,BigTextSession> sessions;
+
+    /**
+     * 新建一个 {@link SessionRegistry} 实例
+     * @param capacity 最多保留多少个会话，必须大于 0
+     */
+    public SessionRegistry(int capacity) {
+        if(capacity<=0){
+            throw new IllegalArgumentException("session registry capacity must be positive: "+capacity);
+        }
+        this.capacity = capacity;
+        this.sessions=new LinkedHashMap<String,BigTextSession>(16,0.75f,true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BigTextSession> eldest) {
+                if(size()>SessionRegistry.this.capacity){
+                    eldest.getValue().release();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 获取所有 {@link czb.framework.bigtext.core.delegate.ReadFileDelegate} 默认共享的注册表
+     * @return 默认的注册表
+     */
+    public static SessionRegistry getDefault(){
+        return DEFAULT;
+    }
+
+    /**
+     * 获取文件的会话，没有可用的会话时打开一个新会话
+     * <p>返回的会话引用计数已加一，使用完后必须调用 {@link BigTextSession#close()}</p>
+     * @param textFile 文本文件
+     * @return 会话
+     * @throws IOException 打开文件时出现的IO异常，文件不存在时为 {@link java.nio.file.NoSuchFileException}
+     */
+    public synchronized BigTextSession acquire(File textFile) throws IOException {
+        String key=textFile.toPath().toAbsolutePath().normalize().toString();
+        BigTextSession session=sessions.get(key);
+        //读取线程被中断时 FileChannel 会被关闭，同样需要重新打开
+        if(session!=null && (!session.isOpen() || !session.isCurrent())){
+            sessions.remove(key);
+            session.release();
+            session=null;
+        }
+        if(session==null){
+            session=new BigTextSession(textFile);
+            sessions.put(key,session);
+        }
+        session.retain();
+        return session;
+    }
+
+    /**
+     * 淘汰文件的会话，正在使用的会话等使用者关闭时才关闭通道
+     * @param textFile 文本文件
+     */
+    public synchronized void evict(File textFile){
+        BigTextSession session=sessions.remove(textFile.toPath().toAbsolutePath().normalize().toString());
+        if(session!=null){
+            session.release();
+        }
+    }
+
+    /**
+     * 淘汰所有会话，例如服务停止时
+     */
+    public synchronized void clear(){
+        List<BigTextSession> all=new ArrayList<>(sessions.values());
+        sessions.clear();
+        for (BigTextSession session : all) {
+            session.release();
+        }
+    }
+
+    /**
+     * 保留的会话数
+     * @return 会话数
+     */
+    public synchronized int size(){
+        return sessions.size();
+    }
+
+    /**
+     * 获取 最多保留多少个会话
+     * @see #capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,341 @@
+package czb.framework.bigtext.core.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 文本统计结果，一次读取同时统计多项数据
+ * <p>统计项包括：字符数【包含/不包含回车换行】、行数、最长行的字符数、空白字符数、空格数、非 ASCII 字符数，
+ * 以及每个字符出现的次数。字符都按 UTF-16 字符（与 {@link String#length()} 一样）统计。</p>
+ * <p>行的划分与 {@link java.io.BufferedReader#readLine()} 一致：\n 、\r 、\r\n 都是一个换行，结尾的换行不会多出一个空行。</p>
+ * <p>统计是可合并的：按先后顺序把多段文本各自的统计结果 {@link #merge(TextStats)} 起来，与一次统计整个文本的结果一致，
+ * 所以可以按字节范围并行统计</p>
+ * <p>字符的出现次数按高 8 位分成 256 页，每页 256 个计数，只在某页的字符第一次出现时才分配该页，
+ * 合并、复制、保存时也只处理已经分配的页；只有 ASCII 字符的文本只需要一页（2K）</p>
+ *
+ * @author chenzhuobin
+ * @since 2026/10/18 0018
+ */
+public class TextStats {
+
+    /**
+     * 字符数【包含回车换行】
+     */
+    private long length;
+    /**
+     * 回车换行字符数
+     */
+    private long crlfCount;
+    /**
+     * 空白字符数，见 {@link Character#isWhitespace(char)}
+     */
+    private long whitespaceCount;
+    /**
+     * 空格数
+     */
+    private long spaceCount;
+    /**
+     * 非 ASCII 字符数
+     */
+    private long nonAsciiCount;
+    /**
+     * 每个字符出现的次数，按字符的高 8 位分页，页内下标为字符的低 8 位；没有出现过字符的页为 null
+     */
+    private long[][] histogram=new long[256][];
+
+    /**
+     * 换行数，\r\n 算一个换行
+     */
+    private long breakCount;
+    /**
+     * 是否出现过换行
+     */
+    private boolean hasBreak;
+    /**
+     * 第一个换行之前的字符数；没有换行时为全部字符数（不包含回车换行）
+     */
+    private long headLength;
+    /**
+     * 当前行（最后一个换行之后）已经统计的字符数
+     */
+    private long tailLength;
+    /**
+     * 前后都有换行的完整行中，最长行的字符数
+     */
+    private long maxInnerLength;
+    /**
+     * 第一个字符是否为 \n
+     */
+    private boolean startsWithLF;
+    /**
+     * 最后一个字符是否为 \r
+     */
+    private boolean endsWithCR;
+
+    /**
+     * 统计 buff 中从 offset 开始的 length 个字符
+     * @param buff 字符数组
+     * @param offset 开始位置
+     * @param length 字符数
+     */
+    public void update(char[] buff, int offset, int length){
+        for (int i = offset; i < offset+length; i++) {
+            char c=buff[i];
+            long[] page=histogram[c>>>8];
+            if(page==null){
+                page=histogram[c>>>8]=new long[256];
+            }
+            page[c&0xFF]++;
+            if(c<0x80){
+                if(c=='\n' || c=='\r'){
+                    onBreak(c);
+                    continue;
+                }
+                if(c==' '){
+                    spaceCount++;
+                    whitespaceCount++;
+                }else if(c<=' ' && Character.isWhitespace(c)){
+                    whitespaceCount++;
+                }
+            }else{
+                nonAsciiCount++;
+                if(Character.isWhitespace(c)){
+                    whitespaceCount++;
+                }
+            }
+            tailLength++;
+            if(!hasBreak){
+                headLength++;
+            }
+            endsWithCR=false;
+            this.length++;
+        }
+    }
+
+    /**
+     * 统计一个回车或换行字符
+     * @param c \r 或 \n
+     */
+    private void onBreak(char c){
+        if(this.length==0){
+            startsWithLF= c=='\n';
+        }
+        this.length++;
+        crlfCount++;
+        whitespaceCount++;
+        // \r\n 的 \n 不是新的换行
+        if(c=='\n' && endsWithCR){
+            endsWithCR=false;
+            return;
+        }
+        breakCount++;
+        if(hasBreak){
+            maxInnerLength=Math.max(maxInnerLength,tailLength);
+        }
+        hasBreak=true;
+        tailLength=0;
+        endsWithCR= c=='\r';
+    }
+
+    /**
+     * 把紧跟在该段文本后面的另一段文本的统计结果合并进来
+     * @param next 紧跟在该段文本后面的另一段文本的统计结果
+     * @return 当前实例
+     */
+    public TextStats merge(TextStats next){
+        if(next.length==0){
+            return this;
+        }
+        if(length==0){
+            startsWithLF=next.startsWithLF;
+        }
+        //跨越两段的 \r\n 只算一个换行
+        breakCount+=next.breakCount-(endsWithCR && next.startsWithLF ? 1 : 0);
+        if(hasBreak && next.hasBreak){
+            maxInnerLength=Math.max(Math.max(maxInnerLength,next.maxInnerLength),tailLength+next.headLength);
+            tailLength=next.tailLength;
+        }else if(hasBreak){
+            tailLength+=next.headLength;
+        }else if(next.hasBreak){
+            headLength+=next.headLength;
+            tailLength=next.tailLength;
+            maxInnerLength=next.maxInnerLength;
+        }else{
+            headLength+=next.headLength;
+            tailLength+=next.tailLength;
+        }
+        hasBreak=hasBreak || next.hasBreak;
+        endsWithCR=next.endsWithCR;
+        length+=next.length;
+        crlfCount+=next.crlfCount;
+        whitespaceCount+=next.whitespaceCount;
+        spaceCount+=next.spaceCount;
+        nonAsciiCount+=next.nonAsciiCount;
+        for (int p = 0; p < histogram.length; p++) {
+            long[] nextPage=next.histogram[p];
+            if(nextPage==null){
+                continue;
+            }
+            if(histogram[p]==null){
+                histogram[p]=nextPage.clone();
+                continue;
+            }
+            for (int i = 0; i < nextPage.length; i++) {
+                histogram[p][i]+=nextPage[i];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 把统计结果写入 out ，字符出现次数只写入出现过的字符
+     * @param out 输出
+     * @throws IOException 写入时出现的IO异常
+     * @see #readFrom(DataInput)
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(length);
+        out.writeLong(crlfCount);
+        out.writeLong(whitespaceCount);
+        out.writeLong(spaceCount);
+        out.writeLong(nonAsciiCount);
+        out.writeLong(breakCount);
+        out.writeBoolean(hasBreak);
+        out.writeLong(headLength);
+        out.writeLong(tailLength);
+        out.writeLong(maxInnerLength);
+        out.writeBoolean(startsWithLF);
+        out.writeBoolean(endsWithCR);
+        Map<Character,Long> counts=getHistogram();
+        out.writeInt(counts.size());
+        for (Map.Entry<Character,Long> entry : counts.entrySet()) {
+            out.writeChar(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    /**
+     * 读取 {@link #writeTo(DataOutput)} 写入的统计结果
+     * @param in 输入
+     * @return 统计结果
+     * @throws IOException 读取时出现的IO异常
+     */
+    public static TextStats readFrom(DataInput in) throws IOException {
+        TextStats stats=new TextStats();
+        stats.length=in.readLong();
+        stats.crlfCount=in.readLong();
+        stats.whitespaceCount=in.readLong();
+        stats.spaceCount=in.readLong();
+        stats.nonAsciiCount=in.readLong();
+        stats.breakCount=in.readLong();
+        stats.hasBreak=in.readBoolean();
+        stats.headLength=in.readLong();
+        stats.tailLength=in.readLong();
+        stats.maxInnerLength=in.readLong();
+        stats.startsWithLF=in.readBoolean();
+        stats.endsWithCR=in.readBoolean();
+        int count=in.readInt();
+        for (int i = 0; i < count; i++) {
+            char c=in.readChar();
+            long[] page=stats.histogram[c>>>8];
+            if(page==null){
+                page=stats.histogram[c>>>8]=new long[256];
+            }
+            page[c&0xFF]=in.readLong();
+        }
+        return stats;
+    }
+
+    /**
+     * 获取 字符数【包含回车换行】
+     * @see #length
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * 获取 字符数【不包含回车换行】
+     */
+    public long getLengthNoCRLF() {
+        return length-crlfCount;
+    }
+
+    /**
+     * 获取 行数，与 {@link java.io.BufferedReader#readLine()} 读出的行数一致
+     */
+    public long getLineCount() {
+        return breakCount+(tailLength>0 ? 1 : 0);
+    }
+
+    /**
+     * 获取 最长行的字符数，不包含回车换行
+     */
+    public long getMaxLineLength() {
+        return Math.max(maxInnerLength,Math.max(headLength,tailLength));
+    }
+
+    /**
+     * 获取 空白字符数
+     * @see #whitespaceCount
+     */
+    public long getWhitespaceCount() {
+        return whitespaceCount;
+    }
+
+    /**
+     * 获取 空格数
+     * @see #spaceCount
+     */
+    public long getSpaceCount() {
+        return spaceCount;
+    }
+
+    /**
+     * 获取 非 ASCII 字符数
+     * @see #nonAsciiCount
+     */
+    public long getNonAsciiCount() {
+        return nonAsciiCount;
+    }
+
+    /**
+     * 获取 非 ASCII 字符所占的比例
+     * @return 非 ASCII 字符数 / 字符数 ；没有字符时返回 0
+     */
+    public double getNonAsciiRatio() {
+        return length==0 ? 0 : (double) nonAsciiCount/length;
+    }
+
+    /**
+     * 获取 字符 c 出现的次数
+     * @param c 字符
+     * @return 出现的次数
+     */
+    public long getCharCount(char c) {
+        long[] page=histogram[c>>>8];
+        return page==null ? 0 : page[c&0xFF];
+    }
+
+    /**
+     * 获取 每个出现过的字符的出现次数
+     * @return 按字符顺序排列的 字符 -&gt; 出现次数
+     */
+    public Map<Character,Long> getHistogram() {
+        Map<Character,Long> map=new LinkedHashMap<>();
+        for (int p = 0; p < histogram.length; p++) {
+            if(histogram[p]==null){
+                continue;
+            }
+            for (int i = 0; i < histogram[p].length; i++) {
+                if(histogram[p][i]!=0){
+                    map.put((char) (p<<8|i),histogram[p][i]);
+                }
+            }
+        }
+        return map;
+    }
+}
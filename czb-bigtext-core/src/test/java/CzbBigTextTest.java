@@ -1,16 +1,66 @@
+import czb.framework.bigtext.core.AsyncCzbBigText;
 import czb.framework.bigtext.core.CzbBigText;
+import czb.framework.bigtext.core.EditSession;
+import czb.framework.bigtext.core.TextFollower;
+import czb.framework.bigtext.core.cache.MetadataCache;
+import czb.framework.bigtext.core.command.IndexOfCommand;
+import czb.framework.bigtext.core.delegate.ByteLengthDelegate;
+import czb.framework.bigtext.core.delegate.MappedReadFileDelegate;
 import czb.framework.bigtext.core.delegate.ReadFileDelegate;
+import czb.framework.bigtext.core.delegate.ReverseReadDelegate;
+import czb.framework.bigtext.core.delegate.callback.ReadSegmentCallback;
+import czb.framework.bigtext.core.index.CheckpointIndex;
+import czb.framework.bigtext.core.index.LineIndex;
+import czb.framework.bigtext.core.output.ChannelOutputSink;
+import czb.framework.bigtext.core.output.FsyncPolicy;
+import czb.framework.bigtext.core.output.OutputSink;
+import czb.framework.bigtext.core.search.RegexMatch;
+import czb.framework.bigtext.core.session.BigTextSession;
+import czb.framework.bigtext.core.session.SessionRegistry;
+import czb.framework.bigtext.core.stats.TextStats;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * {@link CzbBigText} 的测试用例
@@ -25,12 +75,18 @@ public class CzbBigTextTest {
      * 源文本文件
      */
     File srcTextfile;
+    /**
+     * 测试用的临时目录，源文本文件会复制到这里，测试生成的文件不会留在 psd 目录中
+     */
+    @Rule
+    public TemporaryFolder tempFolder=new TemporaryFolder();
 
     private static final Logger log = LoggerFactory.getLogger(CzbBigTextTest.class);
 
     @Before
-    public void init(){
-        srcTextfile = new File("../psd/zuowen.txt");
+    public void init() throws IOException {
+        srcTextfile = new File(tempFolder.getRoot(),"zuowen.txt");
+        Files.copy(new File("../psd/zuowen.txt").toPath(),srcTextfile.toPath());
         czbBigText=new CzbBigText(srcTextfile,new ReadFileDelegate(srcTextfile,20,"utf-8"));
     }
 
@@ -122,12 +178,20 @@ public class CzbBigTextTest {
     public void test_splitLimit(){
         String[] contentArr = readFileContent().split("我",3);
         List<File> files = czbBigText.split("我",3);
+        Assert.assertEquals(files.size(),contentArr.length);
         for (int i = 0; i < files.size(); i++) {
             File tempFile = files.get(i);
             String content = contentArr[i];
             log.debug("file.name={},content={}",tempFile.getName(),content);
             Assert.assertEquals(readFileContent(tempFile),content);
         }
+        //与 String#split(String, int) 一样，limit 为 1 时不切分，整个文本作为一个文本文件
+        files = czbBigText.split("我",1);
+        Assert.assertEquals(files.size(),1);
+        Assert.assertEquals(readFileContent(files.get(0)),readFileContent());
+        files = czbBigText.split(Pattern.compile("[，。！]+"),1);
+        Assert.assertEquals(files.size(),1);
+        Assert.assertEquals(readFileContent(files.get(0)),readFileContent());
     }
 
     /**
@@ -238,6 +302,1033 @@ public class CzbBigTextTest {
         Assert.assertEquals(readFileContent(czbBigText.substring(0,0)),content.substring(0,0));
     }
 
+    /**
+     * 使用内存映射读取引擎读取文本，结果应该与默认的读取引擎一致
+     * <p>映射窗口设置得很小，以便覆盖多字节字符跨窗口的情况</p>
+     */
+    @Test
+    public void test_mappedReadFile(){
+        CzbBigText mappedBigText=new CzbBigText(srcTextfile,new MappedReadFileDelegate(srcTextfile,20,"utf-8",16));
+        String content = readFileContent();
+        String target="防身的武器";
+        Assert.assertEquals(mappedBigText.length(),content.length());
+        Assert.assertEquals(mappedBigText.indexOf(target),content.indexOf(target));
+        Assert.assertEquals(mappedBigText.indexOf(target,10),content.indexOf(target,10));
+        Assert.assertEquals(readFileContent(mappedBigText.substring(200,500)),content.substring(200,500));
+    }
+
+
+    /**
+     * 使用检查点索引按字符索引定位，结果应该与从文件开头解码一致
+     * <p>检查点间隔设置得很小，以便在小文件上也能生成多个检查点</p>
+     */
+    @Test
+    public void test_checkpointIndex() throws IOException {
+        ReadFileDelegate delegate=new ReadFileDelegate(srcTextfile,20,"utf-8");
+        CheckpointIndex checkpointIndex=new CheckpointIndex(srcTextfile,"utf-8",50);
+        checkpointIndex.setPersistent(false);
+        delegate.setCheckpointIndex(checkpointIndex);
+        CzbBigText indexedBigText=new CzbBigText(srcTextfile,delegate);
+        String content = readFileContent();
+        //第一次完整读取时建立索引；length() 直接统计字节，不会建立索引
+        Assert.assertEquals(indexedBigText.length(),content.length());
+        Assert.assertFalse(checkpointIndex.isAvailable());
+        Assert.assertEquals(indexedBigText.indexOf("不存在的内容"),-1);
+        Assert.assertTrue(checkpointIndex.isAvailable());
+        Assert.assertTrue(checkpointIndex.size()>1);
+        String target="防身的武器";
+        Assert.assertEquals(indexedBigText.indexOf(target,10),content.indexOf(target,10));
+        Assert.assertEquals(indexedBigText.indexOf(target,301),content.indexOf(target,301));
+        Assert.assertEquals(readFileContent(indexedBigText.substring(200,500)),content.substring(200,500));
+        Assert.assertEquals(readFileContent(indexedBigText.insert(301,"bin")),new StringBuilder(content).insert(301,"bin").toString());
+
+        //旁路文件只能被编码和记录间隔都相同的索引加载
+        File dir=tempFolder.newFolder("ckpt");
+        File copy=new File(dir,"zuowen.txt");
+        Files.copy(srcTextfile.toPath(),copy.toPath());
+        try {
+            ReadFileDelegate savedDelegate=new ReadFileDelegate(copy,20,"utf-8");
+            savedDelegate.setCheckpointIndex(new CheckpointIndex(copy,"utf-8",50));
+            Assert.assertEquals(new CzbBigText(copy,savedDelegate).indexOf("不存在的内容"),-1);
+            Assert.assertTrue(new CheckpointIndex(copy,"UTF8",50).isAvailable());
+            Assert.assertFalse(new CheckpointIndex(copy,"GB18030",50).isAvailable());
+            Assert.assertFalse(new CheckpointIndex(copy,"utf-8",60).isAvailable());
+            //按 GB18030 读取同一个文件时重新建立索引，不会使用 UTF-8 的检查点
+            String gbContent=new String(Files.readAllBytes(copy.toPath()),"GB18030");
+            String gbTarget=gbContent.substring(400,404);
+            ReadFileDelegate gbDelegate=new ReadFileDelegate(copy,20,"GB18030");
+            gbDelegate.setCheckpointIndex(new CheckpointIndex(copy,"GB18030",50));
+            CzbBigText gbBigText=new CzbBigText(copy,gbDelegate);
+            Assert.assertEquals(gbBigText.indexOf(gbTarget,301),gbContent.indexOf(gbTarget,301));
+            Assert.assertEquals(gbBigText.indexOf(gbTarget,301),gbContent.indexOf(gbTarget,301));
+            try {
+                gbDelegate.setCheckpointIndex(new CheckpointIndex(copy,"utf-8",50));
+                Assert.fail();
+            } catch (IllegalArgumentException e){
+                //检查点索引的编码与读取的编码不一致
+            }
+        } finally {
+            new File(copy.getPath()+CheckpointIndex.SIDECAR_SUFFIX).delete();
+            copy.delete();
+        }
+
+        //带字节顺序标记的 UTF-16 从文件中间解码时会丢失字节顺序，不使用检查点索引，总是从文件开头解码
+        StringBuilder lines=new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            lines.append("line ").append(i).append('\n');
+        }
+        String text=lines.toString();
+        File utf16File=tempFolder.newFile("utf16.txt");
+        Files.write(utf16File.toPath(),text.getBytes("x-UTF-16LE-BOM"));
+        Assert.assertFalse(CheckpointIndex.isSupported("UTF-16"));
+        Assert.assertFalse(CheckpointIndex.isSupported("UTF-32"));
+        Assert.assertFalse(CheckpointIndex.isSupported("ISO-2022-JP"));
+        Assert.assertTrue(CheckpointIndex.isSupported("UTF-16LE"));
+        Assert.assertTrue(CheckpointIndex.isSupported("GB18030"));
+        ReadFileDelegate utf16Delegate=new ReadFileDelegate(utf16File,20,"UTF-16");
+        Assert.assertNull(utf16Delegate.getCheckpointIndex());
+        CzbBigText utf16BigText=new CzbBigText(utf16File,utf16Delegate);
+        Assert.assertEquals(utf16BigText.indexOf("不存在的内容"),-1);
+        Assert.assertEquals(utf16BigText.indexOf("line 1500",5000),text.indexOf("line 1500",5000));
+        Assert.assertEquals(new String(Files.readAllBytes(utf16BigText.substring(5000,5100).toPath()),"UTF-16"),text.substring(5000,5100));
+        try {
+            new CheckpointIndex(utf16File,"UTF-16",50);
+            Assert.fail();
+        } catch (IllegalArgumentException e){
+            //有解码状态的编码不能建立检查点索引
+        }
+    }
+
+
+    /**
+     * 并行模式下查找字符串，结果应该与顺序查找一致
+     * <p>字节范围设置得很小，以便在小文件上也能切分出多个范围，覆盖跨越范围边界的匹配项</p>
+     */
+    @Test
+    public void test_parallelIndexOf() throws IOException {
+        CzbBigText parallelBigText=new CzbBigText(srcTextfile,new ReadFileDelegate(srcTextfile,20,"utf-8"));
+        ForkJoinPool pool=new ForkJoinPool(4);
+        parallelBigText.setParallelPool(pool);
+        parallelBigText.getParallelReadDelegate().setMinRangeSize(64);
+        String content = readFileContent();
+        for (String target : new String[]{"防身的武器","仙人掌","123\n123","www.EASyzw.com","不存在的内容"}) {
+            Assert.assertEquals(parallelBigText.indexOf(target),content.indexOf(target));
+            Assert.assertEquals(parallelBigText.indexOf(target,301),content.indexOf(target,301));
+            Assert.assertEquals(parallelBigText.contains(target),content.contains(target));
+        }
+
+        //fromIndex 落在代理对中间时，结果与顺序查找一致
+        File pairFile=tempFolder.newFile("pair.txt");
+        try {
+            String text=content.substring(0,200)+"a😀b😀😀a"+content.substring(200,600)+"😀a";
+            Files.write(pairFile.toPath(),text.getBytes(StandardCharsets.UTF_8));
+            CzbBigText pairBigText=new CzbBigText(pairFile,new ReadFileDelegate(pairFile,20,"utf-8"));
+            CzbBigText sequentialBigText=new CzbBigText(pairFile,new ReadFileDelegate(pairFile,20,"utf-8"));
+            pairBigText.setParallelPool(pool);
+            pairBigText.getParallelReadDelegate().setMinRangeSize(64);
+            for (String target : new String[]{"😀a","\uDE00b","b","\uDE00","a"}) {
+                for (int fromIndex = 199; fromIndex < 212; fromIndex++) {
+                    Assert.assertEquals(pairBigText.indexOf(target,fromIndex),text.indexOf(target,fromIndex));
+                    Assert.assertEquals(sequentialBigText.indexOf(target,fromIndex),text.indexOf(target,fromIndex));
+                }
+            }
+        } finally {
+            pairFile.delete();
+            pool.shutdown();
+        }
+    }
+
+
+    /**
+     * 要查找的字符串比段还长时，跨越多段的匹配项也能被查找和覆盖
+     */
+    @Test
+    public void test_longPatternAcrossSegments(){
+        String content = readFileContent();
+        String target=content.substring(301,380);
+        Assert.assertEquals(czbBigText.indexOf(target),content.indexOf(target));
+        Assert.assertEquals(czbBigText.indexOf(target,302),content.indexOf(target,302));
+        Assert.assertEquals(readFileContent(czbBigText.replace(target,"bin")),content.replace(target,"bin"));
+        Assert.assertEquals(readFileContent(czbBigText.replace("123","4")),content.replace("123","4"));
+        Assert.assertEquals(readFileContent(czbBigText.replaceFirst("仙人掌","bin")),content.replaceFirst("仙人掌","bin"));
+        Assert.assertEquals(czbBigText.indexOf("",10),content.indexOf("",10));
+    }
+
+
+    /**
+     * 零拷贝回调收到的视图拼接起来与文本内容一致，并且每段都复用同一个字符数组
+     */
+    @Test
+    public void test_readSegmentCallback(){
+        String content = readFileContent();
+        StringBuilder sb=new StringBuilder();
+        Set<char[]> buffs=new HashSet<>();
+        czbBigText.readFile((currentReadSize, buff, offset, length) -> {
+            sb.append(buff,offset,length);
+            buffs.add(buff);
+            Assert.assertEquals(currentReadSize,sb.length());
+            return false;
+        });
+        Assert.assertEquals(sb.toString(),content);
+        Assert.assertEquals(buffs.size(),1);
+        Assert.assertEquals(readFileContent(czbBigText.insert(content.length(),"bin")),content+"bin");
+        Assert.assertEquals(readFileContent(czbBigText.substring(301,1121)),content.substring(301,1121));
+    }
+
+
+    /**
+     * 直接统计字节得到的字符数应该与解码后的字符数一致，包括回车换行、4 字节字符，以及并行统计和格式错误时的解码统计
+     */
+    @Test
+    public void test_byteLength() throws IOException {
+        String content = readFileContent();
+        ByteLengthDelegate byteLengthDelegate=new ByteLengthDelegate(srcTextfile,"utf-8");
+        Assert.assertArrayEquals(byteLengthDelegate.count(),new long[]{content.length(),reaFileContentNoCRLF().length()});
+
+        File bytesFile=new File(srcTextfile.getParentFile(),"bytes.txt");
+        String text="ab\r\n仙人掌😀\n"+content.substring(0,300)+"\r\r\n😀😀end";
+        Files.write(bytesFile.toPath(),text.getBytes(StandardCharsets.UTF_8));
+        ForkJoinPool pool=new ForkJoinPool(4);
+        try {
+            CzbBigText bytesBigText=new CzbBigText(bytesFile,new ReadFileDelegate(bytesFile,20,"utf-8"));
+            bytesBigText.setParallelPool(pool);
+            bytesBigText.getParallelReadDelegate().setMinRangeSize(16);
+            Assert.assertEquals(bytesBigText.length(),text.length());
+            Assert.assertEquals(bytesBigText.lengthNoCRLF(),text.replace("\r","").replace("\n","").length());
+
+            //格式错误的 UTF-8 改为解码统计
+            byte[] malformed={'a',(byte) 0x80,'b',(byte) 0xE4,'\n'};
+            Files.write(bytesFile.toPath(),malformed);
+            Assert.assertArrayEquals(new ByteLengthDelegate(bytesFile,"utf-8").count(),new long[]{-1,-1});
+            CzbBigText malformedBigText=new CzbBigText(bytesFile,new ReadFileDelegate(bytesFile,20,"utf-8"));
+            Assert.assertEquals(malformedBigText.length(),new String(malformed,StandardCharsets.UTF_8).length());
+
+            //后续字节数与首字节需要的后续字节数恰好相等，但每个字符的字节顺序不对；以及过长的编码、代理字符
+            for (byte[] balanced : new byte[][]{{(byte) 0xE4,(byte) 0x80,'A',(byte) 0x80,'x','y'},
+                    {(byte) 0xC0,(byte) 0x80,'x','y'},{(byte) 0xED,(byte) 0xA0,(byte) 0x80,'x','y'}}) {
+                Files.write(bytesFile.toPath(),balanced);
+                Assert.assertArrayEquals(new ByteLengthDelegate(bytesFile,"utf-8").count(),new long[]{-1,-1});
+                String decoded=new String(balanced,StandardCharsets.UTF_8);
+                CzbBigText balancedBigText=new CzbBigText(bytesFile,new ReadFileDelegate(bytesFile,20,"utf-8"));
+                Assert.assertEquals(balancedBigText.length(),decoded.length());
+                Assert.assertEquals(balancedBigText.lastIndexOf("xy"),decoded.lastIndexOf("xy"));
+                Assert.assertEquals(balancedBigText.indexOf("xy"),decoded.indexOf("xy"));
+                Assert.assertEquals(new String(Files.readAllBytes(balancedBigText.insert(decoded.length()-1,"b").toPath()),StandardCharsets.UTF_8),
+                        new StringBuilder(decoded).insert(decoded.length()-1,"b").toString());
+            }
+        } finally {
+            pool.shutdown();
+            bytesFile.delete();
+        }
+    }
+
+
+    /**
+     * 一次读取统计多项数据，顺序统计与并行统计的结果都应该与直接统计字符串一致
+     */
+    @Test
+    public void test_stats() throws IOException {
+        File statsFile=new File(srcTextfile.getParentFile(),"stats.txt");
+        String content = readFileContent();
+        String text=content.substring(0,400)+"\r\n\r\n 仙人掌\t\r"+content.substring(400,420)+"\r\r\n\n"+content.substring(1000)+"\n";
+        Files.write(statsFile.toPath(),text.getBytes(StandardCharsets.UTF_8));
+        ForkJoinPool pool=new ForkJoinPool(4);
+        try {
+            List<String> lines=new BufferedReader(new StringReader(text)).lines().collect(Collectors.toList());
+            long whitespace=text.chars().filter(c->Character.isWhitespace((char) c)).count();
+            long nonAscii=text.chars().filter(c->c>=0x80).count();
+            Map<Character,Long> histogram=new LinkedHashMap<>();
+            text.chars().sorted().forEach(c->histogram.merge((char) c,1L,Long::sum));
+            for (boolean parallel : new boolean[]{false,true}) {
+                CzbBigText statsBigText=new CzbBigText(statsFile,new ReadFileDelegate(statsFile,20,"utf-8"));
+                if(parallel){
+                    statsBigText.setParallelPool(pool);
+                    statsBigText.getParallelReadDelegate().setMinRangeSize(7);
+                }
+                TextStats stats=statsBigText.stats();
+                Assert.assertEquals(stats.getLength(),text.length());
+                Assert.assertEquals(stats.getLengthNoCRLF(),text.replace("\r","").replace("\n","").length());
+                Assert.assertEquals(stats.getLineCount(),lines.size());
+                Assert.assertEquals(stats.getMaxLineLength(),lines.stream().mapToInt(String::length).max().getAsInt());
+                Assert.assertEquals(stats.getWhitespaceCount(),whitespace);
+                Assert.assertEquals(stats.getSpaceCount(),text.chars().filter(c->c==' ').count());
+                Assert.assertEquals(stats.getNonAsciiCount(),nonAscii);
+                Assert.assertEquals(stats.getCharCount('仙'),text.chars().filter(c->c=='仙').count());
+                Assert.assertEquals(stats.getHistogram().values().stream().mapToLong(Long::longValue).sum(),text.length());
+                Assert.assertEquals(stats.getHistogram(),histogram);
+                Assert.assertEquals(stats.getCharCount('\uFFFF'),0);
+                Assert.assertEquals(statsBigText.length(),text.length());
+                Assert.assertSame(statsBigText.stats(),stats);
+                //只有出现过的字符所在的页会被复制、保存
+                TextStats copy=new TextStats().merge(stats);
+                copy.update(new char[]{'仙'},0,1);
+                Assert.assertEquals(stats.getCharCount('仙')+1,copy.getCharCount('仙'));
+                ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+                stats.writeTo(new DataOutputStream(bytes));
+                TextStats loaded=TextStats.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+                Assert.assertEquals(loaded.getHistogram(),histogram);
+                Assert.assertEquals(loaded.getLineCount(),lines.size());
+            }
+        } finally {
+            pool.shutdown();
+            statsFile.delete();
+        }
+    }
+
+
+    /**
+     * 按行号读取，结果应该与 {@link BufferedReader#readLine()} 读出的行一致
+     * <p>记录间隔设置得很小，以便在小文件上也能生成多个记录；同时覆盖直接扫描字节和解码扫描两种建立方式</p>
+     */
+    @Test
+    public void test_lineIndex() throws IOException {
+        File linesFile=new File(srcTextfile.getParentFile(),"lines.txt");
+        String content = readFileContent();
+        String text=content.substring(0,300)+"\r\n\r\n仙人掌😀\r"+content.substring(300,420)+"\r\r\n\n"+content.substring(1000)+"\nend";
+        List<String> lines=new BufferedReader(new StringReader(text)).lines().collect(Collectors.toList());
+        try {
+            //带字节顺序标记的 UTF-16LE 、UTF-32LE 按 UTF-16 、UTF-32 读取时，只能从文件开头识别字节顺序
+            String[][] charsets={{"utf-8","utf-8"},{"utf-16","utf-16"},{"x-UTF-16LE-BOM","UTF-16"},{"X-UTF-32LE-BOM","UTF-32"}};
+            for (String[] pair : charsets) {
+                String charset=pair[1];
+                Files.write(linesFile.toPath(),text.getBytes(pair[0]));
+                CzbBigText linesBigText=new CzbBigText(linesFile,new ReadFileDelegate(linesFile,20,charset));
+                LineIndex lineIndex=new LineIndex(linesFile,charset,3);
+                lineIndex.setPersistent(false);
+                linesBigText.getLineReadDelegate().setLineIndex(lineIndex);
+                Assert.assertEquals(linesBigText.lineCount(),lines.size());
+                Assert.assertTrue(lineIndex.size()>1);
+                for (int i = 0; i < lines.size(); i++) {
+                    Assert.assertEquals(linesBigText.lineAt(i),lines.get(i));
+                }
+                Assert.assertEquals(new String(Files.readAllBytes(linesBigText.linesBetween(0,lines.size()).toPath()),Charset.forName(charset)),text);
+                String between=new String(Files.readAllBytes(linesBigText.linesBetween(4,10).toPath()),Charset.forName(charset));
+                Assert.assertEquals(new BufferedReader(new StringReader(between)).lines().collect(Collectors.toList()),lines.subList(4,10));
+            }
+
+            //旁路文件只能被编码相同的索引加载，按 GB18030 读取 UTF-8 文件时重新建立索引
+            Files.write(linesFile.toPath(),text.getBytes(StandardCharsets.UTF_8));
+            CzbBigText utf8BigText=new CzbBigText(linesFile,new ReadFileDelegate(linesFile,20,"utf-8"));
+            utf8BigText.getLineReadDelegate().setLineIndex(new LineIndex(linesFile,"utf-8",3));
+            Assert.assertEquals(utf8BigText.lineCount(),lines.size());
+            Assert.assertTrue(new LineIndex(linesFile,"UTF8",3).isAvailable());
+            LineIndex gbLineIndex=new LineIndex(linesFile,"GB18030",3);
+            Assert.assertFalse(gbLineIndex.isAvailable());
+            List<String> gbLines=new BufferedReader(new StringReader(new String(text.getBytes(StandardCharsets.UTF_8),"GB18030"))).lines().collect(Collectors.toList());
+            CzbBigText gbBigText=new CzbBigText(linesFile,new ReadFileDelegate(linesFile,20,"GB18030"));
+            gbBigText.getLineReadDelegate().setLineIndex(gbLineIndex);
+            Assert.assertEquals(gbBigText.lineCount(),gbLines.size());
+            for (int i = 0; i < gbLines.size(); i++) {
+                Assert.assertEquals(gbBigText.lineAt(i),gbLines.get(i));
+            }
+            try {
+                gbBigText.getLineReadDelegate().setLineIndex(new LineIndex(linesFile,"utf-8",3));
+                Assert.fail();
+            } catch (IllegalArgumentException e){
+                //行索引的编码与读取的编码不一致
+            }
+        } finally {
+            new File(linesFile.getPath()+LineIndex.SIDECAR_SUFFIX).delete();
+            linesFile.delete();
+        }
+    }
+
+
+    /**
+     * 多关键字查找，结果应该与逐个关键字查找一致
+     * <p>关键字互相包含、跨越多段，较长的关键字比较短的关键字开始得更早但结束得更晚</p>
+     */
+    @Test
+    public void test_multiKeywords() throws IOException {
+        String content = readFileContent();
+        String[] keywords={"防身的武器","仙人掌","仙人","人掌","123","www.EASyzw.com",content.substring(301,380),content.substring(303,330),"不存在的内容"};
+        long expected=-1;
+        for (String keyword : keywords) {
+            int i=content.indexOf(keyword);
+            if(i!=-1 && (expected==-1 || i<expected)){
+                expected=i;
+            }
+        }
+        Assert.assertEquals(czbBigText.indexOfAny(keywords),expected);
+        Assert.assertEquals(czbBigText.indexOfAny(content.substring(303,330),content.substring(301,380)),301);
+        Assert.assertEquals(czbBigText.indexOfAny(302,"仙人掌","人掌"),Math.min(content.indexOf("仙人掌",302),content.indexOf("人掌",302)));
+        Assert.assertEquals(czbBigText.indexOfAny("不存在的内容"),-1);
+        Assert.assertTrue(czbBigText.containsAll("防身的武器","仙人掌","123"));
+        Assert.assertFalse(czbBigText.containsAll("防身的武器","不存在的内容"));
+        Map<String,Long> counts=czbBigText.countMatches(keywords);
+        for (String keyword : keywords) {
+            long count=(content.length()-content.replace(keyword,"").length())/keyword.length();
+            Assert.assertEquals(counts.get(keyword).longValue(),count);
+        }
+
+        //几万个中文关键字，状态数和字符种类都很多，自动机仍然能在普通的堆内存中建立
+        Random random=new Random(9);
+        Set<String> keywordSet=new HashSet<>();
+        while (keywordSet.size()<20000){
+            keywordSet.add(randomCjk(random,4+random.nextInt(8)));
+        }
+        String[] cjkKeywords=keywordSet.toArray(new String[0]);
+        StringBuilder text=new StringBuilder(randomCjk(random,5000));
+        for (int k = 0; k < 100; k++) {
+            text.append(cjkKeywords[random.nextInt(cjkKeywords.length)]).append(randomCjk(random,random.nextInt(50)));
+        }
+        File keywordsFile=new File(tempFolder.getRoot(),"keywords.txt");
+        Files.write(keywordsFile.toPath(),text.toString().getBytes(StandardCharsets.UTF_8));
+        CzbBigText keywordsBigText=new CzbBigText(keywordsFile,new ReadFileDelegate(keywordsFile,1024,"utf-8"));
+        for (int fromIndex : new int[]{0,4000,5000,text.length()/2}) {
+            long first=-1;
+            for (int i = fromIndex; i < text.length() && first==-1; i++) {
+                for (int length = 4; length <= 11 && i+length <= text.length(); length++) {
+                    if(keywordSet.contains(text.substring(i,i+length))){
+                        first=i;
+                        break;
+                    }
+                }
+            }
+            Assert.assertEquals(keywordsBigText.indexOfAny(fromIndex,cjkKeywords),first);
+        }
+        Assert.assertFalse(keywordsBigText.containsAll(cjkKeywords));
+        long expectedTotal=0;
+        for (int i = 0; i < text.length(); i++) {
+            for (int length = 4; length <= 11 && i+length <= text.length(); length++) {
+                if(keywordSet.contains(text.substring(i,i+length))){
+                    expectedTotal++;
+                }
+            }
+        }
+        long total=0;
+        for (long count : keywordsBigText.countMatches(cjkKeywords).values()) {
+            total+=count;
+        }
+        Assert.assertEquals(total,expectedTotal);
+    }
+
+
+    /**
+     * 一次读取覆盖多个字符串，结果应该与按最左最长方式逐个字符覆盖一致
+     */
+    @Test
+    public void test_replaceAll() throws IOException {
+        String content = readFileContent();
+        Map<String,String> replacements=new LinkedHashMap<>();
+        replacements.put("仙人","A");
+        replacements.put("仙人掌","B");
+        replacements.put("人掌的","C");
+        replacements.put("123","");
+        replacements.put(content.substring(301,380),"D");
+        replacements.put(content.substring(303,330),"E");
+        replacements.put("防身的武器","防身的武器的武器");
+        StringBuilder expected=new StringBuilder();
+        int i=0;
+        while (i<content.length()){
+            String best=null;
+            for (String oldStr : replacements.keySet()) {
+                if(content.startsWith(oldStr,i) && (best==null || oldStr.length()>best.length())){
+                    best=oldStr;
+                }
+            }
+            if(best==null){
+                expected.append(content.charAt(i++));
+            }else{
+                expected.append(replacements.get(best));
+                i+=best.length();
+            }
+        }
+        Assert.assertEquals(readFileContent(czbBigText.replaceAll(replacements)),expected.toString());
+        Assert.assertEquals(readFileContent(czbBigText.replaceAll(Collections.singletonMap("防身的武器","bin"))),content.replace("防身的武器","bin"));
+
+        //几万个中文关键字，状态数和字符种类都很多，自动机只为较浅的状态保存稠密的状态转移表
+        Random random=new Random(10);
+        Map<String,String> dictionary=new HashMap<>();
+        List<String> dictionaryKeys=new ArrayList<>();
+        while (dictionary.size()<20000){
+            String keyword=randomCjk(random,4+random.nextInt(8));
+            if(dictionary.put(keyword,"<"+dictionary.size()+">")==null){
+                dictionaryKeys.add(keyword);
+            }
+        }
+        StringBuilder text=new StringBuilder();
+        for (int k = 0; k < 3000; k++) {
+            text.append(randomCjk(random,random.nextInt(10))).append(dictionaryKeys.get(random.nextInt(dictionaryKeys.size())));
+        }
+        StringBuilder dictionaryExpected=new StringBuilder();
+        i=0;
+        while (i<text.length()){
+            int length=Math.min(11,text.length()-i);
+            while (length>=4 && !dictionary.containsKey(text.substring(i,i+length))){
+                length--;
+            }
+            if(length<4){
+                dictionaryExpected.append(text.charAt(i++));
+            }else{
+                dictionaryExpected.append(dictionary.get(text.substring(i,i+length)));
+                i+=length;
+            }
+        }
+        File dictionaryFile=new File(tempFolder.getRoot(),"dictionary.txt");
+        Files.write(dictionaryFile.toPath(),text.toString().getBytes(StandardCharsets.UTF_8));
+        CzbBigText dictionaryBigText=new CzbBigText(dictionaryFile,new ReadFileDelegate(dictionaryFile,1024,"utf-8"));
+        Assert.assertEquals(readFileContent(dictionaryBigText.replaceAll(dictionary)),dictionaryExpected.toString());
+    }
+
+
+    /**
+     * 正则表达式的流式查找、覆盖和切分，把最大匹配长度调小，让匹配项跨越滑动窗口
+     */
+    @Test
+    public void test_regex(){
+        String content = readFileContent();
+        czbBigText.setMaxMatchLength(64);
+        Pattern pattern=Pattern.compile("仙人(掌)?|[0-9]+|。\\s*");
+        List<RegexMatch> matches = czbBigText.findAll(pattern);
+        Matcher matcher = pattern.matcher(content);
+        int count=0;
+        while (matcher.find()){
+            RegexMatch match = matches.get(count++);
+            Assert.assertEquals(match.getStart(),matcher.start());
+            Assert.assertEquals(match.getEnd(),matcher.end());
+            Assert.assertEquals(match.group(1),matcher.group(1));
+        }
+        Assert.assertEquals(matches.size(),count);
+        Assert.assertEquals(readFileContent(czbBigText.replaceAll(pattern,"<$0|\\$>")),pattern.matcher(content).replaceAll("<$0|\\$>"));
+        Pattern named=Pattern.compile("(?<a>仙)(人)");
+        Assert.assertEquals(readFileContent(czbBigText.replaceAll(named,"${a}-$2")),named.matcher(content).replaceAll("${a}-$2"));
+        String[] contentArr = content.split("我|，");
+        List<File> files = czbBigText.split(Pattern.compile("我|，"));
+        Assert.assertEquals(files.size(),contentArr.length);
+        for (int i = 0; i < files.size(); i++) {
+            Assert.assertEquals(readFileContent(files.get(i)),contentArr[i]);
+        }
+        contentArr = content.split("[，。！]+",3);
+        files = czbBigText.split(Pattern.compile("[，。！]+"),3);
+        Assert.assertEquals(files.size(),contentArr.length);
+        for (int i = 0; i < files.size(); i++) {
+            Assert.assertEquals(readFileContent(files.get(i)),contentArr[i]);
+        }
+    }
+
+
+    /**
+     * 使用 splitStr 作为分隔符 对本文进行切分，新文本文件关闭后立即交给处理者，分隔符按字面匹配；
+     * 并使用写入线程池在后台写入新文本文件
+     */
+    @Test
+    public void test_splitConsumer() throws InterruptedException {
+        String content = readFileContent();
+        List<File> files = new ArrayList<>();
+        int count = czbBigText.split(".", -1, files::add);
+        String[] contentArr = content.split(Pattern.quote("."));
+        Assert.assertEquals(count,contentArr.length);
+        Assert.assertEquals(files.size(),contentArr.length);
+        for (int i = 0; i < files.size(); i++) {
+            Assert.assertEquals(readFileContent(files.get(i)),contentArr[i]);
+        }
+        ExecutorService writerPool = Executors.newFixedThreadPool(3);
+        try {
+            Map<Integer,String> parts = new ConcurrentHashMap<>();
+            String name = srcTextfile.getAbsolutePath()+".temp";
+            count = czbBigText.split("，", -1, file -> parts.put(Integer.parseInt(file.getAbsolutePath().substring(name.length())), readFileContent(file)), writerPool);
+            contentArr = content.split("，");
+            Assert.assertEquals(count,contentArr.length);
+            Assert.assertEquals(parts.size(),contentArr.length);
+            for (int i = 0; i < contentArr.length; i++) {
+                Assert.assertEquals(parts.get(i+1),contentArr[i]);
+            }
+        } finally {
+            writerPool.shutdown();
+            writerPool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+
+    /**
+     * 按行边界把本文切分成多个分片文件，分片首尾相接等于原文，每个分片都在行的边界上结束
+     */
+    @Test
+    public void test_shard() throws IOException {
+        byte[] bytes = Files.readAllBytes(srcTextfile.toPath());
+        List<File> shards = czbBigText.shard(4);
+        Assert.assertTrue(shards.size()>1 && shards.size()<=4);
+        StringBuilder joined=new StringBuilder();
+        for (int i = 0; i < shards.size(); i++) {
+            String shard=readFileContent(shards.get(i));
+            Assert.assertTrue(i==shards.size()-1 || shard.endsWith("\n"));
+            joined.append(shard);
+        }
+        Assert.assertEquals(joined.toString(),new String(bytes,StandardCharsets.UTF_8));
+        File linesFile=new File(srcTextfile.getParentFile(),"lines.txt");
+        String text="仙人掌\r\n\r\nab\rcd\r\r\n\nend";
+        try {
+            Files.write(linesFile.toPath(),text.getBytes(StandardCharsets.UTF_8));
+            CzbBigText linesBigText=new CzbBigText(linesFile);
+            List<String> parts=new ArrayList<>();
+            for (File shard : linesBigText.shardBySize(2)) {
+                parts.add(readFileContent(shard));
+            }
+            Assert.assertEquals(parts.toString(),"[仙人掌\r\n, \r\n, ab\r, cd\r, \r\n, \nend]");
+            Assert.assertEquals(linesBigText.shard(100).size(),7);
+        } finally {
+            linesFile.delete();
+        }
+    }
+
+
+    /**
+     * 异步操作的结果与同步操作一致；取消后读取循环在下一个段的边界上停止
+     */
+    @Test
+    public void test_async() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncCzbBigText asyncBigText = new AsyncCzbBigText(czbBigText, executor);
+            String content = readFileContent();
+            Assert.assertEquals(asyncBigText.indexOf("仙人掌").get().longValue(),content.indexOf("仙人掌"));
+            Assert.assertEquals(readFileContent(asyncBigText.replace("仙人掌","bin").get()),content.replace("仙人掌","bin"));
+            CountDownLatch firstSegment = new CountDownLatch(1);
+            CountDownLatch cancelled = new CountDownLatch(1);
+            CountDownLatch completed = new CountDownLatch(1);
+            int[] segments = {0};
+            CompletableFuture<Void> future = asyncBigText.readFile(new ReadSegmentCallback() {
+                @Override
+                public boolean onSegmentRead(long currentReadSize, char[] buff, int offset, int length) {
+                    segments[0]++;
+                    firstSegment.countDown();
+                    try {
+                        cancelled.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return false;
+                }
+
+                @Override
+                public void onCompleteRead(long currentReadSize, char[] buff, int offset, int length) {
+                    completed.countDown();
+                }
+            });
+            Assert.assertTrue(firstSegment.await(10, TimeUnit.SECONDS));
+            Assert.assertTrue(future.cancel(false));
+            cancelled.countDown();
+            Assert.assertTrue(completed.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(segments[0],1);
+            Assert.assertTrue(future.isCancelled());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+    /**
+     * 流水线在一次读取中依次执行多个步骤，结果应该与依次调用各个方法一致
+     */
+    @Test
+    public void test_pipeline(){
+        String content = readFileContent();
+        String expected=content.toLowerCase(Locale.ROOT).replace("仙人掌","  Bin  ").replaceAll("^ +| +\\z","");
+        String result=readFileContent(czbBigText.pipeline().toLowerCase(Locale.ROOT).replace("仙人掌","  Bin  ").trim().writeTo());
+        Assert.assertEquals(expected,result);
+        //与依次调用各个方法、每一步都写一次临时文件的结果一致
+        File step=new CzbBigText(czbBigText.toLowerCase(Locale.ROOT)).replace("仙人掌","  Bin  ");
+        Assert.assertEquals(readFileContent(new CzbBigText(step).trim()),result);
+
+        Map<String,String> replacements=new LinkedHashMap<>();
+        replacements.put("仙人掌","cactus");
+        replacements.put("。","");
+        File multi=czbBigText.pipeline().replaceAll(replacements).replaceAll(Pattern.compile("(cactus)(的)"),"$2$1")
+                .toUpperCase(Locale.ROOT).trimNoCRLF().writeTo();
+        Assert.assertEquals(content.replace("仙人掌","cactus").replace("。","").replaceAll("(cactus)(的)","$2$1")
+                .toUpperCase(Locale.ROOT).trim(),readFileContent(multi));
+        //没有步骤时直接复制
+        Assert.assertEquals(content,readFileContent(czbBigText.pipeline().writeTo()));
+    }
+
+
+    /**
+     * 编辑会话批量记录插入、删除和替换，读取时立刻看到编辑结果，提交时只写一次文件
+     */
+    @Test
+    public void test_editSession(){
+        String content = readFileContent();
+        StringBuilder expected=new StringBuilder(content);
+        EditSession session=czbBigText.edit();
+        for (int i = 0; i < 100; i++) {
+            long offset=i*11L;
+            session.insert(offset,"<"+i+">");
+            expected.insert((int) offset,"<"+i+">");
+        }
+        session.delete(0,176).replace(10,20,"仙人掌");
+        expected.delete(0,176).replace(10,20,"仙人掌");
+        session.insert(session.length(),"end");
+        expected.append("end");
+        Assert.assertEquals(expected.length(),session.length());
+        Assert.assertEquals(expected.substring(5,800),session.substring(5,800));
+        Assert.assertEquals(expected.charAt(12),session.charAt(12));
+        Assert.assertEquals(expected.toString(),readFileContent(session.commit()));
+        try {
+            session.delete(10,session.length()+1);
+            Assert.fail();
+        } catch (StringIndexOutOfBoundsException e) {
+            //超出范围
+        }
+    }
+
+
+    /**
+     * 视图只在读取时计算结果，显式调用 materialize 才写出文件
+     */
+    @Test
+    public void test_view(){
+        String content = readFileContent();
+        CzbBigText substringView=czbBigText.substringView(176,1000);
+        String substring=content.substring(176,1000);
+        Assert.assertTrue(substringView.isView());
+        Assert.assertEquals(substring.length(),substringView.length());
+        Assert.assertEquals(substring.indexOf("仙人掌"),substringView.indexOf("仙人掌"));
+        Assert.assertEquals(substring.substring(20,80),readFileContent(substringView.substring(20,80)));
+
+        CzbBigText view=czbBigText.pipeline().replace("仙人掌","cactus").toUpperCase(Locale.ROOT).view();
+        String expected=content.replace("仙人掌","cactus").toUpperCase(Locale.ROOT);
+        Assert.assertEquals(expected.indexOf("CACTUS",300),view.indexOf("CACTUS",300));
+        Assert.assertEquals(expected.trim(),readFileContent(view.trimNoCRLF()));
+        //视图上还可以再创建视图
+        Assert.assertEquals(expected.substring(100,200),readFileContent(view.substringView(100,200).materialize()));
+        Assert.assertEquals(expected,readFileContent(view.materialize()));
+        Assert.assertFalse(czbBigText.isView());
+        try {
+            view.lineCount();
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+            //行索引需要按字节定位
+        }
+    }
+
+
+    /**
+     * 字节数相同的覆盖直接修改源文本文件，字节数不同时改为复制
+     */
+    @Test
+    public void test_inPlace() throws IOException {
+        String content = readFileContent();
+        File copy=new File(srcTextfile.getAbsolutePath()+".inplace");
+        Files.copy(srcTextfile.toPath(),copy.toPath(),StandardCopyOption.REPLACE_EXISTING);
+        CzbBigText inPlaceText=new CzbBigText(copy,new ReadFileDelegate(copy,20,"utf-8"));
+        Assert.assertEquals(content.length(),inPlaceText.length());
+        //“仙人掌”和“向日葵”的 UTF-8 字节数相同
+        Assert.assertTrue(inPlaceText.replaceInPlace("仙人掌","向日葵"));
+        String expected=content.replace("仙人掌","向日葵");
+        Assert.assertEquals(expected,readFileContent(copy));
+        Assert.assertTrue(inPlaceText.replaceInPlace("刺","ab1"));
+        expected=expected.replace("刺","ab1");
+        Assert.assertEquals(expected,readFileContent(copy));
+        //字符数改变后缓存的字符数失效
+        Assert.assertEquals(expected.length(),inPlaceText.length());
+        Assert.assertFalse(inPlaceText.replaceInPlace("向日葵","cactus"));
+        expected=expected.replace("向日葵","cactus");
+        Assert.assertEquals(expected,readFileContent(copy));
+        Assert.assertEquals(expected.indexOf("cactus",500),inPlaceText.indexOf("cactus",500));
+        //包含非 ASCII 字符时大小写转换改为复制
+        Assert.assertFalse(inPlaceText.toUpperCaseInPlace(Locale.ROOT));
+        Assert.assertEquals(expected.toUpperCase(Locale.ROOT),readFileContent(copy));
+        copy.delete();
+    }
+
+
+    /**
+     * 新文本文件按源文本的编码写入，输出端工厂和强制同步的时机可以配置，并报告写入的字节数
+     */
+    @Test
+    public void test_outputSink() throws IOException {
+        String content = readFileContent();
+        File gbkFile=new File(srcTextfile.getAbsolutePath()+".gbk");
+        try {
+            Files.write(gbkFile.toPath(),content.getBytes("GBK"));
+            CzbBigText gbkText=new CzbBigText(gbkFile,new ReadFileDelegate(gbkFile,20,"GBK"));
+            gbkText.setFsyncPolicy(FsyncPolicy.ON_FLUSH);
+            String expected=content.replace("仙人掌","cactus");
+            Assert.assertEquals(expected,new String(Files.readAllBytes(gbkText.replace("仙人掌","cactus").toPath()),"GBK"));
+            //自定义的输出端工厂，记录写入的字节数
+            List<OutputSink> sinks=new ArrayList<>();
+            gbkText.setOutputSinkFactory(file -> {
+                OutputSink sink=new ChannelOutputSink(file,StandardCharsets.UTF_8,FsyncPolicy.NEVER);
+                sinks.add(sink);
+                return sink;
+            });
+            File result=gbkText.toUpperCase();
+            Assert.assertEquals(content.toUpperCase(),readFileContent(result));
+            Assert.assertEquals(1,sinks.size());
+            Assert.assertEquals(result.length(),sinks.get(0).getBytesWritten());
+            sinks.clear();
+            List<File> parts=gbkText.split("仙人掌");
+            Assert.assertEquals(parts.size(),sinks.size());
+            for (int i = 0; i < parts.size(); i++) {
+                Assert.assertEquals(parts.get(i).length(),sinks.get(i).getBytesWritten());
+            }
+        } finally {
+            gbkFile.delete();
+        }
+    }
+
+
+    /**
+     * 截取、修剪、插入、连接按字节范围复制，结果应该与按字符处理一致；边界落在代理对中间时改为按字符处理
+     */
+    @Test
+    public void test_byteRange() throws IOException {
+        File rangeFile=new File(srcTextfile.getParentFile(),"range.txt");
+        File joinFile=new File(srcTextfile.getParentFile(),"range-join.txt");
+        String text="  \r\n仙人掌😀cactus\r\n  ";
+        try {
+            Files.write(rangeFile.toPath(),text.getBytes(StandardCharsets.UTF_8));
+            Files.write(joinFile.toPath(),"向日葵".getBytes(StandardCharsets.UTF_8));
+            ReadFileDelegate rangeDelegate=new ReadFileDelegate(rangeFile,3,"utf-8");
+            CzbBigText rangeText=new CzbBigText(rangeFile,rangeDelegate);
+            int emoji=text.indexOf("😀");
+            Assert.assertArrayEquals(new long[]{0,13,-1,17},rangeDelegate.getBytePositions(0,emoji,emoji+1,emoji+2));
+            Assert.assertEquals(text.substring(4,emoji+2),readFileContent(rangeText.substring(4,emoji+2)));
+            Assert.assertEquals("?cactus",readFileContent(rangeText.substring(emoji+1,emoji+8)));
+            Assert.assertEquals(text.substring(0,emoji)+"-"+text.substring(emoji),readFileContent(rangeText.insert(emoji,"-")));
+            Assert.assertEquals(text.substring(0,emoji)+"向日葵"+text.substring(emoji),readFileContent(rangeText.insert(emoji,joinFile)));
+            Assert.assertEquals(text+","+"向日葵",readFileContent(rangeText.join(",",joinFile)));
+            Assert.assertEquals(text.substring(2,text.length()-2),readFileContent(rangeText.trim()));
+            Assert.assertEquals(text.trim(),readFileContent(rangeText.trimNoCRLF()));
+        } finally {
+            rangeFile.delete();
+            joinFile.delete();
+        }
+    }
+
+
+    /**
+     * 从文件结尾向前读取：lastIndexOf 、endsWith 、tail 的结果应该与 String 一致
+     */
+    @Test
+    public void test_reverseRead() throws IOException {
+        String content = readFileContent();
+        for (String str : new String[]{"仙人掌","。","123","不存在的内容",content.substring(300,330)}) {
+            Assert.assertEquals(content.lastIndexOf(str),czbBigText.lastIndexOf(str));
+            Assert.assertEquals(content.lastIndexOf(str,500),czbBigText.lastIndexOf(str,500));
+        }
+        Assert.assertTrue(czbBigText.endsWith(content.substring(content.length()-20)));
+        Assert.assertFalse(czbBigText.endsWith("不存在的内容"));
+        List<String> lines=new BufferedReader(new StringReader(content)).lines().collect(Collectors.toList());
+        String tail=readFileContent(czbBigText.tail(3));
+        Assert.assertTrue(content.endsWith(tail));
+        Assert.assertEquals(lines.subList(lines.size()-3,lines.size()),new BufferedReader(new StringReader(tail)).lines().collect(Collectors.toList()));
+        Assert.assertEquals(content,readFileContent(czbBigText.tail(lines.size()+1)));
+        //小块读取时，UTF-8 字符会跨越块的边界
+        ReverseReadDelegate reverseReadDelegate=new ReverseReadDelegate(srcTextfile,"utf-8",5);
+        StringBuilder text=new StringBuilder();
+        reverseReadDelegate.readBackward((charsAfter, buff, offset, length) -> {
+            text.insert(0,buff,offset,length);
+            return false;
+        });
+        Assert.assertEquals(content,text.toString());
+    }
+
+
+    /**
+     * 跟随持续追加的文本文件，只处理新追加的字节，增量更新字符数、统计结果和行索引
+     */
+    @Test
+    public void test_follow() throws IOException {
+        String content = readFileContent();
+        File copy=new File(srcTextfile.getAbsolutePath()+".follow");
+        Files.copy(srcTextfile.toPath(),copy.toPath(),StandardCopyOption.REPLACE_EXISTING);
+        CzbBigText followText=new CzbBigText(copy);
+        TextFollower follower=followText.follow();
+        Assert.assertEquals(content.length(),follower.getCharPosition());
+        IndexOfCommand command=new IndexOfCommand("仙人掌",0);
+        follower.addListener(command);
+        //“仙”的最后一个字节还没写入时留到下一次处理
+        byte[] appended="\r\n新的一行仙人掌".getBytes(StandardCharsets.UTF_8);
+        Files.write(copy.toPath(),Arrays.copyOf(appended,appended.length-7),StandardOpenOption.APPEND);
+        Assert.assertEquals(6,follower.poll());
+        Assert.assertEquals(-1,command.getGlobalPos());
+        Files.write(copy.toPath(),Arrays.copyOfRange(appended,appended.length-7,appended.length),StandardOpenOption.APPEND);
+        Assert.assertEquals(3,follower.poll());
+        Assert.assertEquals(0,follower.poll());
+        String expected=content+"\r\n新的一行仙人掌";
+        Assert.assertEquals(6,command.getGlobalPos());
+        Assert.assertEquals(expected.length(),followText.length());
+        Assert.assertEquals(expected.replace("\r","").replace("\n","").length(),followText.lengthNoCRLF());
+        Assert.assertEquals(content.chars().filter(c -> c=='掌').count()+1,followText.stats().getCharCount('掌'));
+        List<String> lines=new BufferedReader(new StringReader(expected)).lines().collect(Collectors.toList());
+        Assert.assertEquals(lines.size(),followText.lineCount());
+        Assert.assertEquals(lines.get(lines.size()-1),followText.lineAt(lines.size()-1));
+        Assert.assertEquals(expected.indexOf("仙人掌",content.length()),followText.indexOf("仙人掌",content.length()));
+        //文件被截断后从头开始，并淘汰共享的会话
+        BigTextSession session=SessionRegistry.getDefault().acquire(copy);
+        session.close();
+        Files.write(copy.toPath(),"abc\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(4,follower.poll());
+        Assert.assertFalse(session.isOpen());
+        Assert.assertEquals(4,followText.length());
+        Assert.assertEquals(1,followText.lineCount());
+        follower.close();
+        copy.delete();
+    }
+
+
+    /**
+     * 同一版本的文本文件在多个实例之间共享字符数和统计结果，文件被修改后自动失效
+     */
+    @Test
+    public void test_metadataCache() throws IOException {
+        String content = readFileContent();
+        File copy=new File(srcTextfile.getAbsolutePath()+".meta-test");
+        Files.copy(srcTextfile.toPath(),copy.toPath(),StandardCopyOption.REPLACE_EXISTING);
+        MetadataCache metadataCache=new MetadataCache(4);
+        Assert.assertFalse(metadataCache.isPersistent());
+        metadataCache.setPersistent(true);
+        CzbBigText first=new CzbBigText(copy);
+        first.setMetadataCache(metadataCache);
+        TextStats stats=first.stats();
+        Assert.assertEquals(content.length(),stats.getLength());
+        //新实例直接使用缓存的统计结果
+        CzbBigText second=new CzbBigText(copy);
+        second.setMetadataCache(metadataCache);
+        Assert.assertSame(stats,second.stats());
+        Assert.assertEquals(content.length(),second.length());
+        //内存层被清空后从旁路文件加载
+        metadataCache.clear();
+        Assert.assertTrue(new File(copy.getCanonicalPath()+MetadataCache.SIDECAR_SUFFIX).isFile());
+        CzbBigText third=new CzbBigText(copy);
+        third.setMetadataCache(metadataCache);
+        Assert.assertEquals(stats.getLineCount(),third.stats().getLineCount());
+        Assert.assertEquals(stats.getCharCount('。'),third.stats().getCharCount('。'));
+        //文件被修改后缓存的结果自动失效
+        Files.write(copy.toPath(),"追加".getBytes(StandardCharsets.UTF_8),StandardOpenOption.APPEND);
+        Assert.assertEquals(content.length()+2,first.length());
+        Assert.assertEquals(content.length()+2,second.stats().getLength());
+        metadataCache.invalidate(copy);
+        Assert.assertEquals(0,metadataCache.size());
+        Assert.assertFalse(new File(copy.getCanonicalPath()+MetadataCache.SIDECAR_SUFFIX).exists());
+        copy.delete();
+        new File(copy.getCanonicalPath()+CheckpointIndex.SIDECAR_SUFFIX).delete();
+
+        //用户自己的同名文件不是旁路文件，不会被删除或覆盖；不保存旁路文件的缓存不会触碰它
+        File userFile=tempFolder.newFile("user.txt");
+        Files.write(userFile.toPath(),content.getBytes(StandardCharsets.UTF_8));
+        File userMeta=new File(userFile.getCanonicalPath()+MetadataCache.SIDECAR_SUFFIX);
+        Files.write(userMeta.toPath(),"user notes".getBytes(StandardCharsets.UTF_8));
+        MetadataCache memoryCache=new MetadataCache(4);
+        CzbBigText userText=new CzbBigText(userFile);
+        userText.setMetadataCache(memoryCache);
+        Assert.assertEquals(content.length(),userText.stats().getLength());
+        memoryCache.invalidate(userFile);
+        Assert.assertEquals("user notes",new String(Files.readAllBytes(userMeta.toPath()),StandardCharsets.UTF_8));
+        userText.setMetadataCache(metadataCache);
+        Assert.assertEquals(content.length(),userText.stats().getLength());
+        metadataCache.invalidate(userFile);
+        Assert.assertEquals("user notes",new String(Files.readAllBytes(userMeta.toPath()),StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * 共享文件会话
+     */
+    @Test
+    public void test_session() throws IOException {
+        String content = readFileContent();
+        File copy=new File(srcTextfile.getAbsolutePath()+".session-test");
+        Files.copy(srcTextfile.toPath(),copy.toPath(),StandardCopyOption.REPLACE_EXISTING);
+        SessionRegistry registry=new SessionRegistry(1);
+        BigTextSession session=registry.acquire(copy);
+        Assert.assertSame(session,registry.acquire(copy));
+        Assert.assertEquals(2,session.getRefCount());
+        session.close();
+        session.close();
+        //仍然被注册表管理，通道保持打开
+        Assert.assertTrue(session.isOpen());
+        //所有读取共用同一个会话，结果不变
+        ReadFileDelegate delegate=new ReadFileDelegate(copy,1000,"utf-8");
+        delegate.setSessionRegistry(registry);
+        CzbBigText czbBigText=new CzbBigText(copy,delegate);
+        czbBigText.setMetadataCache(null);
+        Assert.assertEquals(content.length(),czbBigText.length());
+        Assert.assertEquals(content.indexOf("。",500),czbBigText.indexOf("。",500));
+        Assert.assertEquals(content.substring(100,300),readFileContent(czbBigText.substring(100,300)));
+        Assert.assertEquals(1,registry.size());
+        Assert.assertSame(session,registry.acquire(copy));
+        //文件被替换后重新打开，旧会话等使用者关闭后才关闭
+        File replacement=new File(copy.getAbsolutePath()+".new");
+        Files.write(replacement.toPath(),"替换后的内容".getBytes(StandardCharsets.UTF_8));
+        Files.move(replacement.toPath(),copy.toPath(),StandardCopyOption.REPLACE_EXISTING);
+        BigTextSession replaced=registry.acquire(copy);
+        Assert.assertNotSame(session,replaced);
+        Assert.assertTrue(session.isOpen());
+        session.close();
+        Assert.assertFalse(session.isOpen());
+        Assert.assertEquals("替换后的内容".getBytes(StandardCharsets.UTF_8).length,replaced.size());
+        //超过容量时淘汰最久没有使用的会话
+        registry.acquire(srcTextfile).close();
+        Assert.assertEquals(1,registry.size());
+        Assert.assertTrue(replaced.isOpen());
+        replaced.close();
+        Assert.assertFalse(replaced.isOpen());
+        registry.clear();
+        Assert.assertEquals(0,registry.size());
+        //源文本文件被替换或原地修改后，立即淘汰旧文件的会话并关闭通道
+        Files.copy(srcTextfile.toPath(),copy.toPath(),StandardCopyOption.REPLACE_EXISTING);
+        BigTextSession beforeReplace=registry.acquire(copy);
+        beforeReplace.close();
+        Assert.assertFalse(czbBigText.replaceInPlace("。","。。"));
+        Assert.assertEquals(0,registry.size());
+        Assert.assertFalse(beforeReplace.isOpen());
+        Assert.assertEquals(content.replace("。","。。"),readFileContent(copy));
+        BigTextSession beforeInPlace=registry.acquire(copy);
+        beforeInPlace.close();
+        Assert.assertTrue(czbBigText.replaceInPlace("。。","，，"));
+        Assert.assertEquals(0,registry.size());
+        Assert.assertFalse(beforeInPlace.isOpen());
+        Assert.assertEquals(content.replace("。","。。").replace("。。","，，"),readFileContent(copy));
+        copy.delete();
+        new File(copy.getCanonicalPath()+CheckpointIndex.SIDECAR_SUFFIX).delete();
+    }
+
+
+    /**
+     * 快速解码路径的结果应该与通用解码器一致
+     * <p>UTF-8 文本包含长短不一的 ASCII 段、中文、emoji 和非法字节，UTF-16 文本包含单独的代理字符和反向的字节顺序标记</p>
+     */
+    @Test
+    public void test_fastPathDecoder() throws IOException {
+        File decodeFile=new File(srcTextfile.getParentFile(),"decode.txt");
+        String content = readFileContent();
+        String text=content.substring(0,300)+"仙人掌😀ab仙\r\n"+content.substring(300,900)+"😀😀end";
+        try {
+            for (String charset : new String[]{"utf-8","utf-16le","utf-16be"}) {
+                ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+                bytes.write(text.getBytes(charset));
+                if("utf-8".equals(charset)){
+                    bytes.write(new byte[]{(byte) 0x80,'a',(byte) 0xE4,(byte) 0xBB,'b',(byte) 0xF0,(byte) 0x9F,(byte) 0x98});
+                } else {
+                    //getBytes 会把单独的代理字符替换成 ? ，按字节顺序直接写入
+                    for (char c : new char[]{'\uD83D','a','\uFFFE','\uDE00','b'}) {
+                        bytes.write("utf-16be".equals(charset) ? c>>8 : c);
+                        bytes.write("utf-16be".equals(charset) ? c : c>>8);
+                    }
+                }
+                bytes.write(content.substring(900).getBytes(charset));
+                Files.write(decodeFile.toPath(),bytes.toByteArray());
+                String expected=new String(bytes.toByteArray(),Charset.forName(charset));
+                for (int segmentSize : new int[]{20,1000}) {
+                    CzbBigText decodeBigText=new CzbBigText(decodeFile,new ReadFileDelegate(decodeFile,segmentSize,charset));
+                    StringBuilder sb=new StringBuilder();
+                    decodeBigText.readFile((currentReadSize, buff, offset, length) -> {
+                        sb.append(buff,offset,length);
+                        return false;
+                    });
+                    Assert.assertEquals(sb.toString(),expected);
+                    Assert.assertEquals(decodeBigText.length(),expected.length());
+                }
+            }
+        } finally {
+            decodeFile.delete();
+        }
+    }
+
+
     /**
      * 按行读取 {@link #srcTextfile}
      * @return {@link #srcTextfile} 的文本文件内容
@@ -267,6 +1358,20 @@ public class CzbBigTextTest {
         return sbf.toString();
     }
 
+    /**
+     * 生成由随机的中日韩统一表意文字组成的字符串
+     * @param random 随机数生成器
+     * @param length 字符数
+     * @return 随机字符串
+     */
+    private static String randomCjk(Random random, int length){
+        char[] chars=new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i]=(char) (0x4E00+random.nextInt(20000));
+        }
+        return new String(chars);
+    }
+
     /**
      * 使用字符缓存读取 {@link #srcTextfile} ，读取出来的文本内容包含\r\n
      * @return {@link #srcTextfile} 的文本文件内容